@@ -0,0 +1,79 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.activiti.bpmn.converter.BpmnXMLConverter;
+import org.activiti.bpmn.model.BpmnModel;
+import org.activiti.designer.util.bpmn.BpmnParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times reading a BPMN file the way the editor opens it, with {@link BpmnParser}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DiagramOpenBenchmark {
+
+  @Param({ "100", "1000", "3000", "20000" })
+  public int elements;
+
+  @Param({ "4" })
+  public int lanes;
+
+  @Param({ "2" })
+  public int subProcessDepth;
+
+  @Param({ "2" })
+  public int bendpoints;
+
+  private byte[] xml;
+  private byte[] xmlWithoutDiagramInterchange;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    final SyntheticBpmnModelFactory factory = new SyntheticBpmnModelFactory(elements, lanes, subProcessDepth, bendpoints);
+    xml = new BpmnXMLConverter().convertToXML(factory.create(true));
+    xmlWithoutDiagramInterchange = new BpmnXMLConverter().convertToXML(factory.create(false));
+  }
+
+  @Benchmark
+  public BpmnModel parse() throws Exception {
+    return BpmnParser.parse(xml, null, null);
+  }
+
+  /**
+   * Files without diagram interchange information are laid out after parsing.
+   */
+  @Benchmark
+  public BpmnModel parseAndAutoLayout() throws Exception {
+    return BpmnParser.parse(xmlWithoutDiagramInterchange, null, null);
+  }
+}
@@ -0,0 +1,82 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.activiti.bpmn.converter.BpmnXMLConverter;
+import org.activiti.bpmn.model.BpmnModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times the phases of saving a diagram in the editor: rebuilding the diagram interchange
+ * information with the traversal of the editor, see {@link RecordedDiagramInterchange}, and
+ * serializing the model with the converter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DiagramSaveBenchmark {
+
+  @Param({ "100", "1000", "3000", "20000" })
+  public int elements;
+
+  @Param({ "4" })
+  public int lanes;
+
+  @Param({ "2" })
+  public int subProcessDepth;
+
+  @Param({ "2" })
+  public int bendpoints;
+
+  private BpmnModel model;
+  private RecordedDiagramInterchange diagramInterchange;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    model = new SyntheticBpmnModelFactory(elements, lanes, subProcessDepth, bendpoints).create(true);
+    diagramInterchange = new RecordedDiagramInterchange(model);
+  }
+
+  @Benchmark
+  public int collectDiagramInterchange() throws Exception {
+    return diagramInterchange.collect();
+  }
+
+  @Benchmark
+  public byte[] serialize() {
+    return new BpmnXMLConverter().convertToXML(model);
+  }
+
+  @Benchmark
+  public byte[] collectAndSerialize() throws Exception {
+    diagramInterchange.collect();
+    return new BpmnXMLConverter().convertToXML(model);
+  }
+}
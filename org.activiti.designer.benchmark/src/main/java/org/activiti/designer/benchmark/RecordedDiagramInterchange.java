@@ -0,0 +1,124 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.activiti.bpmn.model.Association;
+import org.activiti.bpmn.model.BaseElement;
+import org.activiti.bpmn.model.BpmnModel;
+import org.activiti.bpmn.model.GraphicInfo;
+import org.activiti.bpmn.model.MessageFlow;
+import org.activiti.bpmn.model.SequenceFlow;
+import org.activiti.designer.util.bpmn.DiagramInterchangeCollector;
+
+/**
+ * Rebuilds the diagram interchange information of a model with the traversal the editor uses on
+ * save, see <code>GraphitiToBpmnDI</code>. The geometry recorded from the model when this object
+ * is created stands in for the pictogram elements of an open diagram, so only the lookup of an
+ * element on the diagram differs from the editor.
+ */
+public class RecordedDiagramInterchange extends DiagramInterchangeCollector {
+
+  private final BpmnModel bpmnModel;
+  private final Map<String, GraphicInfo> shapes = new HashMap<String, GraphicInfo>();
+  private final Map<String, List<GraphicInfo>> edges = new HashMap<String, List<GraphicInfo>>();
+
+  public RecordedDiagramInterchange(final BpmnModel bpmnModel) {
+    this.bpmnModel = bpmnModel;
+    for (final Map.Entry<String, GraphicInfo> entry : bpmnModel.getLocationMap().entrySet()) {
+      shapes.put(entry.getKey(), copy(entry.getValue()));
+    }
+    for (final Map.Entry<String, List<GraphicInfo>> entry : bpmnModel.getFlowLocationMap().entrySet()) {
+      edges.put(entry.getKey(), copy(entry.getValue()));
+    }
+  }
+
+  /**
+   * Clears the diagram interchange information of the model and collects it again.
+   *
+   * @return the number of shapes written, so the work cannot be optimized away
+   */
+  public int collect() throws Exception {
+    processAllElements();
+    moveIntoPositiveArea();
+    return bpmnModel.getLocationMap().size();
+  }
+
+  @Override
+  protected BpmnModel getBpmnModel() {
+    return bpmnModel;
+  }
+
+  @Override
+  protected boolean isDrawn(final BaseElement element) {
+    return shapes.containsKey(element.getId()) || edges.containsKey(element.getId());
+  }
+
+  @Override
+  protected void updateFlowElement(final BaseElement flowElement) {
+    final GraphicInfo graphicInfo = shapes.get(flowElement.getId());
+    if (graphicInfo != null) {
+      bpmnModel.addGraphicInfo(flowElement.getId(), copy(graphicInfo));
+    }
+  }
+
+  @Override
+  protected void updateSequenceFlow(final SequenceFlow sequenceFlow) {
+    updateEdge(sequenceFlow);
+  }
+
+  @Override
+  protected void updateMessageFlow(final MessageFlow messageFlow) {
+    updateEdge(messageFlow);
+  }
+
+  @Override
+  protected void updateAssociation(final Association association) {
+    updateEdge(association);
+  }
+
+  @Override
+  protected void removeBusinessObject(final BaseElement element) {
+    // the model is all there is
+  }
+
+  private void updateEdge(final BaseElement edge) {
+    final List<GraphicInfo> waypoints = edges.get(edge.getId());
+    if (waypoints != null) {
+      bpmnModel.addFlowGraphicInfoList(edge.getId(), copy(waypoints));
+    }
+  }
+
+  private static List<GraphicInfo> copy(final List<GraphicInfo> source) {
+    final List<GraphicInfo> waypoints = new ArrayList<GraphicInfo>(source.size());
+    for (final GraphicInfo waypoint : source) {
+      waypoints.add(copy(waypoint));
+    }
+    return waypoints;
+  }
+
+  private static GraphicInfo copy(final GraphicInfo source) {
+    final GraphicInfo graphicInfo = new GraphicInfo();
+    graphicInfo.setX(source.getX());
+    graphicInfo.setY(source.getY());
+    graphicInfo.setWidth(source.getWidth());
+    graphicInfo.setHeight(source.getHeight());
+    graphicInfo.setExpanded(source.getExpanded());
+    return graphicInfo;
+  }
+}
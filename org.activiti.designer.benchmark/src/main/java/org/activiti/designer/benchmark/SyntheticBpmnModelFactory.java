@@ -0,0 +1,307 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.activiti.bpmn.model.BpmnModel;
+import org.activiti.bpmn.model.EndEvent;
+import org.activiti.bpmn.model.ExclusiveGateway;
+import org.activiti.bpmn.model.FlowElement;
+import org.activiti.bpmn.model.FlowElementsContainer;
+import org.activiti.bpmn.model.GraphicInfo;
+import org.activiti.bpmn.model.Lane;
+import org.activiti.bpmn.model.Pool;
+import org.activiti.bpmn.model.Process;
+import org.activiti.bpmn.model.ScriptTask;
+import org.activiti.bpmn.model.SequenceFlow;
+import org.activiti.bpmn.model.ServiceTask;
+import org.activiti.bpmn.model.StartEvent;
+import org.activiti.bpmn.model.SubProcess;
+import org.activiti.bpmn.model.UserTask;
+
+/**
+ * Builds synthetic {@link BpmnModel}s shaped like the diagrams users draw in the Designer: a single
+ * pool with lanes, a long chain of tasks, gateways and events, nested {@link SubProcess}es and
+ * sequence flows carrying bendpoints. The element count includes the elements inside sub processes,
+ * sequence flows are not counted.
+ */
+public class SyntheticBpmnModelFactory {
+
+  public static final String PROCESS_ID = "syntheticProcess";
+  public static final String POOL_ID = "syntheticPool";
+
+  private static final int ELEMENTS_PER_ROW = 20;
+  private static final int CELL_WIDTH = 200;
+  private static final int CELL_HEIGHT = 200;
+  private static final int POOL_LABEL_WIDTH = 30;
+  private static final int LANE_LABEL_WIDTH = 30;
+
+  /** A sub process is inserted at every n-th position of the process chain. */
+  private static final int SUB_PROCESS_INTERVAL = 25;
+  /** Position of the nested sub process in a sub process chain. */
+  private static final int NESTED_SUB_PROCESS_POSITION = 2;
+  private static final int ELEMENTS_PER_SUB_PROCESS = 6;
+
+  private final int elementCount;
+  private final int laneCount;
+  private final int subProcessDepth;
+  private final int bendpointCount;
+
+  private BpmnModel model;
+  private List<SequenceFlow> sequenceFlows;
+  private int remaining;
+  private int idCounter;
+
+  /**
+   * @param elementCount
+   *          the total number of flow nodes, including the ones nested in sub processes
+   * @param laneCount
+   *          the number of lanes in the pool, 0 for a diagram without pool
+   * @param subProcessDepth
+   *          how deep sub processes are nested, 0 for a flat diagram
+   * @param bendpointCount
+   *          the number of bendpoints of every sequence flow
+   */
+  public SyntheticBpmnModelFactory(int elementCount, int laneCount, int subProcessDepth, int bendpointCount) {
+    if (elementCount < 2) {
+      throw new IllegalArgumentException("A synthetic model needs at least a start and an end event");
+    }
+    this.elementCount = elementCount;
+    this.laneCount = laneCount;
+    this.subProcessDepth = subProcessDepth;
+    this.bendpointCount = bendpointCount;
+  }
+
+  /**
+   * Creates a new model.
+   *
+   * @param withDiagramInterchange
+   *          whether shape and edge locations are added; a model without them is what the editor
+   *          passes to the auto layout
+   */
+  public BpmnModel create(boolean withDiagramInterchange) {
+    model = new BpmnModel();
+    sequenceFlows = new ArrayList<SequenceFlow>();
+    remaining = elementCount;
+    idCounter = 0;
+
+    final Process process = new Process();
+    process.setId(PROCESS_ID);
+    process.setName("Synthetic process");
+    model.addProcess(process);
+
+    final List<FlowElement> mainChain = createChain(process, subProcessDepth);
+
+    final List<Lane> lanes = new ArrayList<Lane>();
+    if (laneCount > 0) {
+      final Pool pool = new Pool();
+      pool.setId(POOL_ID);
+      pool.setName("Synthetic pool");
+      pool.setProcessRef(PROCESS_ID);
+      model.getPools().add(pool);
+
+      for (int i = 0; i < laneCount; i++) {
+        final Lane lane = new Lane();
+        lane.setId("lane" + (i + 1));
+        lane.setName("Lane " + (i + 1));
+        lane.setParentProcess(process);
+        process.getLanes().add(lane);
+        lanes.add(lane);
+      }
+    }
+
+    final int rowCount = (mainChain.size() + ELEMENTS_PER_ROW - 1) / ELEMENTS_PER_ROW;
+    final int rowsPerLane = lanes.isEmpty() ? rowCount : Math.max(1, (rowCount + lanes.size() - 1) / lanes.size());
+    final int offsetX = lanes.isEmpty() ? 0 : POOL_LABEL_WIDTH + LANE_LABEL_WIDTH;
+
+    for (int i = 0; i < mainChain.size(); i++) {
+      final FlowElement element = mainChain.get(i);
+      final int row = i / ELEMENTS_PER_ROW;
+      final int column = i % ELEMENTS_PER_ROW;
+
+      if (!lanes.isEmpty()) {
+        final Lane lane = lanes.get(Math.min(row / rowsPerLane, lanes.size() - 1));
+        lane.getFlowReferences().add(element.getId());
+      }
+      if (withDiagramInterchange) {
+        layoutElement(element, offsetX + column * CELL_WIDTH + 20, row * CELL_HEIGHT + 20, CELL_WIDTH - 40, CELL_HEIGHT - 40);
+      }
+    }
+
+    if (withDiagramInterchange) {
+      final int laneWidth = LANE_LABEL_WIDTH + ELEMENTS_PER_ROW * CELL_WIDTH;
+      for (int i = 0; i < lanes.size(); i++) {
+        final int laneRows = i == lanes.size() - 1 ? Math.max(1, rowCount - i * rowsPerLane) : rowsPerLane;
+        model.addGraphicInfo(lanes.get(i).getId(), createGraphicInfo(POOL_LABEL_WIDTH, i * rowsPerLane * CELL_HEIGHT, laneWidth, laneRows * CELL_HEIGHT));
+      }
+      if (!lanes.isEmpty()) {
+        final int poolHeight = Math.max(rowCount, (lanes.size() - 1) * rowsPerLane + 1) * CELL_HEIGHT;
+        model.addGraphicInfo(POOL_ID, createGraphicInfo(0, 0, POOL_LABEL_WIDTH + laneWidth, poolHeight));
+      }
+      for (final SequenceFlow sequenceFlow : sequenceFlows) {
+        layoutSequenceFlow(sequenceFlow);
+      }
+    }
+
+    return model;
+  }
+
+  /**
+   * Creates a start event, a number of activities and an end event in the container and connects
+   * them with sequence flows.
+   */
+  protected List<FlowElement> createChain(final FlowElementsContainer container, final int depth) {
+    final List<FlowElement> chain = new ArrayList<FlowElement>();
+
+    final boolean topLevel = container instanceof Process;
+    final int budget = topLevel ? remaining : Math.min(remaining, ELEMENTS_PER_SUB_PROCESS);
+
+    // A chain needs a start and an end event. Sub processes take what is left of the budget
+    chain.add(addElement(container, new StartEvent(), "startevent"));
+    remaining -= 2;
+
+    int position = 1;
+    while (remaining > 0 && (topLevel || position < budget - 1)) {
+      final boolean subProcessPosition = topLevel ? position % SUB_PROCESS_INTERVAL == 0 : position == NESTED_SUB_PROCESS_POSITION;
+      final FlowElement element;
+      if (depth > 0 && subProcessPosition && remaining > 2) {
+        final SubProcess subProcess = new SubProcess();
+        addElement(container, subProcess, "subprocess");
+        remaining--;
+        createChain(subProcess, depth - 1);
+        element = subProcess;
+
+      } else {
+        element = createActivity(container, position);
+        remaining--;
+      }
+      chain.add(element);
+      position++;
+    }
+
+    chain.add(addElement(container, new EndEvent(), "endevent"));
+
+    for (int i = 1; i < chain.size(); i++) {
+      final SequenceFlow sequenceFlow = new SequenceFlow(chain.get(i - 1).getId(), chain.get(i).getId());
+      sequenceFlow.setId(nextId("flow"));
+      container.addFlowElement(sequenceFlow);
+      sequenceFlows.add(sequenceFlow);
+    }
+
+    return chain;
+  }
+
+  protected FlowElement createActivity(final FlowElementsContainer container, final int position) {
+    switch (position % 4) {
+    case 0:
+      return addElement(container, new ExclusiveGateway(), "exclusivegateway");
+    case 1:
+      final UserTask userTask = new UserTask();
+      userTask.setAssignee("kermit");
+      return addElement(container, userTask, "usertask");
+    case 2:
+      final ServiceTask serviceTask = new ServiceTask();
+      serviceTask.setImplementationType("class");
+      serviceTask.setImplementation("org.activiti.designer.benchmark.Delegate");
+      return addElement(container, serviceTask, "servicetask");
+    default:
+      final ScriptTask scriptTask = new ScriptTask();
+      scriptTask.setScriptFormat("javascript");
+      scriptTask.setScript("var result = 1;");
+      return addElement(container, scriptTask, "scripttask");
+    }
+  }
+
+  protected FlowElement addElement(final FlowElementsContainer container, final FlowElement element, final String idPrefix) {
+    element.setId(nextId(idPrefix));
+    element.setName(element.getId());
+    container.addFlowElement(element);
+    return element;
+  }
+
+  /**
+   * Places the element centered in the cell. Sub processes fill the cell and lay out their own
+   * chain in a single row inside of it.
+   */
+  protected void layoutElement(final FlowElement element, final int x, final int y, final int width, final int height) {
+    if (element instanceof SubProcess) {
+      model.addGraphicInfo(element.getId(), createGraphicInfo(x, y, width, height));
+
+      final List<FlowElement> children = new ArrayList<FlowElement>();
+      for (final FlowElement child : ((SubProcess) element).getFlowElements()) {
+        if (child instanceof SequenceFlow == false) {
+          children.add(child);
+        }
+      }
+      final int childWidth = Math.max(1, (width - 10) / Math.max(1, children.size()));
+      for (int i = 0; i < children.size(); i++) {
+        layoutElement(children.get(i), x + 5 + i * childWidth, y + 5, childWidth, height - 10);
+      }
+      return;
+    }
+
+    int shapeWidth = 105;
+    int shapeHeight = 55;
+    if (element instanceof StartEvent || element instanceof EndEvent) {
+      shapeWidth = 35;
+      shapeHeight = 35;
+    } else if (element instanceof ExclusiveGateway) {
+      shapeWidth = 40;
+      shapeHeight = 40;
+    }
+    shapeWidth = Math.min(shapeWidth, width);
+    shapeHeight = Math.min(shapeHeight, height);
+    model.addGraphicInfo(element.getId(), createGraphicInfo(x + (width - shapeWidth) / 2, y + (height - shapeHeight) / 2, shapeWidth, shapeHeight));
+  }
+
+  /**
+   * Connects the centers of source and target and adds the requested number of bendpoints in
+   * between, alternating above and below the direct line.
+   */
+  protected void layoutSequenceFlow(final SequenceFlow sequenceFlow) {
+    final GraphicInfo source = model.getGraphicInfo(sequenceFlow.getSourceRef());
+    final GraphicInfo target = model.getGraphicInfo(sequenceFlow.getTargetRef());
+
+    final double startX = source.getX() + source.getWidth();
+    final double startY = source.getY() + source.getHeight() / 2;
+    final double endX = target.getX();
+    final double endY = target.getY() + target.getHeight() / 2;
+
+    final List<GraphicInfo> waypoints = new ArrayList<GraphicInfo>();
+    waypoints.add(createGraphicInfo(startX, startY, 0, 0));
+    for (int i = 1; i <= bendpointCount; i++) {
+      final double fraction = (double) i / (bendpointCount + 1);
+      final double offset = i % 2 == 0 ? 20 : -20;
+      waypoints.add(createGraphicInfo(startX + (endX - startX) * fraction, startY + (endY - startY) * fraction + offset, 0, 0));
+    }
+    waypoints.add(createGraphicInfo(endX, endY, 0, 0));
+    model.addFlowGraphicInfoList(sequenceFlow.getId(), waypoints);
+  }
+
+  protected GraphicInfo createGraphicInfo(final double x, final double y, final double width, final double height) {
+    final GraphicInfo graphicInfo = new GraphicInfo();
+    graphicInfo.setX(x);
+    graphicInfo.setY(y);
+    graphicInfo.setWidth(width);
+    graphicInfo.setHeight(height);
+    return graphicInfo;
+  }
+
+  protected String nextId(final String prefix) {
+    return prefix + (++idCounter);
+  }
+
+}
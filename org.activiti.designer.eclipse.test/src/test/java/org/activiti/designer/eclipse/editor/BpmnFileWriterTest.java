@@ -0,0 +1,110 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.eclipse.editor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BpmnFileWriterTest {
+
+  private static final byte[] CONTENT = "<definitions/>".getBytes();
+  private static final byte[] OTHER_CONTENT = "<definitions><process id=\"process1\"/></definitions>".getBytes();
+
+  private File directory;
+  private File file;
+  private BpmnFileWriter writer;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = File.createTempFile("bpmnfilewriter", "");
+    directory.delete();
+    directory.mkdir();
+    file = new File(directory, "process.bpmn");
+    writer = new BpmnFileWriter(file);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(directory);
+  }
+
+  @Test
+  public void writesANewFile() throws IOException {
+    assertTrue(writer.write(CONTENT));
+
+    assertArrayEquals(CONTENT, FileUtils.readFileToByteArray(file));
+    assertEquals(1, directory.list().length);
+  }
+
+  @Test
+  public void replacesAnExistingFile() throws IOException {
+    FileUtils.writeByteArrayToFile(file, CONTENT);
+
+    assertTrue(writer.write(OTHER_CONTENT));
+
+    assertArrayEquals(OTHER_CONTENT, FileUtils.readFileToByteArray(file));
+    assertEquals(1, directory.list().length);
+  }
+
+  @Test
+  public void skipsTheContentItWroteLast() throws IOException {
+    writer.write(CONTENT);
+    final long modified = file.lastModified();
+
+    assertFalse(writer.write(CONTENT));
+    assertEquals(modified, file.lastModified());
+
+    assertTrue(writer.write(OTHER_CONTENT));
+    assertArrayEquals(OTHER_CONTENT, FileUtils.readFileToByteArray(file));
+  }
+
+  @Test
+  public void skipsTheContentItRead() throws IOException {
+    FileUtils.writeByteArrayToFile(file, CONTENT);
+    writer.setContent(CONTENT);
+
+    assertFalse(writer.write(CONTENT));
+  }
+
+  @Test
+  public void writesAgainWhenTheFileWasChangedByOthers() throws IOException {
+    writer.write(CONTENT);
+
+    FileUtils.writeByteArrayToFile(file, OTHER_CONTENT);
+    file.setLastModified(file.lastModified() - 10000L);
+
+    assertTrue(writer.write(CONTENT));
+    assertArrayEquals(CONTENT, FileUtils.readFileToByteArray(file));
+  }
+
+  @Test
+  public void writesAgainWhenTheFileWasDeleted() throws IOException {
+    writer.write(CONTENT);
+
+    file.delete();
+
+    assertTrue(writer.write(CONTENT));
+    assertArrayEquals(CONTENT, FileUtils.readFileToByteArray(file));
+  }
+}
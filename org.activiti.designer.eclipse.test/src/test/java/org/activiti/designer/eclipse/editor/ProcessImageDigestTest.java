@@ -0,0 +1,152 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.eclipse.editor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.activiti.bpmn.model.BpmnModel;
+import org.activiti.bpmn.model.GraphicInfo;
+import org.activiti.bpmn.model.Process;
+import org.activiti.bpmn.model.SequenceFlow;
+import org.activiti.bpmn.model.ServiceTask;
+import org.activiti.bpmn.model.StartEvent;
+import org.activiti.bpmn.model.TimerEventDefinition;
+import org.junit.Test;
+
+public class ProcessImageDigestTest {
+
+  @Test
+  public void sameModelGivesSameDigest() {
+    assertEquals(ProcessImageDigest.compute(createBpmnModel()), ProcessImageDigest.compute(createBpmnModel()));
+  }
+
+  @Test
+  public void orderOfTheDiagramInterchangeDoesNotMatter() {
+    final BpmnModel bpmnModel = createBpmnModel();
+    final BpmnModel reordered = new BpmnModel();
+    reordered.addProcess(bpmnModel.getProcesses().get(0));
+    reordered.addGraphicInfo("servicetask1", bpmnModel.getGraphicInfo("servicetask1"));
+    reordered.addGraphicInfo("startevent1", bpmnModel.getGraphicInfo("startevent1"));
+    reordered.addFlowGraphicInfoList("flow1", bpmnModel.getFlowLocationGraphicInfo("flow1"));
+
+    assertEquals(ProcessImageDigest.compute(bpmnModel), ProcessImageDigest.compute(reordered));
+  }
+
+  @Test
+  public void propertiesThatAreNotDrawnDoNotChangeTheDigest() {
+    final BpmnModel bpmnModel = createBpmnModel();
+    final String digest = ProcessImageDigest.compute(bpmnModel);
+
+    getServiceTask(bpmnModel).setImplementation("org.example.OtherDelegate");
+    getServiceTask(bpmnModel).setDocumentation("Calls another delegate");
+
+    assertEquals(digest, ProcessImageDigest.compute(bpmnModel));
+  }
+
+  @Test
+  public void namesChangeTheDigest() {
+    final BpmnModel bpmnModel = createBpmnModel();
+    final String digest = ProcessImageDigest.compute(bpmnModel);
+
+    getServiceTask(bpmnModel).setName("Send the invoice");
+
+    assertFalse(digest.equals(ProcessImageDigest.compute(bpmnModel)));
+  }
+
+  @Test
+  public void positionsChangeTheDigest() {
+    final BpmnModel bpmnModel = createBpmnModel();
+    final String digest = ProcessImageDigest.compute(bpmnModel);
+
+    bpmnModel.getGraphicInfo("servicetask1").setX(300);
+
+    assertFalse(digest.equals(ProcessImageDigest.compute(bpmnModel)));
+  }
+
+  @Test
+  public void bendpointsChangeTheDigest() {
+    final BpmnModel bpmnModel = createBpmnModel();
+    final String digest = ProcessImageDigest.compute(bpmnModel);
+
+    bpmnModel.getFlowLocationGraphicInfo("flow1").add(1, createGraphicInfo(100, 200, 0, 0));
+
+    assertFalse(digest.equals(ProcessImageDigest.compute(bpmnModel)));
+  }
+
+  @Test
+  public void eventDefinitionsChangeTheDigest() {
+    final BpmnModel bpmnModel = createBpmnModel();
+    final String digest = ProcessImageDigest.compute(bpmnModel);
+
+    ((StartEvent) bpmnModel.getFlowElement("startevent1")).addEventDefinition(new TimerEventDefinition());
+
+    assertFalse(digest.equals(ProcessImageDigest.compute(bpmnModel)));
+  }
+
+  @Test
+  public void conditionsChangeTheDigest() {
+    final BpmnModel bpmnModel = createBpmnModel();
+    final String digest = ProcessImageDigest.compute(bpmnModel);
+
+    ((SequenceFlow) bpmnModel.getFlowElement("flow1")).setConditionExpression("${approved}");
+
+    assertFalse(digest.equals(ProcessImageDigest.compute(bpmnModel)));
+  }
+
+  private ServiceTask getServiceTask(final BpmnModel bpmnModel) {
+    return (ServiceTask) bpmnModel.getFlowElement("servicetask1");
+  }
+
+  private BpmnModel createBpmnModel() {
+    final Process process = new Process();
+    process.setId("process1");
+
+    final StartEvent startEvent = new StartEvent();
+    startEvent.setId("startevent1");
+    process.addFlowElement(startEvent);
+
+    final ServiceTask serviceTask = new ServiceTask();
+    serviceTask.setId("servicetask1");
+    serviceTask.setName("Send invoice");
+    serviceTask.setImplementation("org.example.InvoiceDelegate");
+    process.addFlowElement(serviceTask);
+
+    final SequenceFlow sequenceFlow = new SequenceFlow("startevent1", "servicetask1");
+    sequenceFlow.setId("flow1");
+    process.addFlowElement(sequenceFlow);
+
+    final BpmnModel bpmnModel = new BpmnModel();
+    bpmnModel.addProcess(process);
+    bpmnModel.addGraphicInfo("startevent1", createGraphicInfo(10, 10, 35, 35));
+    bpmnModel.addGraphicInfo("servicetask1", createGraphicInfo(100, 10, 105, 55));
+    final List<GraphicInfo> waypoints = new ArrayList<GraphicInfo>();
+    waypoints.add(createGraphicInfo(45, 27, 0, 0));
+    waypoints.add(createGraphicInfo(100, 37, 0, 0));
+    bpmnModel.addFlowGraphicInfoList("flow1", waypoints);
+    return bpmnModel;
+  }
+
+  private GraphicInfo createGraphicInfo(final double x, final double y, final double width, final double height) {
+    final GraphicInfo graphicInfo = new GraphicInfo();
+    graphicInfo.setX(x);
+    graphicInfo.setY(y);
+    graphicInfo.setWidth(width);
+    graphicInfo.setHeight(height);
+    return graphicInfo;
+  }
+}
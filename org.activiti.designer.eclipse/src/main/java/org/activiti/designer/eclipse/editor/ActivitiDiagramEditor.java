@@ -14,23 +14,21 @@
 package org.activiti.designer.eclipse.editor;
 
 import java.awt.Point;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.lang.reflect.Field;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
-import javax.xml.stream.XMLInputFactory;
-import javax.xml.stream.XMLStreamReader;
-
-import org.activiti.bpmn.BpmnAutoLayout;
 import org.activiti.bpmn.converter.BpmnXMLConverter;
 import org.activiti.bpmn.model.Artifact;
 import org.activiti.bpmn.model.Association;
@@ -53,39 +51,46 @@ import org.activiti.bpmn.model.SequenceFlow;
 import org.activiti.bpmn.model.ServiceTask;
 import org.activiti.bpmn.model.SubProcess;
 import org.activiti.bpmn.model.UserTask;
+import org.activiti.designer.eclipse.Logger;
 import org.activiti.designer.eclipse.common.ActivitiPlugin;
 import org.activiti.designer.eclipse.extension.export.ExportMarshaller;
 import org.activiti.designer.eclipse.ui.ExportMarshallerRunnable;
 import org.activiti.designer.eclipse.util.ExtensionPointUtil;
 import org.activiti.designer.eclipse.util.FileService;
-import org.activiti.designer.integration.annotation.Property;
 import org.activiti.designer.integration.servicetask.CustomServiceTask;
 import org.activiti.designer.integration.usertask.CustomUserTask;
 import org.activiti.designer.util.bpmn.BpmnExtensions;
+import org.activiti.designer.util.bpmn.BpmnParser;
 import org.activiti.designer.util.eclipse.ActivitiUiUtil;
 import org.activiti.designer.util.editor.BpmnMemoryModel;
 import org.activiti.designer.util.editor.ModelHandler;
-import org.activiti.designer.util.extension.ExtensionUtil;
+import org.activiti.designer.util.editor.PictogramElementIndex;
+import org.activiti.designer.util.extension.CustomTaskResolver;
 import org.activiti.designer.util.preferences.Preferences;
 import org.activiti.designer.util.preferences.PreferencesUtil;
-import org.activiti.image.ProcessDiagramGenerator;
-import org.activiti.image.impl.DefaultProcessDiagramGenerator;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
+import org.eclipse.core.commands.operations.IOperationHistoryListener;
+import org.eclipse.core.commands.operations.IUndoContext;
+import org.eclipse.core.commands.operations.OperationHistoryEvent;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.draw2d.IFigure;
 import org.eclipse.draw2d.SWTGraphics;
 import org.eclipse.draw2d.geometry.Rectangle;
 import org.eclipse.emf.common.command.BasicCommandStack;
-import org.eclipse.emf.common.util.EList;
 import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.eclipse.emf.transaction.RecordingCommand;
+import org.eclipse.emf.transaction.Transaction;
 import org.eclipse.emf.transaction.TransactionalEditingDomain;
+import org.eclipse.emf.transaction.impl.InternalTransaction;
+import org.eclipse.emf.transaction.impl.InternalTransactionalEditingDomain;
+import org.eclipse.emf.workspace.IWorkspaceCommandStack;
 import org.eclipse.gef.GraphicalViewer;
 import org.eclipse.gef.LayerConstants;
 import org.eclipse.gef.editparts.LayerManager;
@@ -96,32 +101,80 @@ import org.eclipse.graphiti.features.context.impl.AddConnectionContext;
 import org.eclipse.graphiti.features.context.impl.AddContext;
 import org.eclipse.graphiti.features.context.impl.AreaContext;
 import org.eclipse.graphiti.mm.pictograms.Anchor;
-import org.eclipse.graphiti.mm.pictograms.ChopboxAnchor;
 import org.eclipse.graphiti.mm.pictograms.ContainerShape;
 import org.eclipse.graphiti.mm.pictograms.Diagram;
 import org.eclipse.graphiti.mm.pictograms.PictogramElement;
 import org.eclipse.graphiti.ui.editor.DiagramEditor;
 import org.eclipse.graphiti.ui.editor.DiagramEditorInput;
+import org.eclipse.jface.operation.IRunnableWithProgress;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.graphics.GC;
-import org.eclipse.swt.graphics.Image;
-import org.eclipse.swt.graphics.ImageData;
-import org.eclipse.swt.graphics.ImageLoader;
+import org.eclipse.swt.graphics.Transform;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.MessageBox;
 import org.eclipse.ui.IEditorInput;
 import org.eclipse.ui.IEditorSite;
+import org.eclipse.ui.IWorkbench;
+import org.eclipse.ui.IWorkbenchListener;
 import org.eclipse.ui.PartInitException;
 import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.progress.IProgressService;
 
 public class ActivitiDiagramEditor extends DiagramEditor {
 
+  /**
+   * The number of top level flow elements imported in one step by {@link #createImportSteps(BpmnMemoryModel)}.
+   */
+  protected static final int IMPORT_CHUNK_SIZE = 100;
+
+  private static final Map<?, ?> NO_UNDO_OPTIONS = Collections.singletonMap(Transaction.OPTION_NO_UNDO, Boolean.TRUE);
+
   private static GraphicalViewer activeGraphicalViewer;
 
   private TransactionalEditingDomain transactionalEditingDomain;
 
+  private BackgroundDiagramLoader diagramLoader;
+
+  /** Rolls back the edits of the user while the diagram is loaded in the background. */
+  private LoadingEditGuard loadingEditGuard;
+
+  /** Renders the images per language, skipping the ones that did not change. */
+  private final LanguageImageWriter languageImageWriter = new LanguageImageWriter(this);
+
+  /** Writes the BPMN file, skipping the write if its content did not change. */
+  private BpmnFileWriter bpmnFileWriter;
+
+  /** The last save scheduled with {@link Preferences#SAVE_IN_BACKGROUND}. */
+  private BackgroundDiagramSaver backgroundSaver;
+
+  /** The background saves that have not written the BPMN file yet, the editor stays dirty until then. */
+  private int pendingBackgroundSaves;
+
+  /**
+   * Set when the BPMN file does not hold the state the command stack considers saved, because a
+   * background save failed or saved a later state. The editor stays dirty until the next save.
+   */
+  private boolean savePointInvalid;
+
+  /** Keeps the workbench from shutting down while a background save is running. */
+  private IWorkbenchListener shutdownListener;
+
+  /** The model of this editor, the {@link ModelHandler} only references it weakly. */
+  private BpmnMemoryModel memoryModel;
+
+  /** Tells the model which elements need new graphic info on the next save. */
+  private DirtyElementListener dirtyElementListener;
+
+  /** Releases the keys of deleted business objects once the command that deleted them leaves the undo history. */
+  private IOperationHistoryListener removedKeyPurger;
+
+  /** Key of the BPMN file content in the {@link DiagramSnapshotCache}, set when the file is read or written. */
+  private volatile String snapshotKey;
+
+  /** The snapshot {@link #readBpmnModel(File)} found for the file, restored by the next import. */
+  private volatile Diagram restorableSnapshot;
+
   public ActivitiDiagramEditor() {
     super();
   }
@@ -152,6 +205,20 @@ public class ActivitiDiagramEditor extends DiagramEditor {
     }
 
     super.init(site, finalInput);
+
+    shutdownListener = new IWorkbenchListener() {
+
+      @Override
+      public boolean preShutdown(IWorkbench workbench, boolean forced) {
+        joinBackgroundJobs();
+        return true;
+      }
+
+      @Override
+      public void postShutdown(IWorkbench workbench) {
+      }
+    };
+    PlatformUI.getWorkbench().addWorkbenchListener(shutdownListener);
   }
 
   private ActivitiDiagramEditorInput createNewDiagramEditorInput(final IEditorInput input) throws CoreException {
@@ -175,6 +242,19 @@ public class ActivitiDiagramEditor extends DiagramEditor {
 
   @Override
   public void doSave(IProgressMonitor monitor) {
+    if (isLoading()) {
+      // a partially imported diagram must never overwrite the BPMN file
+      MessageBox messageBox = new MessageBox(getSite().getShell(), SWT.ICON_INFORMATION | SWT.OK);
+      messageBox.setText("Information");
+      messageBox.setMessage("The diagram is still being loaded. Save it again once it is complete.");
+      messageBox.open();
+      if (monitor != null) {
+        // keeps the workbench from closing the editor on "close and save"
+        monitor.setCanceled(true);
+      }
+      return;
+    }
+
     super.doSave(monitor);
 
     final ActivitiDiagramEditorInput adei = (ActivitiDiagramEditorInput) getEditorInput();
@@ -184,18 +264,32 @@ public class ActivitiDiagramEditor extends DiagramEditor {
       final String diagramFileString = dataFile.getLocationURI().getPath();
       BpmnMemoryModel model = ModelHandler.getModel(EcoreUtil.getURI(getDiagramTypeProvider().getDiagram()));
 
-      // Save the bpmn diagram file
-      doSaveToBpmn(model, diagramFileString);
+      if (PreferencesUtil.getBooleanPreference(Preferences.SAVE_IN_BACKGROUND, ActivitiPlugin.getDefault())) {
+        // the job snapshots and writes the model, the editor stays dirty until it reports back
+        scheduleBackgroundSave(model, dataFile);
+
+        ((BasicCommandStack) getEditingDomain().getCommandStack()).saveIsDone();
+        updateDirtyState();
+        return;
+      }
+
+      // Save the bpmn diagram file, it is only written when its content changed
+      final byte[] xmlBytes = serializeModel(model);
+      final boolean written = doSaveToBpmn(xmlBytes, diagramFileString);
 
-      // Save an image of the diagram
-      doSaveImage(diagramFileString, model);
+      // The diagram now matches the file, so it can be reopened from a snapshot
+      storeSnapshot(model);
+
+      // Save an image of the diagram, the derived files are created again even if the
+      // bpmn file did not change, in case they were deleted
+      doSaveImage(diagramFileString, model, xmlBytes, written);
 
       // Refresh the resources in the workspace before invoking export
       // marshallers, as they may need access to resources
       dataFile.getProject().refreshLocal(IResource.DEPTH_INFINITE, null);
 
       // Invoke export marshallers to produce additional output
-      doInvokeExportMarshallers(model);
+      doInvokeExportMarshallers(model, xmlBytes);
 
     } catch (Exception e) {
       // TODO Auto-generated catch block
@@ -203,82 +297,228 @@ public class ActivitiDiagramEditor extends DiagramEditor {
     }
 
     ((BasicCommandStack) getEditingDomain().getCommandStack()).saveIsDone();
+    savePointInvalid = false;
     updateDirtyState();
   }
 
-  protected void doSaveToBpmn(final BpmnMemoryModel model, final String diagramFileString) throws Exception {
+  /**
+   * Adds the bend-points and positions of the diagram to the model and serializes it.
+   */
+  protected byte[] serializeModel(final BpmnMemoryModel model) throws Exception {
 
     // add sequence flow bend-points to the model
     final IFeatureProvider featureProvider = getDiagramTypeProvider().getFeatureProvider();
     new GraphitiToBpmnDI(model, featureProvider).processGraphitiElements();
 
     BpmnXMLConverter converter = new BpmnXMLConverter();
-    byte[] xmlBytes = converter.convertToXML(model.getBpmnModel());
+    return converter.convertToXML(model.getBpmnModel());
+  }
 
+  /**
+   * Writes the serialized model to the bpmn file, unless the file has the content already. The user
+   * is told if writing fails.
+   *
+   * @return true if the file was written
+   */
+  protected boolean doSaveToBpmn(final byte[] xmlBytes, final String diagramFileString) throws Exception {
     File objectsFile = new File(diagramFileString);
     try {
-      FileOutputStream fos = new FileOutputStream(objectsFile);
-      fos.write(xmlBytes);
-      fos.close();
+      boolean written = getBpmnFileWriter(objectsFile).write(xmlBytes);
+      snapshotKey = DiagramSnapshotCache.createKey(xmlBytes);
+      return written;
     } catch (Exception e) {
+      snapshotKey = null;
       MessageBox messageBox = new MessageBox(Display.getCurrent().getActiveShell(), SWT.ICON_WARNING | SWT.OK);
       messageBox.setText("Warning");
       messageBox.setMessage("Error while saving the model " + e.getLocalizedMessage());
       messageBox.open();
+      throw e;
+    }
+  }
+
+  /**
+   * Runs the work in a write transaction that is not recorded on the command stack, for changes
+   * that are no edits of the user, like loading the diagram or completing the diagram interchange
+   * information of the model on save. May be called from any thread.
+   */
+  <T> T executeWithoutUndo(final Callable<T> work) throws Exception {
+    final InternalTransactionalEditingDomain editingDomain = (InternalTransactionalEditingDomain) getEditingDomain();
+    final InternalTransaction transaction = editingDomain.startTransaction(false, NO_UNDO_OPTIONS);
+    try {
+      final T result = work.call();
+      transaction.commit();
+      return result;
+    } finally {
+      if (transaction.isActive()) {
+        transaction.rollback();
+      }
     }
+  }
 
+  /**
+   * @return the writer of the BPMN file, which knows the content the file was last read or written
+   *         with
+   */
+  synchronized BpmnFileWriter getBpmnFileWriter(final File bpmnFile) {
+    if (bpmnFileWriter == null || !bpmnFileWriter.getFile().equals(bpmnFile)) {
+      bpmnFileWriter = new BpmnFileWriter(bpmnFile);
+    }
+    return bpmnFileWriter;
   }
 
-  private void doSaveImage(final String diagramFileString, BpmnMemoryModel model) {
+  /**
+   * Schedules a {@link BackgroundDiagramSaver} that takes a snapshot of the model and writes it. Only
+   * the image of the diagram is painted on the UI thread, it can not be painted anywhere else.
+   */
+  private void scheduleBackgroundSave(final BpmnMemoryModel model, final IFile dataFile) throws Exception {
+    final IFeatureProvider featureProvider = getDiagramTypeProvider().getFeatureProvider();
+    final BackgroundDiagramSaver saver = new BackgroundDiagramSaver(this, model, dataFile, new BpmnMemoryModel(featureProvider, dataFile),
+            ExtensionPointUtil.getExportMarshallers(), getEditingDomain().getCommandStack().getUndoCommand());
+
+    if (PreferencesUtil.getBooleanPreference(Preferences.SAVE_IMAGE, ActivitiPlugin.getDefault())) {
+      List<String> languages = PreferencesUtil.getStringArray(Preferences.ACTIVITI_LANGUAGES, ActivitiPlugin.getDefault());
+      if (languages != null && languages.size() > 0) {
+        saver.setImageLanguages(languages);
+      } else {
+        // the image is kept as PNG until the job writes it
+        final ByteArrayOutputStream imageStream = new ByteArrayOutputStream();
+        paintDiagramImage(model, dataFile.getLocationURI().getPath(), imageStream);
+        if (imageStream.size() > 0) {
+          saver.setImageBytes(imageStream.toByteArray());
+        }
+      }
+    }
+
+    saver.setPrevious(backgroundSaver);
+    backgroundSaver = saver;
+    pendingBackgroundSaves++;
+    saver.schedule();
+  }
+
+  /**
+   * Called by the {@link BackgroundDiagramSaver} when the BPMN file holds the saved model. The save
+   * point of the command stack is moved to the snapshot, if the user did not edit the diagram since.
+   */
+  void backgroundSaveDone(final BackgroundDiagramSaver saver, final byte[] xmlBytes) {
+    snapshotKey = DiagramSnapshotCache.createKey(xmlBytes);
+
+    Display.getDefault().asyncExec(new Runnable() {
+
+      @Override
+      public void run() {
+        pendingBackgroundSaves--;
+        if (getEditingDomain() == null) {
+          return;
+        }
+
+        final BasicCommandStack commandStack = (BasicCommandStack) getEditingDomain().getCommandStack();
+        if (commandStack.getUndoCommand() == saver.getSavedCommand()) {
+          commandStack.saveIsDone();
+          savePointInvalid = false;
+        } else {
+          // the save point is only right if the snapshot was taken at it
+          savePointInvalid = saver.getSavedCommand() != saver.getSavePointCommand();
+        }
+        updateDirtyState();
+      }
+    });
+  }
+
+  /**
+   * Called by the {@link BackgroundDiagramSaver} when the BPMN file could not be written. The editor
+   * stays dirty, so the user can save again.
+   *
+   * @param exception
+   *          the reason the save failed, or null if it was cancelled
+   */
+  void backgroundSaveFailed(final Exception exception) {
+    snapshotKey = null;
+
+    Display.getDefault().asyncExec(new Runnable() {
+
+      @Override
+      public void run() {
+        pendingBackgroundSaves--;
+        savePointInvalid = true;
+        if (getEditingDomain() != null) {
+          updateDirtyState();
+        }
+        if (exception == null) {
+          return;
+        }
+
+        MessageBox messageBox = new MessageBox(Display.getCurrent().getActiveShell(), SWT.ICON_WARNING | SWT.OK);
+        messageBox.setText("Warning");
+        messageBox.setMessage("Error while saving the model " + exception.getLocalizedMessage());
+        messageBox.open();
+      }
+    });
+  }
+
+  /**
+   * Waits for the background saves and snapshot writes of this editor to finish. A progress dialog
+   * is shown if that takes a while.
+   */
+  private void joinBackgroundJobs() {
+    if (Job.getJobManager().find(this).length == 0) {
+      return;
+    }
+
+    try {
+      PlatformUI.getWorkbench().getProgressService().busyCursorWhile(new IRunnableWithProgress() {
+
+        @Override
+        public void run(IProgressMonitor monitor) throws InterruptedException {
+          Job.getJobManager().join(ActivitiDiagramEditor.this, monitor);
+        }
+      });
+    } catch (InvocationTargetException e) {
+      Logger.logError("Error while waiting for the diagram to be saved", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * @param bpmnFileWritten
+   *          whether the bpmn file was written, the image of the diagram is only painted again if it
+   *          was or the image is missing
+   */
+  private void doSaveImage(final String diagramFileString, BpmnMemoryModel model, byte[] xmlBytes, boolean bpmnFileWritten)
+          throws InterruptedException {
     boolean saveImage = PreferencesUtil.getBooleanPreference(Preferences.SAVE_IMAGE, ActivitiPlugin.getDefault());
     if (saveImage) {
       List<String> languages = PreferencesUtil.getStringArray(Preferences.ACTIVITI_LANGUAGES, ActivitiPlugin.getDefault());
       if (languages != null && languages.size() > 0) {
-        
-        for (String language : languages) {
-          for (Process process : model.getBpmnModel().getProcesses()) {
-            fillContainerWithLanguage(process, language);
-          }
-          
-          ProcessDiagramGenerator processDiagramGenerator = new DefaultProcessDiagramGenerator();
-          InputStream imageStream = processDiagramGenerator.generatePngDiagram(model.getBpmnModel());
-          
-          if (imageStream != null) {
-            String imageFileName = null;
-            if (diagramFileString.endsWith(".bpmn20.xml")) {
-              imageFileName = diagramFileString.substring(0, diagramFileString.length() - 11) + 
-                  "_" + language + ".png";
-            } else {
-              imageFileName = diagramFileString.substring(0, diagramFileString.lastIndexOf(".")) + 
-                  "_" + language + ".png";
-            }
-            File imageFile = new File(imageFileName);
-            FileOutputStream outStream = null;
-            ByteArrayOutputStream baos = null;
-            try {
-              outStream = new FileOutputStream(imageFile);
-              baos = new ByteArrayOutputStream();
-              IOUtils.copy(imageStream, baos);
-              baos.writeTo(outStream);
-              
-            } catch (Exception e) {
-              e.printStackTrace();
-            } finally {
-              if (outStream != null) {
-                IOUtils.closeQuietly(outStream);
-              }
-              if (baos != null) {
-                IOUtils.closeQuietly(baos);
-              }
-            }
-          }
-        }
- 
-      } else {
+        saveLanguageImages(xmlBytes, diagramFileString, languages);
+      } else if (bpmnFileWritten || !new File(getImageFileName(diagramFileString, null)).exists()) {
         marshallImage(model, diagramFileString);
       }
     }
   }
+
+  /**
+   * Generates an image of the processes for every language, with the names of the elements in that
+   * language. Only the images whose content changed since they were last written are generated.
+   *
+   * @param xmlBytes
+   *          the saved model, every language is rendered from its own copy
+   */
+  protected void saveLanguageImages(final byte[] xmlBytes, final String diagramFileString, final List<String> languages)
+          throws InterruptedException {
+    languageImageWriter.write(xmlBytes, diagramFileString, languages);
+  }
+
+  /**
+   * @return the name of the image file of the diagram, for the language if it is not null
+   */
+  protected static String getImageFileName(final String diagramFileString, final String language) {
+    final String suffix = language != null ? "_" + language + ".png" : ".png";
+    if (diagramFileString.endsWith(".bpmn20.xml")) {
+      return diagramFileString.substring(0, diagramFileString.length() - 11) + suffix;
+    }
+    return diagramFileString.substring(0, diagramFileString.lastIndexOf(".")) + suffix;
+  }
   
   protected void fillContainerWithLanguage(FlowElementsContainer container, String language) {
     for (FlowElement flowElement : container.getFlowElements()) {
@@ -304,79 +544,108 @@ public class ActivitiDiagramEditor extends DiagramEditor {
   }
 
   private void marshallImage(BpmnMemoryModel model, String modelFileName) {
+    if (getPrintableViewer(model) == null) {
+      return;
+    }
+
+    OutputStream outStream = null;
     try {
-      final GraphicalViewer graphicalViewer = (GraphicalViewer) ((DiagramEditor) model.getFeatureProvider().getDiagramTypeProvider().getDiagramEditor())
-              .getAdapter(GraphicalViewer.class);
+      outStream = new BufferedOutputStream(new FileOutputStream(new File(getImageFileName(modelFileName, null))));
+      paintDiagramImage(model, modelFileName, outStream);
+    } catch (Exception e) {
+      e.printStackTrace();
+    } finally {
+      IOUtils.closeQuietly(outStream);
+    }
+  }
 
-      if (graphicalViewer == null || graphicalViewer.getEditPartRegistry() == null) {
-        return;
-      }
-      final ScalableFreeformRootEditPart rootEditPart = (ScalableFreeformRootEditPart) graphicalViewer.getEditPartRegistry().get(LayerManager.ID);
-      final IFigure rootFigure = ((LayerManager) rootEditPart).getLayer(LayerConstants.PRINTABLE_LAYERS);
-      final IFigure gridFigure = ((LayerManager) rootEditPart).getLayer(LayerConstants.GRID_LAYER);
-      final Rectangle rootFigureBounds = rootFigure.getBounds();
+  /**
+   * @return the viewer of the editor of the model, or null if the editor shows no diagram
+   */
+  private GraphicalViewer getPrintableViewer(BpmnMemoryModel model) {
+    final GraphicalViewer graphicalViewer = (GraphicalViewer) ((DiagramEditor) model.getFeatureProvider().getDiagramTypeProvider().getDiagramEditor())
+            .getAdapter(GraphicalViewer.class);
 
-      final boolean toggleRequired = gridFigure.isShowing();
+    if (graphicalViewer == null || graphicalViewer.getEditPartRegistry() == null) {
+      return null;
+    }
+    return graphicalViewer;
+  }
 
-      final Display display = Display.getDefault();
+  /**
+   * Paints the diagram as shown in the editor, without grid and selection, and writes it to the
+   * stream as PNG. The image is painted in tiles, so diagrams of any size can be painted without
+   * holding the whole image in memory.
+   */
+  protected void paintDiagramImage(final BpmnMemoryModel model, final String modelFileName, final OutputStream outStream) throws IOException {
+    final GraphicalViewer graphicalViewer = getPrintableViewer(model);
+    if (graphicalViewer == null) {
+      return;
+    }
+    final ScalableFreeformRootEditPart rootEditPart = (ScalableFreeformRootEditPart) graphicalViewer.getEditPartRegistry().get(LayerManager.ID);
+    final IFigure rootFigure = ((LayerManager) rootEditPart).getLayer(LayerConstants.PRINTABLE_LAYERS);
+    final IFigure gridFigure = ((LayerManager) rootEditPart).getLayer(LayerConstants.GRID_LAYER);
+    final Rectangle rootFigureBounds = rootFigure.getBounds();
+    if (rootFigureBounds.width <= 0 || rootFigureBounds.height <= 0) {
+      return;
+    }
 
-      final Image img = new Image(display, rootFigureBounds.width, rootFigureBounds.height);
-      final GC imageGC = new GC(img);
+    final boolean toggleRequired = gridFigure.isShowing();
 
-      // Add overlay
-      addOverlay(imageGC, modelFileName, model);
+    final Display display = Display.getDefault();
 
-      final SWTGraphics grap = new SWTGraphics(imageGC);
+    final ImageOverlayCreator overlayCreator = PreferencesUtil.getBooleanPreference(Preferences.SAVE_IMAGE_ADD_OVERLAY, ActivitiPlugin.getDefault())
+            ? new ImageOverlayCreator(rootFigureBounds.width, rootFigureBounds.height) : null;
 
-      // Access UI thread from runnable to print the canvas to the image
-      display.syncExec(new Runnable() {
+    final TiledImageWriter.TilePainter painter = new TiledImageWriter.TilePainter() {
 
-        @Override
-        public void run() {
-          if (toggleRequired) {
-            // Disable any grids temporarily
-            gridFigure.setVisible(false);
-          }
-          // Deselect any selections
-          graphicalViewer.deselectAll();
-          rootFigure.paint(grap);
+      @Override
+      public void paintTile(GC tileGC, int x, int y) {
+        if (overlayCreator != null) {
+          final Transform transform = new Transform(display);
+          transform.translate(-x, -y);
+          tileGC.setTransform(transform);
+          overlayCreator.addOverlay(tileGC, new org.eclipse.swt.graphics.Rectangle(x, y, TiledImageWriter.TILE_SIZE,
+                  TiledImageWriter.TILE_SIZE), modelFileName, model);
+          tileGC.setTransform(null);
+          transform.dispose();
         }
-      });
-
-      ImageLoader imgLoader = new ImageLoader();
-      imgLoader.data = new ImageData[] { img.getImageData() };
-
-      ByteArrayOutputStream baos = new ByteArrayOutputStream(imgLoader.data.length);
 
-      imgLoader.save(baos, SWT.IMAGE_PNG);
+        final SWTGraphics graphics = new SWTGraphics(tileGC);
+        graphics.translate(-x, -y);
+        rootFigure.paint(graphics);
+        graphics.dispose();
+      }
+    };
 
-      imageGC.dispose();
-      img.dispose();
+    final IOException[] failure = new IOException[1];
 
-      // Access UI thread from runnable
-      display.syncExec(new Runnable() {
+    // Access UI thread from runnable to print the canvas to the image
+    display.syncExec(new Runnable() {
 
-        @Override
-        public void run() {
+      @Override
+      public void run() {
+        if (toggleRequired) {
+          // Disable any grids temporarily
+          gridFigure.setVisible(false);
+        }
+        // Deselect any selections
+        graphicalViewer.deselectAll();
+        try {
+          new TiledImageWriter(display, rootFigureBounds.width, rootFigureBounds.height).write(painter, outStream);
+        } catch (IOException e) {
+          failure[0] = e;
+        } finally {
           if (toggleRequired) {
             // Re-enable any grids
             gridFigure.setVisible(true);
           }
         }
-      });
-
-      String imageFileName = null;
-      if (modelFileName.endsWith(".bpmn20.xml")) {
-        imageFileName = modelFileName.substring(0, modelFileName.length() - 11) + ".png";
-      } else {
-        imageFileName = modelFileName.substring(0, modelFileName.lastIndexOf(".")) + ".png";
       }
-      File imageFile = new File(imageFileName);
-      FileOutputStream outStream = new FileOutputStream(imageFile);
-      baos.writeTo(outStream);
+    });
 
-    } catch (Exception e) {
-      e.printStackTrace();
+    if (failure[0] != null) {
+      throw failure[0];
     }
   }
 
@@ -387,9 +656,9 @@ public class ActivitiDiagramEditor extends DiagramEditor {
     }
   }
 
-  private void doInvokeExportMarshallers(final BpmnMemoryModel model) throws InvocationTargetException, InterruptedException {
+  private void doInvokeExportMarshallers(final BpmnMemoryModel model, final byte[] xmlBytes) throws InvocationTargetException, InterruptedException {
     final Collection<ExportMarshaller> marshallers = ExtensionPointUtil.getExportMarshallers();
-    final ExportMarshallerRunnable runnable = new ExportMarshallerRunnable(model, marshallers);
+    final ExportMarshallerRunnable runnable = new ExportMarshallerRunnable(model, xmlBytes, marshallers);
     final IProgressService progressService = PlatformUI.getWorkbench().getProgressService();
     progressService.busyCursorWhile(runnable);
   }
@@ -399,7 +668,7 @@ public class ActivitiDiagramEditor extends DiagramEditor {
     TransactionalEditingDomain editingDomain = getEditingDomain();
     // Check that the editor is not yet disposed
     if (editingDomain != null && editingDomain.getCommandStack() != null) {
-      return ((BasicCommandStack) editingDomain.getCommandStack()).isSaveNeeded();
+      return ((BasicCommandStack) editingDomain.getCommandStack()).isSaveNeeded() || pendingBackgroundSaves > 0 || savePointInvalid;
     }
     return false;
   }
@@ -412,7 +681,39 @@ public class ActivitiDiagramEditor extends DiagramEditor {
     final IFile dataFile = adei.getDataFile();
 
     final BpmnMemoryModel model = new BpmnMemoryModel(getDiagramTypeProvider().getFeatureProvider(), dataFile);
-    ModelHandler.addModel(EcoreUtil.getURI(getDiagramTypeProvider().getDiagram()), model);
+    memoryModel = model;
+    ModelHandler.addModel(EcoreUtil.getURI(getDiagramTypeProvider().getDiagram()), model, this);
+
+    removeDirtyElementListener();
+    dirtyElementListener = new DirtyElementListener(model);
+    getEditingDomain().addResourceSetListener(dirtyElementListener);
+    getEditingDomain().getCommandStack().addCommandStackListener(dirtyElementListener);
+
+    removeRemovedKeyPurger();
+    final IWorkspaceCommandStack commandStack = (IWorkspaceCommandStack) getEditingDomain().getCommandStack();
+    final IUndoContext undoContext = commandStack.getDefaultUndoContext();
+    removedKeyPurger = new IOperationHistoryListener() {
+
+      @Override
+      public void historyNotification(OperationHistoryEvent event) {
+        if (event.getOperation() == null || !event.getOperation().hasContext(undoContext)) {
+          return;
+        }
+        switch (event.getEventType()) {
+        case OperationHistoryEvent.DONE:
+          // the business objects deleted while the command ran belong to it
+          model.getKeyRegistry().assignRemoved(event.getOperation());
+          break;
+        case OperationHistoryEvent.OPERATION_REMOVED:
+          // the command was flushed, dropped by the undo limit or by a new command after an undo
+          model.getKeyRegistry().purgeRemoved(event.getOperation());
+          break;
+        default:
+          break;
+        }
+      }
+    };
+    commandStack.getOperationHistory().addOperationHistoryListener(removedKeyPurger);
 
     String filePath = dataFile.getLocationURI().getPath();
     File bpmnFile = new File(filePath);
@@ -422,26 +723,22 @@ public class ActivitiDiagramEditor extends DiagramEditor {
         model.addMainProcess();
         bpmnFile.createNewFile();
         dataFile.refreshLocal(IResource.DEPTH_INFINITE, null);
-      } else {
-        FileInputStream fileStream = new FileInputStream(bpmnFile);
-        XMLInputFactory xif = XMLInputFactory.newInstance();
-        InputStreamReader in = new InputStreamReader(fileStream, "UTF-8");
-        XMLStreamReader xtr = xif.createXMLStreamReader(in);
-        BpmnXMLConverter bpmnConverter = new BpmnXMLConverter();
-        bpmnConverter.setUserTaskFormTypes(PreferencesUtil.getStringArray(Preferences.ALFRESCO_FORMTYPES_USERTASK, ActivitiPlugin.getDefault()));
-        bpmnConverter.setStartEventFormTypes(PreferencesUtil.getStringArray(Preferences.ALFRESCO_FORMTYPES_STARTEVENT, ActivitiPlugin.getDefault()));
-        BpmnModel bpmnModel = null;
-        try {
-          bpmnModel = bpmnConverter.convertToBpmnModel(xtr);
-        } catch (Exception e) {
-          bpmnModel = new BpmnModel();
-        }
-        model.setBpmnModel(bpmnModel);
+      } else if (input instanceof DiagramEditorInput
+              && PreferencesUtil.getBooleanPreference(Preferences.EDITOR_LOAD_DIAGRAMS_IN_BACKGROUND, ActivitiPlugin.getDefault())) {
 
-        if (bpmnModel.getLocationMap().size() == 0) {
-          BpmnAutoLayout layout = new BpmnAutoLayout(bpmnModel);
-          layout.execute();
-        }
+        // an empty model until the loader has parsed the file
+        model.setBpmnModel(new BpmnModel());
+
+        diagramLoader = new BackgroundDiagramLoader(this, model, bpmnFile);
+        removeLoadingEditGuard();
+        loadingEditGuard = new LoadingEditGuard(this);
+        getEditingDomain().addResourceSetListener(loadingEditGuard);
+        diagramLoader.schedule();
+        updateEditable();
+
+      } else {
+        model.setBpmnModel(readBpmnModel(bpmnFile));
+        model.getIdAllocator().seed();
 
         BasicCommandStack basicCommandStack = (BasicCommandStack) getEditingDomain().getCommandStack();
 
@@ -457,6 +754,10 @@ public class ActivitiDiagramEditor extends DiagramEditor {
         }
         basicCommandStack.saveIsDone();
         basicCommandStack.flush();
+
+        if (input instanceof DiagramEditorInput) {
+          storeSnapshot(model);
+        }
       }
 
     } catch (Exception e) {
@@ -464,81 +765,249 @@ public class ActivitiDiagramEditor extends DiagramEditor {
     }
   }
 
+  /**
+   * Reads the BPMN file and lays out the model if the file has no diagram interchange information.
+   * The {@link DiagramSnapshotCache} is consulted as well, so the next import can restore the
+   * diagram from a snapshot. Does not touch the diagram, so this may be called from any thread.
+   */
+  protected BpmnModel readBpmnModel(final File bpmnFile) throws Exception {
+    final FileInputStream fileStream = new FileInputStream(bpmnFile);
+    try {
+      final byte[] content = IOUtils.toByteArray(fileStream);
+      snapshotKey = DiagramSnapshotCache.createKey(content);
+      getBpmnFileWriter(bpmnFile).setContent(content);
+
+      // the snapshot is read before the file is parsed, the model is still needed to link it
+      final Diagram snapshot = DiagramSnapshotCache.load(snapshotKey);
+      final BpmnModel bpmnModel = parseBpmnModel(content);
+      restorableSnapshot = snapshot != null && DiagramSnapshotCache.matches(snapshot, bpmnModel) ? snapshot : null;
+      return bpmnModel;
+
+    } finally {
+      IOUtils.closeQuietly(fileStream);
+    }
+  }
+
+  /**
+   * Parses BPMN XML into a new model with the form types of the preferences, see
+   * {@link #readBpmnModel(File)} and {@link BpmnParser}.
+   */
+  public static BpmnModel parseBpmnModel(final byte[] content) throws Exception {
+    return BpmnParser.parse(content, PreferencesUtil.getStringArray(Preferences.ALFRESCO_FORMTYPES_USERTASK, ActivitiPlugin.getDefault()),
+            PreferencesUtil.getStringArray(Preferences.ALFRESCO_FORMTYPES_STARTEVENT, ActivitiPlugin.getDefault()));
+  }
+
+  /**
+   * @return true while the diagram is being populated by a background load, the diagram is read-only
+   *         until then
+   */
+  public boolean isLoading() {
+    return diagramLoader != null && !diagramLoader.isDone();
+  }
+
+  /**
+   * Called by the {@link BackgroundDiagramLoader} on the UI thread once the diagram is complete.
+   */
+  void loadingDone() {
+    removeLoadingEditGuard();
+    updateEditable();
+  }
+
+  /**
+   * Disables the canvas while the diagram is loaded, so the user can not change it in the meantime.
+   */
+  private void updateEditable() {
+    final GraphicalViewer graphicalViewer = getGraphicalViewer();
+    if (graphicalViewer != null && graphicalViewer.getControl() != null && !graphicalViewer.getControl().isDisposed()) {
+      graphicalViewer.getControl().setEnabled(!isLoading());
+    }
+  }
+
   private void importDiagram(final BpmnMemoryModel model) {
     final Diagram diagram = getDiagramTypeProvider().getDiagram();
     diagram.setActive(true);
 
+    final List<Runnable> importSteps = createImportSteps(model);
+
     getEditingDomain().getCommandStack().execute(new RecordingCommand(getEditingDomain()) {
 
       @Override
       protected void doExecute() {
-        if (model.getBpmnModel().getPools().size() > 0) {
-          for (Pool pool : model.getBpmnModel().getPools()) {
-            GraphicInfo graphicInfo = model.getBpmnModel().getGraphicInfo(pool.getId());
-
-            // if no graphic info is present we can try to calculate it from the
-            // lane DI info
-            if (graphicInfo == null && StringUtils.isNotEmpty(pool.getProcessRef())) {
-              Process process = model.getBpmnModel().getProcess(pool.getId());
-
-              if (process != null && process.getLanes().size() > 0) {
-                Double minX = null, minY = null, width = null, height = null;
-                for (Lane lane : process.getLanes()) {
-                  GraphicInfo laneInfo = model.getBpmnModel().getGraphicInfo(lane.getId());
-                  if (laneInfo != null) {
-                    if (minX == null || laneInfo.getX() < minX) {
-                      minX = laneInfo.getX();
-                    }
-                    if (minY == null || laneInfo.getY() < minY) {
-                      minY = laneInfo.getY();
-                    }
-
-                    if (width == null || laneInfo.getWidth() > width) {
-                      width = laneInfo.getWidth();
-                    }
-                    if (height == null) {
-                      height = laneInfo.getHeight();
-                    } else {
-                      height += laneInfo.getHeight();
-                    }
-                  }
-                }
+        for (final Runnable importStep : importSteps) {
+          importStep.run();
+        }
+      }
+    });
+  }
 
-                if (width != null && width > 0) {
-                  graphicInfo = new GraphicInfo();
-                  graphicInfo.setX(minX);
-                  graphicInfo.setY(minY);
-                  graphicInfo.setWidth(width);
-                  graphicInfo.setHeight(height);
-                  model.getBpmnModel().addGraphicInfo(pool.getId(), graphicInfo);
-                }
-              }
+  /**
+   * Splits the import of the model into steps that must be run in order, inside a write transaction.
+   * Flow elements and sequence flows are imported in chunks of {@link #IMPORT_CHUNK_SIZE} top level
+   * elements, so a large diagram can be populated a bit at a time.
+   */
+  protected List<Runnable> createImportSteps(final BpmnMemoryModel model) {
+    final Diagram diagram = getDiagramTypeProvider().getDiagram();
+    final BpmnModel bpmnModel = model.getBpmnModel();
+    final List<Runnable> importSteps = new ArrayList<Runnable>();
+
+    // an unchanged file is restored from its snapshot in one step
+    final Diagram snapshot = restorableSnapshot;
+    restorableSnapshot = null;
+    if (snapshot != null) {
+      importSteps.add(new Runnable() {
+
+        @Override
+        public void run() {
+          DiagramSnapshotCache.restore(snapshot, diagram, bpmnModel, getDiagramTypeProvider().getFeatureProvider());
+        }
+      });
+      return importSteps;
+    }
+
+    importSteps.add(new Runnable() {
+
+      @Override
+      public void run() {
+        importPools(model, diagram);
+      }
+    });
+
+    for (final Process process : bpmnModel.getProcesses()) {
+      final List<FlowElement> flowElements = new ArrayList<FlowElement>(process.getFlowElements());
+      final FlowElementImport flowElementImport = new FlowElementImport();
+
+      for (int i = 0; i < flowElements.size(); i += IMPORT_CHUNK_SIZE) {
+        final List<FlowElement> chunk = flowElements.subList(i, Math.min(i + IMPORT_CHUNK_SIZE, flowElements.size()));
+        importSteps.add(new Runnable() {
+
+          @Override
+          public void run() {
+            drawFlowElements(chunk, bpmnModel.getLocationMap(), diagram, process, flowElementImport);
+          }
+        });
+      }
+
+      importSteps.add(new Runnable() {
+
+        @Override
+        public void run() {
+          removeFlowElementsWithoutDI(process.getFlowElements(), flowElementImport);
+          drawArtifacts(process, bpmnModel.getLocationMap(), diagram, process);
+        }
+      });
+    }
+
+    for (final Process process : bpmnModel.getProcesses()) {
+      // elements without DI are removed by then, so the list is taken when the first chunk runs
+      final List<FlowElement> flowElements = new ArrayList<FlowElement>();
+
+      for (int i = 0; i < process.getFlowElements().size(); i += IMPORT_CHUNK_SIZE) {
+        final int from = i;
+        importSteps.add(new Runnable() {
+
+          @Override
+          public void run() {
+            if (from == 0) {
+              flowElements.addAll(process.getFlowElements());
+            }
+            if (from < flowElements.size()) {
+              drawSequenceFlowsInList(flowElements.subList(from, Math.min(from + IMPORT_CHUNK_SIZE, flowElements.size())), model);
             }
+          }
+        });
+      }
 
-            if (graphicInfo != null) {
-              PictogramElement poolElement = addContainerElement(pool, model, diagram);
-              if (poolElement == null) {
-                continue;
-              }
+      importSteps.add(new Runnable() {
 
-              Process process = model.getBpmnModel().getProcess(pool.getId());
-              if (process != null) {
-                for (Lane lane : process.getLanes()) {
-                  addContainerElement(lane, model, (ContainerShape) poolElement);
+        @Override
+        public void run() {
+          drawAssociationsInList(process.getArtifacts(), model);
+        }
+      });
+    }
+
+    importSteps.add(new Runnable() {
+
+      @Override
+      public void run() {
+        drawMessageFlows(model.getBpmnModel().getMessageFlows().values(), model);
+      }
+    });
+
+    return importSteps;
+  }
+
+  /**
+   * Stores the diagram in the {@link DiagramSnapshotCache} from a {@link DiagramSnapshotWriter},
+   * unless there is a snapshot of the file already. Must be called on the UI thread, while the
+   * diagram matches the BPMN file.
+   */
+  void storeSnapshot(final BpmnMemoryModel model) {
+    final String key = snapshotKey;
+    if (key != null && !DiagramSnapshotCache.contains(key)) {
+      new DiagramSnapshotWriter(this, key, model).schedule();
+    }
+  }
+
+  private void importPools(final BpmnMemoryModel model, final Diagram diagram) {
+    if (model.getBpmnModel().getPools().size() > 0) {
+      for (Pool pool : model.getBpmnModel().getPools()) {
+        GraphicInfo graphicInfo = model.getBpmnModel().getGraphicInfo(pool.getId());
+
+        // if no graphic info is present we can try to calculate it from the
+        // lane DI info
+        if (graphicInfo == null && StringUtils.isNotEmpty(pool.getProcessRef())) {
+          Process process = model.getBpmnModel().getProcess(pool.getId());
+
+          if (process != null && process.getLanes().size() > 0) {
+            Double minX = null, minY = null, width = null, height = null;
+            for (Lane lane : process.getLanes()) {
+              GraphicInfo laneInfo = model.getBpmnModel().getGraphicInfo(lane.getId());
+              if (laneInfo != null) {
+                if (minX == null || laneInfo.getX() < minX) {
+                  minX = laneInfo.getX();
+                }
+                if (minY == null || laneInfo.getY() < minY) {
+                  minY = laneInfo.getY();
+                }
+
+                if (width == null || laneInfo.getWidth() > width) {
+                  width = laneInfo.getWidth();
+                }
+                if (height == null) {
+                  height = laneInfo.getHeight();
+                } else {
+                  height += laneInfo.getHeight();
                 }
               }
             }
+
+            if (width != null && width > 0) {
+              graphicInfo = new GraphicInfo();
+              graphicInfo.setX(minX);
+              graphicInfo.setY(minY);
+              graphicInfo.setWidth(width);
+              graphicInfo.setHeight(height);
+              model.getBpmnModel().addGraphicInfo(pool.getId(), graphicInfo);
+            }
           }
         }
-        
-        for (Process process : model.getBpmnModel().getProcesses()) {
-          drawFlowElements(process.getFlowElements(), model.getBpmnModel().getLocationMap(), diagram, process);
-          drawArtifacts(process, model.getBpmnModel().getLocationMap(), diagram, process);
+
+        if (graphicInfo != null) {
+          PictogramElement poolElement = addContainerElement(pool, model, diagram);
+          if (poolElement == null) {
+            continue;
+          }
+
+          Process process = model.getBpmnModel().getProcess(pool.getId());
+          if (process != null) {
+            for (Lane lane : process.getLanes()) {
+              addContainerElement(lane, model, (ContainerShape) poolElement);
+            }
+          }
         }
-        drawAllFlows(model);
-        drawMessageFlows(model.getBpmnModel().getMessageFlows().values(), model);
       }
-    });
+    }
   }
 
   private PictogramElement addContainerElement(BaseElement element, BpmnMemoryModel model, ContainerShape parent) {
@@ -574,12 +1043,22 @@ public class ActivitiDiagramEditor extends DiagramEditor {
     return pictElement;
   }
 
-  @SuppressWarnings({ "rawtypes", "unchecked" })
   protected void drawFlowElements(Collection<FlowElement> elementList, Map<String, GraphicInfo> locationMap, ContainerShape parentShape, Process process) {
+    final FlowElementImport flowElementImport = new FlowElementImport();
+    drawFlowElements(elementList, locationMap, parentShape, process, flowElementImport);
+    removeFlowElementsWithoutDI(elementList, flowElementImport);
+  }
+
+  @SuppressWarnings({ "rawtypes", "unchecked" })
+  private void drawFlowElements(Collection<FlowElement> elementList, Map<String, GraphicInfo> locationMap, ContainerShape parentShape, Process process,
+          FlowElementImport flowElementImport) {
+
+    if (flowElementImport.aborted) {
+      return;
+    }
 
     final IFeatureProvider featureProvider = getDiagramTypeProvider().getFeatureProvider();
 
-    List<FlowElement> noDIList = new ArrayList<FlowElement>();
     for (FlowElement flowElement : elementList) {
 
       if (flowElement instanceof SequenceFlow) {
@@ -591,13 +1070,14 @@ public class ActivitiDiagramEditor extends DiagramEditor {
 
       if (addFeature == null) {
         System.out.println("Element not supported: " + flowElement);
+        flowElementImport.aborted = true;
         return;
       }
 
       GraphicInfo graphicInfo = locationMap.get(flowElement.getId());
       if (graphicInfo == null) {
 
-        noDIList.add(flowElement);
+        flowElementImport.withoutDI.add(flowElement);
 
       } else {
 
@@ -653,30 +1133,8 @@ public class ActivitiDiagramEditor extends DiagramEditor {
 
             if (targetTask != null) {
               
-              final List<Class<CustomUserTask>> classHierarchy = new ArrayList<Class<CustomUserTask>>();
-              final List<String> fieldInfoObjects = new ArrayList<String>();
-
-              Class clazz = targetTask.getClass();
-              classHierarchy.add(clazz);
+              final List<String> fieldInfoObjects = getCustomTaskResolver().getPropertyFieldNames(targetTask);
 
-              boolean hierarchyOpen = true;
-              while (hierarchyOpen) {
-                clazz = clazz.getSuperclass();
-                if (CustomUserTask.class.isAssignableFrom(clazz)) {
-                  classHierarchy.add(clazz);
-                } else {
-                  hierarchyOpen = false;
-                }
-              }
-              
-              for (final Class<CustomUserTask> currentClass : classHierarchy) {
-                for (final Field field : currentClass.getDeclaredFields()) {
-                  if (field.isAnnotationPresent(Property.class)) {
-                    fieldInfoObjects.add(field.getName());
-                  }
-                }
-              }
-              
               for (String fieldName : userTask.getExtensionElements().keySet()) {
                 if (fieldInfoObjects.contains(fieldName)) {
                   CustomProperty customFieldProperty = new CustomProperty();
@@ -719,8 +1177,14 @@ public class ActivitiDiagramEditor extends DiagramEditor {
         }
       }
     }
+  }
 
-    for (FlowElement flowElement : noDIList) {
+  private void removeFlowElementsWithoutDI(Collection<FlowElement> elementList, FlowElementImport flowElementImport) {
+    if (flowElementImport.aborted) {
+      return;
+    }
+
+    for (FlowElement flowElement : flowElementImport.withoutDI) {
       if (flowElement instanceof BoundaryEvent) {
         ((BoundaryEvent) flowElement).getAttachedToRef().getBoundaryEvents().remove(flowElement);
       } else {
@@ -730,21 +1194,20 @@ public class ActivitiDiagramEditor extends DiagramEditor {
     	  }
       }
     }
+
+    if (flowElementImport.withoutDI.isEmpty() == false) {
+      invalidateElementIdIndex();
+    }
+  }
+
+  private void invalidateElementIdIndex() {
+    ModelHandler.getModel(EcoreUtil.getURI(getDiagramTypeProvider().getDiagram())).getElementIdIndex().invalidate();
   }
 
   protected CustomServiceTask findCustomServiceTask(ServiceTask serviceTask) {
     CustomServiceTask result = null;
     if (serviceTask.isExtended()) {
-
-      final List<CustomServiceTask> customServiceTasks = ExtensionUtil.getCustomServiceTasks(
-          ActivitiUiUtil.getProjectFromDiagram(getDiagramTypeProvider().getDiagram()));
-
-      for (final CustomServiceTask customServiceTask : customServiceTasks) {
-        if (serviceTask.getExtensionId().equals(customServiceTask.getId())) {
-          result = customServiceTask;
-          break;
-        }
-      }
+      result = getCustomTaskResolver().getCustomServiceTask(serviceTask.getExtensionId());
     }
     return result;
   }
@@ -752,20 +1215,15 @@ public class ActivitiDiagramEditor extends DiagramEditor {
   protected CustomUserTask findCustomUserTask(UserTask userTask) {
     CustomUserTask result = null;
     if (userTask.isExtended()) {
-
-      final List<CustomUserTask> customUserTasks = ExtensionUtil.getCustomUserTasks(
-          ActivitiUiUtil.getProjectFromDiagram(getDiagramTypeProvider().getDiagram()));
-
-      for (final CustomUserTask customUserTask : customUserTasks) {
-        if (userTask.getExtensionId().equals(customUserTask.getId())) {
-          result = customUserTask;
-          break;
-        }
-      }
+      result = getCustomTaskResolver().getCustomUserTask(userTask.getExtensionId());
     }
     return result;
   }
 
+  protected CustomTaskResolver getCustomTaskResolver() {
+    return CustomTaskResolver.forProject(ActivitiUiUtil.getProjectFromDiagram(getDiagramTypeProvider().getDiagram()));
+  }
+
   protected ContainerShape getParentContainer(String flowElementId, Process process, Diagram diagram) {
     Lane foundLane = null;
     for (Lane lane : process.getLanes()) {
@@ -793,40 +1251,21 @@ public class ActivitiDiagramEditor extends DiagramEditor {
   }
   
   protected void drawMessageFlows(final Collection<MessageFlow> messageFlows, final BpmnMemoryModel model) {
+    final PictogramElementIndex index = model.getPictogramElementIndex();
 
     for (final MessageFlow messageFlow : messageFlows) {
     
-      Anchor sourceAnchor = null;
-      Anchor targetAnchor = null;
-      ContainerShape sourceShape = (ContainerShape) getDiagramTypeProvider().getFeatureProvider().getPictogramElementForBusinessObject(
-              model.getFlowElement(messageFlow.getSourceRef()));
-      
-      if (sourceShape == null) {
+      final FlowElement sourceElement = model.getFlowElement(messageFlow.getSourceRef());
+      if (index.getPictogramElement(sourceElement) == null) {
         continue;
       }
+      Anchor sourceAnchor = index.getPrimaryAnchor(sourceElement);
 
-      EList<Anchor> anchorList = sourceShape.getAnchors();
-      for (Anchor anchor : anchorList) {
-        if (anchor instanceof ChopboxAnchor) {
-          sourceAnchor = anchor;
-          break;
-        }
-      }
-
-      ContainerShape targetShape = (ContainerShape) getDiagramTypeProvider().getFeatureProvider().getPictogramElementForBusinessObject(
-              model.getFlowElement(messageFlow.getTargetRef()));
-      
-      if (targetShape == null) {
+      final FlowElement targetElement = model.getFlowElement(messageFlow.getTargetRef());
+      if (index.getPictogramElement(targetElement) == null) {
         continue;
       }
-
-      anchorList = targetShape.getAnchors();
-      for (Anchor anchor : anchorList) {
-        if (anchor instanceof ChopboxAnchor) {
-          targetAnchor = anchor;
-          break;
-        }
-      }
+      Anchor targetAnchor = index.getPrimaryAnchor(targetElement);
 
       AddConnectionContext addContext = new AddConnectionContext(sourceAnchor, targetAnchor);
 
@@ -918,6 +1357,9 @@ public class ActivitiDiagramEditor extends DiagramEditor {
     for (final Artifact artifact : artifactsWithoutDI) {
       container.getArtifacts().remove(artifact);
     }
+    if (artifactsWithoutDI.isEmpty() == false) {
+      invalidateElementIdIndex();
+    }
     
     for (FlowElement flowElement : container.getFlowElements()) {
       if (flowElement instanceof SubProcess) {
@@ -953,37 +1395,19 @@ public class ActivitiDiagramEditor extends DiagramEditor {
   }
 
   protected void drawSequenceFlow(SequenceFlow sequenceFlow, BpmnMemoryModel model) {
-    Anchor sourceAnchor = null;
-    Anchor targetAnchor = null;
-    ContainerShape sourceShape = (ContainerShape) getDiagramTypeProvider().getFeatureProvider().getPictogramElementForBusinessObject(
-            model.getFlowElement(sequenceFlow.getSourceRef()));
+    final PictogramElementIndex index = model.getPictogramElementIndex();
 
-    if (sourceShape == null) {
+    FlowElement sourceElement = model.getFlowElement(sequenceFlow.getSourceRef());
+    if (index.getPictogramElement(sourceElement) == null) {
       return;
     }
+    Anchor sourceAnchor = index.getPrimaryAnchor(sourceElement);
 
-    EList<Anchor> anchorList = sourceShape.getAnchors();
-    for (Anchor anchor : anchorList) {
-      if (anchor instanceof ChopboxAnchor) {
-        sourceAnchor = anchor;
-        break;
-      }
-    }
-
-    ContainerShape targetShape = (ContainerShape) getDiagramTypeProvider().getFeatureProvider().getPictogramElementForBusinessObject(
-            model.getFlowElement(sequenceFlow.getTargetRef()));
-
-    if (targetShape == null) {
+    FlowElement targetElement = model.getFlowElement(sequenceFlow.getTargetRef());
+    if (index.getPictogramElement(targetElement) == null) {
       return;
     }
-
-    anchorList = targetShape.getAnchors();
-    for (Anchor anchor : anchorList) {
-      if (anchor instanceof ChopboxAnchor) {
-        targetAnchor = anchor;
-        break;
-      }
-    }
+    Anchor targetAnchor = index.getPrimaryAnchor(targetElement);
 
     AddConnectionContext addContext = new AddConnectionContext(sourceAnchor, targetAnchor);
 
@@ -1016,49 +1440,25 @@ public class ActivitiDiagramEditor extends DiagramEditor {
   }
 
   protected void drawAssociation(Association association, BpmnMemoryModel model) {
-    Anchor sourceAnchor = null;
-    Anchor targetAnchor = null;
+    final PictogramElementIndex index = model.getPictogramElementIndex();
+
     BaseElement sourceElement = model.getFlowElement(association.getSourceRef());
     if (sourceElement == null) {
       sourceElement = model.getArtifact(association.getSourceRef());
     }
-    if (sourceElement == null) {
+    if (sourceElement == null || index.getPictogramElement(sourceElement) == null) {
       return;
     }
-    ContainerShape sourceShape = (ContainerShape) getDiagramTypeProvider().getFeatureProvider().getPictogramElementForBusinessObject(sourceElement);
-
-    if (sourceShape == null) {
-      return;
-    }
-
-    EList<Anchor> anchorList = sourceShape.getAnchors();
-    for (Anchor anchor : anchorList) {
-      if (anchor instanceof ChopboxAnchor) {
-        sourceAnchor = anchor;
-        break;
-      }
-    }
+    Anchor sourceAnchor = index.getPrimaryAnchor(sourceElement);
 
     BaseElement targetElement = model.getFlowElement(association.getTargetRef());
     if (targetElement == null) {
       targetElement = model.getArtifact(association.getTargetRef());
     }
-    if (targetElement == null) {
-      return;
-    }
-    ContainerShape targetShape = (ContainerShape) getDiagramTypeProvider().getFeatureProvider().getPictogramElementForBusinessObject(targetElement);
-
-    if (targetShape == null) {
+    if (targetElement == null || index.getPictogramElement(targetElement) == null) {
       return;
     }
-
-    anchorList = targetShape.getAnchors();
-    for (Anchor anchor : anchorList) {
-      if (anchor instanceof ChopboxAnchor) {
-        targetAnchor = anchor;
-        break;
-      }
-    }
+    Anchor targetAnchor = index.getPrimaryAnchor(targetElement);
 
     AddConnectionContext addContext = new AddConnectionContext(sourceAnchor, targetAnchor);
 
@@ -1087,6 +1487,7 @@ public class ActivitiDiagramEditor extends DiagramEditor {
       IFigure gridFigure = ((LayerManager) rootEditPart).getLayer(LayerConstants.GRID_LAYER);
       gridFigure.setVisible(false);
     }
+    updateEditable();
   }
 
   public static GraphicalViewer getActiveGraphicalViewer() {
@@ -1095,11 +1496,58 @@ public class ActivitiDiagramEditor extends DiagramEditor {
 
   @Override
   public void dispose() {
+    if (diagramLoader != null) {
+      diagramLoader.cancel();
+    }
+    // the saves and snapshot writes still need the model and the diagram
+    joinBackgroundJobs();
+    if (shutdownListener != null) {
+      PlatformUI.getWorkbench().removeWorkbenchListener(shutdownListener);
+      shutdownListener = null;
+    }
+    removeDirtyElementListener();
+    removeRemovedKeyPurger();
+    removeLoadingEditGuard();
+
     super.dispose();
 
     final ActivitiDiagramEditorInput adei = (ActivitiDiagramEditorInput) getEditorInput();
 
     ModelHandler.removeModel(EcoreUtil.getURI(getDiagramTypeProvider().getDiagram()));
+    memoryModel = null;
     Bpmn2DiagramCreator.dispose(adei.getDiagramFile());
   }
+
+  private void removeDirtyElementListener() {
+    if (dirtyElementListener != null && getEditingDomain() != null) {
+      getEditingDomain().removeResourceSetListener(dirtyElementListener);
+      getEditingDomain().getCommandStack().removeCommandStackListener(dirtyElementListener);
+    }
+    dirtyElementListener = null;
+  }
+
+  private void removeLoadingEditGuard() {
+    if (loadingEditGuard != null && getEditingDomain() != null) {
+      getEditingDomain().removeResourceSetListener(loadingEditGuard);
+    }
+    loadingEditGuard = null;
+  }
+
+  private void removeRemovedKeyPurger() {
+    if (removedKeyPurger != null && getEditingDomain() != null) {
+      ((IWorkspaceCommandStack) getEditingDomain().getCommandStack()).getOperationHistory().removeOperationHistoryListener(removedKeyPurger);
+    }
+    removedKeyPurger = null;
+  }
+
+  /**
+   * State of importing the flow elements of one container, possibly spread over several import steps.
+   */
+  private static class FlowElementImport {
+
+    private final List<FlowElement> withoutDI = new ArrayList<FlowElement>();
+
+    /** Set when an element has no add feature, the remaining elements are skipped then. */
+    private boolean aborted;
+  }
 }
@@ -0,0 +1,190 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.eclipse.editor;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+
+import org.activiti.bpmn.model.BpmnModel;
+import org.activiti.designer.eclipse.Logger;
+import org.activiti.designer.util.editor.BpmnMemoryModel;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.graphiti.mm.algorithms.Text;
+import org.eclipse.graphiti.mm.pictograms.Diagram;
+import org.eclipse.graphiti.mm.pictograms.Shape;
+import org.eclipse.graphiti.services.Graphiti;
+import org.eclipse.graphiti.services.IGaService;
+import org.eclipse.graphiti.util.IColorConstant;
+import org.eclipse.ui.progress.UIJob;
+
+/**
+ * Loads the diagram of an {@link ActivitiDiagramEditor} without blocking the UI thread. The BPMN
+ * file is parsed, and laid out if needed, in a background job. The pictograms are then created by
+ * a UI job that runs the import steps of the editor for a short time slice and reschedules itself
+ * until all steps are done. A placeholder text is shown on the diagram in the meantime.
+ * <p>
+ * Loading is not an edit of the user, so the steps run in transactions that are not recorded on
+ * the command stack. The diagram is read-only until it is complete, see {@link LoadingEditGuard},
+ * and the editor refuses to save until then.
+ */
+class BackgroundDiagramLoader {
+
+  /** How long the UI thread is occupied with importing before it handles other events again. */
+  private static final long TIME_SLICE_MILLIS = 50L;
+
+  private final ActivitiDiagramEditor editor;
+  private final BpmnMemoryModel model;
+  private final File bpmnFile;
+
+  private final Job parseJob;
+  private final UIJob populateJob;
+
+  private volatile BpmnModel parsedModel;
+  private volatile boolean done;
+
+  private Shape placeholder;
+  private Iterator<Runnable> importSteps;
+
+  BackgroundDiagramLoader(final ActivitiDiagramEditor editor, final BpmnMemoryModel model, final File bpmnFile) {
+    this.editor = editor;
+    this.model = model;
+    this.bpmnFile = bpmnFile;
+
+    populateJob = new UIJob("Populating " + bpmnFile.getName()) {
+
+      @Override
+      public IStatus runInUIThread(IProgressMonitor monitor) {
+        if (monitor.isCanceled() || editor.getEditingDomain() == null) {
+          return Status.CANCEL_STATUS;
+        }
+        populate();
+        return Status.OK_STATUS;
+      }
+    };
+    populateJob.setSystem(true);
+
+    parseJob = new Job("Loading " + bpmnFile.getName()) {
+
+      @Override
+      protected IStatus run(IProgressMonitor monitor) {
+        monitor.beginTask(getName(), IProgressMonitor.UNKNOWN);
+        try {
+          parsedModel = editor.readBpmnModel(bpmnFile);
+        } catch (Exception e) {
+          Logger.logError("Error loading " + bpmnFile.getName(), e);
+          parsedModel = new BpmnModel();
+        } finally {
+          monitor.done();
+        }
+
+        if (monitor.isCanceled()) {
+          return Status.CANCEL_STATUS;
+        }
+        populateJob.schedule();
+        return Status.OK_STATUS;
+      }
+    };
+  }
+
+  /**
+   * Shows the placeholder and starts loading. Must be called from the UI thread.
+   */
+  public void schedule() {
+    execute(new Runnable() {
+
+      @Override
+      public void run() {
+        addPlaceholder();
+      }
+    });
+    parseJob.schedule();
+  }
+
+  public void cancel() {
+    parseJob.cancel();
+    populateJob.cancel();
+  }
+
+  /**
+   * @return true once all pictograms have been created
+   */
+  public boolean isDone() {
+    return done;
+  }
+
+  private void populate() {
+    if (importSteps == null) {
+      model.setBpmnModel(parsedModel);
+      model.getIdAllocator().seed();
+      editor.getDiagramTypeProvider().getDiagram().setActive(true);
+      importSteps = editor.createImportSteps(model).iterator();
+    }
+
+    final long deadline = System.currentTimeMillis() + TIME_SLICE_MILLIS;
+    execute(new Runnable() {
+
+      @Override
+      public void run() {
+        do {
+          final Runnable importStep = importSteps.next();
+          if (!importSteps.hasNext()) {
+            // gone before the last step, the diagram is complete then
+            removePlaceholder();
+          }
+          importStep.run();
+        } while (importSteps.hasNext() && System.currentTimeMillis() < deadline);
+      }
+    });
+
+    if (importSteps.hasNext()) {
+      populateJob.schedule();
+    } else {
+      done = true;
+      editor.loadingDone();
+      editor.storeSnapshot(model);
+    }
+  }
+
+  /**
+   * Runs the work in a write transaction that is not recorded on the command stack.
+   */
+  private void execute(final Runnable work) {
+    try {
+      editor.executeWithoutUndo(Executors.callable(work));
+    } catch (Exception e) {
+      Logger.logError("Error loading " + bpmnFile.getName(), e);
+    }
+  }
+
+  private void addPlaceholder() {
+    final Diagram diagram = editor.getDiagramTypeProvider().getDiagram();
+    final IGaService gaService = Graphiti.getGaService();
+
+    placeholder = Graphiti.getPeCreateService().createShape(diagram, false);
+    final Text text = gaService.createText(placeholder, "Loading " + bpmnFile.getName() + "...");
+    text.setForeground(gaService.manageColor(diagram, IColorConstant.DARK_GRAY));
+    gaService.setLocationAndSize(text, 20, 20, 400, 20);
+  }
+
+  private void removePlaceholder() {
+    if (placeholder != null) {
+      Graphiti.getPeService().deletePictogramElement(placeholder);
+      placeholder = null;
+    }
+  }
+}
@@ -0,0 +1,247 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.eclipse.editor;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.activiti.bpmn.converter.BpmnXMLConverter;
+import org.activiti.bpmn.model.BpmnModel;
+import org.activiti.designer.eclipse.Logger;
+import org.activiti.designer.eclipse.extension.export.ExportMarshaller;
+import org.activiti.designer.eclipse.ui.ExportMarshallerRunnable;
+import org.activiti.designer.util.editor.BpmnMemoryModel;
+import org.apache.commons.io.IOUtils;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubProgressMonitor;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.emf.common.command.Command;
+import org.eclipse.graphiti.features.IFeatureProvider;
+import org.eclipse.graphiti.mm.pictograms.Diagram;
+
+/**
+ * Writes a saved diagram of an {@link ActivitiDiagramEditor} without blocking the UI thread. The
+ * job brings the diagram interchange information of the model up to date and serializes it to XML
+ * in a write transaction of its own, so the model can not change meanwhile and the user only waits
+ * if they edit the diagram at that moment. It then writes the XML with a {@link BpmnFileWriter},
+ * generates the images and invokes the export marshallers from a model parsed from that XML.
+ * The BPMN file is not written if it has the content already, the files derived from it are
+ * still created again unless they exist and are up to date.
+ * <p>
+ * The editor stays dirty until the job reports that the BPMN file is written. A save waits for the
+ * save before it to take its snapshot and to finish. Cancelling the job skips the steps after the
+ * BPMN file is written, the file itself is always written completely.
+ */
+class BackgroundDiagramSaver extends Job {
+
+  private final ActivitiDiagramEditor editor;
+  private final BpmnMemoryModel model;
+  private final IFile dataFile;
+  private final BpmnMemoryModel exportModel;
+  private final Collection<ExportMarshaller> marshallers;
+  private final Command savePointCommand;
+
+  private List<String> imageLanguages;
+  private byte[] imageBytes;
+  private BackgroundDiagramSaver previous;
+
+  private byte[] xmlBytes;
+  private Diagram diagramSnapshot;
+  private Command savedCommand;
+
+  /**
+   * @param model
+   *          the model of the editor, only read and updated in a transaction
+   * @param exportModel
+   *          the model handed to the export marshallers, it gets a copy of the BPMN model parsed from
+   *          the XML
+   * @param savePointCommand
+   *          the last command on the command stack of the editor when the save started
+   */
+  BackgroundDiagramSaver(final ActivitiDiagramEditor editor, final BpmnMemoryModel model, final IFile dataFile,
+          final BpmnMemoryModel exportModel, final Collection<ExportMarshaller> marshallers, final Command savePointCommand) {
+    super("Saving " + dataFile.getName());
+    this.editor = editor;
+    this.model = model;
+    this.dataFile = dataFile;
+    this.exportModel = exportModel;
+    this.marshallers = marshallers;
+    this.savePointCommand = savePointCommand;
+  }
+
+  /**
+   * Generates an image per language from the saved model instead of writing the captured image.
+   */
+  void setImageLanguages(final List<String> imageLanguages) {
+    this.imageLanguages = imageLanguages;
+  }
+
+  /**
+   * Sets the PNG image of the diagram captured when the save started.
+   */
+  void setImageBytes(final byte[] imageBytes) {
+    this.imageBytes = imageBytes;
+  }
+
+  /**
+   * Sets the save this one has to wait for.
+   */
+  void setPrevious(final BackgroundDiagramSaver previous) {
+    this.previous = previous;
+  }
+
+  /**
+   * @return the last command on the command stack of the editor when the save started
+   */
+  Command getSavePointCommand() {
+    return savePointCommand;
+  }
+
+  /**
+   * @return the last command on the command stack of the editor when the snapshot was taken, the
+   *         written file holds the model as it was after that command
+   */
+  Command getSavedCommand() {
+    return savedCommand;
+  }
+
+  @Override
+  public boolean belongsTo(Object family) {
+    return family == editor;
+  }
+
+  @Override
+  protected IStatus run(IProgressMonitor monitor) {
+    final String diagramFileString = dataFile.getLocationURI().getPath();
+    monitor.beginTask(getName(), 5);
+    try {
+      boolean written = false;
+      boolean saved = false;
+      Exception failure = null;
+      try {
+        if (previous != null) {
+          // snapshots are taken in the order the saves were started
+          previous.join();
+          previous = null;
+        }
+
+        monitor.subTask("Taking a snapshot of " + dataFile.getName());
+        takeSnapshot();
+        monitor.worked(1);
+
+        monitor.subTask("Writing " + dataFile.getName());
+        written = editor.getBpmnFileWriter(new File(diagramFileString)).write(xmlBytes);
+        saved = true;
+
+      } catch (InterruptedException e) {
+        return Status.CANCEL_STATUS;
+      } catch (Exception e) {
+        failure = e;
+        Logger.logError("Error while saving " + dataFile.getName(), e);
+        return Status.OK_STATUS;
+      } finally {
+        // the editor counts the pending saves, so it has to hear about every save exactly once
+        if (saved) {
+          editor.backgroundSaveDone(this, xmlBytes);
+        } else {
+          editor.backgroundSaveFailed(failure);
+        }
+      }
+
+      if (written) {
+        DiagramSnapshotCache.write(DiagramSnapshotCache.createKey(xmlBytes), diagramSnapshot);
+      }
+      diagramSnapshot = null;
+      monitor.worked(1);
+
+      // the derived files are created again even if the BPMN file did not change, in case they were
+      // deleted
+
+      if (monitor.isCanceled()) {
+        return Status.CANCEL_STATUS;
+      }
+      monitor.subTask("Creating the process image");
+      try {
+        if (imageLanguages != null) {
+          editor.saveLanguageImages(xmlBytes, diagramFileString, imageLanguages);
+        } else if (imageBytes != null) {
+          writeImage(new File(ActivitiDiagramEditor.getImageFileName(diagramFileString, null)));
+        }
+      } catch (Exception e) {
+        Logger.logError("Error while creating the image of " + dataFile.getName(), e);
+      }
+      monitor.worked(1);
+
+      if (monitor.isCanceled()) {
+        return Status.CANCEL_STATUS;
+      }
+      // export marshallers may need access to the files written above
+      dataFile.getProject().refreshLocal(IResource.DEPTH_INFINITE, new SubProgressMonitor(monitor, 1));
+
+      if (monitor.isCanceled() || marshallers.isEmpty()) {
+        return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+      }
+      final BpmnModel bpmnModel = ActivitiDiagramEditor.parseBpmnModel(xmlBytes);
+      exportModel.setBpmnModel(bpmnModel);
+      new ExportMarshallerRunnable(exportModel, xmlBytes, marshallers).run(new SubProgressMonitor(monitor, 1));
+      return Status.OK_STATUS;
+
+    } catch (InterruptedException e) {
+      return Status.CANCEL_STATUS;
+    } catch (Exception e) {
+      Logger.logError("Error while saving " + dataFile.getName(), e);
+      return Status.OK_STATUS;
+    } finally {
+      monitor.done();
+    }
+  }
+
+  /**
+   * Adds the bend-points and positions of the diagram to the model, serializes it and copies the
+   * diagram for the {@link DiagramSnapshotCache}, all in one write transaction.
+   */
+  private void takeSnapshot() throws Exception {
+    editor.executeWithoutUndo(new Callable<Void>() {
+
+      @Override
+      public Void call() throws Exception {
+        final IFeatureProvider featureProvider = editor.getDiagramTypeProvider().getFeatureProvider();
+        new GraphitiToBpmnDI(model, featureProvider).processGraphitiElements();
+
+        xmlBytes = new BpmnXMLConverter().convertToXML(model.getBpmnModel());
+        diagramSnapshot = DiagramSnapshotCache.copy(editor.getDiagramTypeProvider().getDiagram(), model.getBpmnModel(),
+                featureProvider);
+        savedCommand = editor.getEditingDomain().getCommandStack().getUndoCommand();
+        return null;
+      }
+    });
+  }
+
+  private void writeImage(final File imageFile) throws IOException {
+    final FileOutputStream outStream = new FileOutputStream(imageFile);
+    try {
+      outStream.write(imageBytes);
+    } finally {
+      IOUtils.closeQuietly(outStream);
+    }
+  }
+}
@@ -0,0 +1,116 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.eclipse.editor;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Writes the BPMN file of an editor. The content is written to a temporary file next to the BPMN
+ * file, which is then renamed over it, so a failing save never leaves a half written file behind.
+ * <p>
+ * The writer remembers a hash of the content it last read or wrote. Writing the same content again
+ * is skipped as long as the file was not changed by someone else in the meantime, so saving an
+ * unchanged model causes no resource changes in the workspace.
+ */
+class BpmnFileWriter {
+
+  private final File file;
+
+  private String contentHash;
+  private long fileLength = -1L;
+  private long fileModified = -1L;
+
+  BpmnFileWriter(final File file) {
+    this.file = file;
+  }
+
+  File getFile() {
+    return file;
+  }
+
+  /**
+   * Records the content the file has, after it was read.
+   */
+  synchronized void setContent(final byte[] content) {
+    record(DigestUtils.sha1Hex(content));
+  }
+
+  /**
+   * Writes the content unless the file has it already.
+   *
+   * @return true if the file was written
+   */
+  synchronized boolean write(final byte[] content) throws IOException {
+    final String hash = DigestUtils.sha1Hex(content);
+    if (isUnchanged(hash)) {
+      return false;
+    }
+
+    final File tempFile = File.createTempFile("." + file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+    try {
+      final FileOutputStream outStream = new FileOutputStream(tempFile);
+      try {
+        outStream.write(content);
+        outStream.getFD().sync();
+      } finally {
+        IOUtils.closeQuietly(outStream);
+      }
+      replace(tempFile, file);
+
+    } finally {
+      if (tempFile.exists()) {
+        tempFile.delete();
+      }
+    }
+
+    record(hash);
+    return true;
+  }
+
+  private boolean isUnchanged(final String hash) {
+    return hash.equals(contentHash) && file.length() == fileLength && file.lastModified() == fileModified;
+  }
+
+  private void record(final String hash) {
+    contentHash = hash;
+    fileLength = file.length();
+    fileModified = file.lastModified();
+  }
+
+  /**
+   * Renames the source file to the target file. Renaming over an existing file is atomic on POSIX
+   * file systems but fails on Windows, where the target is moved aside first and moved back if the
+   * rename still fails.
+   */
+  private static void replace(final File source, final File target) throws IOException {
+    if (source.renameTo(target)) {
+      return;
+    }
+
+    final File backup = new File(target.getPath() + ".bak");
+    if (target.exists() && (backup.exists() && !backup.delete() || !target.renameTo(backup))) {
+      throw new IOException("Could not replace " + target.getPath());
+    }
+    if (!source.renameTo(target)) {
+      backup.renameTo(target);
+      throw new IOException("Could not replace " + target.getPath());
+    }
+    backup.delete();
+  }
+}
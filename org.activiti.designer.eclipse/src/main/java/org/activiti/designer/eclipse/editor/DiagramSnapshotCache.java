@@ -0,0 +1,390 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.eclipse.editor;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.activiti.bpmn.model.Artifact;
+import org.activiti.bpmn.model.BaseElement;
+import org.activiti.bpmn.model.BpmnModel;
+import org.activiti.bpmn.model.DataObject;
+import org.activiti.bpmn.model.FlowElement;
+import org.activiti.bpmn.model.Process;
+import org.activiti.bpmn.model.ServiceTask;
+import org.activiti.bpmn.model.SubProcess;
+import org.activiti.bpmn.model.UserTask;
+import org.activiti.designer.eclipse.Logger;
+import org.activiti.designer.eclipse.common.ActivitiPlugin;
+import org.activiti.designer.util.preferences.Preferences;
+import org.activiti.designer.util.preferences.PreferencesUtil;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang.StringUtils;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.impl.BinaryResourceImpl;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.graphiti.features.IFeatureProvider;
+import org.eclipse.graphiti.mm.algorithms.styles.Color;
+import org.eclipse.graphiti.mm.algorithms.styles.Font;
+import org.eclipse.graphiti.mm.algorithms.styles.Style;
+import org.eclipse.graphiti.mm.pictograms.Connection;
+import org.eclipse.graphiti.mm.pictograms.Diagram;
+import org.eclipse.graphiti.mm.pictograms.PictogramElement;
+import org.eclipse.graphiti.mm.pictograms.PictogramLink;
+import org.eclipse.graphiti.mm.pictograms.Shape;
+import org.osgi.framework.Bundle;
+import org.eclipse.graphiti.services.Graphiti;
+
+/**
+ * Cache of fully populated diagrams in the state location of the plugin. A snapshot is stored in
+ * EMF's binary resource format under the SHA-1 hash of the BPMN file it was built from. When the
+ * same file is opened again, the pictograms are taken from the snapshot and only linked to the
+ * freshly parsed model, instead of being created by the add features one by one. The key also
+ * covers the versions of the bundles that draw the diagram and the preferences the model is parsed
+ * with, so a snapshot drawn by another version of the Designer or from another model is never used.
+ *
+ * Links to business objects do not survive a restart, so every linked pictogram element carries the
+ * ids of its business objects in the snapshot. A snapshot is only used when those ids match the
+ * model exactly; otherwise the diagram is imported as usual. Diagrams with pools or lanes are always
+ * imported, because the import also completes the diagram interchange information of the model.
+ *
+ * The cache keeps the snapshots used most recently, up to a number, a total size and an age.
+ */
+public final class DiagramSnapshotCache {
+
+  /** Part of the key, so snapshots of older formats are never read. */
+  private static final String FORMAT_VERSION = "1";
+
+  /** The bundles whose code draws the diagram. */
+  private static final String[] RENDERING_BUNDLES = { ActivitiPlugin.PLUGIN_ID, ActivitiPlugin.GUI_PLUGIN_ID, "org.eclipse.graphiti" };
+
+  /** The preferences that decide which elements the BPMN file is parsed into. */
+  private static final Preferences[] RENDERING_PREFERENCES = { Preferences.ALFRESCO_FORMTYPES_USERTASK,
+      Preferences.ALFRESCO_FORMTYPES_STARTEVENT };
+
+  private static final String SNAPSHOT_FOLDER = "snapshots";
+  private static final String SNAPSHOT_EXTENSION = ".diagram";
+  private static final int MAX_SNAPSHOTS = 100;
+  private static final long MAX_TOTAL_SIZE = 64L * 1024 * 1024;
+  private static final long MAX_AGE_MILLIS = 30L * 24 * 60 * 60 * 1000;
+
+  private static final String ELEMENT_IDS_PROPERTY = "org.activiti.designer.snapshot.elementIds";
+  private static final String ELEMENT_ID_SEPARATOR = " ";
+
+  private DiagramSnapshotCache() {
+
+  }
+
+  /**
+   * @return the key of the snapshot for a BPMN file with the given content
+   */
+  public static String createKey(final byte[] content) {
+    return FORMAT_VERSION + "-" + DigestUtils.sha1Hex(getRenderingEnvironment() + DigestUtils.sha1Hex(content));
+  }
+
+  /**
+   * @return the versions of the rendering bundles and the values of the rendering preferences
+   */
+  private static String getRenderingEnvironment() {
+    final StringBuilder environment = new StringBuilder();
+    for (final String bundleId : RENDERING_BUNDLES) {
+      final Bundle bundle = Platform.getBundle(bundleId);
+      environment.append(bundleId).append('=').append(bundle != null ? bundle.getVersion() : "").append(';');
+    }
+    for (final Preferences preference : RENDERING_PREFERENCES) {
+      environment.append(preference.getPreferenceId()).append('=')
+              .append(PreferencesUtil.getStringPreference(preference, ActivitiPlugin.getDefault())).append(';');
+    }
+    return environment.toString();
+  }
+
+  /**
+   * @return true if a snapshot is stored for the key
+   */
+  public static boolean contains(final String key) {
+    return key != null && getSnapshotFile(key).exists();
+  }
+
+  /**
+   * @return the snapshot stored for the key or <code>null</code> if there is none
+   */
+  public static Diagram load(final String key) {
+    if (key == null) {
+      return null;
+    }
+
+    final File snapshotFile = getSnapshotFile(key);
+    if (!snapshotFile.exists()) {
+      return null;
+    }
+
+    try {
+      final Resource resource = new BinaryResourceImpl(URI.createFileURI(snapshotFile.getAbsolutePath()));
+      new ResourceSetImpl().getResources().add(resource);
+      resource.load(null);
+
+      if (resource.getContents().isEmpty() || resource.getContents().get(0) instanceof Diagram == false) {
+        return null;
+      }
+      // the snapshots used least recently are removed first
+      snapshotFile.setLastModified(System.currentTimeMillis());
+      return (Diagram) resource.getContents().get(0);
+
+    } catch (Exception e) {
+      Logger.logError("Error reading diagram snapshot " + snapshotFile, e);
+      snapshotFile.delete();
+      return null;
+    }
+  }
+
+  /**
+   * Checks whether the snapshot contains exactly the elements of the model. Diagrams with custom
+   * tasks, pools or lanes are never restored, because importing them also changes the model.
+   */
+  public static boolean matches(final Diagram snapshot, final BpmnModel model) {
+    final Map<String, BaseElement> elements = getDiagramElements(model);
+    if (elements == null) {
+      return false;
+    }
+
+    final Set<String> snapshotIds = new HashSet<String>();
+    final Iterator<EObject> contents = snapshot.eAllContents();
+    while (contents.hasNext()) {
+      final EObject object = contents.next();
+      if (object instanceof PictogramElement) {
+        final String value = Graphiti.getPeService().getPropertyValue((PictogramElement) object, ELEMENT_IDS_PROPERTY);
+        if (value != null) {
+          snapshotIds.addAll(Arrays.asList(StringUtils.split(value, ELEMENT_ID_SEPARATOR)));
+        }
+      }
+    }
+
+    for (final Map.Entry<String, BaseElement> entry : elements.entrySet()) {
+      // data objects have no pictogram, whether they have diagram information or not
+      if (entry.getValue() instanceof DataObject == false && !snapshotIds.contains(entry.getKey())) {
+        return false;
+      }
+    }
+    return elements.keySet().containsAll(snapshotIds);
+  }
+
+  /**
+   * Moves the contents of the snapshot into the diagram and links every pictogram element to its
+   * business objects in the model. Must be called in a write transaction and only with a snapshot
+   * that {@link #matches(Diagram, BpmnModel)} the model.
+   */
+  public static void restore(final Diagram snapshot, final Diagram diagram, final BpmnModel model, final IFeatureProvider featureProvider) {
+    final Map<String, BaseElement> elements = getDiagramElements(model);
+
+    // styles, colors and fonts first, they are referenced by the graphics algorithms
+    diagram.getStyles().addAll(new ArrayList<Style>(snapshot.getStyles()));
+    diagram.getColors().addAll(new ArrayList<Color>(snapshot.getColors()));
+    diagram.getFonts().addAll(new ArrayList<Font>(snapshot.getFonts()));
+    diagram.getPictogramLinks().addAll(new ArrayList<PictogramLink>(snapshot.getPictogramLinks()));
+    diagram.getChildren().addAll(new ArrayList<Shape>(snapshot.getChildren()));
+    diagram.getConnections().addAll(new ArrayList<Connection>(snapshot.getConnections()));
+
+    final List<PictogramElement> pictogramElements = new ArrayList<PictogramElement>();
+    final Iterator<EObject> contents = diagram.eAllContents();
+    while (contents.hasNext()) {
+      final EObject object = contents.next();
+      if (object instanceof PictogramElement) {
+        pictogramElements.add((PictogramElement) object);
+      }
+    }
+
+    for (final PictogramElement pictogramElement : pictogramElements) {
+      final String value = Graphiti.getPeService().getPropertyValue(pictogramElement, ELEMENT_IDS_PROPERTY);
+      if (value == null) {
+        continue;
+      }
+
+      final List<Object> businessObjects = new ArrayList<Object>();
+      for (final String id : StringUtils.split(value, ELEMENT_ID_SEPARATOR)) {
+        businessObjects.add(elements.get(id));
+      }
+      featureProvider.link(pictogramElement, businessObjects.toArray());
+      Graphiti.getPeService().removeProperty(pictogramElement, ELEMENT_IDS_PROPERTY);
+    }
+  }
+
+  /**
+   * Copies the diagram for {@link #write(String, Diagram)}, which may be called after the
+   * transaction has ended. The diagram is only read, but the caller must hold at least a read
+   * transaction.
+   *
+   * @return the copy or <code>null</code> if the diagram could not be restored later
+   */
+  public static Diagram copy(final Diagram diagram, final BpmnModel model, final IFeatureProvider featureProvider) {
+    if (getDiagramElements(model) == null) {
+      return null;
+    }
+
+    final EcoreUtil.Copier copier = new EcoreUtil.Copier();
+    final Diagram copy = (Diagram) copier.copy(diagram);
+    copier.copyReferences();
+
+    for (final Map.Entry<EObject, EObject> entry : copier.entrySet()) {
+      if (entry.getKey() instanceof PictogramElement == false) {
+        continue;
+      }
+
+      final PictogramElement pictogramElement = (PictogramElement) entry.getKey();
+      if (pictogramElement == diagram || pictogramElement.getLink() == null) {
+        continue;
+      }
+
+      final List<String> ids = new ArrayList<String>();
+      for (final Object businessObject : featureProvider.getAllBusinessObjectsForPictogramElement(pictogramElement)) {
+        if (businessObject instanceof BaseElement == false || StringUtils.isEmpty(((BaseElement) businessObject).getId())) {
+          // cannot be linked again after a restart
+          return null;
+        }
+        ids.add(((BaseElement) businessObject).getId());
+      }
+      if (!ids.isEmpty()) {
+        Graphiti.getPeService().setPropertyValue((PictogramElement) entry.getValue(), ELEMENT_IDS_PROPERTY,
+                StringUtils.join(ids, ELEMENT_ID_SEPARATOR));
+      }
+    }
+    return copy;
+  }
+
+  /**
+   * Writes a copy made by {@link #copy(Diagram, BpmnModel, IFeatureProvider)} for the key and removes
+   * the snapshots that no longer fit in the cache. Does not need a transaction.
+   */
+  public static void write(final String key, final Diagram copy) {
+    if (key == null || copy == null) {
+      return;
+    }
+
+    final File snapshotFile = getSnapshotFile(key);
+    try {
+      snapshotFile.getParentFile().mkdirs();
+      final BinaryResourceImpl resource = new BinaryResourceImpl(URI.createFileURI(snapshotFile.getAbsolutePath()));
+      new ResourceSetImpl().getResources().add(resource);
+      resource.getContents().add(copy);
+      resource.save(null);
+
+    } catch (Exception e) {
+      Logger.logError("Error writing diagram snapshot " + snapshotFile, e);
+      snapshotFile.delete();
+      return;
+    }
+
+    removeOldSnapshots(snapshotFile.getParentFile());
+  }
+
+  private static File getSnapshotFile(final String key) {
+    final File folder = ActivitiPlugin.getDefault().getStateLocation().append(SNAPSHOT_FOLDER).toFile();
+    return new File(folder, key + SNAPSHOT_EXTENSION);
+  }
+
+  private static void removeOldSnapshots(final File folder) {
+    final File[] snapshotFiles = folder.listFiles(new FileFilter() {
+
+      @Override
+      public boolean accept(File file) {
+        return file.getName().endsWith(SNAPSHOT_EXTENSION);
+      }
+    });
+
+    if (snapshotFiles == null) {
+      return;
+    }
+
+    // newest first, everything after the first snapshot that does not fit any more is removed
+    Arrays.sort(snapshotFiles, new Comparator<File>() {
+
+      @Override
+      public int compare(File first, File second) {
+        return Long.valueOf(second.lastModified()).compareTo(first.lastModified());
+      }
+    });
+
+    final long oldest = System.currentTimeMillis() - MAX_AGE_MILLIS;
+    long totalSize = 0;
+    for (int i = 0; i < snapshotFiles.length; i++) {
+      totalSize += snapshotFiles[i].length();
+      if (i >= MAX_SNAPSHOTS || totalSize > MAX_TOTAL_SIZE || snapshotFiles[i].lastModified() < oldest) {
+        snapshotFiles[i].delete();
+      }
+    }
+  }
+
+  /**
+   * Collects all elements of the model that are drawn on a diagram, by id.
+   *
+   * @return the elements or <code>null</code> if the model contains custom tasks, pools or lanes
+   */
+  private static Map<String, BaseElement> getDiagramElements(final BpmnModel model) {
+    // the import computes the graphic info of pools from their lanes
+    if (!model.getPools().isEmpty()) {
+      return null;
+    }
+
+    final Map<String, BaseElement> elements = new HashMap<String, BaseElement>();
+    for (final Process process : model.getProcesses()) {
+      if (!process.getLanes().isEmpty()) {
+        return null;
+      }
+      if (!addDiagramElements(process.getFlowElements(), process.getArtifacts(), elements)) {
+        return null;
+      }
+    }
+    return elements;
+  }
+
+  private static boolean addDiagramElements(final Collection<FlowElement> flowElements, final Collection<Artifact> artifacts,
+          final Map<String, BaseElement> elements) {
+
+    for (final FlowElement flowElement : flowElements) {
+      if (flowElement instanceof ServiceTask && ((ServiceTask) flowElement).isExtended()) {
+        return false;
+      }
+      if (flowElement instanceof UserTask && ((UserTask) flowElement).isExtended()) {
+        return false;
+      }
+
+      elements.put(flowElement.getId(), flowElement);
+
+      if (flowElement instanceof SubProcess) {
+        final SubProcess subProcess = (SubProcess) flowElement;
+        if (!addDiagramElements(subProcess.getFlowElements(), subProcess.getArtifacts(), elements)) {
+          return false;
+        }
+      }
+    }
+
+    for (final Artifact artifact : artifacts) {
+      elements.put(artifact.getId(), artifact);
+    }
+    return true;
+  }
+}
@@ -0,0 +1,85 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.eclipse.editor;
+
+import org.activiti.designer.util.editor.BpmnMemoryModel;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.emf.common.command.Command;
+import org.eclipse.emf.transaction.RunnableWithResult;
+import org.eclipse.emf.transaction.TransactionalEditingDomain;
+import org.eclipse.graphiti.mm.pictograms.Diagram;
+
+/**
+ * Stores the diagram of an {@link ActivitiDiagramEditor} in the {@link DiagramSnapshotCache}
+ * without blocking the UI thread. The diagram is copied in a read transaction of the job and only
+ * if the user did not edit it since the job was scheduled, so a snapshot always shows the BPMN file
+ * it is stored for.
+ */
+class DiagramSnapshotWriter extends Job {
+
+  private final ActivitiDiagramEditor editor;
+  private final String key;
+  private final BpmnMemoryModel model;
+  private final Command lastCommand;
+
+  /**
+   * Must be created on the UI thread, when the diagram matches the BPMN file.
+   *
+   * @param key
+   *          the key of the content of the BPMN file
+   */
+  DiagramSnapshotWriter(final ActivitiDiagramEditor editor, final String key, final BpmnMemoryModel model) {
+    super("Storing a snapshot of the diagram");
+    this.editor = editor;
+    this.key = key;
+    this.model = model;
+    this.lastCommand = editor.getEditingDomain().getCommandStack().getUndoCommand();
+    setSystem(true);
+  }
+
+  @Override
+  public boolean belongsTo(Object family) {
+    return family == editor;
+  }
+
+  @Override
+  protected IStatus run(IProgressMonitor monitor) {
+    final TransactionalEditingDomain editingDomain = editor.getEditingDomain();
+    if (monitor.isCanceled() || editingDomain == null) {
+      return Status.CANCEL_STATUS;
+    }
+
+    final RunnableWithResult<Diagram> copy = new RunnableWithResult.Impl<Diagram>() {
+
+      @Override
+      public void run() {
+        if (editingDomain.getCommandStack().getUndoCommand() == lastCommand) {
+          setResult(DiagramSnapshotCache.copy(editor.getDiagramTypeProvider().getDiagram(), model.getBpmnModel(),
+                  editor.getDiagramTypeProvider().getFeatureProvider()));
+        }
+      }
+    };
+    try {
+      editingDomain.runExclusive(copy);
+    } catch (InterruptedException e) {
+      return Status.CANCEL_STATUS;
+    }
+
+    DiagramSnapshotCache.write(key, copy.getResult());
+    return Status.OK_STATUS;
+  }
+}
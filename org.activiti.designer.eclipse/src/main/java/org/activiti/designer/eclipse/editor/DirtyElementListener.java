@@ -0,0 +1,187 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.eclipse.editor;
+
+import java.util.Collection;
+import java.util.EventObject;
+
+import org.activiti.bpmn.model.BaseElement;
+import org.activiti.designer.util.editor.BpmnMemoryModel;
+import org.activiti.designer.util.editor.DirtyElementTracker;
+import org.activiti.designer.util.editor.ValidationChangeTracker;
+import org.eclipse.emf.common.command.CommandStackListener;
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.transaction.NotificationFilter;
+import org.eclipse.emf.transaction.ResourceSetChangeEvent;
+import org.eclipse.emf.transaction.ResourceSetListenerImpl;
+import org.eclipse.graphiti.mm.pictograms.Anchor;
+import org.eclipse.graphiti.mm.pictograms.Connection;
+import org.eclipse.graphiti.mm.pictograms.ConnectionDecorator;
+import org.eclipse.graphiti.mm.pictograms.ContainerShape;
+import org.eclipse.graphiti.mm.pictograms.Diagram;
+import org.eclipse.graphiti.mm.pictograms.PictogramElement;
+import org.eclipse.graphiti.mm.pictograms.Shape;
+
+/**
+ * Feeds the {@link DirtyElementTracker} of a model with the elements whose shape or connection
+ * changed in a committed transaction, including undo and redo. A changed shape also marks the
+ * shapes inside it, because their position relative to the diagram changes with it, and the
+ * connections attached to all of them. When pictogram elements are removed everything is marked
+ * dirty, so the next save also drops the elements that lost their pictogram.
+ * <p>
+ * The same elements are marked changed in the {@link ValidationChangeTracker} of the model. Some
+ * commands change the BPMN model without touching a pictogram element or telling the model what
+ * changed, for instance the ones run by the property sections through
+ * {@code ActivitiUiUtil.runModelChange}. Registered with the command stack as well, the listener
+ * marks everything changed for every command that was executed, undone or redone without marking
+ * anything.
+ */
+public class DirtyElementListener extends ResourceSetListenerImpl implements CommandStackListener {
+
+  private final BpmnMemoryModel model;
+
+  /** The change count of the validation tracker when the command stack last changed. */
+  private long validationChangeCount;
+
+  public DirtyElementListener(final BpmnMemoryModel model) {
+    super(NotificationFilter.NOT_TOUCH);
+    this.model = model;
+    validationChangeCount = model.getValidationChangeTracker().getChangeCount();
+  }
+
+  @Override
+  public void commandStackChanged(EventObject event) {
+    final ValidationChangeTracker validationTracker = model.getValidationChangeTracker();
+    if (validationTracker.getChangeCount() == validationChangeCount) {
+      validationTracker.markAllChanged();
+    }
+    validationChangeCount = validationTracker.getChangeCount();
+  }
+
+  @Override
+  public boolean isPostcommitOnly() {
+    return true;
+  }
+
+  @Override
+  public void resourceSetChanged(ResourceSetChangeEvent event) {
+    final DirtyElementTracker tracker = model.getDirtyElementTracker();
+    final ValidationChangeTracker validationTracker = model.getValidationChangeTracker();
+    if (tracker.isAllDirty() && validationTracker.isAllChanged()) {
+      return;
+    }
+
+    for (final Notification notification : event.getNotifications()) {
+      if (isPictogramContainment(notification)) {
+        final int eventType = notification.getEventType();
+        if (eventType == Notification.REMOVE || eventType == Notification.REMOVE_MANY || eventType == Notification.SET
+            || eventType == Notification.UNSET) {
+
+          tracker.markAllDirty();
+          validationTracker.markAllChanged();
+          return;
+        }
+        markValue(notification.getNewValue(), tracker);
+
+      } else if (notification.getNotifier() instanceof EObject) {
+        final PictogramElement pictogramElement = getPictogramElement((EObject) notification.getNotifier());
+        if (pictogramElement instanceof Diagram == false && pictogramElement instanceof Anchor == false) {
+          markPictogramElement(pictogramElement, tracker);
+        }
+      }
+    }
+  }
+
+  private boolean isPictogramContainment(final Notification notification) {
+    if (notification.getFeature() instanceof EReference == false || ((EReference) notification.getFeature()).isContainment() == false) {
+      return false;
+    }
+    return isPictogramValue(notification.getNewValue()) || isPictogramValue(notification.getOldValue());
+  }
+
+  private boolean isPictogramValue(final Object value) {
+    if (value instanceof Collection) {
+      for (final Object item : (Collection<?>) value) {
+        if (item instanceof PictogramElement) {
+          return true;
+        }
+      }
+      return false;
+    }
+    return value instanceof PictogramElement;
+  }
+
+  private void markValue(final Object value, final DirtyElementTracker tracker) {
+    if (value instanceof Collection) {
+      for (final Object item : (Collection<?>) value) {
+        markValue(item, tracker);
+      }
+    } else if (value instanceof PictogramElement) {
+      markPictogramElement((PictogramElement) value, tracker);
+    }
+  }
+
+  /**
+   * @return the pictogram element the object belongs to, for instance the shape of a graphics
+   *         algorithm or the connection of a bendpoint
+   */
+  private PictogramElement getPictogramElement(EObject object) {
+    while (object != null && object instanceof PictogramElement == false) {
+      object = object.eContainer();
+    }
+    return (PictogramElement) object;
+  }
+
+  private void markPictogramElement(final PictogramElement pictogramElement, final DirtyElementTracker tracker) {
+    if (pictogramElement instanceof ConnectionDecorator) {
+      markBusinessObject(((ConnectionDecorator) pictogramElement).getConnection(), tracker);
+    } else if (pictogramElement instanceof Connection) {
+      markBusinessObject(pictogramElement, tracker);
+    } else if (pictogramElement instanceof Shape) {
+      markShape((Shape) pictogramElement, tracker);
+    }
+  }
+
+  private void markShape(final Shape shape, final DirtyElementTracker tracker) {
+    markBusinessObject(shape, tracker);
+
+    for (final Anchor anchor : shape.getAnchors()) {
+      for (final Connection connection : anchor.getIncomingConnections()) {
+        markBusinessObject(connection, tracker);
+      }
+      for (final Connection connection : anchor.getOutgoingConnections()) {
+        markBusinessObject(connection, tracker);
+      }
+    }
+
+    if (shape instanceof ContainerShape) {
+      for (final Shape child : ((ContainerShape) shape).getChildren()) {
+        markShape(child, tracker);
+      }
+    }
+  }
+
+  private void markBusinessObject(final PictogramElement pictogramElement, final DirtyElementTracker tracker) {
+    if (pictogramElement == null || model.getFeatureProvider() == null) {
+      return;
+    }
+    final Object businessObject = model.getFeatureProvider().getBusinessObjectForPictogramElement(pictogramElement);
+    if (businessObject instanceof BaseElement) {
+      tracker.markDirty((BaseElement) businessObject);
+      model.getValidationChangeTracker().markChanged((BaseElement) businessObject);
+    }
+  }
+}
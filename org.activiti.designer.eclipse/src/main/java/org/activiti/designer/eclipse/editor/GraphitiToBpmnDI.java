@@ -15,14 +15,15 @@ package org.activiti.designer.eclipse.editor;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
-import org.activiti.bpmn.model.Activity;
 import org.activiti.bpmn.model.Artifact;
 import org.activiti.bpmn.model.Association;
 import org.activiti.bpmn.model.BaseElement;
 import org.activiti.bpmn.model.BoundaryEvent;
-import org.activiti.bpmn.model.DataObject;
+import org.activiti.bpmn.model.BpmnModel;
 import org.activiti.bpmn.model.FlowElement;
 import org.activiti.bpmn.model.GraphicInfo;
 import org.activiti.bpmn.model.Lane;
@@ -30,8 +31,9 @@ import org.activiti.bpmn.model.MessageFlow;
 import org.activiti.bpmn.model.Pool;
 import org.activiti.bpmn.model.Process;
 import org.activiti.bpmn.model.SequenceFlow;
-import org.activiti.bpmn.model.SubProcess;
+import org.activiti.designer.util.bpmn.DiagramInterchangeCollector;
 import org.activiti.designer.util.editor.BpmnMemoryModel;
+import org.activiti.designer.util.editor.DirtyElementTracker;
 import org.apache.commons.lang.StringUtils;
 import org.eclipse.emf.common.util.EList;
 import org.eclipse.graphiti.datatypes.ILocation;
@@ -45,7 +47,7 @@ import org.eclipse.graphiti.mm.pictograms.Shape;
 import org.eclipse.graphiti.services.Graphiti;
 
 
-public class GraphitiToBpmnDI {
+public class GraphitiToBpmnDI extends DiagramInterchangeCollector {
   
   protected BpmnMemoryModel model;
   protected IFeatureProvider featureProvider;
@@ -55,167 +57,127 @@ public class GraphitiToBpmnDI {
     this.featureProvider = featureProvider;
   }
 
+  /**
+   * Brings the diagram interchange information of the model up to date with the diagram. Only the
+   * elements marked in the {@link DirtyElementTracker} of the model are computed again, unless it is
+   * not known what changed; then the graphic info of all elements is computed again and elements
+   * without pictogram are removed from the model.
+   */
   public void processGraphitiElements() throws Exception {
-    model.getBpmnModel().getFlowLocationMap().clear();
-    model.getBpmnModel().getLocationMap().clear();
-    model.getBpmnModel().getLabelLocationMap().clear();
-    List<Pool> toDeletePoolList = new ArrayList<Pool>();
-    for (Pool pool : model.getBpmnModel().getPools()) {
-      PictogramElement pictElementPool = featureProvider.getPictogramElementForBusinessObject(pool);
-      if (pictElementPool != null) {
-        updateFlowElement(pool);
-        
-        Process process = model.getBpmnModel().getProcess(pool.getId());
-        if(process != null) {
-          List<Lane> toDeleteLaneList = new ArrayList<Lane>();
-          for (Lane lane : process.getLanes()) {
-            PictogramElement pictElementLane = featureProvider.getPictogramElementForBusinessObject(lane);
-            if (pictElementLane != null) {
-              updateFlowElement(lane);
-            } else {
-              toDeleteLaneList.add(lane);
-            }
-          }
-          
-          for (Lane toDeleteLane : toDeleteLaneList) {
-            process.getLanes().remove(toDeleteLane);
-            model.getBpmnModel().removeGraphicInfo(toDeleteLane.getId());
-          }
-        }
-      } else {
-        toDeletePoolList.add(pool);
+    final DirtyElementTracker tracker = model.getDirtyElementTracker();
+    final Set<BaseElement> dirtyElements = tracker.takeDirtyElements();
+    try {
+      if (dirtyElements == null || processDirtyElements(dirtyElements) == false) {
+        processAllElements();
       }
+      if (moveIntoPositiveArea()) {
+        // the graphic info is shifted against the diagram now
+        tracker.markAllDirty();
+      }
+    } catch (Exception e) {
+      tracker.markAllDirty();
+      throw e;
     }
-    
-    for (Pool toDeletePool : toDeletePoolList) {
-      model.getBpmnModel().getPools().remove(toDeletePool);
-      model.getBpmnModel().removeGraphicInfo(toDeletePool.getId());
-    }
-    
-    for (MessageFlow messageFlow : model.getBpmnModel().getMessageFlows().values()) {
-      updateMessageFlow(messageFlow);
-    }
-    
-    for (Process process : model.getBpmnModel().getProcesses()) {
-      loopThroughElements(process.getFlowElements(), process);
-      loopThroughElements(process.getArtifacts(), process);
+  }
+
+  /**
+   * Computes the graphic info of the elements again.
+   *
+   * @return false if that is not enough to bring the model up to date, because an element is no
+   *         longer part of the model or the diagram, or the model has graphic info of elements it
+   *         no longer contains
+   */
+  protected boolean processDirtyElements(Set<BaseElement> dirtyElements) throws Exception {
+    final BpmnModel bpmnModel = model.getBpmnModel();
+    final Set<String> poolAndLaneIds = new HashSet<String>();
+    for (Pool pool : bpmnModel.getPools()) {
+      poolAndLaneIds.add(pool.getId());
     }
-    
-    double minX = 0.0;
-    double minY = 0.0;
-    // check if there are negative x and/or y positions
-    for (GraphicInfo graphicInfo : model.getBpmnModel().getLocationMap().values()) {
-      if (minX > graphicInfo.getX()) {
-        minX = graphicInfo.getX();
-      }
-      if (minY > graphicInfo.getY()) {
-        minY = graphicInfo.getY();
+    for (Process process : bpmnModel.getProcesses()) {
+      for (Lane lane : process.getLanes()) {
+        poolAndLaneIds.add(lane.getId());
       }
     }
-    
-    if (minX < 0 || minY < 0) {
-      double changeX = 0.0;
-      if (minX < 0.0) {
-        changeX = 0.0 - minX + 1;
-      }
-      double changeY = 0.0;
-      if (minY < 0.0) {
-        changeY = 0.0 - minY + 1;
-      }
-      
-      for (GraphicInfo graphicInfo : model.getBpmnModel().getLocationMap().values()) {
-        if (changeX > 0.0) {
-          graphicInfo.setX(graphicInfo.getX() + changeX);
-        }
-        if (changeY > 0.0) {
-          graphicInfo.setY(graphicInfo.getY() + changeY);
-        }
-      }
-      
-      for (List<GraphicInfo> graphicInfoList : model.getBpmnModel().getFlowLocationMap().values()) {
-        for (GraphicInfo graphicInfo : graphicInfoList) {
-          if (changeX > 0.0) {
-            graphicInfo.setX(graphicInfo.getX() + changeX);
-          }
-          if (changeY > 0.0) {
-            graphicInfo.setY(graphicInfo.getY() + changeY);
-          }
-        }
+
+    if (hasUnknownIds(bpmnModel.getLocationMap().keySet(), poolAndLaneIds)
+        || hasUnknownIds(bpmnModel.getFlowLocationMap().keySet(), poolAndLaneIds)
+        || hasUnknownIds(bpmnModel.getLabelLocationMap().keySet(), poolAndLaneIds)) {
+
+      return false;
+    }
+
+    for (BaseElement element : dirtyElements) {
+      if (isInModel(element, poolAndLaneIds) == false || getPictogramElement(element) == null) {
+        return false;
       }
-      
-      for (GraphicInfo graphicInfo : model.getBpmnModel().getLabelLocationMap().values()) {
-        if (changeX > 0.0) {
-          graphicInfo.setX(graphicInfo.getX() + changeX);
-        }
-        if (changeY > 0.0) {
-          graphicInfo.setY(graphicInfo.getY() + changeY);
-        }
+
+      bpmnModel.removeGraphicInfo(element.getId());
+      bpmnModel.removeFlowGraphicInfoList(element.getId());
+      bpmnModel.removeLabelGraphicInfo(element.getId());
+
+      if (element instanceof SequenceFlow) {
+        updateSequenceFlow((SequenceFlow) element);
+      } else if (element instanceof MessageFlow) {
+        updateMessageFlow((MessageFlow) element);
+      } else if (element instanceof Association) {
+        updateAssociation((Association) element);
+      } else {
+        updateFlowElement(element);
       }
     }
+    return true;
   }
-  
-  protected void loopThroughElements(Collection<? extends BaseElement> elementList, BaseElement parentElement) throws Exception {
-    
-    List<BaseElement> toDeleteElementList = new ArrayList<BaseElement>();
-    
-    for (BaseElement element : elementList) {
-      
-      PictogramElement pictElement = featureProvider.getPictogramElementForBusinessObject(element);
-      if (pictElement != null) {
-        if (element instanceof SequenceFlow) {
-          updateSequenceFlow((SequenceFlow) element);
-        } else if (element instanceof FlowElement) {
-          updateFlowElement(element);
-          if (element instanceof SubProcess) {
-            SubProcess subProcess = (SubProcess) element;
-            loopThroughElements(subProcess.getFlowElements(), subProcess);
-            loopThroughElements(subProcess.getArtifacts(), subProcess);
-          }
-          if (element instanceof Activity) {
-            Activity activity = (Activity) element;
-            for (BoundaryEvent boundaryEvent : activity.getBoundaryEvents()) {
-              updateFlowElement(boundaryEvent);
-            }
-          }
-        } else if (element instanceof Artifact) {
-          if (element instanceof Association) {
-            updateAssociation((Association) element);
-          } else {
-            updateFlowElement(element);
-          }
-        }
-      } else {
-    	  // no pictogram exist so delete it from the model as well
-    	  // except for Data Objects
-    	  if (element instanceof DataObject == false) {
-    	    toDeleteElementList.add(element);
-    	  }
+
+  protected boolean hasUnknownIds(Collection<String> ids, Set<String> poolAndLaneIds) {
+    for (String id : ids) {
+      if (poolAndLaneIds.contains(id) == false && model.getBpmnModel().getMessageFlow(id) == null
+          && model.getFlowElement(id) == null && model.getArtifact(id) == null) {
+
+        return true;
       }
     }
-    
-    if (toDeleteElementList.size() > 0) {
-      if (parentElement instanceof Process) {
-        Process process = (Process) parentElement;
-        for (BaseElement toDeleteElement : toDeleteElementList) {
-          process.removeFlowElement(toDeleteElement.getId());
-          model.getBpmnModel().removeGraphicInfo(toDeleteElement.getId());
-          model.getBpmnModel().removeFlowGraphicInfoList(toDeleteElement.getId());
-          model.getBpmnModel().removeLabelGraphicInfo(toDeleteElement.getId());
-        }
-      } else if (parentElement instanceof SubProcess) {
-        SubProcess subProcess = (SubProcess) parentElement;
-        for (BaseElement toDeleteElement : toDeleteElementList) {
-          subProcess.removeFlowElement(toDeleteElement.getId());
-          model.getBpmnModel().removeGraphicInfo(toDeleteElement.getId());
-          model.getBpmnModel().removeFlowGraphicInfoList(toDeleteElement.getId());
-          model.getBpmnModel().removeLabelGraphicInfo(toDeleteElement.getId());
-        }
-      }
+    return false;
+  }
+
+  protected boolean isInModel(BaseElement element, Set<String> poolAndLaneIds) {
+    final String id = element.getId();
+    if (element instanceof Pool || element instanceof Lane) {
+      return poolAndLaneIds.contains(id);
+    } else if (element instanceof MessageFlow) {
+      return model.getBpmnModel().getMessageFlow(id) == element;
+    } else if (element instanceof FlowElement) {
+      return model.getFlowElement(id) == element;
+    } else if (element instanceof Artifact) {
+      return model.getArtifact(id) == element;
     }
+    return false;
+  }
+
+  /**
+   * Looks the pictogram element up in the index of the model instead of the link table.
+   */
+  protected PictogramElement getPictogramElement(BaseElement element) {
+    return model.getPictogramElementIndex().getPictogramElement(element);
+  }
+
+  @Override
+  protected BpmnModel getBpmnModel() {
+    return model.getBpmnModel();
+  }
+
+  @Override
+  protected boolean isDrawn(BaseElement element) {
+    return getPictogramElement(element) != null;
+  }
+
+  @Override
+  protected void removeBusinessObject(BaseElement element) {
+    model.removeBusinessObject(element);
   }
   
+  @Override
   protected void updateFlowElement(BaseElement flowElement) {
-    PictogramElement picElement = featureProvider.getPictogramElementForBusinessObject(flowElement);
+    PictogramElement picElement = getPictogramElement(flowElement);
     if (picElement instanceof Shape) {
       Shape shape = (Shape) picElement;
       ILocation shapeLocation = Graphiti.getLayoutService().getLocationRelativeToDiagram(shape);
@@ -224,21 +186,22 @@ public class GraphitiToBpmnDI {
     }
   }
   
+  @Override
   protected void updateSequenceFlow(SequenceFlow sequenceFlow) {
     Shape sourceShape = null;
     Shape targetShape = null;
     if (StringUtils.isNotEmpty(sequenceFlow.getSourceRef())) {
-      sourceShape = (Shape) featureProvider.getPictogramElementForBusinessObject(model.getFlowElement(sequenceFlow.getSourceRef()));
+      sourceShape = (Shape) getPictogramElement(model.getFlowElement(sequenceFlow.getSourceRef()));
     }
     if (StringUtils.isNotEmpty(sequenceFlow.getTargetRef())) {
-      targetShape = (Shape) featureProvider.getPictogramElementForBusinessObject(model.getFlowElement(sequenceFlow.getTargetRef()));
+      targetShape = (Shape) getPictogramElement(model.getFlowElement(sequenceFlow.getTargetRef()));
     }
    
     if (sourceShape == null || targetShape == null) {
       return;
     }
     
-    FreeFormConnection freeFormConnection = (FreeFormConnection) featureProvider.getPictogramElementForBusinessObject(sequenceFlow);
+    FreeFormConnection freeFormConnection = (FreeFormConnection) getPictogramElement(sequenceFlow);
     
     if (freeFormConnection == null) 
       return;
@@ -276,21 +239,22 @@ public class GraphitiToBpmnDI {
     }
   }
   
+  @Override
   protected void updateMessageFlow(MessageFlow messageFlow) {
     Shape sourceShape = null;
     Shape targetShape = null;
     if (StringUtils.isNotEmpty(messageFlow.getSourceRef())) {
-      sourceShape = (Shape) featureProvider.getPictogramElementForBusinessObject(model.getFlowElement(messageFlow.getSourceRef()));
+      sourceShape = (Shape) getPictogramElement(model.getFlowElement(messageFlow.getSourceRef()));
     }
     if (StringUtils.isNotEmpty(messageFlow.getTargetRef())) {
-      targetShape = (Shape) featureProvider.getPictogramElementForBusinessObject(model.getFlowElement(messageFlow.getTargetRef()));
+      targetShape = (Shape) getPictogramElement(model.getFlowElement(messageFlow.getTargetRef()));
     }
    
     if (sourceShape == null || targetShape == null) {
       return;
     }
     
-    FreeFormConnection freeFormConnection = (FreeFormConnection) featureProvider.getPictogramElementForBusinessObject(messageFlow);
+    FreeFormConnection freeFormConnection = (FreeFormConnection) getPictogramElement(messageFlow);
     
     if (freeFormConnection == null) 
       return;
@@ -329,6 +293,7 @@ public class GraphitiToBpmnDI {
     }
   }
   
+  @Override
   protected void updateAssociation(Association association) {
     Shape sourceShape = null;
     Shape targetShape = null;
@@ -337,21 +302,21 @@ public class GraphitiToBpmnDI {
       if (sourceElement == null) {
         sourceElement = model.getArtifact(association.getSourceRef());
       }
-      sourceShape = (Shape) featureProvider.getPictogramElementForBusinessObject(sourceElement);
+      sourceShape = (Shape) getPictogramElement(sourceElement);
     }
     if (StringUtils.isNotEmpty(association.getTargetRef())) {
       BaseElement targetElement = model.getFlowElement(association.getTargetRef());
       if (targetElement == null) {
         targetElement = model.getArtifact(association.getTargetRef());
       }
-      targetShape = (Shape) featureProvider.getPictogramElementForBusinessObject(targetElement);
+      targetShape = (Shape) getPictogramElement(targetElement);
     }
    
     if (sourceShape == null || targetShape == null) {
       return;
     }
     
-    FreeFormConnection freeFormConnection = (FreeFormConnection) featureProvider.getPictogramElementForBusinessObject(association);
+    FreeFormConnection freeFormConnection = (FreeFormConnection) getPictogramElement(association);
     
     if (freeFormConnection == null) 
       return;
@@ -40,6 +40,8 @@ public class ImageOverlayContext {
   private static final String PREFIX_REVISION = "Revision";
 
   private GC imageGC;
+  private int canvasWidth;
+  private int canvasHeight;
   private String processName;
   private String processKey;
   private String processNamespace;
@@ -71,6 +73,22 @@ public class ImageOverlayContext {
     this.imageGC = imageGC;
   }
 
+  /**
+   * Sets the size of the image, when the GC only covers a part of it.
+   */
+  public void setCanvasSize(int canvasWidth, int canvasHeight) {
+    this.canvasWidth = canvasWidth;
+    this.canvasHeight = canvasHeight;
+  }
+
+  public int getCanvasWidth() {
+    return canvasWidth > 0 ? canvasWidth : imageGC.getClipping().width;
+  }
+
+  public int getCanvasHeight() {
+    return canvasHeight > 0 ? canvasHeight : imageGC.getClipping().height;
+  }
+
   public void setProcessKey(String processKey) {
     this.processKey = processKey;
   }
@@ -15,41 +15,90 @@ package org.activiti.designer.eclipse.editor;
 
 import org.activiti.designer.util.editor.BpmnMemoryModel;
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Color;
 import org.eclipse.swt.graphics.Font;
 import org.eclipse.swt.graphics.FontData;
 import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Rectangle;
 
 public class ImageOverlayCreator {
 
   private final GC imageGC;
+  private final int canvasWidth;
+  private final int canvasHeight;
+
+  private ImageOverlayContext context;
+  private ImageOverlayLayout layoutData;
 
   public ImageOverlayCreator(final GC imageGC) {
     super();
     this.imageGC = imageGC;
+    this.canvasWidth = 0;
+    this.canvasHeight = 0;
+  }
+
+  /**
+   * Creates a creator for an image of the given size that is painted in tiles, see
+   * {@link #addOverlay(GC, Rectangle, String, BpmnMemoryModel)}.
+   */
+  public ImageOverlayCreator(final int canvasWidth, final int canvasHeight) {
+    super();
+    this.imageGC = null;
+    this.canvasWidth = canvasWidth;
+    this.canvasHeight = canvasHeight;
   }
 
   public void addOverlay(final String modelFileName, final BpmnMemoryModel model) {
+    createLayout(imageGC, model);
+    drawOverlay(imageGC, context, layoutData);
+  }
+
+  /**
+   * Adds the part of the overlay that falls into a tile of the image. The GC of the tile must be
+   * translated, so it draws at the position of the tile in the image. The overlay is laid out on
+   * the first tile only.
+   */
+  public void addOverlay(final GC tileGC, final Rectangle tile, final String modelFileName, final BpmnMemoryModel model) {
+    createLayout(tileGC, model);
+
+    // the border is drawn with a width of 2 around the box
+    final Rectangle overlayBounds = new Rectangle(layoutData.getTopLeft().x - 2, layoutData.getTopLeft().y - 2,
+            layoutData.getBottomRight().x - layoutData.getTopLeft().x + 4, layoutData.getBottomRight().y - layoutData.getTopLeft().y + 4);
+    if (overlayBounds.intersects(tile)) {
+      drawOverlay(tileGC, context, layoutData);
+    }
+  }
+
+  private void createLayout(final GC gc, final BpmnMemoryModel model) {
+    if (context != null) {
+      // the layout needs the device of the current GC for its colors
+      context.setImageGC(gc);
+      return;
+    }
 
     final String processName = model.getBpmnModel().getMainProcess().getName();
     final String processKey = model.getBpmnModel().getMainProcess().getId();
     final String processNamespace = model.getBpmnModel().getTargetNamespace();
 
-    final ImageOverlayContext context = new ImageOverlayContext(model.getModelFile());
-    context.setImageGC(imageGC);
+    context = new ImageOverlayContext(model.getModelFile());
+    context.setImageGC(gc);
+    context.setCanvasSize(canvasWidth, canvasHeight);
     context.setProcessName(processName);
     context.setProcessKey(processKey);
     context.setProcessNamespace(processNamespace);
 
-    final ImageOverlayLayout layoutData = new ImageOverlayLayout(context);
-
-    drawOverlay(context, layoutData);
+    layoutData = new ImageOverlayLayout(context);
   }
-  private void drawOverlay(final ImageOverlayContext context, final ImageOverlayLayout layoutData) {
+  private void drawOverlay(final GC imageGC, final ImageOverlayContext context, final ImageOverlayLayout layoutData) {
 
     imageGC.setLineWidth(2);
 
-    imageGC.setForeground(layoutData.getBorderColor());
-    imageGC.setBackground(layoutData.getBackgroundColor());
+    final Color borderColor = layoutData.getBorderColor();
+    final Color backgroundColor = layoutData.getBackgroundColor();
+    final Color textColor = layoutData.getTextColor();
+
+    imageGC.setForeground(borderColor);
+    imageGC.setBackground(backgroundColor);
 
     final int rectTopX = layoutData.getTopLeft().x;
     final int rectTopY = layoutData.getTopLeft().y;
@@ -61,7 +110,7 @@ public class ImageOverlayCreator {
     imageGC.drawRoundRectangle(layoutData.getTopLeft().x, layoutData.getTopLeft().y, layoutData.getBottomRight().x - layoutData.getTopLeft().x,
             layoutData.getBottomRight().y - layoutData.getTopLeft().y, 5, 5);
 
-    imageGC.setForeground(layoutData.getTextColor());
+    imageGC.setForeground(textColor);
 
     final Font originalFont = imageGC.getFont();
     final Font boldFont = createBoldFont(originalFont);
@@ -103,6 +152,9 @@ public class ImageOverlayCreator {
     yPos = yPos - layoutData.getTextLineMargin();
 
     boldFont.dispose();
+    borderColor.dispose();
+    backgroundColor.dispose();
+    textColor.dispose();
   }
 
   private Font createBoldFont(Font originalFont) {
@@ -86,8 +86,8 @@ public class ImageOverlayLayout {
   }
   private void determineCornerPoints(int maxWidth, int totalHeight) {
 
-    final int canvasWidth = context.getImageGC().getClipping().width;
-    final int canvasHeight = context.getImageGC().getClipping().height;
+    final int canvasWidth = context.getCanvasWidth();
+    final int canvasHeight = context.getCanvasHeight();
 
     final int width = BOX_MARGIN * 2 + BOX_PADDING * 2 + maxWidth;
     final int height = BOX_MARGIN * 2 + BOX_PADDING * 2 + totalHeight;
@@ -0,0 +1,114 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.eclipse.editor;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.activiti.bpmn.model.BpmnModel;
+import org.activiti.bpmn.model.Process;
+import org.activiti.designer.eclipse.Logger;
+import org.activiti.designer.util.SharedExecutor;
+import org.activiti.image.ProcessDiagramGenerator;
+import org.activiti.image.impl.DefaultProcessDiagramGenerator;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Writes the images of a diagram with the names of the elements in each of the configured
+ * languages. Every language is rendered in parallel on a model parsed from the saved XML, because
+ * putting in the names of a language changes the model. An image is only rendered again when the
+ * {@link ProcessImageDigest} of the model in its language differs from the one its file was last
+ * written with. The images are rendered on the {@link SharedExecutor}.
+ */
+class LanguageImageWriter {
+
+  private final ActivitiDiagramEditor editor;
+
+  /** The digest each image file was last written with, by file name. */
+  private final Map<String, String> imageDigests = new ConcurrentHashMap<String, String>();
+
+  LanguageImageWriter(final ActivitiDiagramEditor editor) {
+    this.editor = editor;
+  }
+
+  /**
+   * Writes the image for every language and waits until all are written.
+   *
+   * @param xmlBytes
+   *          the saved model
+   */
+  void write(final byte[] xmlBytes, final String diagramFileString, final List<String> languages) throws InterruptedException {
+    final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+    for (final String language : languages) {
+      tasks.add(new Callable<Void>() {
+
+        @Override
+        public Void call() throws Exception {
+          writeImage(xmlBytes, diagramFileString, language);
+          return null;
+        }
+      });
+    }
+
+    // the images that are not written yet are given up when the caller is interrupted
+    final List<Future<Void>> results = SharedExecutor.invokeAll(tasks);
+    for (int i = 0; i < results.size(); i++) {
+      try {
+        results.get(i).get();
+      } catch (ExecutionException e) {
+        Logger.logError("Error while creating the " + languages.get(i) + " image of " + diagramFileString, e.getCause());
+      }
+    }
+  }
+
+  private void writeImage(final byte[] xmlBytes, final String diagramFileString, final String language) throws Exception {
+    final BpmnModel bpmnModel = ActivitiDiagramEditor.parseBpmnModel(xmlBytes);
+    for (Process process : bpmnModel.getProcesses()) {
+      editor.fillContainerWithLanguage(process, language);
+    }
+
+    final File imageFile = new File(ActivitiDiagramEditor.getImageFileName(diagramFileString, language));
+    final String digest = ProcessImageDigest.compute(bpmnModel);
+    if (digest.equals(imageDigests.get(imageFile.getPath())) && imageFile.exists()) {
+      return;
+    }
+
+    ProcessDiagramGenerator processDiagramGenerator = new DefaultProcessDiagramGenerator();
+    InputStream imageStream = processDiagramGenerator.generatePngDiagram(bpmnModel);
+    if (imageStream == null) {
+      return;
+    }
+
+    OutputStream outStream = null;
+    try {
+      outStream = new BufferedOutputStream(new FileOutputStream(imageFile));
+      IOUtils.copy(imageStream, outStream);
+      outStream.flush();
+    } finally {
+      IOUtils.closeQuietly(outStream);
+      IOUtils.closeQuietly(imageStream);
+    }
+    imageDigests.put(imageFile.getPath(), digest);
+  }
+}
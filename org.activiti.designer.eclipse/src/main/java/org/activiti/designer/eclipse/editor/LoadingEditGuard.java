@@ -0,0 +1,57 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.eclipse.editor;
+
+import org.activiti.designer.eclipse.common.ActivitiPlugin;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.emf.common.command.Command;
+import org.eclipse.emf.transaction.NotificationFilter;
+import org.eclipse.emf.transaction.ResourceSetChangeEvent;
+import org.eclipse.emf.transaction.ResourceSetListenerImpl;
+import org.eclipse.emf.transaction.RollbackException;
+import org.eclipse.emf.transaction.Transaction;
+
+/**
+ * Rolls back the changes the user makes while an {@link ActivitiDiagramEditor} loads its diagram in
+ * the background. Until the diagram is complete the editor holds a model the loader replaces, and
+ * the diagram is filled in chunks in between the commands of the user. The loader works in
+ * transactions that are not recorded on the command stack, and so do nested transactions of
+ * them; only those are let through.
+ * <p>
+ * The canvas of the editor is disabled while loading, the guard catches the changes made in other
+ * ways, like in the property sections or through the menus.
+ */
+class LoadingEditGuard extends ResourceSetListenerImpl {
+
+  private final ActivitiDiagramEditor editor;
+
+  LoadingEditGuard(final ActivitiDiagramEditor editor) {
+    super(NotificationFilter.NOT_TOUCH);
+    this.editor = editor;
+  }
+
+  @Override
+  public boolean isPrecommitOnly() {
+    return true;
+  }
+
+  @Override
+  public Command transactionAboutToCommit(ResourceSetChangeEvent event) throws RollbackException {
+    if (editor.isLoading() && !Boolean.TRUE.equals(event.getTransaction().getOptions().get(Transaction.OPTION_NO_UNDO))) {
+      throw new RollbackException(new Status(IStatus.CANCEL, ActivitiPlugin.PLUGIN_ID, "The diagram is still being loaded"));
+    }
+    return null;
+  }
+}
@@ -0,0 +1,154 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.eclipse.editor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Encodes an 8 bit RGB PNG image row by row, so the image never has to be in memory as a whole.
+ * The compressed rows are written as IDAT chunks of at most {@link #CHUNK_SIZE} bytes.
+ */
+class PngRowEncoder {
+
+  private static final byte[] SIGNATURE = new byte[] { (byte) 137, 80, 78, 71, 13, 10, 26, 10 };
+
+  private static final int CHUNK_SIZE = 64 * 1024;
+
+  private static final int FILTER_NONE = 0;
+
+  private final OutputStream out;
+  private final int width;
+  private final int height;
+
+  private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+  private final DeflaterOutputStream rowStream;
+  private int rowCount;
+
+  /**
+   * Writes the header of the image.
+   */
+  PngRowEncoder(final OutputStream out, final int width, final int height) throws IOException {
+    this.out = out;
+    this.width = width;
+    this.height = height;
+
+    out.write(SIGNATURE);
+
+    final byte[] header = new byte[13];
+    putInt(header, 0, width);
+    putInt(header, 4, height);
+    header[8] = 8; // bit depth
+    header[9] = 2; // color type RGB
+    writeChunk("IHDR", header, header.length);
+
+    rowStream = new DeflaterOutputStream(new ImageDataStream(), deflater, 8192);
+  }
+
+  /**
+   * Writes the next row of the image.
+   *
+   * @param rgb
+   *          the red, green and blue value of every pixel in the row
+   */
+  void writeRow(final byte[] rgb, final int offset) throws IOException {
+    if (rowCount == height) {
+      throw new IllegalStateException("All " + height + " rows are written");
+    }
+    rowStream.write(FILTER_NONE);
+    rowStream.write(rgb, offset, width * 3);
+    rowCount++;
+  }
+
+  /**
+   * Writes the end of the image, once all rows are written. The stream is not closed.
+   */
+  void finish() throws IOException {
+    if (rowCount != height) {
+      throw new IllegalStateException(rowCount + " of " + height + " rows are written");
+    }
+    try {
+      rowStream.finish();
+      rowStream.flush();
+    } finally {
+      deflater.end();
+    }
+    writeChunk("IEND", new byte[0], 0);
+    out.flush();
+  }
+
+  private void writeChunk(final String type, final byte[] data, final int length) throws IOException {
+    final byte[] typeBytes = type.getBytes("US-ASCII");
+    final CRC32 crc = new CRC32();
+    crc.update(typeBytes);
+    crc.update(data, 0, length);
+
+    final byte[] number = new byte[4];
+    putInt(number, 0, length);
+    out.write(number);
+    out.write(typeBytes);
+    out.write(data, 0, length);
+    putInt(number, 0, (int) crc.getValue());
+    out.write(number);
+  }
+
+  private static void putInt(final byte[] bytes, final int offset, final int value) {
+    bytes[offset] = (byte) (value >>> 24);
+    bytes[offset + 1] = (byte) (value >>> 16);
+    bytes[offset + 2] = (byte) (value >>> 8);
+    bytes[offset + 3] = (byte) value;
+  }
+
+  /**
+   * Collects the compressed data and writes it as IDAT chunks.
+   */
+  private class ImageDataStream extends OutputStream {
+
+    private final byte[] buffer = new byte[CHUNK_SIZE];
+    private int count;
+
+    @Override
+    public void write(int b) throws IOException {
+      if (count == buffer.length) {
+        flush();
+      }
+      buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+      while (length > 0) {
+        if (count == buffer.length) {
+          flush();
+        }
+        final int copied = Math.min(length, buffer.length - count);
+        System.arraycopy(bytes, offset, buffer, count, copied);
+        count += copied;
+        offset += copied;
+        length -= copied;
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      if (count > 0) {
+        writeChunk("IDAT", buffer, count);
+        count = 0;
+      }
+    }
+  }
+}
@@ -0,0 +1,170 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.eclipse.editor;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.activiti.bpmn.model.Activity;
+import org.activiti.bpmn.model.Artifact;
+import org.activiti.bpmn.model.Association;
+import org.activiti.bpmn.model.BoundaryEvent;
+import org.activiti.bpmn.model.BpmnModel;
+import org.activiti.bpmn.model.Event;
+import org.activiti.bpmn.model.EventDefinition;
+import org.activiti.bpmn.model.FlowElement;
+import org.activiti.bpmn.model.FlowElementsContainer;
+import org.activiti.bpmn.model.Gateway;
+import org.activiti.bpmn.model.GraphicInfo;
+import org.activiti.bpmn.model.Lane;
+import org.activiti.bpmn.model.Pool;
+import org.activiti.bpmn.model.Process;
+import org.activiti.bpmn.model.SequenceFlow;
+import org.activiti.bpmn.model.ServiceTask;
+import org.activiti.bpmn.model.TextAnnotation;
+import org.apache.commons.codec.binary.Hex;
+
+/**
+ * Digest of the parts of a {@link BpmnModel} the process diagram generator draws: the diagram
+ * interchange information, the names of pools, lanes and flow elements, the type of every element
+ * and the few properties that change its symbol, like event definitions, multi instance,
+ * conditions and whether a boundary event cancels its activity. Two models with the same digest give the same image, while changes to properties
+ * that are not drawn, like the class of a service task, leave the digest as it is.
+ */
+class ProcessImageDigest {
+
+  private static final char SEPARATOR = '\u0000';
+
+  private final MessageDigest digest;
+
+  private ProcessImageDigest() {
+    try {
+      digest = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * @return the digest of the model as hex string
+   */
+  static String compute(final BpmnModel bpmnModel) {
+    final ProcessImageDigest imageDigest = new ProcessImageDigest();
+    imageDigest.addModel(bpmnModel);
+    return new String(Hex.encodeHex(imageDigest.digest.digest()));
+  }
+
+  private void addModel(final BpmnModel bpmnModel) {
+    // sorted, so the digest does not depend on the order of the maps
+    for (final Map.Entry<String, GraphicInfo> entry : new TreeMap<String, GraphicInfo>(bpmnModel.getLocationMap()).entrySet()) {
+      add(entry.getKey());
+      add(entry.getValue());
+    }
+    for (final Map.Entry<String, GraphicInfo> entry : new TreeMap<String, GraphicInfo>(bpmnModel.getLabelLocationMap()).entrySet()) {
+      add(entry.getKey());
+      add(entry.getValue());
+    }
+    for (final Map.Entry<String, List<GraphicInfo>> entry : new TreeMap<String, List<GraphicInfo>>(bpmnModel.getFlowLocationMap()).entrySet()) {
+      add(entry.getKey());
+      for (final GraphicInfo graphicInfo : entry.getValue()) {
+        add(graphicInfo);
+      }
+    }
+
+    for (final Pool pool : bpmnModel.getPools()) {
+      add(pool.getId());
+      add(pool.getName());
+    }
+    for (final Process process : bpmnModel.getProcesses()) {
+      add(process.getId());
+      for (final Lane lane : process.getLanes()) {
+        add(lane.getId());
+        add(lane.getName());
+      }
+      addContainer(process);
+    }
+  }
+
+  private void addContainer(final FlowElementsContainer container) {
+    for (final FlowElement flowElement : container.getFlowElements()) {
+      add(flowElement.getClass().getName());
+      add(flowElement.getId());
+      add(flowElement.getName());
+
+      if (flowElement instanceof Event) {
+        for (final EventDefinition eventDefinition : ((Event) flowElement).getEventDefinitions()) {
+          add(eventDefinition.getClass().getName());
+        }
+      }
+      if (flowElement instanceof BoundaryEvent) {
+        add(String.valueOf(((BoundaryEvent) flowElement).isCancelActivity()));
+      }
+      if (flowElement instanceof ServiceTask) {
+        add(((ServiceTask) flowElement).getType());
+      }
+      if (flowElement instanceof Activity) {
+        final Activity activity = (Activity) flowElement;
+        add(activity.getDefaultFlow());
+        if (activity.getLoopCharacteristics() != null) {
+          add(String.valueOf(activity.getLoopCharacteristics().isSequential()));
+        }
+      }
+      if (flowElement instanceof Gateway) {
+        add(((Gateway) flowElement).getDefaultFlow());
+      }
+      if (flowElement instanceof SequenceFlow) {
+        final SequenceFlow sequenceFlow = (SequenceFlow) flowElement;
+        add(sequenceFlow.getSourceRef());
+        add(sequenceFlow.getTargetRef());
+        add(String.valueOf(sequenceFlow.getConditionExpression() != null));
+      }
+      if (flowElement instanceof FlowElementsContainer) {
+        addContainer((FlowElementsContainer) flowElement);
+      }
+    }
+
+    for (final Artifact artifact : container.getArtifacts()) {
+      add(artifact.getClass().getName());
+      add(artifact.getId());
+      if (artifact instanceof TextAnnotation) {
+        add(((TextAnnotation) artifact).getText());
+      } else if (artifact instanceof Association) {
+        final Association association = (Association) artifact;
+        add(association.getSourceRef());
+        add(association.getTargetRef());
+        add(String.valueOf(association.getAssociationDirection()));
+      }
+    }
+  }
+
+  private void add(final GraphicInfo graphicInfo) {
+    add(graphicInfo.getX() + "," + graphicInfo.getY() + "," + graphicInfo.getWidth() + "," + graphicInfo.getHeight() + ","
+        + graphicInfo.getExpanded());
+  }
+
+  private void add(final String value) {
+    if (value != null) {
+      try {
+        digest.update(value.getBytes("UTF-8"));
+      } catch (UnsupportedEncodingException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+    digest.update((byte) SEPARATOR);
+  }
+}
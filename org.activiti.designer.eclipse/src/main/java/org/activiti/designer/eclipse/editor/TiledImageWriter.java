@@ -0,0 +1,122 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.eclipse.editor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Device;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.PaletteData;
+import org.eclipse.swt.graphics.RGB;
+
+/**
+ * Paints an image of any size as PNG without holding it in memory. The image is painted in tiles of
+ * {@link #TILE_SIZE} pixels into a single SWT image, and every row of tiles is handed to a
+ * {@link PngRowEncoder} before the next one is painted. Memory use is bounded by one tile and one
+ * row of tiles, instead of growing with the area of the image. Must be called from the UI thread.
+ */
+class TiledImageWriter {
+
+  static final int TILE_SIZE = 256;
+
+  /**
+   * Paints the part of the image that starts at the given position, the GC has the size of a tile.
+   */
+  interface TilePainter {
+
+    void paintTile(GC tileGC, int x, int y);
+  }
+
+  private final Device device;
+  private final int width;
+  private final int height;
+
+  TiledImageWriter(final Device device, final int width, final int height) {
+    this.device = device;
+    this.width = width;
+    this.height = height;
+  }
+
+  void write(final TilePainter painter, final OutputStream out) throws IOException {
+    final PngRowEncoder encoder = new PngRowEncoder(out, width, height);
+    final byte[] rows = new byte[width * 3 * Math.min(TILE_SIZE, height)];
+    final int[] pixels = new int[TILE_SIZE];
+
+    final Image tile = new Image(device, Math.min(TILE_SIZE, width), Math.min(TILE_SIZE, height));
+    try {
+      for (int tileY = 0; tileY < height; tileY += TILE_SIZE) {
+        final int tileHeight = Math.min(TILE_SIZE, height - tileY);
+
+        for (int tileX = 0; tileX < width; tileX += TILE_SIZE) {
+          final int tileWidth = Math.min(TILE_SIZE, width - tileX);
+
+          final GC tileGC = new GC(tile);
+          try {
+            tileGC.setBackground(device.getSystemColor(SWT.COLOR_WHITE));
+            tileGC.fillRectangle(tile.getBounds());
+            painter.paintTile(tileGC, tileX, tileY);
+          } finally {
+            tileGC.dispose();
+          }
+          copyPixels(tile.getImageData(), tileWidth, tileHeight, pixels, rows, tileX);
+        }
+
+        for (int row = 0; row < tileHeight; row++) {
+          encoder.writeRow(rows, row * width * 3);
+        }
+      }
+    } finally {
+      tile.dispose();
+    }
+    encoder.finish();
+  }
+
+  /**
+   * Copies the RGB values of the tile to its place in the rows.
+   */
+  private void copyPixels(final ImageData tileData, final int tileWidth, final int tileHeight, final int[] pixels,
+          final byte[] rows, final int tileX) {
+
+    final PaletteData palette = tileData.palette;
+    for (int y = 0; y < tileHeight; y++) {
+      tileData.getPixels(0, y, tileWidth, pixels, 0);
+
+      int offset = (y * width + tileX) * 3;
+      for (int x = 0; x < tileWidth; x++) {
+        final int pixel = pixels[x];
+        if (palette.isDirect) {
+          rows[offset++] = (byte) shift(pixel & palette.redMask, palette.redShift);
+          rows[offset++] = (byte) shift(pixel & palette.greenMask, palette.greenShift);
+          rows[offset++] = (byte) shift(pixel & palette.blueMask, palette.blueShift);
+        } else {
+          final RGB rgb = palette.colors[pixel];
+          rows[offset++] = (byte) rgb.red;
+          rows[offset++] = (byte) rgb.green;
+          rows[offset++] = (byte) rgb.blue;
+        }
+      }
+    }
+  }
+
+  /**
+   * Shifts a color component the way {@link PaletteData#getRGB(int)} does.
+   */
+  private static int shift(final int component, final int shift) {
+    return shift < 0 ? component >>> -shift : component << shift;
+  }
+}
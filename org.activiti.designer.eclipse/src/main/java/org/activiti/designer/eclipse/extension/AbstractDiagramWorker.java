@@ -29,7 +29,14 @@ package org.activiti.designer.eclipse.extension;
 import java.io.InputStream;
 import java.net.URI;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.activiti.designer.eclipse.extension.export.ExportMarshaller;
 import org.eclipse.core.resources.IContainer;
@@ -38,6 +45,7 @@ import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -61,8 +69,14 @@ public abstract class AbstractDiagramWorker {
   private static final String REGEX_FILENAME_WITHOUT_EXTENSION = "\\" + ExportMarshaller.PLACEHOLDER_ORIGINAL_FILENAME_WITHOUT_EXTENSION + "";
   private static final String REGEX_EXTENSION = "\\" + ExportMarshaller.PLACEHOLDER_ORIGINAL_FILE_EXTENSION + "";
 
+  private static final String[] MARKER_ATTRIBUTE_NAMES = new String[] { ATTRIBUTE_NODE_ID, ATTRIBUTE_WORKER_ID, IMarker.MESSAGE,
+      IMarker.PRIORITY, IMarker.SEVERITY };
+
   private DiagramWorkerContext diagramWorkerContext;
 
+  /** The markers gathered since {@link #beginMarkerSession()}, null if there is no session. */
+  private List<MarkerInfo> markerSession;
+
   /**
    * Gets an {@link InputStream} to the contents of the
    * {@link DiagramWorkerContext}'s diagram resource.
@@ -290,6 +304,13 @@ public abstract class AbstractDiagramWorker {
   }
 
   private void addMarkerToDiagram(final String message, final String nodeId, final int severity) {
+    synchronized (this) {
+      if (markerSession != null) {
+        markerSession.add(new MarkerInfo(message, nodeId, severity));
+        return;
+      }
+    }
+
     final IResource resource = getDiagramResource();
     String markerId = getMarkerId();
 
@@ -311,6 +332,114 @@ public abstract class AbstractDiagramWorker {
 
   }
 
+  /**
+   * Starts gathering the markers added to the diagram instead of creating them one by one. Every
+   * marker created on the resource fires its own resource change event, a session applies all
+   * markers in one workspace operation when {@link #commitMarkerSession()} is invoked. The markers
+   * of the session replace the markers of this diagram worker, so there is no need to clear the
+   * markers first.
+   * 
+   * <p>
+   * Markers may be added from several threads during a session.
+   */
+  protected synchronized void beginMarkerSession() {
+    markerSession = new ArrayList<MarkerInfo>();
+  }
+
+  /**
+   * Ends the session started by {@link #beginMarkerSession()} and updates the markers of the
+   * diagram in a single workspace operation. Only the differences are applied: markers of this
+   * diagram worker with a node id, message or severity that was not added during the session are
+   * deleted, markers that were added and do not exist yet are created and all others are left as
+   * they are.
+   */
+  protected void commitMarkerSession() {
+    commitMarkerSession(null);
+  }
+
+  /**
+   * Ends the session started by {@link #beginMarkerSession()} like {@link #commitMarkerSession()},
+   * but only replaces the existing markers of the provided nodes. Use this when only part of the
+   * diagram was checked again, the markers of all other nodes are kept.
+   * 
+   * @param nodeIds
+   *          the ids of the nodes that were checked, or null if the whole diagram was checked
+   */
+  protected void commitMarkerSession(final Collection<String> nodeIds) {
+    final List<MarkerInfo> markers;
+    synchronized (this) {
+      markers = markerSession;
+      markerSession = null;
+    }
+    if (markers == null) {
+      return;
+    }
+
+    final IResource resource = getDiagramResource();
+    final String workerId = this.getClass().getCanonicalName();
+
+    final IWorkspaceRunnable runnable = new IWorkspaceRunnable() {
+
+      @Override
+      public void run(IProgressMonitor monitor) throws CoreException {
+        final Map<MarkerInfo, Integer> wanted = new HashMap<MarkerInfo, Integer>();
+        // the nodes of the gathered markers are always replaced, so they are not added twice
+        final Set<String> scope = nodeIds == null ? null : new HashSet<String>(nodeIds);
+        for (final MarkerInfo marker : markers) {
+          final Integer count = wanted.get(marker);
+          wanted.put(marker, count == null ? 1 : count + 1);
+          if (scope != null) {
+            scope.add(marker.nodeId);
+          }
+        }
+
+        for (final IMarker existing : resource.findMarkers(getMarkerId(), true, IResource.DEPTH_INFINITE)) {
+          if (!workerId.equals(existing.getAttribute(ATTRIBUTE_WORKER_ID, null))) {
+            continue;
+          }
+          if (scope != null && !scope.contains(existing.getAttribute(ATTRIBUTE_NODE_ID, null))) {
+            continue;
+          }
+          final MarkerInfo key = new MarkerInfo(existing.getAttribute(IMarker.MESSAGE, null), existing.getAttribute(ATTRIBUTE_NODE_ID,
+                  null), existing.getAttribute(IMarker.SEVERITY, -1));
+          final Integer count = wanted.get(key);
+          if (count == null || !existing.getResource().equals(resource)) {
+            existing.delete();
+          } else if (count == 1) {
+            wanted.remove(key);
+          } else {
+            wanted.put(key, count - 1);
+          }
+        }
+
+        for (final Map.Entry<MarkerInfo, Integer> entry : wanted.entrySet()) {
+          final MarkerInfo marker = entry.getKey();
+          for (int i = 0; i < entry.getValue(); i++) {
+            resource.createMarker(getMarkerId()).setAttributes(MARKER_ATTRIBUTE_NAMES,
+                    new Object[] { marker.nodeId, workerId, marker.message, IMarker.PRIORITY_HIGH, marker.severity });
+          }
+        }
+      }
+    };
+
+    try {
+      final IWorkspace workspace = resource.getWorkspace();
+      workspace.run(runnable, workspace.getRuleFactory().markerRule(resource), IWorkspace.AVOID_UPDATE, null);
+    } catch (CoreException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Ends the session started by {@link #beginMarkerSession()} without applying the gathered
+   * markers, so the existing markers are kept. Does nothing if the session was committed already,
+   * so it can be invoked from a finally block to make sure a failed check does not leave the
+   * session open.
+   */
+  protected synchronized void discardMarkerSession() {
+    markerSession = null;
+  }
+
   /**
    * Gets the id to be used for markers created by this diagram worker.
    * 
@@ -394,4 +523,39 @@ public abstract class AbstractDiagramWorker {
     this.diagramWorkerContext = diagramWorkerContext;
   }
 
+  /**
+   * A marker gathered in a marker session, equal to other markers with the same message, node id and
+   * severity.
+   */
+  private static class MarkerInfo {
+
+    private final String message;
+    private final String nodeId;
+    private final int severity;
+
+    MarkerInfo(final String message, final String nodeId, final int severity) {
+      this.message = message;
+      this.nodeId = nodeId;
+      this.severity = severity;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof MarkerInfo)) {
+        return false;
+      }
+      final MarkerInfo other = (MarkerInfo) obj;
+      return severity == other.severity && equal(message, other.message) && equal(nodeId, other.nodeId);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * (31 * severity + (message == null ? 0 : message.hashCode())) + (nodeId == null ? 0 : nodeId.hashCode());
+    }
+
+    private static boolean equal(final String a, final String b) {
+      return a == null ? b == null : a.equals(b);
+    }
+  }
+
 }
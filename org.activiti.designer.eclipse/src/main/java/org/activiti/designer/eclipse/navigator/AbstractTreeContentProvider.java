@@ -48,6 +48,7 @@ public abstract class AbstractTreeContentProvider implements ITreeContentProvide
 
   protected static final Object[] NO_CHILDREN = new Object[0];
 
+  /** The models by resource, guarded by this provider because subclasses may update it in the background. */
   private final Map<IResource, List<TreeNode>> cachedModelMap = new HashMap<IResource, List<TreeNode>>();
 
   private StructuredViewer viewer;
@@ -59,14 +60,19 @@ public abstract class AbstractTreeContentProvider implements ITreeContentProvide
 
   @Override
   public void dispose() {
-    cachedModelMap.clear();
+    synchronized (this) {
+      cachedModelMap.clear();
+    }
     ResourcesPlugin.getWorkspace().removeResourceChangeListener(this);
   }
 
   @Override
   public void inputChanged(Viewer aViewer, Object oldInput, Object newInput) {
-    if (oldInput != null && !oldInput.equals(newInput))
-      cachedModelMap.clear();
+    if (oldInput != null && !oldInput.equals(newInput)) {
+      synchronized (this) {
+        cachedModelMap.clear();
+      }
+    }
     viewer = (StructuredViewer) aViewer;
   }
 
@@ -111,21 +117,21 @@ public abstract class AbstractTreeContentProvider implements ITreeContentProvide
     return viewer;
   }
 
-  protected final void addModelToCache(final IResource resource, final List<TreeNode> treeNodes) {
+  protected final synchronized void addModelToCache(final IResource resource, final List<TreeNode> treeNodes) {
     cachedModelMap.put(resource, treeNodes);
   }
 
-  protected final void removeModelFromCache(final IResource resource) {
+  protected final synchronized void removeModelFromCache(final IResource resource) {
     if (isModelCachedForResource(resource)) {
       cachedModelMap.remove(resource);
     }
   }
 
-  protected final boolean isModelCachedForResource(final IResource resource) {
+  protected final synchronized boolean isModelCachedForResource(final IResource resource) {
     return cachedModelMap.containsKey(resource);
   }
 
-  protected final List<TreeNode> getCachedChildrenForResource(final IResource resource) {
+  protected final synchronized List<TreeNode> getCachedChildrenForResource(final IResource resource) {
     return cachedModelMap.get(resource);
   }
 
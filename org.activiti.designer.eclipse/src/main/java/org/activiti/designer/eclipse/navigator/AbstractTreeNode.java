@@ -108,6 +108,14 @@ public abstract class AbstractTreeNode<T extends Object> implements TreeNode {
     return name;
   }
 
+  /**
+   * Gets the description shown in the status line when the node is selected. Defaults to the name.
+   */
+  @Override
+  public String getDescription() {
+    return getName();
+  }
+
   public boolean hasChildren() {
     return !getChildren().isEmpty();
   }
@@ -44,6 +44,8 @@ public interface TreeNode {
 
   String getName();
 
+  String getDescription();
+
   Image getDisplayImage();
 
 }
@@ -68,6 +68,9 @@ public class TreeNodeLabelProvider implements ILabelProvider, IDescriptionProvid
 
   @Override
   public String getDescription(Object element) {
+    if (element instanceof TreeNode) {
+      return ((TreeNode) element).getDescription();
+    }
     return getText(element);
   }
   @Override
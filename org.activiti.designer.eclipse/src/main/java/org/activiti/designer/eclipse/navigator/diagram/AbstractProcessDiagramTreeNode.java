@@ -34,6 +34,10 @@ import org.activiti.bpmn.model.FlowElement;
 import org.activiti.bpmn.model.Lane;
 import org.activiti.bpmn.model.Process;
 import org.activiti.designer.eclipse.navigator.TreeNode;
+import org.activiti.designer.util.workspace.ActivitiWorkspaceUtil;
+import org.activiti.designer.util.workspace.CallActivityReference;
+import org.activiti.designer.util.workspace.ProcessCallers;
+import org.apache.commons.lang.StringUtils;
 
 /**
  * @author Tiese Barrell
@@ -77,6 +81,41 @@ public abstract class AbstractProcessDiagramTreeNode extends AbstractDiagramTree
 
   }
 
+  /**
+   * Describes the process with the call activities in the workspace that call it and the cycle of
+   * calls it is part of, if any.
+   */
+  @Override
+  public String getDescription() {
+    final String processId = getModelObject().getId();
+    if (StringUtils.isEmpty(processId)) {
+      return getName();
+    }
+
+    final ProcessCallers callers = ActivitiWorkspaceUtil.getCallers(processId);
+    int callerCount = 0;
+    for (final List<CallActivityReference> fileCallers : callers.getCallActivities().values()) {
+      callerCount += fileCallers.size();
+    }
+
+    final StringBuilder result = new StringBuilder(getName());
+    if (callerCount == 0 && !ActivitiWorkspaceUtil.isProcessIndexReady()) {
+      result.append(" - callers are not indexed yet");
+    } else if (callerCount == 0) {
+      result.append(" - not called by other processes");
+    } else {
+      result.append(" - called by ").append(callerCount).append(" call activities in ").append(callers.getCallActivities().size())
+              .append(" diagrams, ").append(callers.getTransitiveCallers().size())
+              .append(" processes in total");
+    }
+
+    final List<String> cycle = callers.getCallCycle();
+    if (!cycle.isEmpty()) {
+      result.append(" - call cycle: ").append(StringUtils.join(cycle, " -> "));
+    }
+    return result.toString();
+  }
+
   protected abstract List<TreeNode> createChildNodesForFlowElements(List<FlowElement> flowElements);
 
   protected abstract List<TreeNode> createChildNodesForLanes(List<Lane> lanes);
@@ -27,11 +27,20 @@
 package org.activiti.designer.eclipse.navigator.diagram;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
+import org.activiti.designer.eclipse.Logger;
 import org.activiti.designer.eclipse.navigator.AbstractTreeContentProvider;
 import org.activiti.designer.eclipse.navigator.TreeNode;
 import org.activiti.designer.util.ActivitiConstants;
+import org.activiti.designer.util.SharedExecutor;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IResourceDelta;
@@ -39,15 +48,46 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.viewers.StructuredViewer;
 import org.eclipse.ui.progress.UIJob;
 
 /**
+ * Provides the processes and their contents as children of diagram files.
+ *
+ * <p>
+ * Changed diagram files are not handled while the workspace is notified. They are gathered for a
+ * short while and then handled together in the background: the files whose contents were shown are
+ * parsed again in parallel, the others are parsed when they are expanded, and the viewer is
+ * refreshed once for all of them.
+ *
  * @author Tiese Barrell
  */
 public class DiagramTreeContentProvider extends AbstractTreeContentProvider {
 
+  private static final long REFRESH_DELAY_MILLIS = 300L;
+
+  /** The diagram files that changed since the last refresh, guarded by itself. */
+  private final Set<IFile> changedFiles = new LinkedHashSet<IFile>();
+
+  private final Job refreshJob = new Job("Update Process Models in CommonViewer") { //$NON-NLS-1$
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+      refreshChangedFiles(monitor);
+      return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+    }
+  };
+
   public DiagramTreeContentProvider() {
     super();
+    refreshJob.setSystem(true);
+  }
+
+  @Override
+  public void dispose() {
+    refreshJob.cancel();
+    super.dispose();
   }
 
   @Override
@@ -115,21 +155,115 @@ public class DiagramTreeContentProvider extends AbstractTreeContentProvider {
     case IResource.FILE:
       final IFile file = (IFile) source;
       if (isDiagramFile(file)) {
-        updateModel(file);
-        new UIJob("Update Process Model in CommonViewer") { //$NON-NLS-1$
+        synchronized (changedFiles) {
+          changedFiles.add(file);
+        }
+        // the files changed until the job runs are refreshed together
+        refreshJob.schedule(REFRESH_DELAY_MILLIS);
+      }
+      return false;
+    }
+    return false;
+  }
+
+  /**
+   * Updates the models of the changed files and refreshes them in the viewer.
+   */
+  private void refreshChangedFiles(final IProgressMonitor monitor) {
+    final List<IFile> files;
+    synchronized (changedFiles) {
+      files = new ArrayList<IFile>(changedFiles);
+      changedFiles.clear();
+    }
+    if (files.isEmpty()) {
+      return;
+    }
+
+    // only models that were built before are built again, the others are built when needed
+    final List<IFile> cachedFiles = new ArrayList<IFile>();
+    synchronized (this) {
+      for (final IFile file : files) {
+        if (!file.exists()) {
+          removeModelFromCache(file);
+        } else if (isModelCachedForResource(file)) {
+          cachedFiles.add(file);
+        }
+      }
+    }
 
-          @Override
-          public IStatus runInUIThread(IProgressMonitor monitor) {
-            if (getStructuredViewer() != null && !getStructuredViewer().getControl().isDisposed()) {
-              getStructuredViewer().refresh(file);
+    final Map<IFile, TreeNode> fileNodes = createModelFileNodes(cachedFiles, monitor);
+    if (monitor.isCanceled()) {
+      return;
+    }
+    synchronized (this) {
+      for (final Map.Entry<IFile, TreeNode> fileNode : fileNodes.entrySet()) {
+        final List<TreeNode> model = new ArrayList<TreeNode>();
+        model.add(fileNode.getValue());
+        addModelToCache(fileNode.getKey(), model);
+      }
+    }
+
+    new UIJob("Update Process Model in CommonViewer") { //$NON-NLS-1$
+
+      @Override
+      public IStatus runInUIThread(IProgressMonitor monitor) {
+        final StructuredViewer viewer = getStructuredViewer();
+        if (viewer != null && !viewer.getControl().isDisposed()) {
+          viewer.getControl().setRedraw(false);
+          try {
+            for (final IFile file : files) {
+              viewer.refresh(file);
             }
-            return Status.OK_STATUS;
+          } finally {
+            viewer.getControl().setRedraw(true);
           }
-        }.schedule();
+        }
+        return Status.OK_STATUS;
       }
-      return false;
+    }.schedule();
+  }
+
+  /**
+   * Parses the files in parallel on the {@link SharedExecutor}.
+   *
+   * @return the file nodes by file, without the files that could not be parsed
+   */
+  private Map<IFile, TreeNode> createModelFileNodes(final List<IFile> files, final IProgressMonitor monitor) {
+    final Map<IFile, TreeNode> result = new HashMap<IFile, TreeNode>();
+    if (files.size() < 2) {
+      for (final IFile file : files) {
+        result.put(file, DiagramTreeNodeFactory.createModelFileNode(file));
+      }
+      return result;
     }
-    return false;
+
+    final List<Callable<TreeNode>> tasks = new ArrayList<Callable<TreeNode>>();
+    for (final IFile file : files) {
+      tasks.add(new Callable<TreeNode>() {
+
+        @Override
+        public TreeNode call() throws Exception {
+          return monitor.isCanceled() ? null : DiagramTreeNodeFactory.createModelFileNode(file);
+        }
+      });
+    }
+
+    try {
+      final List<Future<TreeNode>> fileNodes = SharedExecutor.invokeAll(tasks);
+      for (int i = 0; i < files.size(); i++) {
+        try {
+          final TreeNode fileNode = fileNodes.get(i).get();
+          if (fileNode != null) {
+            result.put(files.get(i), fileNode);
+          }
+        } catch (ExecutionException e) {
+          Logger.logError("Error while reading the processes of " + files.get(i).getFullPath(), e.getCause());
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return result;
   }
 
   /**
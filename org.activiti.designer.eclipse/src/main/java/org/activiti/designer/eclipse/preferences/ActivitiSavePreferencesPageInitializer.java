@@ -47,6 +47,11 @@ public class ActivitiSavePreferencesPageInitializer extends AbstractPreferenceIn
 
     store.setDefault(Preferences.ALFRESCO_FORMTYPES_USERTASK.getPreferenceId(), FORMTYPES_USERTASK);
 
+    store.setDefault(Preferences.SAVE_IN_BACKGROUND.getPreferenceId(), false);
+    store.setDefault(Preferences.SAVE_EXPORT_MARSHALLERS_CONCURRENTLY.getPreferenceId(), false);
+    store.setDefault(Preferences.VALIDATE_WORKERS_IN_PARALLEL.getPreferenceId(), true);
+    store.setDefault(Preferences.VALIDATE_INCREMENTALLY.getPreferenceId(), false);
+
     // Image Marshaller
     store.setDefault(Preferences.SAVE_IMAGE.getPreferenceId(), false);
 
@@ -56,5 +61,8 @@ public class ActivitiSavePreferencesPageInitializer extends AbstractPreferenceIn
     store.setDefault(Preferences.SAVE_IMAGE_ADD_OVERLAY_BORDER_COLOR.getPreferenceId(), "0,0,0");
     store.setDefault(Preferences.SAVE_IMAGE_ADD_OVERLAY_BACKGROUND_COLOR.getPreferenceId(), "255,255,255");
 
+    // Editor
+    store.setDefault(Preferences.EDITOR_LOAD_DIAGRAMS_IN_BACKGROUND.getPreferenceId(), false);
+
   }
 }
@@ -0,0 +1,251 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.eclipse.ui;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.activiti.designer.eclipse.Logger;
+import org.activiti.designer.eclipse.editor.ActivitiDiagramEditor;
+import org.activiti.designer.eclipse.extension.export.ExportMarshaller;
+import org.activiti.designer.eclipse.util.ExtensionPointUtil;
+import org.activiti.designer.util.SharedExecutor;
+import org.activiti.designer.util.editor.BpmnMemoryModel;
+import org.apache.commons.lang.StringUtils;
+import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+/**
+ * Invokes {@link ExportMarshaller}s concurrently on the {@link SharedExecutor}. Every marshaller
+ * gets a copy of the model of its own, parsed from the XML of the model, so marshallers can not
+ * see each other's changes.
+ * <p>
+ * A marshaller may declare the names of the marshallers it depends on in the <code>dependsOn</code>
+ * attribute of its extension, it is only started once those have finished. A marshaller that runs
+ * longer than the <code>timeout</code> attribute of its extension, in seconds, or
+ * {@link #DEFAULT_TIMEOUT_SECONDS} is interrupted and its dependents are skipped. The duration of
+ * every marshaller is logged.
+ */
+class ConcurrentExportMarshallerRunner {
+
+  static final long DEFAULT_TIMEOUT_SECONDS = 120L;
+
+  private static final long POLL_MILLIS = 100L;
+
+  private final BpmnMemoryModel model;
+  private final byte[] xmlBytes;
+  private final Map<String, ExportMarshaller> marshallers = new LinkedHashMap<String, ExportMarshaller>();
+  private final Map<String, Set<String>> dependencies = new HashMap<String, Set<String>>();
+  private final Map<String, Long> timeouts = new HashMap<String, Long>();
+
+  /**
+   * @param xmlBytes
+   *          the model serialized to XML, the marshallers get their copies from it
+   */
+  ConcurrentExportMarshallerRunner(final BpmnMemoryModel model, final byte[] xmlBytes, final Collection<ExportMarshaller> marshallers) {
+    this.model = model;
+    this.xmlBytes = xmlBytes;
+    for (final ExportMarshaller marshaller : marshallers) {
+      this.marshallers.put(marshaller.getMarshallerName(), marshaller);
+    }
+
+    final Map<String, IConfigurationElement> configurations = ExtensionPointUtil.getExportMarshallerConfigurations();
+    for (final ExportMarshaller marshaller : this.marshallers.values()) {
+      final String name = marshaller.getMarshallerName();
+      final IConfigurationElement configuration = configurations.get(marshaller.getClass().getName());
+      final Set<String> marshallerDependencies = new HashSet<String>();
+      long timeout = DEFAULT_TIMEOUT_SECONDS;
+
+      if (configuration != null) {
+        for (final String dependency : StringUtils.split(StringUtils.defaultString(configuration.getAttribute("dependsOn")), ',')) {
+          // dependencies on marshallers that do not run this time are ignored
+          if (this.marshallers.containsKey(dependency.trim()) && !name.equals(dependency.trim())) {
+            marshallerDependencies.add(dependency.trim());
+          }
+        }
+        final String timeoutAttribute = configuration.getAttribute("timeout");
+        if (StringUtils.isNotBlank(timeoutAttribute)) {
+          try {
+            timeout = Long.parseLong(timeoutAttribute.trim());
+          } catch (NumberFormatException e) {
+            Logger.logError("Invalid timeout " + timeoutAttribute + " for ExportMarshaller " + name, e);
+          }
+        }
+      }
+      dependencies.put(name, marshallerDependencies);
+      timeouts.put(name, timeout);
+    }
+  }
+
+  void run(final IProgressMonitor monitor, final int workUnitsPerMarshaller) {
+    final CompletionService<MarshallerTask> completionService = new ExecutorCompletionService<MarshallerTask>(SharedExecutor.getExecutor());
+
+    final Set<String> pending = new HashSet<String>(marshallers.keySet());
+    final Set<String> finished = new HashSet<String>();
+    final Map<String, Future<MarshallerTask>> running = new HashMap<String, Future<MarshallerTask>>();
+    final Map<String, MarshallerTask> tasks = new HashMap<String, MarshallerTask>();
+    String lastDuration = "";
+
+    try {
+      while (!pending.isEmpty() || !running.isEmpty()) {
+        if (monitor.isCanceled()) {
+          break;
+        }
+
+        for (final String name : startable(pending, finished, running.isEmpty())) {
+          final MarshallerTask task = new MarshallerTask(marshallers.get(name), xmlBytes, monitor);
+          tasks.put(name, task);
+          running.put(name, completionService.submit(task, task));
+          pending.remove(name);
+        }
+        monitor.subTask(String.format("Saving diagram to %s format%s", getFormatNames(running.keySet()), lastDuration));
+
+        final Future<MarshallerTask> done = completionService.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        // marshallers that were interrupted are handled below already
+        if (done != null && !done.isCancelled()) {
+          final MarshallerTask task = done.get();
+          running.remove(task.getName());
+          finished.add(task.getName());
+          Logger.logInfo(String.format("ExportMarshaller %s took %d ms", task.getName(), task.getDuration()));
+          lastDuration = String.format(" (%s took %d ms)", task.getName(), task.getDuration());
+          monitor.worked(workUnitsPerMarshaller);
+        }
+
+        for (final Iterator<Map.Entry<String, Future<MarshallerTask>>> iterator = running.entrySet().iterator(); iterator.hasNext();) {
+          final Map.Entry<String, Future<MarshallerTask>> entry = iterator.next();
+          final MarshallerTask task = tasks.get(entry.getKey());
+          if (task.isStarted() && !entry.getValue().isDone() && task.getDuration() > TimeUnit.SECONDS.toMillis(timeouts.get(entry.getKey()))) {
+            entry.getValue().cancel(true);
+            iterator.remove();
+            Logger.logError(String.format("ExportMarshaller %s was interrupted after %d ms, the timeout is %d s", entry.getKey(),
+                    task.getDuration(), timeouts.get(entry.getKey())), null);
+            skipDependents(entry.getKey(), pending, monitor, workUnitsPerMarshaller);
+            monitor.worked(workUnitsPerMarshaller);
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      Logger.logError("Error while invoking the export marshallers", e);
+    } finally {
+      // the pool is shared, so only the marshallers of this run are stopped
+      for (final Future<MarshallerTask> future : running.values()) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  /**
+   * @return the pending marshallers whose dependencies have finished. If none can start while none
+   *         are running the dependencies are cyclic, all pending marshallers are started then.
+   */
+  private List<String> startable(final Set<String> pending, final Set<String> finished, final boolean idle) {
+    final List<String> result = new ArrayList<String>();
+    for (final String name : pending) {
+      if (finished.containsAll(dependencies.get(name))) {
+        result.add(name);
+      }
+    }
+    if (result.isEmpty() && idle && !pending.isEmpty()) {
+      Logger.logError("The dependencies of the ExportMarshallers " + pending + " are cyclic, they are invoked without order", null);
+      result.addAll(pending);
+    }
+    return result;
+  }
+
+  private void skipDependents(final String name, final Set<String> pending, final IProgressMonitor monitor, final int workUnitsPerMarshaller) {
+    for (final String dependent : new ArrayList<String>(pending)) {
+      if (pending.contains(dependent) && dependencies.get(dependent).contains(name)) {
+        pending.remove(dependent);
+        Logger.logError("ExportMarshaller " + dependent + " is skipped because " + name + " did not finish", null);
+        monitor.worked(workUnitsPerMarshaller);
+        skipDependents(dependent, pending, monitor, workUnitsPerMarshaller);
+      }
+    }
+  }
+
+  private String getFormatNames(final Collection<String> names) {
+    final List<String> formatNames = new ArrayList<String>();
+    for (final String name : names) {
+      formatNames.add(marshallers.get(name).getFormatName());
+    }
+    return StringUtils.join(formatNames, ", ");
+  }
+
+  /**
+   * Invokes one marshaller on a copy of the model and measures how long it takes.
+   */
+  private class MarshallerTask implements Runnable {
+
+    private final ExportMarshaller marshaller;
+    private final byte[] xmlBytes;
+    private final IProgressMonitor parentMonitor;
+
+    private volatile long startTime;
+    private volatile long endTime;
+
+    MarshallerTask(final ExportMarshaller marshaller, final byte[] xmlBytes, final IProgressMonitor parentMonitor) {
+      this.marshaller = marshaller;
+      this.xmlBytes = xmlBytes;
+      this.parentMonitor = parentMonitor;
+    }
+
+    @Override
+    public void run() {
+      startTime = System.currentTimeMillis();
+      try {
+        final BpmnMemoryModel copy = new BpmnMemoryModel(model.getFeatureProvider(), model.getModelFile());
+        copy.setBpmnModel(ActivitiDiagramEditor.parseBpmnModel(xmlBytes));
+
+        // progress monitors are not thread safe, the marshaller only gets to see cancellation
+        ExportMarshallerRunnable.invokeExportMarshaller(marshaller, copy, new NullProgressMonitor() {
+
+          @Override
+          public boolean isCanceled() {
+            return super.isCanceled() || parentMonitor.isCanceled() || Thread.currentThread().isInterrupted();
+          }
+        });
+      } catch (Exception e) {
+        Logger.logError("Error while invoking ExportMarshaller " + marshaller.getMarshallerName(), e);
+      } finally {
+        endTime = System.currentTimeMillis();
+      }
+    }
+
+    String getName() {
+      return marshaller.getMarshallerName();
+    }
+
+    boolean isStarted() {
+      return startTime > 0;
+    }
+
+    long getDuration() {
+      return (endTime > 0 ? endTime : System.currentTimeMillis()) - startTime;
+    }
+  }
+}
@@ -29,12 +29,15 @@ package org.activiti.designer.eclipse.ui;
 import java.util.ArrayList;
 import java.util.Collection;
 
+import org.activiti.bpmn.converter.BpmnXMLConverter;
+import org.activiti.designer.eclipse.Logger;
 import org.activiti.designer.eclipse.common.ActivitiPlugin;
 import org.activiti.designer.eclipse.extension.export.ExportMarshaller;
 import org.activiti.designer.eclipse.extension.export.ExportMarshallerContext;
 import org.activiti.designer.eclipse.extension.export.MarshallerUtil;
 import org.activiti.designer.eclipse.util.ExtensionPointUtil;
 import org.activiti.designer.util.editor.BpmnMemoryModel;
+import org.activiti.designer.util.preferences.Preferences;
 import org.activiti.designer.util.preferences.PreferencesUtil;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.ISafeRunnable;
@@ -58,12 +61,23 @@ public class ExportMarshallerRunnable implements IRunnableWithProgress {
 
   private BpmnMemoryModel model;
   private Collection<ExportMarshaller> marshallers;
+  private byte[] xmlBytes;
 
   public ExportMarshallerRunnable(final BpmnMemoryModel model, final Collection<ExportMarshaller> marshallers) {
     this.model = model;
     this.marshallers = checkMarshallers(marshallers);
   }
 
+  /**
+   * @param xmlBytes
+   *          the model as saved, so the model does not need to be serialized again when the
+   *          marshallers run concurrently
+   */
+  public ExportMarshallerRunnable(final BpmnMemoryModel model, final byte[] xmlBytes, final Collection<ExportMarshaller> marshallers) {
+    this(model, marshallers);
+    this.xmlBytes = xmlBytes;
+  }
+
   private Collection<ExportMarshaller> checkMarshallers(final Collection<ExportMarshaller> marshallers) {
     final Collection<ExportMarshaller> result = new ArrayList<ExportMarshaller>();
     for (final ExportMarshaller exportMarshaller : marshallers) {
@@ -96,12 +110,20 @@ public class ExportMarshallerRunnable implements IRunnableWithProgress {
     try {
       monitor.beginTask("Saving to additional export formats", marshallers.size() * WORK_UNITS_PER_MARSHALLER + 25);
 
-      if (marshallers.size() > 0) {
+      if (marshallers.size() > 1
+              && PreferencesUtil.getBooleanPreference(Preferences.SAVE_EXPORT_MARSHALLERS_CONCURRENTLY, ActivitiPlugin.getDefault())) {
+
+        monitor.worked(25);
+        final byte[] modelBytes = xmlBytes != null ? xmlBytes : new BpmnXMLConverter().convertToXML(model.getBpmnModel());
+        new ConcurrentExportMarshallerRunner(model, modelBytes, marshallers).run(monitor, WORK_UNITS_PER_MARSHALLER);
+
+      } else if (marshallers.size() > 0) {
 
         monitor.worked(25);
 
         for (final ExportMarshaller marshaller : marshallers) {
           final IProgressMonitor subMonitor = new SubProgressMonitor(monitor, WORK_UNITS_PER_MARSHALLER);
+          final long startTime = System.currentTimeMillis();
           try {
             monitor.subTask(String.format("Saving diagram to %s format", marshaller.getFormatName()));
             invokeExportMarshaller(marshaller, model, subMonitor);
@@ -109,6 +131,8 @@ public class ExportMarshallerRunnable implements IRunnableWithProgress {
             // enforce calling of done() if the client hasn't
             // done so itself
             subMonitor.done();
+            Logger.logInfo(String.format("ExportMarshaller %s took %d ms", marshaller.getMarshallerName(),
+                    System.currentTimeMillis() - startTime));
           }
         }
       }
@@ -117,7 +141,7 @@ public class ExportMarshallerRunnable implements IRunnableWithProgress {
     }
   }
 
-  private void invokeExportMarshaller(final ExportMarshaller exportMarshaller, final BpmnMemoryModel model, final IProgressMonitor monitor) {
+  static void invokeExportMarshaller(final ExportMarshaller exportMarshaller, final BpmnMemoryModel model, final IProgressMonitor monitor) {
 
     ISafeRunnable runnable = new ISafeRunnable() {
 
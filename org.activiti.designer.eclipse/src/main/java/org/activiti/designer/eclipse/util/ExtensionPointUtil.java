@@ -67,6 +67,29 @@ public final class ExtensionPointUtil {
     return getExportMarshallersAndNames().values();
   }
 
+  /**
+   * Gets the extension configuration of every export marshaller, for the optional attributes of
+   * the marshallers. The marshallers are not instantiated.
+   * 
+   * @return the configuration elements by the class name of the marshaller
+   */
+  public static final Map<String, IConfigurationElement> getExportMarshallerConfigurations() {
+    final Map<String, IConfigurationElement> result = new HashMap<String, IConfigurationElement>();
+
+    final IConfigurationElement[] marshallerConfiguration = Platform.getExtensionRegistry().getConfigurationElementsFor(
+            ActivitiPlugin.EXPORT_MARSHALLER_EXTENSIONPOINT_ID);
+
+    for (final IConfigurationElement e : marshallerConfiguration) {
+      final String className = e.getAttribute("class");
+      if (className != null) {
+        // the class may be followed by initialization data
+        final int dataIndex = className.indexOf(':');
+        result.put(dataIndex < 0 ? className.trim() : className.substring(0, dataIndex).trim(), e);
+      }
+    }
+    return result;
+  }
+
   public static final ProcessValidator getProcessValidator(final String validatorId) {
     final Map<String, ProcessValidator> validators = getProcessValidatorsAndIds();
     if (validators.containsKey(validatorId)) {
@@ -0,0 +1,189 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.eclipse.views;
+
+import java.text.DateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.activiti.designer.util.editor.BpmnMemoryModel;
+import org.activiti.designer.util.editor.KickstartFormMemoryModel;
+import org.activiti.designer.util.editor.KickstartProcessMemoryModel;
+import org.activiti.designer.util.editor.ModelFootprint;
+import org.activiti.designer.util.editor.ModelHandler;
+import org.activiti.designer.util.editor.ModelRegistry.Registration;
+import org.eclipse.jface.action.Action;
+import org.eclipse.jface.viewers.ArrayContentProvider;
+import org.eclipse.jface.viewers.ColumnLabelProvider;
+import org.eclipse.jface.viewers.TableViewer;
+import org.eclipse.jface.viewers.TableViewerColumn;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.ui.ISharedImages;
+import org.eclipse.ui.PlatformUI;
+import org.eclipse.ui.part.ViewPart;
+
+/**
+ * Lists the memory models registered in the {@link ModelHandler} with their owner and, for BPMN
+ * diagrams, an estimate of the heap they retain. Models whose owner was garbage collected without
+ * removing them are marked, they point to an editor that does not clean up after itself.
+ */
+public class ModelFootprintView extends ViewPart {
+
+  public static final String ID = "org.activiti.designer.eclipse.view.modelFootprint";
+
+  private TableViewer viewer;
+
+  @Override
+  public void createPartControl(Composite parent) {
+    viewer = new TableViewer(parent, SWT.FULL_SELECTION | SWT.H_SCROLL | SWT.V_SCROLL | SWT.BORDER);
+    final Table table = viewer.getTable();
+    table.setHeaderVisible(true);
+    table.setLinesVisible(true);
+
+    addColumn("Diagram", 260, new ColumnLabelProvider() {
+
+      @Override
+      public String getText(Object element) {
+        return ((Row) element).registration.getUri().lastSegment();
+      }
+    });
+    addColumn("Type", 110, new ColumnLabelProvider() {
+
+      @Override
+      public String getText(Object element) {
+        return ((Row) element).type;
+      }
+    });
+    addColumn("Owner", 160, new ColumnLabelProvider() {
+
+      @Override
+      public String getText(Object element) {
+        final Registration<?> registration = ((Row) element).registration;
+        if (registration.isOwnerCollected()) {
+          return registration.getOwnerName() + " (collected)";
+        }
+        return registration.getOwnerName();
+      }
+    });
+    addColumn("Elements", 70, new ColumnLabelProvider() {
+
+      @Override
+      public String getText(Object element) {
+        final ModelFootprint footprint = ((Row) element).footprint;
+        return footprint != null ? String.valueOf(footprint.getElementCount()) : "";
+      }
+    });
+    addColumn("DI entries", 70, new ColumnLabelProvider() {
+
+      @Override
+      public String getText(Object element) {
+        final ModelFootprint footprint = ((Row) element).footprint;
+        return footprint != null ? String.valueOf(footprint.getGraphicInfoCount()) : "";
+      }
+    });
+    addColumn("Object keys", 80, new ColumnLabelProvider() {
+
+      @Override
+      public String getText(Object element) {
+        final ModelFootprint footprint = ((Row) element).footprint;
+        return footprint != null ? String.valueOf(footprint.getKeyCount()) : "";
+      }
+    });
+    addColumn("Clipboard", 70, new ColumnLabelProvider() {
+
+      @Override
+      public String getText(Object element) {
+        final ModelFootprint footprint = ((Row) element).footprint;
+        return footprint != null ? String.valueOf(footprint.getClipboardCount()) : "";
+      }
+    });
+    addColumn("Est. KB", 70, new ColumnLabelProvider() {
+
+      @Override
+      public String getText(Object element) {
+        final ModelFootprint footprint = ((Row) element).footprint;
+        return footprint != null ? String.valueOf(footprint.getEstimatedBytes() / 1024L) : "";
+      }
+    });
+    addColumn("Registered", 140, new ColumnLabelProvider() {
+
+      @Override
+      public String getText(Object element) {
+        final long time = ((Row) element).registration.getRegistrationTime();
+        return DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT).format(new Date(time));
+      }
+    });
+
+    viewer.setContentProvider(ArrayContentProvider.getInstance());
+
+    final Action refreshAction = new Action("Refresh") {
+
+      @Override
+      public void run() {
+        refresh();
+      }
+    };
+    refreshAction.setToolTipText("Refresh");
+    refreshAction.setImageDescriptor(PlatformUI.getWorkbench().getSharedImages()
+        .getImageDescriptor(ISharedImages.IMG_TOOL_REDO));
+    getViewSite().getActionBars().getToolBarManager().add(refreshAction);
+
+    refresh();
+  }
+
+  @Override
+  public void setFocus() {
+    viewer.getControl().setFocus();
+  }
+
+  public void refresh() {
+    final List<Row> rows = new ArrayList<Row>();
+    for (final Registration<BpmnMemoryModel> registration : ModelHandler.getModelRegistrations()) {
+      final BpmnMemoryModel model = registration.get();
+      if (model != null) {
+        rows.add(new Row(registration, "BPMN", new ModelFootprint(model)));
+      }
+    }
+    for (final Registration<KickstartProcessMemoryModel> registration : ModelHandler.getKickstartProcessModelRegistrations()) {
+      rows.add(new Row(registration, "Kickstart process", null));
+    }
+    for (final Registration<KickstartFormMemoryModel> registration : ModelHandler.getKickstartFormModelRegistrations()) {
+      rows.add(new Row(registration, "Kickstart form", null));
+    }
+    viewer.setInput(rows);
+  }
+
+  private void addColumn(final String title, final int width, final ColumnLabelProvider labelProvider) {
+    final TableViewerColumn column = new TableViewerColumn(viewer, SWT.NONE);
+    column.getColumn().setText(title);
+    column.getColumn().setWidth(width);
+    column.setLabelProvider(labelProvider);
+  }
+
+  private static class Row {
+
+    private final Registration<?> registration;
+    private final String type;
+    private final ModelFootprint footprint;
+
+    private Row(final Registration<?> registration, final String type, final ModelFootprint footprint) {
+      this.registration = registration;
+      this.type = type;
+      this.footprint = footprint;
+    }
+  }
+}
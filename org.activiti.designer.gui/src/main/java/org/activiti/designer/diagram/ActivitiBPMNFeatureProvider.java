@@ -14,10 +14,13 @@
 package org.activiti.designer.diagram;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.activiti.bpmn.model.Activity;
 import org.activiti.bpmn.model.Artifact;
+import org.activiti.bpmn.model.BaseElement;
 import org.activiti.bpmn.model.BoundaryEvent;
 import org.activiti.bpmn.model.Event;
 import org.activiti.bpmn.model.FlowElement;
@@ -139,6 +142,10 @@ import org.activiti.designer.features.UpdateMessageFlowFeature;
 import org.activiti.designer.features.UpdatePoolAndLaneFeature;
 import org.activiti.designer.features.UpdateTextAnnotationFeature;
 import org.activiti.designer.util.editor.BpmnIndependenceSolver;
+import org.activiti.designer.util.editor.BpmnMemoryModel;
+import org.activiti.designer.util.editor.ModelHandler;
+import org.activiti.designer.util.extension.ExtensionUtil;
+import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.eclipse.graphiti.dt.IDiagramTypeProvider;
 import org.eclipse.graphiti.features.IAddFeature;
 import org.eclipse.graphiti.features.ICopyFeature;
@@ -184,6 +191,15 @@ public class ActivitiBPMNFeatureProvider extends DefaultFeatureProvider {
   protected List<BusinessObjectShapeController> shapeControllers;
   protected List<BpmnProcessModelUpdater> modelUpdaters;
 
+  /**
+   * Controllers and updaters found for a business-object class. A hit is checked with
+   * canControlShapeFor before it is used, because some controllers also look at the state of the
+   * object, for instance the implementation of a service task.
+   */
+  protected Map<Class<?>, BusinessObjectShapeController> shapeControllersByClass = new HashMap<Class<?>, BusinessObjectShapeController>();
+  protected Map<Class<?>, BpmnProcessModelUpdater> modelUpdatersByClass = new HashMap<Class<?>, BpmnProcessModelUpdater>();
+  protected int dispatchCacheRegistrationCount = ExtensionUtil.getCustomTaskRegistrationCount();
+
   public ActivitiBPMNFeatureProvider(IDiagramTypeProvider dtp) {
     super(dtp);
     setIndependenceSolver(new BpmnIndependenceSolver(dtp));
@@ -243,24 +259,18 @@ public class ActivitiBPMNFeatureProvider extends DefaultFeatureProvider {
    * @throws IllegalArgumentException When no controller can be found for the given object.
    */
   public BusinessObjectShapeController getShapeController(Object businessObject) {
-    for (BusinessObjectShapeController controller : shapeControllers) {
-      if (controller.canControlShapeFor(businessObject)) {
-        return controller;
-      }
+    BusinessObjectShapeController controller = findShapeController(businessObject);
+    if (controller == null) {
+      throw new IllegalArgumentException("No controller can be found for object: " + businessObject);
     }
-    throw new IllegalArgumentException("No controller can be found for object: " + businessObject);
+    return controller;
   }
   
   /**
    * @return true, if a {@link BusinessObjectShapeController} is available for the given business object.
    */
   public boolean hasShapeController(Object businessObject) {
-    for (BusinessObjectShapeController controller : shapeControllers) {
-        if (controller.canControlShapeFor(businessObject)) {
-          return true;
-        }
-      }
-    return false;
+    return findShapeController(businessObject) != null;
   }
   
   /**
@@ -270,14 +280,87 @@ public class ActivitiBPMNFeatureProvider extends DefaultFeatureProvider {
    * @return the updater capable of updating the given object. Null, if the object cannot be updated.
    */
   public BpmnProcessModelUpdater getModelUpdaterFor(Object businessObject, PictogramElement pictogramElement) {
+    BpmnProcessModelUpdater updater = findModelUpdater(businessObject);
+    if (updater == null) {
+      throw new IllegalArgumentException("No updater can be found for object: " + businessObject);
+    }
+    // creates a new BpmnProcessModelUpdater instances for undo/redo stack
+    return updater.init(businessObject, pictogramElement);
+  }
+
+  /**
+   * Forgets the controllers and updaters found for business-object classes, they are looked up
+   * again on the next request. This happens automatically when custom tasks are registered.
+   */
+  public void clearDispatchCache() {
+    shapeControllersByClass.clear();
+    modelUpdatersByClass.clear();
+    dispatchCacheRegistrationCount = ExtensionUtil.getCustomTaskRegistrationCount();
+  }
+
+  protected BusinessObjectShapeController findShapeController(Object businessObject) {
+    if (businessObject == null) {
+      return null;
+    }
+    checkDispatchCache();
+
+    BusinessObjectShapeController cached = shapeControllersByClass.get(businessObject.getClass());
+    if (cached != null && cached.canControlShapeFor(businessObject)) {
+      return cached;
+    }
+    for (BusinessObjectShapeController controller : shapeControllers) {
+      if (controller.canControlShapeFor(businessObject)) {
+        shapeControllersByClass.put(businessObject.getClass(), controller);
+        return controller;
+      }
+    }
+    return null;
+  }
+
+  protected BpmnProcessModelUpdater findModelUpdater(Object businessObject) {
+    if (businessObject == null) {
+      return null;
+    }
+    checkDispatchCache();
+
+    BpmnProcessModelUpdater cached = modelUpdatersByClass.get(businessObject.getClass());
+    if (cached != null && cached.canControlShapeFor(businessObject)) {
+      return cached;
+    }
     for (BpmnProcessModelUpdater updater : modelUpdaters) {
       if (updater.canControlShapeFor(businessObject)) {
-        // creates a new BpmnProcessModelUpdater instances for undo/redo stack
-        BpmnProcessModelUpdater updaterObject = updater.init(businessObject, pictogramElement);
-        return updaterObject;
+        modelUpdatersByClass.put(businessObject.getClass(), updater);
+        return updater;
+      }
+    }
+    return null;
+  }
+
+  protected void checkDispatchCache() {
+    if (dispatchCacheRegistrationCount != ExtensionUtil.getCustomTaskRegistrationCount()) {
+      clearDispatchCache();
+    }
+  }
+
+  @Override
+  public void link(PictogramElement pictogramElement, Object businessObject) {
+    link(pictogramElement, new Object[] { businessObject });
+  }
+
+  /**
+   * Links the pictogram element and adds it to the {@link org.activiti.designer.util.editor.PictogramElementIndex}
+   * of the model, so connections can find their source and target without a lookup in the link table.
+   */
+  @Override
+  public void link(PictogramElement pictogramElement, Object[] businessObjects) {
+    super.link(pictogramElement, businessObjects);
+
+    if (businessObjects != null && businessObjects.length > 0 && businessObjects[0] instanceof BaseElement) {
+      BpmnMemoryModel model = ModelHandler.getModel(EcoreUtil.getURI(getDiagramTypeProvider().getDiagram()));
+      if (model != null) {
+        model.getPictogramElementIndex().put((BaseElement) businessObjects[0], pictogramElement);
       }
     }
-    throw new IllegalArgumentException("No updater can be found for object: " + businessObject);
   }
 
   @Override
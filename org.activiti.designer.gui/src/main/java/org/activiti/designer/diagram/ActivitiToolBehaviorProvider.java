@@ -659,8 +659,10 @@ public class ActivitiToolBehaviorProvider extends DefaultToolBehaviorProvider {
           final CallActivity ca = (CallActivity) object;
           final String calledElement = ca.getCalledElement();
 
+          // until the workspace is scanned the entry is offered, opening waits for the scan
           if (calledElement != null && StringUtils.isNotBlank(calledElement)
-                  && ActivitiWorkspaceUtil.getDiagramDataFilesByProcessId(calledElement).size() == 1) {
+                  && (!ActivitiWorkspaceUtil.isProcessIndexReady()
+                          || ActivitiWorkspaceUtil.getDiagramDataFilesByProcessId(calledElement).size() == 1)) {
             final ContextMenuEntry openCalledElement
               = new ContextMenuEntry(new OpenCalledElementForCallActivity(getFeatureProvider()), context);
             openCalledElement.setText("Open Process '" + calledElement + "' in new diagram");
@@ -1061,6 +1063,7 @@ public class ActivitiToolBehaviorProvider extends DefaultToolBehaviorProvider {
           final CallActivity ca = (CallActivity) object;
           final String calledElement = ca.getCalledElement();
           if (calledElement != null && StringUtils.isNotBlank(calledElement)
+              && ActivitiWorkspaceUtil.waitForProcessIndex()
               && ActivitiWorkspaceUtil.getDiagramDataFilesByProcessId(calledElement).size() == 1) {
             
             OpenCalledElementForCallActivity openCalledElement = new OpenCalledElementForCallActivity(getFeatureProvider());
@@ -24,6 +24,7 @@ import org.activiti.bpmn.model.BaseElement;
 import org.activiti.bpmn.model.BoundaryEvent;
 import org.activiti.bpmn.model.Event;
 import org.activiti.bpmn.model.FlowElement;
+import org.activiti.bpmn.model.FlowElementsContainer;
 import org.activiti.bpmn.model.FlowNode;
 import org.activiti.bpmn.model.Gateway;
 import org.activiti.bpmn.model.Lane;
@@ -105,17 +106,21 @@ public abstract class AbstractCreateBPMNFeature extends AbstractCreateFeature {
     } else {
       throw new IllegalArgumentException("Container must be Process or SubProcess.");
     }
+    
+    ModelHandler.getModel(EcoreUtil.getURI(getDiagram())).getElementIdIndex().add(baseElement, (FlowElementsContainer) container);
   }
   
   /**
-   * Adds the given base element to the context. At first, a new ID is generated for the new object.
-   * Depending on the type of element, it is added as artifact or flow element.
+   * Adds the given base element to the context. At first, a new ID is generated for the new object,
+   * unless the context holds an ID that was reserved for it. Depending on the type of element, it is
+   * added as artifact or flow element.
    * 
    * @param context the context to add it
    * @param baseElement the base element to add
    */
   protected void addObjectToContainer(ICreateContext context, BaseElement baseElement) {
-    baseElement.setId(getNextId(baseElement));
+    final String reservedId = (String) context.getProperty("org.activiti.designer.changetype.id");
+    baseElement.setId(reservedId != null ? reservedId : getNextId(baseElement));
     final ContainerShape targetContainer = context.getTargetContainer();
     addBaseElementToContainer(targetContainer, baseElement);
     addGraphicalContent(context, baseElement);
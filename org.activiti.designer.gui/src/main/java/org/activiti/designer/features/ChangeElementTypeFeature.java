@@ -13,20 +13,17 @@
  */
 package org.activiti.designer.features;
 
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import org.activiti.bpmn.model.Activity;
-import org.activiti.bpmn.model.BaseElement;
 import org.activiti.bpmn.model.BoundaryEvent;
-import org.activiti.bpmn.model.FlowElement;
+import org.activiti.bpmn.model.FlowElementsContainer;
 import org.activiti.bpmn.model.FlowNode;
 import org.activiti.bpmn.model.Lane;
 import org.activiti.bpmn.model.Process;
 import org.activiti.bpmn.model.SequenceFlow;
-import org.activiti.bpmn.model.SubProcess;
+import org.activiti.designer.util.editor.BpmnMemoryModel;
 import org.activiti.designer.util.editor.ModelHandler;
 import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.eclipse.graphiti.features.IFeatureProvider;
@@ -163,38 +160,26 @@ public class ChangeElementTypeFeature extends AbstractCustomFeature {
 	  taskContext.putProperty("org.activiti.designer.changetype.name", oldObject.getName());
 	  
 	  targetContainer.getChildren().remove(element);
-	  List<Process> processes = ModelHandler.getModel(EcoreUtil.getURI(getDiagram())).getBpmnModel().getProcesses();
-    for (Process process : processes) {
-      process.removeFlowElement(oldObject.getId());
-      for (Lane lane : process.getLanes()) {
-        lane.getFlowReferences().remove(oldObject.getId());
-      }
-      removeElement(oldObject, process);
-    }
-	  
-    if (createFeatureMap.containsKey(newType)) {
-      createFeatureMap.get(newType).create(taskContext);
-    }
-  }
-	
-	private void removeElement(FlowElement element, BaseElement parentElement) {
-	  Collection<FlowElement> elementList = null;
-	  if (parentElement instanceof Process) {
-	    elementList = ((Process) parentElement).getFlowElements();
-	  } else if (parentElement instanceof SubProcess) {
-	    elementList = ((SubProcess) parentElement).getFlowElements();
-	    ((SubProcess) parentElement).getBoundaryEvents().remove(element);
+	  BpmnMemoryModel model = ModelHandler.getModel(EcoreUtil.getURI(getDiagram()));
+	  FlowElementsContainer parent = model.getParentContainer(oldObject.getId());
+	  model.removeBusinessObject(oldObject);
+	  if (parent != null) {
+	    parent.removeFlowElement(oldObject.getId());
+	    if (parent instanceof Process) {
+	      for (Lane lane : ((Process) parent).getLanes()) {
+	        lane.getFlowReferences().remove(oldObject.getId());
+	      }
+	    }
+	  }
+	  if (oldObject instanceof BoundaryEvent && ((BoundaryEvent) oldObject).getAttachedToRef() != null) {
+	    ((BoundaryEvent) oldObject).getAttachedToRef().getBoundaryEvents().remove(oldObject);
 	  }
 	  
-    for (FlowElement flowElement : elementList) {
-      if (flowElement instanceof SubProcess) {
-        SubProcess subProcess = (SubProcess) flowElement;
-        subProcess.removeFlowElement(element.getId());
-        removeElement(element, subProcess);
-      }
-      if (flowElement instanceof Activity) {
-        ((Activity) flowElement).getBoundaryEvents().remove(element);
-      }
+    if (createFeatureMap.containsKey(newType)) {
+      AbstractCreateBPMNFeature createFeature = (AbstractCreateBPMNFeature) createFeatureMap.get(newType);
+      String newId = model.getIdAllocator().reserve(createFeature.getFeatureIdKey(), 1).get(0);
+      taskContext.putProperty("org.activiti.designer.changetype.id", newId);
+      createFeature.create(taskContext);
     }
   }
 }
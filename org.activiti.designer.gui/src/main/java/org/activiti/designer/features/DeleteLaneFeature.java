@@ -14,17 +14,16 @@
 package org.activiti.designer.features;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 
 import org.activiti.bpmn.model.BaseElement;
 import org.activiti.bpmn.model.FlowElement;
+import org.activiti.bpmn.model.FlowElementsContainer;
 import org.activiti.bpmn.model.FlowNode;
 import org.activiti.bpmn.model.Lane;
 import org.activiti.bpmn.model.Pool;
 import org.activiti.bpmn.model.Process;
 import org.activiti.bpmn.model.SequenceFlow;
-import org.activiti.bpmn.model.SubProcess;
 import org.activiti.designer.util.editor.BpmnMemoryModel;
 import org.activiti.designer.util.editor.ModelHandler;
 import org.eclipse.emf.ecore.util.EcoreUtil;
@@ -89,6 +88,8 @@ public class DeleteLaneFeature extends DefaultDeleteFeature {
         Process process = model.getBpmnModel().getProcess(parentPool.getId());
         model.getBpmnModel().getProcesses().remove(process);
         model.getBpmnModel().getPools().remove(parentPool);
+        model.removeBusinessObject(process);
+        model.removeBusinessObject(parentPool);
         PictogramElement poolElement = getFeatureProvider().getPictogramElementForBusinessObject(parentPool);
         IRemoveContext poolRc = new RemoveContext(poolElement);
         IRemoveFeature poolRemoveFeature = getFeatureProvider().getRemoveFeature(poolRc);
@@ -129,35 +130,20 @@ public class DeleteLaneFeature extends DefaultDeleteFeature {
         }
 		    removeElement(subFlowElement);
       }
+		  model.removeBusinessObject(lane);
 		  lane.getParentProcess().getLanes().remove(lane);
 		}
 	}
 	
 	private void removeElement(BaseElement element) {
-  	List<Process> processes = ModelHandler.getModel(EcoreUtil.getURI(getDiagram())).getBpmnModel().getProcesses();
-    for (Process process : processes) {
-      process.removeFlowElement(element.getId());
-      removeElementInProcess(element, process);
-    }
+  	BpmnMemoryModel model = ModelHandler.getModel(EcoreUtil.getURI(getDiagram()));
+  	FlowElementsContainer parent = model.getParentContainer(element.getId());
+  	model.removeBusinessObject(element);
+  	if (parent != null) {
+  	  parent.removeFlowElement(element.getId());
+  	}
 	}
 	
-	private void removeElementInProcess(BaseElement element, BaseElement parentElement) {
-	  Collection<FlowElement> elementList = null;
-    if (parentElement instanceof Process) {
-      elementList = ((Process) parentElement).getFlowElements();
-    } else if (parentElement instanceof SubProcess) {
-      elementList = ((SubProcess) parentElement).getFlowElements();
-    }
-	  
-    for (FlowElement flowElement : elementList) {
-      if(flowElement instanceof SubProcess) {
-        SubProcess subProcess = (SubProcess) flowElement;
-        subProcess.removeFlowElement(element.getId());
-        removeElementInProcess(element, subProcess);
-      }
-    }
-  }
-	
 	private void deleteSequenceFlows(FlowNode flowNode) {
 	  List<SequenceFlow> toDeleteSequenceFlows = new ArrayList<SequenceFlow>();
     for (SequenceFlow incomingSequenceFlow : flowNode.getIncomingFlows()) {
@@ -14,7 +14,7 @@
 package org.activiti.designer.features;
 
 import org.activiti.bpmn.model.BaseElement;
-import org.activiti.bpmn.model.BpmnModel;
+import org.activiti.designer.util.editor.BpmnMemoryModel;
 import org.activiti.designer.util.editor.ModelHandler;
 import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.eclipse.graphiti.features.IFeatureProvider;
@@ -31,7 +31,8 @@ public class DeleteMessageFlowFeature extends DefaultDeleteFeature {
 	}
 	
 	private void removeElement(BaseElement element) {
-  	BpmnModel bpmnModel = ModelHandler.getModel(EcoreUtil.getURI(getDiagram())).getBpmnModel();
-  	bpmnModel.getMessageFlows().remove(element.getId());
+  	BpmnMemoryModel model = ModelHandler.getModel(EcoreUtil.getURI(getDiagram()));
+  	model.removeBusinessObject(element);
+  	model.getBpmnModel().getMessageFlows().remove(element.getId());
 	}
 }
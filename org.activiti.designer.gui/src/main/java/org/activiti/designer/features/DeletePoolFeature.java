@@ -13,6 +13,7 @@
  */
 package org.activiti.designer.features;
 
+import org.activiti.bpmn.model.Lane;
 import org.activiti.bpmn.model.Pool;
 import org.activiti.bpmn.model.Process;
 import org.activiti.designer.util.editor.BpmnMemoryModel;
@@ -67,6 +68,13 @@ public class DeletePoolFeature extends AbstractCustomFeature {
         Process process = model.getBpmnModel().getProcess(pool.getId());
         model.getBpmnModel().getProcesses().remove(process);
         model.getBpmnModel().getPools().remove(pool);
+        model.removeBusinessObject(pool);
+        if (process != null) {
+          for (Lane lane : process.getLanes()) {
+            model.removeBusinessObject(lane);
+          }
+          model.removeBusinessObject(process);
+        }
         IRemoveContext rc = new RemoveContext(pictogramElement);
         IFeatureProvider featureProvider = getFeatureProvider();
         IRemoveFeature removeFeature = featureProvider.getRemoveFeature(rc);
@@ -74,8 +74,10 @@ public class PasteFlowElementFeature extends AbstractPasteFeature {
   	BpmnMemoryModel model = ModelHandler.getModel(EcoreUtil.getURI(getDiagram()));
   	List<FlowElement> copyList = model.getClipboard();
 
-    for (FlowElement element : copyList) {
-      FlowElement clone = CloneUtil.clone(element, getDiagram());
+    List<FlowElement> clones = CloneUtil.clone(copyList, getDiagram());
+    for (int i = 0; i < copyList.size(); i++) {
+      FlowElement element = copyList.get(i);
+      FlowElement clone = clones.get(i);
       
       AddContext addContext = new AddContext(new AreaContext(), clone);
 			IAddFeature addFeature = getFeatureProvider().getAddFeature(addContext);
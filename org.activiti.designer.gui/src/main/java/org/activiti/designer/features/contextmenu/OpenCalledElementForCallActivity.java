@@ -67,7 +67,7 @@ public class OpenCalledElementForCallActivity extends AbstractCustomFeature {
     final CallActivity ca = getCallActivity(context);
     final String calledElement = ca.getCalledElement();
 
-    if (calledElement != null && StringUtils.isNotBlank(calledElement)) {
+    if (calledElement != null && StringUtils.isNotBlank(calledElement) && ActivitiWorkspaceUtil.waitForProcessIndex()) {
       final Set<IFile> dataFiles = ActivitiWorkspaceUtil.getDiagramDataFilesByProcessId(calledElement);
 
       if (dataFiles.size() == 1) {
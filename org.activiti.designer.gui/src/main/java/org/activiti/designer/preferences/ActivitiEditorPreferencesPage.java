@@ -32,6 +32,8 @@ public class ActivitiEditorPreferencesPage extends FieldEditorPreferencePage imp
 				"&Automatically create a label when adding a new sequence flow", getFieldEditorParent()));
 		addField(new BooleanFieldEditor(Preferences.EDITOR_ADD_DEFAULT_CONTENT_TO_DIAGRAMS.getPreferenceId(),
 				"&Create default diagram content when creating new diagrams and subprocesses", getFieldEditorParent()));
+		addField(new BooleanFieldEditor(Preferences.EDITOR_LOAD_DIAGRAMS_IN_BACKGROUND.getPreferenceId(),
+				"&Load diagrams in the background and show them while they are being populated", getFieldEditorParent()));
 	}
 
 	@Override
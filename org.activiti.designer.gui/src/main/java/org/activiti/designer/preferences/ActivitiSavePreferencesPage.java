@@ -51,6 +51,9 @@ public class ActivitiSavePreferencesPage extends FieldEditorPreferencePage imple
   @Override
   public void createFieldEditors() {
 
+    addField(new BooleanFieldEditor(Preferences.SAVE_IN_BACKGROUND.getPreferenceId(),
+            "&Write the process definition, images and exports in the background", getFieldEditorParent()));
+
     addField(new BooleanFieldEditor(Preferences.SAVE_IMAGE.getPreferenceId(), "&Create process definition image when saving the diagram",
             getFieldEditorParent()));
 
@@ -110,6 +113,17 @@ public class ActivitiSavePreferencesPage extends FieldEditorPreferencePage imple
       }
     }
 
+    if (marshallers.size() > 1) {
+      addField(new BooleanFieldEditor(Preferences.SAVE_EXPORT_MARSHALLERS_CONCURRENTLY.getPreferenceId(),
+              "Save to these formats &concurrently", getFieldEditorParent()));
+    }
+
+    addField(new BooleanFieldEditor(Preferences.VALIDATE_WORKERS_IN_PARALLEL.getPreferenceId(),
+            "Run the checks of the BPMN 2.0 &validation in parallel", getFieldEditorParent()));
+
+    addField(new BooleanFieldEditor(Preferences.VALIDATE_INCREMENTALLY.getPreferenceId(),
+            "Only validate the &elements that changed since the last validation", getFieldEditorParent()));
+
   }
 
   private void addOverlayField(FieldEditor overlayEditor) {
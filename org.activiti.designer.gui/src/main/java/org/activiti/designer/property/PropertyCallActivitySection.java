@@ -125,9 +125,14 @@ public class PropertyCallActivitySection extends ActivitiPropertySection impleme
    * Checks, whether the given process ID refers to a process this call activity might lead to.
    *
    * @param calledElement the process ID to check
-   * @return <code>true</code> in case such a process ID exists, <code>false</code> otherwise.
+   * @return <code>true</code> in case such a process ID exists or the workspace is not scanned
+   *    completely yet, <code>false</code> otherwise.
    */
   private boolean isCalledElementExisting(final String calledElement) {
+    if (!ActivitiWorkspaceUtil.isProcessIndexReady()) {
+      // the button waits for the scan when it is clicked
+      return true;
+    }
     final Set<IFile> resources = ActivitiWorkspaceUtil.getDiagramDataFilesByProcessId(calledElement);
 
     return !resources.isEmpty();
@@ -158,6 +163,10 @@ public class PropertyCallActivitySection extends ActivitiPropertySection impleme
 
     @Override
     public void widgetSelected(SelectionEvent event) {
+      if (!ActivitiWorkspaceUtil.waitForProcessIndex()) {
+        return;
+      }
+
       final Map<IFile, Set<String>> processIdsByDataFiles
         = ActivitiWorkspaceUtil.getAllProcessIdsByDiagramDataFile();
 
@@ -212,6 +221,10 @@ public class PropertyCallActivitySection extends ActivitiPropertySection impleme
 
     @Override
     public void widgetSelected(SelectionEvent event) {
+      if (!ActivitiWorkspaceUtil.waitForProcessIndex()) {
+        return;
+      }
+
       final String calledElement = calledElementText.getText();
 
       final Set<IFile> resources = ActivitiWorkspaceUtil.getDiagramDataFilesByProcessId(calledElement);
@@ -15,8 +15,10 @@ package org.activiti.designer.property;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.activiti.bpmn.model.BaseElement;
 import org.activiti.bpmn.model.ExtensionAttribute;
@@ -28,7 +30,11 @@ import org.activiti.designer.util.bpmn.BpmnExtensions;
 import org.activiti.designer.util.editor.BpmnMemoryModel;
 import org.activiti.designer.util.preferences.Preferences;
 import org.activiti.designer.util.preferences.PreferencesUtil;
+import org.activiti.designer.util.workspace.ActivitiWorkspaceUtil;
+import org.activiti.designer.util.workspace.CallActivityReference;
+import org.activiti.designer.util.workspace.ProcessCallers;
 import org.apache.commons.lang.StringUtils;
+import org.eclipse.core.resources.IFile;
 import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.Text;
 import org.eclipse.ui.views.properties.tabbed.ITabbedPropertyConstants;
@@ -42,6 +48,7 @@ public class PropertyDiagramSection extends ActivitiPropertySection implements I
   protected Text documentationText;
   protected Text candidateStarterUsersText;
   protected Text candidateStarterGroupsText;
+  protected Text calledByText;
   protected List<String> languages;
   protected Map<Text, String> languageTextMap = new HashMap<Text, String>();
 	
@@ -71,6 +78,9 @@ public class PropertyDiagramSection extends ActivitiPropertySection implements I
     createLabel("Candidate start groups (comma separated)", candidateStarterGroupsText);
     documentationText = createTextControl(true);
     createLabel("Documentation", documentationText);
+    calledByText = createTextControl(true);
+    calledByText.setEditable(false);
+    createLabel("Called by", calledByText);
   }
 	
 	
@@ -130,6 +140,9 @@ public class PropertyDiagramSection extends ActivitiPropertySection implements I
       
     } else if (control == documentationText) {
       return currentProcess.getDocumentation();
+      
+    } else if (control == calledByText) {
+      return getCalledBy(currentProcess.getId());
     }
     
     return null;
@@ -198,6 +211,43 @@ public class PropertyDiagramSection extends ActivitiPropertySection implements I
     candidateStarterGroupsText.setEnabled(enabled);
 	}
 	
+  /**
+   * Describes the call activities in the workspace that call the process, the processes that call
+   * it through other processes and the cycle of calls the process is part of, if any.
+   */
+  protected String getCalledBy(String processId) {
+    if (StringUtils.isEmpty(processId)) {
+      return "";
+    }
+    
+    ProcessCallers processCallers = ActivitiWorkspaceUtil.getCallers(processId);
+    StringBuilder result = new StringBuilder();
+    Set<String> directCallers = new LinkedHashSet<String>();
+    for (Map.Entry<IFile, List<CallActivityReference>> callers : processCallers.getCallActivities().entrySet()) {
+      for (CallActivityReference caller : callers.getValue()) {
+        directCallers.add(caller.getProcessId());
+        result.append(caller.getCallActivityId()).append(" in process ").append(caller.getProcessId())
+            .append(" (").append(callers.getKey().getFullPath()).append(")\n");
+      }
+    }
+    
+    Set<String> indirectCallers = new LinkedHashSet<String>(processCallers.getTransitiveCallers());
+    indirectCallers.removeAll(directCallers);
+    indirectCallers.remove(processId);
+    if (!indirectCallers.isEmpty()) {
+      result.append("Indirectly by ").append(StringUtils.join(indirectCallers, ", ")).append("\n");
+    }
+    
+    List<String> cycle = processCallers.getCallCycle();
+    if (!cycle.isEmpty()) {
+      result.append("Call cycle: ").append(StringUtils.join(cycle, " -> ")).append("\n");
+    }
+    if (!ActivitiWorkspaceUtil.isProcessIndexReady()) {
+      result.append("The workspace is still being indexed, callers may be missing\n");
+    }
+    return result.toString().trim();
+  }
+	
 	protected String getName(Object bo, String language) {
     BaseElement element = (BaseElement) bo;
     String resultValue = null;
@@ -94,6 +94,7 @@ public class PropertyGeneralSection extends ActivitiPropertySection implements I
         updateFlows(element, idText.getText());
       }
       element.setId(idText.getText());
+      ModelHandler.getModel(EcoreUtil.getURI(getDiagram())).getIdAllocator().register(idText.getText());
       
     } else if (languages != null && languages.size() > 0) {
     	for (Text languageText : languageTextMap.keySet()) {
@@ -17,7 +17,11 @@
 package org.activiti.designer.util;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.activiti.bpmn.model.ActivitiListener;
 import org.activiti.bpmn.model.Activity;
@@ -36,6 +40,7 @@ import org.activiti.bpmn.model.FormValue;
 import org.activiti.bpmn.model.InclusiveGateway;
 import org.activiti.bpmn.model.ManualTask;
 import org.activiti.bpmn.model.ParallelGateway;
+import org.activiti.bpmn.model.Process;
 import org.activiti.bpmn.model.ScriptTask;
 import org.activiti.bpmn.model.ServiceTask;
 import org.activiti.bpmn.model.StartEvent;
@@ -49,7 +54,7 @@ import org.activiti.designer.features.CreateScriptTaskFeature;
 import org.activiti.designer.features.CreateServiceTaskFeature;
 import org.activiti.designer.features.CreateStartEventFeature;
 import org.activiti.designer.features.CreateUserTaskFeature;
-import org.activiti.designer.util.eclipse.ActivitiUiUtil;
+import org.activiti.designer.util.editor.BpmnMemoryModel;
 import org.activiti.designer.util.editor.ModelHandler;
 import org.activiti.designer.util.extension.ExtensionUtil;
 import org.eclipse.emf.ecore.util.EcoreUtil;
@@ -72,29 +77,89 @@ public final class CloneUtil {
   }
 
   public static FlowElement clone(final FlowElement element, final Diagram diagram) {
+    return clone(Collections.singletonList(element), diagram).get(0);
+  }
+
+  /**
+   * Clones the elements into the main process of the diagram. The ids of all clones of a kind are
+   * reserved from the {@link org.activiti.designer.util.editor.IdAllocator} of the model at once.
+   * 
+   * @return the clones in the order of the elements, null for the elements that can not be cloned
+   */
+  public static List<FlowElement> clone(final List<FlowElement> elements, final Diagram diagram) {
+    BpmnMemoryModel model = ModelHandler.getModel(EcoreUtil.getURI(diagram));
+
+    Map<String, Integer> counts = new HashMap<String, Integer>();
+    for (FlowElement element : elements) {
+      String idKey = getIdKey(element);
+      if (idKey != null) {
+        Integer count = counts.get(idKey);
+        counts.put(idKey, count == null ? 1 : count + 1);
+      }
+    }
+    Map<String, Iterator<String>> ids = new HashMap<String, Iterator<String>>();
+    for (Map.Entry<String, Integer> count : counts.entrySet()) {
+      ids.put(count.getKey(), model.getIdAllocator().reserve(count.getKey(), count.getValue()).iterator());
+    }
+
+    List<FlowElement> result = new ArrayList<FlowElement>(elements.size());
+    for (FlowElement element : elements) {
+      String idKey = getIdKey(element);
+      result.add(idKey == null ? null : clone(element, ids.get(idKey).next(), model));
+    }
+    return result;
+  }
+
+  /**
+   * @return the prefix of the ids of the clones of the element, null if it can not be cloned
+   */
+  private static String getIdKey(final FlowElement element) {
+    if (element instanceof StartEvent) {
+      return CreateStartEventFeature.FEATURE_ID_KEY;
+    } else if (element instanceof ServiceTask) {
+      return CreateServiceTaskFeature.FEATURE_ID_KEY;
+    } else if (element instanceof EndEvent) {
+      return CreateEndEventFeature.FEATURE_ID_KEY;
+    } else if (element instanceof ExclusiveGateway) {
+      return CreateExclusiveGatewayFeature.FEATURE_ID_KEY;
+    } else if (element instanceof InclusiveGateway) {
+      return CreateInclusiveGatewayFeature.FEATURE_ID_KEY;
+    } else if (element instanceof ManualTask) {
+      return CreateMailTaskFeature.FEATURE_ID_KEY;
+    } else if (element instanceof ParallelGateway) {
+      return CreateParallelGatewayFeature.FEATURE_ID_KEY;
+    } else if (element instanceof ScriptTask) {
+      return CreateScriptTaskFeature.FEATURE_ID_KEY;
+    } else if (element instanceof UserTask) {
+      return CreateUserTaskFeature.FEATURE_ID_KEY;
+    }
+    return null;
+  }
+
+  private static FlowElement clone(final FlowElement element, final String id, final BpmnMemoryModel model) {
 
     FlowElement cloneElement = null;
     List<FormProperty> formProperties = null;
 
     if (element instanceof StartEvent) {
-      cloneElement = clone((StartEvent) element, diagram);
+      cloneElement = clone((StartEvent) element, id);
       formProperties = ((StartEvent) element).getFormProperties();
     } else if (element instanceof ServiceTask) {
-      cloneElement = clone((ServiceTask) element, diagram);
+      cloneElement = clone((ServiceTask) element, id);
     } else if (element instanceof EndEvent) {
-      cloneElement = clone((EndEvent) element, diagram);
+      cloneElement = clone((EndEvent) element, id);
     } else if (element instanceof ExclusiveGateway) {
-      cloneElement = clone((ExclusiveGateway) element, diagram);
+      cloneElement = clone((ExclusiveGateway) element, id);
     } else if (element instanceof InclusiveGateway) {
-      cloneElement = clone((InclusiveGateway) element, diagram);
+      cloneElement = clone((InclusiveGateway) element, id);
     } else if (element instanceof ManualTask) {
-      cloneElement = clone((ManualTask) element, diagram);
+      cloneElement = clone((ManualTask) element, id);
     } else if (element instanceof ParallelGateway) {
-      cloneElement = clone((ParallelGateway) element, diagram);
+      cloneElement = clone((ParallelGateway) element, id);
     } else if (element instanceof ScriptTask) {
-      cloneElement = clone((ScriptTask) element, diagram);
+      cloneElement = clone((ScriptTask) element, id);
     } else if (element instanceof UserTask) {
-      cloneElement = clone((UserTask) element, diagram);
+      cloneElement = clone((UserTask) element, id);
       formProperties = ((UserTask) element).getFormProperties();
 
       List<ActivitiListener> resultListenerList = new ArrayList<ActivitiListener>();
@@ -134,7 +199,9 @@ public final class CloneUtil {
 
     if (cloneElement != null) {
       cloneElement.setName(element.getName());
-      ModelHandler.getModel(EcoreUtil.getURI(diagram)).getBpmnModel().getMainProcess().addFlowElement(cloneElement);
+      Process mainProcess = model.getBpmnModel().getMainProcess();
+      mainProcess.addFlowElement(cloneElement);
+      model.getElementIdIndex().add(cloneElement, mainProcess);
     }
 
     return cloneElement;
@@ -185,9 +252,9 @@ public final class CloneUtil {
    *          the object to clone
    * @return a clone of the original object
    */
-  private static final StartEvent clone(final StartEvent original, final Diagram diagram) {
+  private static final StartEvent clone(final StartEvent original, final String id) {
     StartEvent result = new StartEvent();
-    result.setId(ActivitiUiUtil.getNextId(result.getClass(), CreateStartEventFeature.FEATURE_ID_KEY, diagram));
+    result.setId(id);
     return result;
   }
 
@@ -198,9 +265,9 @@ public final class CloneUtil {
    *          the object to clone
    * @return a clone of the original object
    */
-  private static final EndEvent clone(final EndEvent original, final Diagram diagram) {
+  private static final EndEvent clone(final EndEvent original, final String id) {
     EndEvent result = new EndEvent();
-    result.setId(ActivitiUiUtil.getNextId(result.getClass(), CreateEndEventFeature.FEATURE_ID_KEY, diagram));
+    result.setId(id);
     return result;
 
   }
@@ -212,9 +279,9 @@ public final class CloneUtil {
    *          the object to clone
    * @return a clone of the original object
    */
-  private static final ExclusiveGateway clone(final ExclusiveGateway original, final Diagram diagram) {
+  private static final ExclusiveGateway clone(final ExclusiveGateway original, final String id) {
     ExclusiveGateway result = new ExclusiveGateway();
-    result.setId(ActivitiUiUtil.getNextId(result.getClass(), CreateExclusiveGatewayFeature.FEATURE_ID_KEY, diagram));
+    result.setId(id);
     return result;
 
   }
@@ -226,9 +293,9 @@ public final class CloneUtil {
    *          the object to clone
    * @return a clone of the original object
    */
-  private static final InclusiveGateway clone(final InclusiveGateway original, final Diagram diagram) {
+  private static final InclusiveGateway clone(final InclusiveGateway original, final String id) {
     InclusiveGateway result = new InclusiveGateway();
-    result.setId(ActivitiUiUtil.getNextId(result.getClass(), CreateInclusiveGatewayFeature.FEATURE_ID_KEY, diagram));
+    result.setId(id);
     return result;
   }
 
@@ -239,9 +306,9 @@ public final class CloneUtil {
    *          the object to clone
    * @return a clone of the original object
    */
-  private static final ManualTask clone(final ManualTask original, final Diagram diagram) {
+  private static final ManualTask clone(final ManualTask original, final String id) {
     ManualTask result = new ManualTask();
-    result.setId(ActivitiUiUtil.getNextId(result.getClass(), CreateMailTaskFeature.FEATURE_ID_KEY, diagram));
+    result.setId(id);
     return result;
   }
 
@@ -252,9 +319,9 @@ public final class CloneUtil {
    *          the object to clone
    * @return a clone of the original object
    */
-  private static final ParallelGateway clone(final ParallelGateway original, final Diagram diagram) {
+  private static final ParallelGateway clone(final ParallelGateway original, final String id) {
     ParallelGateway result = new ParallelGateway();
-    result.setId(ActivitiUiUtil.getNextId(result.getClass(), CreateParallelGatewayFeature.FEATURE_ID_KEY, diagram));
+    result.setId(id);
     return result;
   }
 
@@ -265,10 +332,10 @@ public final class CloneUtil {
    *          the object to clone
    * @return a clone of the original object
    */
-  private static final ScriptTask clone(final ScriptTask original, final Diagram diagram) {
+  private static final ScriptTask clone(final ScriptTask original, final String id) {
     ScriptTask result = new ScriptTask();
 
-    result.setId(ActivitiUiUtil.getNextId(result.getClass(), CreateScriptTaskFeature.FEATURE_ID_KEY, diagram));
+    result.setId(id);
     result.setScript(original.getScript());
     result.setScriptFormat(original.getScriptFormat());
 
@@ -283,10 +350,10 @@ public final class CloneUtil {
    *          the object to clone
    * @return a clone of the original object
    */
-  private static final UserTask clone(final UserTask original, final Diagram diagram) {
+  private static final UserTask clone(final UserTask original, final String id) {
     UserTask result = new UserTask();
 
-    result.setId(ActivitiUiUtil.getNextId(result.getClass(), CreateUserTaskFeature.FEATURE_ID_KEY, diagram));
+    result.setId(id);
     result.setAssignee(original.getAssignee());
     result.setFormKey(original.getFormKey());
     result.setDueDate(original.getDueDate());
@@ -302,11 +369,11 @@ public final class CloneUtil {
    *          the object to clone
    * @return a clone of the original object
    */
-  private static final ServiceTask clone(final ServiceTask original, final Diagram diagram) {
+  private static final ServiceTask clone(final ServiceTask original, final String id) {
 
     ServiceTask result = new ServiceTask();
 
-    result.setId(ActivitiUiUtil.getNextId(result.getClass(), CreateServiceTaskFeature.FEATURE_ID_KEY, diagram));
+    result.setId(id);
     result.setImplementation(original.getImplementation());
     result.setExtensionId(original.getExtensionId());
 
@@ -51,6 +51,10 @@ import org.eclipse.ui.PartInitException;
 public class KickstartFormEditor extends DiagramEditor {
 
   private static GraphicalViewer activeGraphicalViewer;
+
+  /** The model of this editor, the {@link ModelHandler} only references it weakly. */
+  private KickstartFormMemoryModel memoryModel;
+
   private AlfrescoSimpleWorkflowJsonConverter jsonConverter;
 
   public KickstartFormEditor() {
@@ -104,7 +108,8 @@ public class KickstartFormEditor extends DiagramEditor {
 
     final KickstartDiagramEditorInput adei = (KickstartDiagramEditorInput) getEditorInput();
 
-    ModelHandler.removeModel(EcoreUtil.getURI(getDiagramTypeProvider().getDiagram()));
+    ModelHandler.removeKickstartFormModel(EcoreUtil.getURI(getDiagramTypeProvider().getDiagram()));
+    memoryModel = null;
     KickstartProcessDiagramCreator.dispose(adei.getDiagramFile());
   }
 
@@ -136,7 +141,8 @@ public class KickstartFormEditor extends DiagramEditor {
 
     final KickstartFormMemoryModel model = new KickstartFormMemoryModel(getDiagramTypeProvider().getFeatureProvider(),
         dataFile);
-    ModelHandler.addModel(EcoreUtil.getURI(getDiagramTypeProvider().getDiagram()), model);
+    memoryModel = model;
+    ModelHandler.addModel(EcoreUtil.getURI(getDiagramTypeProvider().getDiagram()), model, this);
 
     String filePath = dataFile.getLocationURI().getPath();
     File formDefinitionFile = new File(filePath);
@@ -52,6 +52,9 @@ public class KickstartProcessDiagramEditor extends DiagramEditor {
 
   private static GraphicalViewer activeGraphicalViewer;
 
+  /** The model of this editor, the {@link ModelHandler} only references it weakly. */
+  private KickstartProcessMemoryModel memoryModel;
+
   private TransactionalEditingDomain transactionalEditingDomain;
 
   public KickstartProcessDiagramEditor() {
@@ -154,7 +157,8 @@ public class KickstartProcessDiagramEditor extends DiagramEditor {
 
     final KickstartProcessMemoryModel model = new KickstartProcessMemoryModel(getDiagramTypeProvider()
         .getFeatureProvider(), dataFile);
-    ModelHandler.addModel(EcoreUtil.getURI(getDiagramTypeProvider().getDiagram()), model);
+    memoryModel = model;
+    ModelHandler.addModel(EcoreUtil.getURI(getDiagramTypeProvider().getDiagram()), model, this);
 
     String filePath = dataFile.getLocationURI().getPath();
     File kickstartProcessFile = new File(filePath);
@@ -243,7 +247,8 @@ public class KickstartProcessDiagramEditor extends DiagramEditor {
 
     final KickstartDiagramEditorInput adei = (KickstartDiagramEditorInput) getEditorInput();
 
-    ModelHandler.getKickstartProcessModel(EcoreUtil.getURI(getDiagramTypeProvider().getDiagram()));
+    ModelHandler.removeKickstartProcessModel(EcoreUtil.getURI(getDiagramTypeProvider().getDiagram()));
+    memoryModel = null;
     KickstartProcessDiagramCreator.dispose(adei.getDiagramFile());
   }
 }
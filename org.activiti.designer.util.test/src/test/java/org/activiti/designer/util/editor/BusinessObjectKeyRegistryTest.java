@@ -0,0 +1,175 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.util.editor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class BusinessObjectKeyRegistryTest {
+
+  private BusinessObjectKeyRegistry registry;
+
+  @Before
+  public void setUp() {
+    registry = new BusinessObjectKeyRegistry();
+  }
+
+  @Test
+  public void equalObjectsGetDifferentKeys() {
+    final String first = new String("task");
+    final String second = new String("task");
+
+    final String firstKey = registry.getKey(first);
+    final String secondKey = registry.getKey(second);
+
+    assertFalse(firstKey.equals(secondKey));
+    assertEquals(firstKey, registry.getKey(first));
+    assertSame(first, registry.getObject(firstKey));
+    assertSame(second, registry.getObject(secondKey));
+    assertEquals(2, registry.size());
+  }
+
+  @Test
+  public void nullHasNoKey() {
+    assertNull(registry.getKey(null));
+    assertEquals(0, registry.size());
+  }
+
+  @Test
+  public void removedObjectGetsItsKeyBackWhenTheRemovalIsUndone() {
+    final Object businessObject = new Object();
+    final String key = registry.getKey(businessObject);
+
+    registry.remove(businessObject);
+    assertEquals(0, registry.size());
+
+    assertSame(businessObject, registry.getObject(key));
+    assertEquals(key, registry.getKey(businessObject));
+    assertEquals(1, registry.size());
+  }
+
+  @Test
+  public void removedObjectKeepsItsKeyWhenAskedForItsKey() {
+    final Object businessObject = new Object();
+    final String key = registry.getKey(businessObject);
+
+    registry.remove(businessObject);
+
+    assertEquals(key, registry.getKey(businessObject));
+    assertSame(businessObject, registry.getObject(key));
+  }
+
+  @Test
+  public void keysOfRemovedObjectsAreNotHandedOutAgain() {
+    final Object removed = new Object();
+    final String removedKey = registry.getKey(removed);
+    registry.remove(removed);
+
+    final Object added = new Object();
+    assertFalse(removedKey.equals(registry.getKey(added)));
+    assertSame(removed, registry.getObject(removedKey));
+  }
+
+  @Test
+  public void purgedObjectsAreReleased() {
+    final Object businessObject = new Object();
+    final String key = registry.getKey(businessObject);
+
+    registry.remove(businessObject);
+    registry.purgeRemoved();
+
+    assertNull(registry.getObject(key));
+    assertFalse(key.equals(registry.getKey(businessObject)));
+  }
+
+  @Test
+  public void purgingACommandReleasesOnlyTheObjectsItRemoved() {
+    final Object first = new Object();
+    final Object second = new Object();
+    final String firstKey = registry.getKey(first);
+    final String secondKey = registry.getKey(second);
+    final Object firstCommand = new Object();
+    final Object secondCommand = new Object();
+
+    registry.remove(first);
+    registry.assignRemoved(firstCommand);
+    registry.remove(second);
+    registry.assignRemoved(secondCommand);
+    registry.purgeRemoved(firstCommand);
+
+    assertNull(registry.getObject(firstKey));
+    assertSame(second, registry.getObject(secondKey));
+  }
+
+  @Test
+  public void objectRemovedAgainBelongsToTheLastCommand() {
+    final Object businessObject = new Object();
+    final String key = registry.getKey(businessObject);
+    final Object firstCommand = new Object();
+    final Object secondCommand = new Object();
+
+    registry.remove(businessObject);
+    registry.assignRemoved(firstCommand);
+    // undone and deleted again
+    assertSame(businessObject, registry.getObject(key));
+    registry.remove(businessObject);
+    registry.assignRemoved(secondCommand);
+    registry.purgeRemoved(firstCommand);
+
+    assertSame(businessObject, registry.getObject(key));
+  }
+
+  @Test
+  public void putReplacesTheObjectOfTheKey() {
+    final Object first = new Object();
+    final Object second = new Object();
+
+    registry.put("key", first);
+    registry.put("key", second);
+
+    assertSame(second, registry.getObject("key"));
+    assertEquals("key", registry.getKey(second));
+    assertFalse("key".equals(registry.getKey(first)));
+  }
+
+  @Test
+  public void putMovesTheObjectToTheKey() {
+    final Object businessObject = new Object();
+    final String oldKey = registry.getKey(businessObject);
+
+    registry.put("key", businessObject);
+
+    assertNull(registry.getObject(oldKey));
+    assertSame(businessObject, registry.getObject("key"));
+    assertEquals(1, registry.size());
+  }
+
+  @Test
+  public void putOverridesARemovedObjectWithTheKey() {
+    final Object removed = new Object();
+    registry.put("key", removed);
+    registry.remove(removed);
+
+    final Object added = new Object();
+    registry.put("key", added);
+
+    assertSame(added, registry.getObject("key"));
+    assertFalse("key".equals(registry.getKey(removed)));
+  }
+}
@@ -0,0 +1,201 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.util.editor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Collections;
+
+import org.activiti.bpmn.model.Association;
+import org.activiti.bpmn.model.BpmnModel;
+import org.activiti.bpmn.model.Process;
+import org.activiti.bpmn.model.SubProcess;
+import org.activiti.bpmn.model.TextAnnotation;
+import org.activiti.bpmn.model.UserTask;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ElementIdIndexTest {
+
+  private BpmnMemoryModel model;
+  private ElementIdIndex index;
+  private Process process;
+  private SubProcess subProcess;
+  private UserTask userTask;
+  private UserTask nestedUserTask;
+  private TextAnnotation textAnnotation;
+
+  @Before
+  public void setUp() {
+    process = new Process();
+    process.setId("process1");
+    userTask = createUserTask("usertask1");
+    process.addFlowElement(userTask);
+    subProcess = new SubProcess();
+    subProcess.setId("subprocess1");
+    nestedUserTask = createUserTask("usertask2");
+    subProcess.addFlowElement(nestedUserTask);
+    process.addFlowElement(subProcess);
+    textAnnotation = new TextAnnotation();
+    textAnnotation.setId("textannotation1");
+    process.addArtifact(textAnnotation);
+
+    final BpmnModel bpmnModel = new BpmnModel();
+    bpmnModel.addProcess(process);
+    model = new BpmnMemoryModel(null, null);
+    model.setBpmnModel(bpmnModel);
+    index = model.getElementIdIndex();
+  }
+
+  @Test
+  public void findsElementsOfProcessesAndSubProcesses() {
+    assertSame(userTask, index.getFlowElement("usertask1"));
+    assertSame(subProcess, index.getFlowElement("subprocess1"));
+    assertSame(nestedUserTask, index.getFlowElement("usertask2"));
+    assertSame(textAnnotation, index.getArtifact("textannotation1"));
+  }
+
+  @Test
+  public void flowElementsAndArtifactsAreKeptApart() {
+    assertNull(index.getArtifact("usertask1"));
+    assertNull(index.getFlowElement("textannotation1"));
+    assertNull(index.getFlowElement("unknown"));
+  }
+
+  @Test
+  public void findsAddedElementsWithTheirContent() {
+    index.getFlowElement("usertask1");
+
+    final SubProcess added = new SubProcess();
+    added.setId("subprocess2");
+    final UserTask addedUserTask = createUserTask("usertask3");
+    added.addFlowElement(addedUserTask);
+    process.addFlowElement(added);
+    index.add(added, process);
+
+    assertSame(added, index.getFlowElement("subprocess2"));
+    assertSame(addedUserTask, index.getFlowElement("usertask3"));
+  }
+
+  @Test
+  public void forgetsRemovedElementsWithTheirContent() {
+    index.getFlowElement("usertask1");
+
+    process.removeFlowElement("subprocess1");
+    index.remove(subProcess);
+
+    assertNull(index.getFlowElement("subprocess1"));
+    assertNull(index.getFlowElement("usertask2"));
+    assertSame(userTask, index.getFlowElement("usertask1"));
+  }
+
+  @Test
+  public void doesNotReturnAnElementUnderAnOldId() {
+    index.getFlowElement("usertask1");
+
+    userTask.setId("usertask9");
+
+    assertNull(index.getFlowElement("usertask1"));
+    assertSame(userTask, index.getFlowElement("usertask9"));
+  }
+
+  @Test
+  public void findsElementsAddedToTheModelWithoutTheIndex() {
+    index.getFlowElement("usertask1");
+
+    final UserTask added = createUserTask("usertask3");
+    subProcess.addFlowElement(added);
+
+    assertSame(added, index.getFlowElement("usertask3"));
+  }
+
+  @Test
+  public void findsTheParentContainer() {
+    assertSame(process, index.getParentContainer("usertask1"));
+    assertSame(subProcess, index.getParentContainer("usertask2"));
+    assertSame(process, index.getParentContainer("textannotation1"));
+    assertNull(index.getParentContainer("unknown"));
+  }
+
+  @Test
+  public void findsTheParentContainerOfAMovedElement() {
+    index.getParentContainer("usertask1");
+
+    process.removeFlowElement("usertask1");
+    subProcess.addFlowElement(userTask);
+
+    assertSame(subProcess, index.getParentContainer("usertask1"));
+  }
+
+  @Test
+  public void findsTheAssociationsOfAnElement() {
+    final Association association = new Association();
+    association.setId("association1");
+    association.setSourceRef("textannotation1");
+    association.setTargetRef("usertask2");
+    process.addArtifact(association);
+    index.add(association, process);
+
+    assertEquals(Collections.singletonList(association), index.getAssociations("usertask2"));
+    assertEquals(Collections.singletonList(association), index.getAssociations("textannotation1"));
+    assertEquals(Collections.emptyList(), index.getAssociations("usertask1"));
+  }
+
+  @Test
+  public void findsAnIdThatWasMissingOnceTheModelChanged() {
+    assertNull(index.getFlowElement("usertask3"));
+
+    final UserTask added = createUserTask("usertask3");
+    subProcess.addFlowElement(added);
+    model.getValidationChangeTracker().markChanged(added);
+
+    assertSame(added, index.getFlowElement("usertask3"));
+  }
+
+  @Test
+  public void findsAMissingIdOnceItIsAdded() {
+    assertNull(index.getFlowElement("usertask3"));
+
+    final UserTask added = createUserTask("usertask3");
+    subProcess.addFlowElement(added);
+    index.add(added, subProcess);
+
+    assertSame(added, index.getFlowElement("usertask3"));
+  }
+
+  @Test
+  public void indexesAnotherBpmnModel() {
+    index.getFlowElement("usertask1");
+
+    model.setBpmnModel(new BpmnModel());
+
+    assertNull(index.getFlowElement("usertask1"));
+  }
+
+  @Test
+  public void findsNothingWithoutABpmnModel() {
+    model.setBpmnModel(null);
+
+    assertNull(index.getFlowElement("usertask1"));
+    assertNull(index.getArtifact("textannotation1"));
+  }
+
+  private UserTask createUserTask(final String id) {
+    final UserTask userTask = new UserTask();
+    userTask.setId(id);
+    return userTask;
+  }
+}
@@ -0,0 +1,120 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.util.editor;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.activiti.bpmn.model.BpmnModel;
+import org.activiti.bpmn.model.Lane;
+import org.activiti.bpmn.model.Pool;
+import org.activiti.bpmn.model.Process;
+import org.activiti.bpmn.model.SubProcess;
+import org.activiti.bpmn.model.TextAnnotation;
+import org.activiti.bpmn.model.UserTask;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IdAllocatorTest {
+
+  private BpmnMemoryModel model;
+  private IdAllocator allocator;
+
+  @Before
+  public void setUp() {
+    model = new BpmnMemoryModel(null, null);
+    model.setBpmnModel(createBpmnModel());
+    allocator = model.getIdAllocator();
+  }
+
+  @Test
+  public void nextIdContinuesAfterTheHighestNumberInTheModel() {
+    assertEquals("usertask8", allocator.nextId("usertask"));
+    assertEquals("usertask9", allocator.nextId("usertask"));
+    assertEquals("subprocess3", allocator.nextId("subprocess"));
+    assertEquals("textannotation5", allocator.nextId("textannotation"));
+    assertEquals("pool2", allocator.nextId("pool"));
+    assertEquals("lane4", allocator.nextId("lane"));
+    assertEquals("process2", allocator.nextId("process"));
+  }
+
+  @Test
+  public void nextIdStartsAtOneForAnUnusedPrefix() {
+    assertEquals("servicetask1", allocator.nextId("servicetask"));
+  }
+
+  @Test
+  public void reserveHandsOutAConsecutiveRange() {
+    assertEquals(Arrays.asList("usertask8", "usertask9", "usertask10"), allocator.reserve("usertask", 3));
+    assertEquals("usertask11", allocator.nextId("usertask"));
+  }
+
+  @Test
+  public void registeredIdsAreNotHandedOut() {
+    allocator.seed();
+    allocator.register("usertask20");
+    allocator.register("usertask12");
+
+    assertEquals("usertask21", allocator.nextId("usertask"));
+  }
+
+  @Test
+  public void idsWithoutOrWithTooLargeANumberAreIgnored() {
+    allocator.seed();
+    allocator.register("usertask");
+    allocator.register("usertask99999999999");
+
+    assertEquals("usertask8", allocator.nextId("usertask"));
+  }
+
+  @Test
+  public void anotherBpmnModelIsSeededAgain() {
+    assertEquals("usertask8", allocator.nextId("usertask"));
+
+    model.setBpmnModel(new BpmnModel());
+
+    assertEquals("usertask1", allocator.nextId("usertask"));
+  }
+
+  private BpmnModel createBpmnModel() {
+    final BpmnModel bpmnModel = new BpmnModel();
+    final Pool pool = new Pool();
+    pool.setId("pool1");
+    bpmnModel.getPools().add(pool);
+
+    final Process process = new Process();
+    process.setId("process1");
+    final Lane lane = new Lane();
+    lane.setId("lane3");
+    process.getLanes().add(lane);
+    process.addFlowElement(createUserTask("usertask2"));
+    final TextAnnotation textAnnotation = new TextAnnotation();
+    textAnnotation.setId("textannotation4");
+    process.addArtifact(textAnnotation);
+
+    final SubProcess subProcess = new SubProcess();
+    subProcess.setId("subprocess2");
+    subProcess.addFlowElement(createUserTask("usertask7"));
+    process.addFlowElement(subProcess);
+    bpmnModel.addProcess(process);
+    return bpmnModel;
+  }
+
+  private UserTask createUserTask(final String id) {
+    final UserTask userTask = new UserTask();
+    userTask.setId(id);
+    return userTask;
+  }
+}
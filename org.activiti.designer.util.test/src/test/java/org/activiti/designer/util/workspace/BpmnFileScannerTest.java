@@ -0,0 +1,171 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.util.workspace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BpmnFileScannerTest {
+
+  private static final String DEFINITIONS_START = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+          + "<definitions xmlns=\"http://www.omg.org/spec/BPMN/20100524/MODEL\" xmlns:activiti=\"http://activiti.org/bpmn\""
+          + " xmlns:bpmndi=\"http://www.omg.org/spec/BPMN/20100524/DI\">\n";
+
+  private static final String DEFINITIONS_END = "</definitions>\n";
+
+  private static final String DIAGRAM = "<bpmndi:BPMNDiagram id=\"BPMNDiagram_invoice\">\n"
+          + "<bpmndi:BPMNPlane bpmnElement=\"invoice\" id=\"BPMNPlane_invoice\">\n"
+          + "<bpmndi:BPMNShape bpmnElement=\"callactivity1\" id=\"BPMNShape_callactivity1\"/>\n"
+          + "<message name=\"notAMessage\"/>\n"
+          + "</bpmndi:BPMNPlane>\n"
+          + "</bpmndi:BPMNDiagram>\n";
+
+  private IProject project;
+
+  @Before
+  public void setUp() throws CoreException {
+    project = ResourcesPlugin.getWorkspace().getRoot().getProject(getClass().getSimpleName());
+    if (!project.exists()) {
+      project.create(null);
+    }
+    project.open(null);
+  }
+
+  @After
+  public void tearDown() throws CoreException {
+    project.delete(true, true, null);
+  }
+
+  @Test
+  public void readsTheSymbolsOfTheProcesses() throws Exception {
+    final IFile file = createFile("invoice.bpmn", DEFINITIONS_START
+            + "<message id=\"message1\" name=\"invoiceReceived\"/>\n"
+            + "<signal id=\"signal1\" name=\"cancel\"/>\n"
+            + "<process id=\"invoice\" name=\"Invoice\">\n"
+            + "<startEvent id=\"startevent1\" activiti:formKey=\"invoice.form\"/>\n"
+            + "<callActivity id=\"callactivity1\" calledElement=\"payment\"/>\n"
+            + "<callActivity id=\"callactivity2\"/>\n"
+            + "</process>\n"
+            + "<process id=\"archive\">\n"
+            + "<callActivity id=\"callactivity3\" calledElement=\"payment\"/>\n"
+            + "</process>\n"
+            + DIAGRAM + DEFINITIONS_END);
+
+    final BpmnFileSummary summary = BpmnFileScanner.scan(file);
+
+    assertEquals(Arrays.asList("invoice", "archive"), Arrays.asList(summary.getProcessIds().toArray()));
+    assertEquals("Invoice", summary.getProcessNames().get("invoice"));
+    assertEquals(Collections.singleton("payment"), summary.getCalledElements());
+    assertEquals(2, summary.getCallActivities().size());
+    assertEquals("invoice", summary.getCallActivities().get(0).getProcessId());
+    assertEquals("callactivity1", summary.getCallActivities().get(0).getCallActivityId());
+    assertEquals("archive", summary.getCallActivities().get(1).getProcessId());
+    assertEquals(Collections.singleton("invoiceReceived"), summary.getMessageNames());
+    assertEquals(Collections.singleton("cancel"), summary.getSignalNames());
+    assertEquals(Collections.singleton("invoice.form"), summary.getFormKeys());
+  }
+
+  @Test
+  public void stopsAtTheDiagramAfterTheProcesses() throws Exception {
+    // nothing after the diagram is read, not even the broken markup
+    final IFile file = createFile("invoice.bpmn", DEFINITIONS_START
+            + "<process id=\"invoice\"/>\n"
+            + DIAGRAM
+            + "<signal id=\"signal1\" name=\"afterTheDiagram\"/>\n"
+            + "<broken");
+
+    final BpmnFileSummary summary = BpmnFileScanner.scan(file);
+
+    assertEquals(Collections.singleton("invoice"), summary.getProcessIds());
+    assertTrue(summary.getSignalNames().isEmpty());
+  }
+
+  @Test
+  public void skipsTheDiagramBeforeTheProcesses() throws Exception {
+    final IFile file = createFile("invoice.bpmn", DEFINITIONS_START
+            + DIAGRAM
+            + "<process id=\"invoice\">\n"
+            + "<callActivity id=\"callactivity1\" calledElement=\"payment\"/>\n"
+            + "</process>\n"
+            + DEFINITIONS_END);
+
+    final BpmnFileSummary summary = BpmnFileScanner.scan(file);
+
+    assertEquals(Collections.singleton("invoice"), summary.getProcessIds());
+    assertEquals(Collections.singleton("payment"), summary.getCalledElements());
+    assertTrue(summary.getMessageNames().isEmpty());
+  }
+
+  @Test
+  public void keepsWhatWasReadBeforeAnError() throws Exception {
+    final IFile file = createFile("invoice.bpmn", DEFINITIONS_START
+            + "<process id=\"invoice\">\n"
+            + "<callActivity id=\"callactivity1\" calledElement=\"payment\"/>\n"
+            + "<broken");
+
+    final BpmnFileSummary summary = BpmnFileScanner.scan(file);
+
+    assertEquals(Collections.singleton("invoice"), summary.getProcessIds());
+    assertEquals(Collections.singleton("payment"), summary.getCalledElements());
+  }
+
+  @Test
+  public void scansFilesInParallel() throws Exception {
+    final IFile invoice = createFile("invoice.bpmn", DEFINITIONS_START + "<process id=\"invoice\"/>\n" + DEFINITIONS_END);
+    final IFile payment = createFile("payment.bpmn", DEFINITIONS_START + "<process id=\"payment\"/>\n" + DEFINITIONS_END);
+
+    final Map<IFile, BpmnFileSummary> summaries = BpmnFileScanner.scanAll(Arrays.asList(invoice, payment));
+
+    assertEquals(2, summaries.size());
+    assertEquals(Collections.singleton("invoice"), summaries.get(invoice).getProcessIds());
+    assertEquals(Collections.singleton("payment"), summaries.get(payment).getProcessIds());
+  }
+
+  @Test
+  public void leavesOutTheFilesThatWereNotScannedWhenInterrupted() throws Exception {
+    final IFile invoice = createFile("invoice.bpmn", DEFINITIONS_START + "<process id=\"invoice\"/>\n" + DEFINITIONS_END);
+    final IFile payment = createFile("payment.bpmn", DEFINITIONS_START + "<process id=\"payment\"/>\n" + DEFINITIONS_END);
+
+    Thread.currentThread().interrupt();
+    try {
+      final Map<IFile, BpmnFileSummary> summaries = BpmnFileScanner.scanAll(Arrays.asList(invoice, payment));
+
+      assertTrue(Thread.currentThread().isInterrupted());
+      assertFalse(summaries.containsValue(null));
+    } finally {
+      Thread.interrupted();
+    }
+  }
+
+  private IFile createFile(final String name, final String content) throws CoreException, UnsupportedEncodingException {
+    final IFile file = project.getFile(name);
+    file.create(new ByteArrayInputStream(content.getBytes("UTF-8")), true, null);
+    return file;
+  }
+}
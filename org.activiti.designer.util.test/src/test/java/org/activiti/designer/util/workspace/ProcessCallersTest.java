@@ -0,0 +1,133 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.util.workspace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.Path;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProcessCallersTest {
+
+  private Map<String, Set<IFile>> callerFilesByCalledElement;
+  private Map<IFile, ProcessIndexStore.Entry> entriesByFile;
+
+  @Before
+  public void setUp() {
+    callerFilesByCalledElement = new HashMap<String, Set<IFile>>();
+    entriesByFile = new HashMap<IFile, ProcessIndexStore.Entry>();
+  }
+
+  @Test
+  public void findsDirectAndTransitiveCallers() {
+    final IFile order = addFile("order.bpmn", "order", "payment");
+    addFile("audit.bpmn", "audit", "order");
+    addFile("payment.bpmn", "payment", "notification");
+
+    final ProcessCallers callers = ProcessCallers.find("payment", callerFilesByCalledElement, entriesByFile);
+
+    assertEquals(Collections.singleton(order), callers.getCallActivities().keySet());
+    assertEquals("callorder", callers.getCallActivities().get(order).get(0).getCallActivityId());
+    assertEquals(new HashSet<String>(Arrays.asList("order", "audit")), callers.getTransitiveCallers());
+    assertTrue(callers.getCallCycle().isEmpty());
+  }
+
+  @Test
+  public void findsNoCallersOfAProcessNobodyCalls() {
+    addFile("order.bpmn", "order", "payment");
+
+    final ProcessCallers callers = ProcessCallers.find("order", callerFilesByCalledElement, entriesByFile);
+
+    assertTrue(callers.getCallActivities().isEmpty());
+    assertTrue(callers.getTransitiveCallers().isEmpty());
+    assertTrue(callers.getCallCycle().isEmpty());
+  }
+
+  @Test
+  public void findsTheShortestCycle() {
+    // payment -> fraudcheck -> payment and payment -> ledger -> archive -> payment
+    addFile("payment.bpmn", "payment", "ledger", "fraudcheck");
+    addFile("ledger.bpmn", "ledger", "archive");
+    addFile("archive.bpmn", "archive", "payment");
+    addFile("fraudcheck.bpmn", "fraudcheck", "payment");
+    addFile("order.bpmn", "order", "payment");
+
+    final ProcessCallers callers = ProcessCallers.find("payment", callerFilesByCalledElement, entriesByFile);
+
+    assertEquals(Arrays.asList("payment", "fraudcheck", "payment"), callers.getCallCycle());
+    assertEquals(new HashSet<String>(Arrays.asList("payment", "ledger", "archive", "fraudcheck", "order")),
+            callers.getTransitiveCallers());
+    assertEquals(3, callers.getCallActivities().size());
+  }
+
+  @Test
+  public void findsAProcessThatCallsItself() {
+    addFile("retry.bpmn", "retry", "retry");
+
+    final ProcessCallers callers = ProcessCallers.find("retry", callerFilesByCalledElement, entriesByFile);
+
+    assertEquals(Arrays.asList("retry", "retry"), callers.getCallCycle());
+    assertEquals(Collections.singleton("retry"), callers.getTransitiveCallers());
+  }
+
+  @Test
+  public void listsOnlyTheCallActivitiesOfTheProcess() {
+    final IFile order = addFile("order.bpmn", "order", "payment", "shipping", "payment");
+
+    final ProcessCallers callers = ProcessCallers.find("payment", callerFilesByCalledElement, entriesByFile);
+
+    final List<CallActivityReference> callActivities = callers.getCallActivities().get(order);
+    assertEquals(2, callActivities.size());
+    for (final CallActivityReference callActivity : callActivities) {
+      assertEquals("payment", callActivity.getCalledElement());
+    }
+  }
+
+  /**
+   * Adds a file with one process whose call activities call the given processes, the way the
+   * {@link WorkspaceProcessIndex} indexes it.
+   */
+  private IFile addFile(final String name, final String processId, final String... calledElements) {
+    final IFile file = ResourcesPlugin.getWorkspace().getRoot().getFile(new Path("/project/" + name));
+    final BpmnFileSummary summary = new BpmnFileSummary();
+    summary.addProcess(processId, null);
+    for (final String calledElement : calledElements) {
+      summary.addCallActivity(processId, "call" + processId, calledElement);
+    }
+    entriesByFile.put(file, new ProcessIndexStore.Entry(1L, 1L, summary));
+
+    for (final String calledElement : summary.getCalledElements()) {
+      Set<IFile> files = callerFilesByCalledElement.get(calledElement);
+      if (files == null) {
+        files = new LinkedHashSet<IFile>();
+        callerFilesByCalledElement.put(calledElement, files);
+      }
+      files.add(file);
+    }
+    return file;
+  }
+}
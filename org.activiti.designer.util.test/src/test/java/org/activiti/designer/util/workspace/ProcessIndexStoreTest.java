@@ -0,0 +1,166 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.util.workspace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProcessIndexStoreTest {
+
+  private static final int MAGIC = 0x41435049;
+
+  private File directory;
+  private File file;
+  private ProcessIndexStore store;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = File.createTempFile("processindex", "");
+    directory.delete();
+    file = new File(directory, "index.dat");
+    store = new ProcessIndexStore(file);
+  }
+
+  @After
+  public void tearDown() {
+    final File[] files = directory.listFiles();
+    if (files != null) {
+      for (final File child : files) {
+        child.delete();
+      }
+    }
+    directory.delete();
+  }
+
+  @Test
+  public void loadsWhatWasSaved() throws IOException {
+    final BpmnFileSummary summary = new BpmnFileSummary();
+    summary.addProcess("invoice", "Invoice");
+    summary.addProcess("unnamed", null);
+    summary.addCallActivity("invoice", "callactivity1", "payment");
+    summary.addCallActivity(null, null, "archive");
+    summary.addMessageName("invoiceReceived");
+    summary.addSignalName("cancel");
+    summary.addFormKey("invoice.form");
+    final Map<String, ProcessIndexStore.Entry> entries = new HashMap<String, ProcessIndexStore.Entry>();
+    entries.put("/project/invoice.bpmn", new ProcessIndexStore.Entry(3L, 1234L, summary));
+    entries.put("/project/empty.bpmn", new ProcessIndexStore.Entry(1L, 5678L, new BpmnFileSummary()));
+
+    store.save(entries);
+    final Map<String, ProcessIndexStore.Entry> loaded = store.load();
+
+    assertEquals(entries.keySet(), loaded.keySet());
+    final ProcessIndexStore.Entry entry = loaded.get("/project/invoice.bpmn");
+    assertEquals(3L, entry.modificationStamp);
+    assertEquals(1234L, entry.localTimeStamp);
+    assertEquals(summary.getProcessNames(), entry.summary.getProcessNames());
+    assertNull(entry.summary.getProcessNames().get("unnamed"));
+    assertEquals(2, entry.summary.getCallActivities().size());
+    final CallActivityReference callActivity = entry.summary.getCallActivities().get(0);
+    assertEquals("invoice", callActivity.getProcessId());
+    assertEquals("callactivity1", callActivity.getCallActivityId());
+    assertEquals("payment", callActivity.getCalledElement());
+    final CallActivityReference anonymousCallActivity = entry.summary.getCallActivities().get(1);
+    assertNull(anonymousCallActivity.getProcessId());
+    assertNull(anonymousCallActivity.getCallActivityId());
+    assertEquals(new LinkedHashSet<String>(Arrays.asList("payment", "archive")), entry.summary.getCalledElements());
+    assertEquals(Collections.singleton("invoiceReceived"), entry.summary.getMessageNames());
+    assertEquals(Collections.singleton("cancel"), entry.summary.getSignalNames());
+    assertEquals(Collections.singleton("invoice.form"), entry.summary.getFormKeys());
+    assertTrue(loaded.get("/project/empty.bpmn").summary.getProcessIds().isEmpty());
+  }
+
+  @Test
+  public void saveReplacesTheStoredEntries() throws IOException {
+    store.save(Collections.singletonMap("/project/old.bpmn", new ProcessIndexStore.Entry(1L, 1L, new BpmnFileSummary())));
+    store.save(Collections.singletonMap("/project/new.bpmn", new ProcessIndexStore.Entry(2L, 2L, new BpmnFileSummary())));
+
+    assertEquals(Collections.singleton("/project/new.bpmn"), store.load().keySet());
+    assertEquals(1, directory.list().length);
+  }
+
+  @Test
+  public void loadsNothingWithoutAFile() {
+    assertTrue(store.load().isEmpty());
+  }
+
+  @Test
+  public void ignoresAFileOfAnotherVersion() throws IOException {
+    store.save(Collections.singletonMap("/project/invoice.bpmn", new ProcessIndexStore.Entry(1L, 1L, new BpmnFileSummary())));
+
+    writeHeader(MAGIC, 1);
+
+    assertTrue(store.load().isEmpty());
+  }
+
+  @Test
+  public void ignoresAFileThatIsNoIndex() throws IOException {
+    writeHeader(0x3C3F786D, 2);
+
+    assertTrue(store.load().isEmpty());
+  }
+
+  @Test
+  public void ignoresATruncatedFile() throws IOException {
+    directory.mkdirs();
+    final DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+    try {
+      out.writeInt(MAGIC);
+      out.writeInt(2);
+      out.writeInt(1);
+      out.writeUTF("/project/invoice.bpmn");
+    } finally {
+      out.close();
+    }
+
+    assertTrue(store.load().isEmpty());
+  }
+
+  @Test
+  public void readsTheBackupIfTheFileIsMissing() throws IOException {
+    store.save(Collections.singletonMap("/project/invoice.bpmn", new ProcessIndexStore.Entry(1L, 1L, new BpmnFileSummary())));
+    assertTrue(file.renameTo(new File(directory, "index.dat.bak")));
+    assertFalse(file.exists());
+
+    assertEquals(Collections.singleton("/project/invoice.bpmn"), store.load().keySet());
+  }
+
+  private void writeHeader(final int magic, final int version) throws IOException {
+    directory.mkdirs();
+    final DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+    try {
+      out.writeInt(magic);
+      out.writeInt(version);
+      out.writeInt(0);
+    } finally {
+      out.close();
+    }
+  }
+}
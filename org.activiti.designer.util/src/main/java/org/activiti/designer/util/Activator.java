@@ -13,6 +13,7 @@
  */
 package org.activiti.designer.util;
 
+import org.activiti.designer.util.workspace.WorkspaceProcessIndex;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
 import org.osgi.framework.BundleContext;
 
@@ -40,6 +41,8 @@ public class Activator extends AbstractUIPlugin {
 	public void start(BundleContext context) throws Exception {
 		super.start(context);
 		plugin = this;
+		// the workspace is scanned in the background, so the index is complete by the time it is needed
+		WorkspaceProcessIndex.getDefault();
 	}
 
 	/*
@@ -47,6 +50,7 @@ public class Activator extends AbstractUIPlugin {
 	 * @see org.eclipse.ui.plugin.AbstractUIPlugin#stop(org.osgi.framework.BundleContext)
 	 */
 	public void stop(BundleContext context) throws Exception {
+		WorkspaceProcessIndex.shutdown();
 		plugin = null;
 		super.stop(context);
 	}
@@ -0,0 +1,116 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The pool of threads the Designer uses to do work in parallel, for instance to scan files or to
+ * validate a diagram. All callers share a thread per processor, and the threads end when they are
+ * idle for a while. A task that is handed in from one of the threads of the pool is run right away
+ * in that thread, so a task that waits for others can not block the pool.
+ */
+public final class SharedExecutor {
+
+  private static final ThreadPoolExecutor POOL;
+
+  private static final Executor EXECUTOR = new Executor() {
+
+    @Override
+    public void execute(Runnable command) {
+      if (Thread.currentThread() instanceof PoolThread) {
+        command.run();
+      } else {
+        POOL.execute(command);
+      }
+    }
+  };
+
+  static {
+    final int threadCount = Runtime.getRuntime().availableProcessors();
+    POOL = new ThreadPoolExecutor(threadCount, threadCount, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+      @Override
+      public Thread newThread(Runnable runnable) {
+        final Thread thread = new PoolThread(runnable);
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    POOL.allowCoreThreadTimeOut(true);
+  }
+
+  private SharedExecutor() {
+  }
+
+  /**
+   * @return the executor that runs tasks in the pool, for instance for a
+   *         {@link java.util.concurrent.CompletionService}
+   */
+  public static Executor getExecutor() {
+    return EXECUTOR;
+  }
+
+  /**
+   * Runs the tasks in parallel and waits until all of them are done. When the caller is
+   * interrupted, the tasks that are not done yet are cancelled.
+   *
+   * @param tasks
+   *          the tasks to run
+   * @return the results of the tasks, in the order of the tasks
+   * @throws InterruptedException
+   *           if the caller was interrupted while waiting
+   */
+  public static <T> List<Future<T>> invokeAll(final Collection<? extends Callable<T>> tasks) throws InterruptedException {
+    final List<Future<T>> results = new ArrayList<Future<T>>(tasks.size());
+    try {
+      for (final Callable<T> task : tasks) {
+        final FutureTask<T> result = new FutureTask<T>(task);
+        results.add(result);
+        EXECUTOR.execute(result);
+      }
+
+      for (final Future<T> result : results) {
+        try {
+          result.get();
+        } catch (ExecutionException e) {
+          // left to the caller
+        }
+      }
+      return results;
+    } finally {
+      for (final Future<T> result : results) {
+        result.cancel(true);
+      }
+    }
+  }
+
+  private static final class PoolThread extends Thread {
+
+    PoolThread(final Runnable runnable) {
+      super(runnable, "Activiti Designer worker");
+    }
+  }
+}
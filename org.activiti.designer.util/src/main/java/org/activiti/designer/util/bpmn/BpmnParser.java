@@ -0,0 +1,68 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.util.bpmn;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamReader;
+
+import org.activiti.bpmn.BpmnAutoLayout;
+import org.activiti.bpmn.converter.BpmnXMLConverter;
+import org.activiti.bpmn.model.BpmnModel;
+
+/**
+ * Parses BPMN XML the way the editor opens a file. Only uses the BPMN converter and layout, so it
+ * also runs without a workbench.
+ */
+public final class BpmnParser {
+
+  private BpmnParser() {
+
+  }
+
+  /**
+   * Parses the XML into a new model and lays the model out if it has no diagram interchange
+   * information. Content that can not be parsed gives an empty model.
+   *
+   * @param userTaskFormTypes
+   *          the form types of user tasks, may be null
+   * @param startEventFormTypes
+   *          the form types of start events, may be null
+   */
+  public static BpmnModel parse(final byte[] content, final List<String> userTaskFormTypes, final List<String> startEventFormTypes)
+          throws Exception {
+
+    XMLInputFactory xif = XMLInputFactory.newInstance();
+    InputStreamReader in = new InputStreamReader(new ByteArrayInputStream(content), "UTF-8");
+    XMLStreamReader xtr = xif.createXMLStreamReader(in);
+    BpmnXMLConverter bpmnConverter = new BpmnXMLConverter();
+    bpmnConverter.setUserTaskFormTypes(userTaskFormTypes);
+    bpmnConverter.setStartEventFormTypes(startEventFormTypes);
+    BpmnModel bpmnModel = null;
+    try {
+      bpmnModel = bpmnConverter.convertToBpmnModel(xtr);
+    } catch (Exception e) {
+      bpmnModel = new BpmnModel();
+    }
+
+    if (bpmnModel.getLocationMap().size() == 0) {
+      BpmnAutoLayout layout = new BpmnAutoLayout(bpmnModel);
+      layout.execute();
+    }
+    return bpmnModel;
+  }
+}
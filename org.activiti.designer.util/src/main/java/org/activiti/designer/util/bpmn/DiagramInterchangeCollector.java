@@ -0,0 +1,228 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.util.bpmn;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.activiti.bpmn.model.Activity;
+import org.activiti.bpmn.model.Artifact;
+import org.activiti.bpmn.model.Association;
+import org.activiti.bpmn.model.BaseElement;
+import org.activiti.bpmn.model.BoundaryEvent;
+import org.activiti.bpmn.model.BpmnModel;
+import org.activiti.bpmn.model.DataObject;
+import org.activiti.bpmn.model.FlowElement;
+import org.activiti.bpmn.model.GraphicInfo;
+import org.activiti.bpmn.model.Lane;
+import org.activiti.bpmn.model.MessageFlow;
+import org.activiti.bpmn.model.Pool;
+import org.activiti.bpmn.model.Process;
+import org.activiti.bpmn.model.SequenceFlow;
+import org.activiti.bpmn.model.SubProcess;
+
+/**
+ * Rebuilds the diagram interchange information of a model from a diagram. This class walks the
+ * model and keeps it in line with the diagram; how an element is found on the diagram and how its
+ * graphic info is computed is left to the subclass. Does not need a workbench.
+ */
+public abstract class DiagramInterchangeCollector {
+
+  /**
+   * @return the model the graphic info is written to
+   */
+  protected abstract BpmnModel getBpmnModel();
+
+  /**
+   * @return true if the element is drawn on the diagram
+   */
+  protected abstract boolean isDrawn(BaseElement element);
+
+  /**
+   * Adds the graphic info of a shape to the model.
+   */
+  protected abstract void updateFlowElement(BaseElement flowElement);
+
+  protected abstract void updateSequenceFlow(SequenceFlow sequenceFlow);
+
+  protected abstract void updateMessageFlow(MessageFlow messageFlow);
+
+  protected abstract void updateAssociation(Association association);
+
+  /**
+   * Called for an element that was removed from the model because it is not drawn.
+   */
+  protected abstract void removeBusinessObject(BaseElement element);
+
+  /**
+   * Computes the graphic info of all elements again. Elements that are not drawn are removed from
+   * the model, except for data objects.
+   */
+  protected void processAllElements() throws Exception {
+    final BpmnModel bpmnModel = getBpmnModel();
+    bpmnModel.getFlowLocationMap().clear();
+    bpmnModel.getLocationMap().clear();
+    bpmnModel.getLabelLocationMap().clear();
+    List<Pool> toDeletePoolList = new ArrayList<Pool>();
+    for (Pool pool : bpmnModel.getPools()) {
+      if (isDrawn(pool)) {
+        updateFlowElement(pool);
+
+        Process process = bpmnModel.getProcess(pool.getId());
+        if (process != null) {
+          List<Lane> toDeleteLaneList = new ArrayList<Lane>();
+          for (Lane lane : process.getLanes()) {
+            if (isDrawn(lane)) {
+              updateFlowElement(lane);
+            } else {
+              toDeleteLaneList.add(lane);
+            }
+          }
+
+          for (Lane toDeleteLane : toDeleteLaneList) {
+            process.getLanes().remove(toDeleteLane);
+            bpmnModel.removeGraphicInfo(toDeleteLane.getId());
+            removeBusinessObject(toDeleteLane);
+          }
+        }
+      } else {
+        toDeletePoolList.add(pool);
+      }
+    }
+
+    for (Pool toDeletePool : toDeletePoolList) {
+      bpmnModel.getPools().remove(toDeletePool);
+      bpmnModel.removeGraphicInfo(toDeletePool.getId());
+      removeBusinessObject(toDeletePool);
+    }
+
+    for (MessageFlow messageFlow : bpmnModel.getMessageFlows().values()) {
+      updateMessageFlow(messageFlow);
+    }
+
+    for (Process process : bpmnModel.getProcesses()) {
+      loopThroughElements(process.getFlowElements(), process);
+      loopThroughElements(process.getArtifacts(), process);
+    }
+  }
+
+  protected void loopThroughElements(Collection<? extends BaseElement> elementList, BaseElement parentElement) throws Exception {
+
+    List<BaseElement> toDeleteElementList = new ArrayList<BaseElement>();
+
+    for (BaseElement element : elementList) {
+
+      if (isDrawn(element)) {
+        if (element instanceof SequenceFlow) {
+          updateSequenceFlow((SequenceFlow) element);
+        } else if (element instanceof FlowElement) {
+          updateFlowElement(element);
+          if (element instanceof SubProcess) {
+            SubProcess subProcess = (SubProcess) element;
+            loopThroughElements(subProcess.getFlowElements(), subProcess);
+            loopThroughElements(subProcess.getArtifacts(), subProcess);
+          }
+          if (element instanceof Activity) {
+            Activity activity = (Activity) element;
+            for (BoundaryEvent boundaryEvent : activity.getBoundaryEvents()) {
+              updateFlowElement(boundaryEvent);
+            }
+          }
+        } else if (element instanceof Artifact) {
+          if (element instanceof Association) {
+            updateAssociation((Association) element);
+          } else {
+            updateFlowElement(element);
+          }
+        }
+      } else {
+        // not drawn so delete it from the model as well, except for Data Objects
+        if (element instanceof DataObject == false) {
+          toDeleteElementList.add(element);
+        }
+      }
+    }
+
+    for (BaseElement toDeleteElement : toDeleteElementList) {
+      if (parentElement instanceof Process) {
+        ((Process) parentElement).removeFlowElement(toDeleteElement.getId());
+      } else if (parentElement instanceof SubProcess) {
+        ((SubProcess) parentElement).removeFlowElement(toDeleteElement.getId());
+      } else {
+        continue;
+      }
+      getBpmnModel().removeGraphicInfo(toDeleteElement.getId());
+      getBpmnModel().removeFlowGraphicInfoList(toDeleteElement.getId());
+      getBpmnModel().removeLabelGraphicInfo(toDeleteElement.getId());
+      removeBusinessObject(toDeleteElement);
+    }
+  }
+
+  /**
+   * Moves all graphic info to the right and down if some of it has negative coordinates.
+   *
+   * @return true if the graphic info was moved
+   */
+  protected boolean moveIntoPositiveArea() {
+    final BpmnModel bpmnModel = getBpmnModel();
+    double minX = 0.0;
+    double minY = 0.0;
+    // check if there are negative x and/or y positions
+    for (GraphicInfo graphicInfo : bpmnModel.getLocationMap().values()) {
+      if (minX > graphicInfo.getX()) {
+        minX = graphicInfo.getX();
+      }
+      if (minY > graphicInfo.getY()) {
+        minY = graphicInfo.getY();
+      }
+    }
+
+    if (minX < 0 || minY < 0) {
+      double changeX = 0.0;
+      if (minX < 0.0) {
+        changeX = 0.0 - minX + 1;
+      }
+      double changeY = 0.0;
+      if (minY < 0.0) {
+        changeY = 0.0 - minY + 1;
+      }
+
+      for (GraphicInfo graphicInfo : bpmnModel.getLocationMap().values()) {
+        move(graphicInfo, changeX, changeY);
+      }
+
+      for (List<GraphicInfo> graphicInfoList : bpmnModel.getFlowLocationMap().values()) {
+        for (GraphicInfo graphicInfo : graphicInfoList) {
+          move(graphicInfo, changeX, changeY);
+        }
+      }
+
+      for (GraphicInfo graphicInfo : bpmnModel.getLabelLocationMap().values()) {
+        move(graphicInfo, changeX, changeY);
+      }
+      return true;
+    }
+    return false;
+  }
+
+  private static void move(final GraphicInfo graphicInfo, final double changeX, final double changeY) {
+    if (changeX > 0.0) {
+      graphicInfo.setX(graphicInfo.getX() + changeX);
+    }
+    if (changeY > 0.0) {
+      graphicInfo.setY(graphicInfo.getY() + changeY);
+    }
+  }
+}
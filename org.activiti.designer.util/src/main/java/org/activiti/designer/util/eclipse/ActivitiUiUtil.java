@@ -13,22 +13,7 @@
  */
 package org.activiti.designer.util.eclipse;
 
-import java.util.Collection;
-import java.util.List;
-
-import org.activiti.bpmn.model.Activity;
-import org.activiti.bpmn.model.Artifact;
-import org.activiti.bpmn.model.Association;
 import org.activiti.bpmn.model.BaseElement;
-import org.activiti.bpmn.model.BoundaryEvent;
-import org.activiti.bpmn.model.FlowElement;
-import org.activiti.bpmn.model.FlowElementsContainer;
-import org.activiti.bpmn.model.Lane;
-import org.activiti.bpmn.model.MessageFlow;
-import org.activiti.bpmn.model.Pool;
-import org.activiti.bpmn.model.Process;
-import org.activiti.bpmn.model.SubProcess;
-import org.activiti.bpmn.model.TextAnnotation;
 import org.activiti.designer.util.editor.BpmnMemoryModel;
 import org.activiti.designer.util.editor.KickstartProcessMemoryModel;
 import org.activiti.designer.util.editor.ModelHandler;
@@ -215,104 +200,13 @@ public class ActivitiUiUtil {
     }
   }
 
+  /**
+   * @return the next free id for the feature id key, handed out by the
+   *         {@link org.activiti.designer.util.editor.IdAllocator} of the model of the diagram
+   */
   public static final String getNextId(final Class<? extends BaseElement> featureClass, final String featureIdKey, final Diagram diagram) {
     BpmnMemoryModel model = ModelHandler.getModel(EcoreUtil.getURI(diagram));
-    int determinedId = 0;
-    
-    if (featureClass.equals(Pool.class)) {
-      determinedId = loopThroughPools(featureClass, determinedId, model.getBpmnModel().getPools(), featureIdKey);
-    } else {
-    
-      for (Process process : model.getBpmnModel().getProcesses()) {
-          
-        if (featureClass.equals(Lane.class)) {
-          determinedId = loopThroughLanes(featureClass, determinedId, process.getLanes(), featureIdKey);
-        } else if (featureClass.equals(TextAnnotation.class) || featureClass.equals(Association.class)) {
-          determinedId = loopThroughArtifacts(featureClass, determinedId, process, featureIdKey);
-          
-        } else if (featureClass.equals(MessageFlow.class)) {
-          determinedId = loopThroughMessageFlows(determinedId, model.getBpmnModel().getMessageFlows().values(), featureIdKey);
-        } else {
-          determinedId = loopThroughElements(featureClass, determinedId, process.getFlowElements(), featureIdKey);
-        }
-      }
-    }
-    determinedId++;
-    return String.format(ID_PATTERN, featureIdKey, determinedId);
-  }
-  
-  public static int loopThroughPools(final Class<? extends BaseElement> featureClass, int determinedId, 
-      List<Pool> poolList, final String featureIdKey) {
-    
-    for (Pool pool : poolList) {
-      String contentObjectId = pool.getId().replace(featureIdKey, "");
-      determinedId = getId(contentObjectId, determinedId);
-    }
-    return determinedId;
-  }
-  
-  public static int loopThroughLanes(final Class<? extends BaseElement> featureClass, int determinedId, 
-      List<Lane> laneList, final String featureIdKey) {
-    
-    for (Lane lane : laneList) {
-      String contentObjectId = lane.getId().replace(featureIdKey, "");
-      determinedId = getId(contentObjectId, determinedId);
-    }
-    return determinedId;
-  }
-  
-  public static int loopThroughArtifacts(final Class<? extends BaseElement> featureClass, int determinedId, 
-      FlowElementsContainer container, final String featureIdKey) {
-    
-    for (Artifact artifact : container.getArtifacts()) {
-      String contentObjectId = artifact.getId().replace(featureIdKey, "");
-      determinedId = getId(contentObjectId, determinedId);
-    }
-    
-    for (FlowElement element : container.getFlowElements()) {
-      if (element instanceof SubProcess) {
-        determinedId = loopThroughArtifacts(featureClass, determinedId, (SubProcess) element, featureIdKey);
-      }
-    }
-    
-    return determinedId;
-  }
-  
-  public static int loopThroughMessageFlows(int determinedId, Collection<MessageFlow> messageFlowList, 
-      final String featureIdKey) {
-    
-    for (MessageFlow messageFlow : messageFlowList) {
-      String contentObjectId = messageFlow.getId().replace(featureIdKey, "");
-      determinedId = getId(contentObjectId, determinedId);
-    }
-    return determinedId;
-  }
-  
-  public static int loopThroughElements(final Class<? extends BaseElement> featureClass, int determinedId, 
-  		Collection<FlowElement> elementList, final String featureIdKey) {
-  	
-  	for (FlowElement element : elementList) {
-      
-      if (element instanceof SubProcess) {
-      	determinedId = loopThroughElements(featureClass, determinedId, ((SubProcess) element).getFlowElements(), featureIdKey);
-      }
-      
-      if (featureClass == BoundaryEvent.class && element instanceof Activity) {
-      	Activity activity = (Activity) element;
-      	for (BoundaryEvent boundaryEvent : activity.getBoundaryEvents()) {
-      	  if (boundaryEvent.getId() != null) {
-        		String contentObjectId = boundaryEvent.getId().replace(featureIdKey, "");
-            determinedId = getId(contentObjectId, determinedId);
-      	  }
-        }
-      }
-      
-      if (element.getClass() == featureClass) {
-        String contentObjectId = element.getId().replace(featureIdKey, "");
-        determinedId = getId(contentObjectId, determinedId);
-      }
-  	}
-  	return determinedId;
+    return model.getIdAllocator().nextId(featureIdKey);
   }
   
   private static int getId(String contentObjectId, int determinedId) {
@@ -14,13 +14,14 @@
 package org.activiti.designer.util.editor;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.activiti.bpmn.model.Artifact;
+import org.activiti.bpmn.model.BaseElement;
 import org.activiti.bpmn.model.BpmnModel;
 import org.activiti.bpmn.model.FlowElement;
+import org.activiti.bpmn.model.FlowElementsContainer;
 import org.activiti.bpmn.model.Process;
 import org.apache.commons.lang.StringUtils;
 import org.eclipse.core.resources.IFile;
@@ -30,16 +31,26 @@ public class BpmnMemoryModel {
   
     protected IFeatureProvider featureProvider;
     protected IFile modelFile;
-    protected Map<String, Object> objectMap;
+    protected BusinessObjectKeyRegistry keyRegistry;
     protected List<BpmnModelListener> modelListeners;
     protected List<FlowElement> clipboard = new ArrayList<FlowElement>();
     protected BpmnModel bpmnModel;
+    protected PictogramElementIndex pictogramElementIndex;
+    protected IdAllocator idAllocator;
+    protected ElementIdIndex elementIdIndex;
+    protected DirtyElementTracker dirtyElementTracker;
+    protected ValidationChangeTracker validationChangeTracker;
 
     public BpmnMemoryModel(IFeatureProvider featureProvider, IFile modelFile) {
         this.featureProvider = featureProvider;
         this.modelFile = modelFile;
-        objectMap = new HashMap<String, Object>();
+        keyRegistry = new BusinessObjectKeyRegistry();
         modelListeners = new ArrayList<BpmnModelListener>();
+        pictogramElementIndex = new PictogramElementIndex(this);
+        idAllocator = new IdAllocator(this);
+        elementIdIndex = new ElementIdIndex(this);
+        dirtyElementTracker = new DirtyElementTracker();
+        validationChangeTracker = new ValidationChangeTracker();
     }
     
     public void addMainProcess() {
@@ -52,7 +63,7 @@ public class BpmnMemoryModel {
     public FlowElement getFlowElement(String ref) {
       FlowElement element = null;
     if (bpmnModel != null && StringUtils.isNotEmpty(ref)) {
-      element = bpmnModel.getFlowElement(ref);
+      element = elementIdIndex.getFlowElement(ref);
     }
     return element;
     }
@@ -60,10 +71,21 @@ public class BpmnMemoryModel {
     public Artifact getArtifact(String ref) {
     Artifact artifact = null;
     if (bpmnModel != null && StringUtils.isNotEmpty(ref)) {
-      artifact = bpmnModel.getArtifact(ref);
+      artifact = elementIdIndex.getArtifact(ref);
     }
     return artifact;
   }
+  
+  /**
+   * @return the process or subprocess that contains the flow element or artifact with the id
+   */
+  public FlowElementsContainer getParentContainer(String ref) {
+    FlowElementsContainer container = null;
+    if (bpmnModel != null && StringUtils.isNotEmpty(ref)) {
+      container = elementIdIndex.getParentContainer(ref);
+    }
+    return container;
+  }
     
     public IFeatureProvider getFeatureProvider() {
     return featureProvider;
@@ -91,6 +113,31 @@ public class BpmnMemoryModel {
 
   public void setBpmnModel(BpmnModel bpmnModel) {
     this.bpmnModel = bpmnModel;
+    pictogramElementIndex.clear();
+    idAllocator.reset();
+    elementIdIndex.invalidate();
+    dirtyElementTracker.markAllDirty();
+    validationChangeTracker.markAllChanged();
+  }
+  
+  public PictogramElementIndex getPictogramElementIndex() {
+    return pictogramElementIndex;
+  }
+  
+  public IdAllocator getIdAllocator() {
+    return idAllocator;
+  }
+  
+  public ElementIdIndex getElementIdIndex() {
+    return elementIdIndex;
+  }
+  
+  public DirtyElementTracker getDirtyElementTracker() {
+    return dirtyElementTracker;
+  }
+  
+  public ValidationChangeTracker getValidationChangeTracker() {
+    return validationChangeTracker;
   }
   
   public void addModelListener(BpmnModelListener listener) {
@@ -104,27 +151,43 @@ public class BpmnMemoryModel {
   }
   
   public String getKeyForBusinessObject(Object bo) {
-    String result = null;
-    // TODO: Don't use hashcode??
-    if(bo != null) {
-        result = String.valueOf(bo.hashCode());
-        if(!objectMap.containsKey(result)) {
-          objectMap.put(result, bo);
-        }
-    }
-    return result;
+    return keyRegistry.getKey(bo);
   }
   
   public Object getBusinessObjectForKey(String key) {
-    return objectMap.get(key);
+    return keyRegistry.getObject(key);
   }
   
+  /**
+   * Sets the key of a business object that was deleted from the model aside, see
+   * {@link BusinessObjectKeyRegistry#remove(Object)}, and drops its entries in the
+   * {@link PictogramElementIndex} and the {@link ElementIdIndex}.
+   */
+  public void removeBusinessObject(Object bo) {
+    keyRegistry.remove(bo);
+    if (bo instanceof BaseElement) {
+      validationChangeTracker.markChanged((BaseElement) bo);
+      pictogramElementIndex.remove(((BaseElement) bo).getId());
+      elementIdIndex.remove((BaseElement) bo);
+    }
+  }
+  
+  public BusinessObjectKeyRegistry getKeyRegistry() {
+    return keyRegistry;
+  }
+  
+  /**
+   * @return a copy of the registered business objects by key
+   */
   public Map<String, Object> getObjectMap() {
-    return objectMap;
+    return keyRegistry.getObjects();
   }
   
   public void setObjectMap(Map<String, Object> objectMap) {
-    this.objectMap = objectMap;
+    keyRegistry.clear();
+    for (Map.Entry<String, Object> entry : objectMap.entrySet()) {
+      keyRegistry.put(entry.getKey(), entry.getValue());
+    }
   }
   
   public interface BpmnModelListener {
@@ -132,6 +195,9 @@ public class BpmnMemoryModel {
   }
 
   public void modelObjectUpdated(Object businessObject) {
+    if (businessObject instanceof BaseElement) {
+      validationChangeTracker.markChanged((BaseElement) businessObject);
+    }
     for (BpmnModelListener listener : modelListeners) {
       listener.objectUpdated(businessObject);
     }
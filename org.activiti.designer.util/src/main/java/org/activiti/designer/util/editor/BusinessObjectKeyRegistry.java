@@ -0,0 +1,196 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.util.editor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns the keys that pictogram links use to refer to business objects. Objects are told apart
+ * by identity, so two objects never share a key even if they are equal or have the same hash code.
+ * A key stays the same for as long as the object is registered; objects that are deleted from the
+ * model should be removed again so the registry does not keep them alive.
+ * <p>
+ * A delete can be undone, which brings back pictogram links with the keys of the removed objects.
+ * Removed objects are therefore only set aside: looking up their key or asking for the key of such
+ * an object registers it again under its old key. The objects that were removed while a command
+ * ran are assigned to that command by {@link #assignRemoved(Object)}, and released for good by
+ * {@link #purgeRemoved(Object)} once that command can no longer be undone.
+ */
+public class BusinessObjectKeyRegistry {
+
+  private static final String KEY_PREFIX = "bo";
+
+  protected Map<Object, String> keys = new IdentityHashMap<Object, String>();
+  protected Map<String, Object> objects = new HashMap<String, Object>();
+  protected Map<Object, String> removedKeys = new IdentityHashMap<Object, String>();
+  protected Map<String, Object> removedObjects = new HashMap<String, Object>();
+  /** The commands that removed the objects, by object, see {@link #assignRemoved(Object)}. */
+  protected Map<Object, Object> removalOwners = new IdentityHashMap<Object, Object>();
+  /** The objects removed since the last call of {@link #assignRemoved(Object)}. */
+  protected List<Object> unassignedRemovals = new ArrayList<Object>();
+  protected long lastKey;
+
+  /**
+   * @return the key of the object, a new one if the object was not registered yet
+   */
+  public synchronized String getKey(Object businessObject) {
+    if (businessObject == null) {
+      return null;
+    }
+
+    String key = keys.get(businessObject);
+    if (key == null) {
+      key = removedKeys.remove(businessObject);
+      if (key != null) {
+        removedObjects.remove(key);
+        removalOwners.remove(businessObject);
+      } else {
+        do {
+          key = KEY_PREFIX + (++lastKey);
+        } while (objects.containsKey(key) || removedObjects.containsKey(key));
+      }
+
+      keys.put(businessObject, key);
+      objects.put(key, businessObject);
+    }
+    return key;
+  }
+
+  /**
+   * @return the object registered under the key, or null if there is none
+   */
+  public synchronized Object getObject(String key) {
+    Object businessObject = objects.get(key);
+    if (businessObject == null) {
+      businessObject = removedObjects.remove(key);
+      if (businessObject != null) {
+        // the removal was undone
+        removedKeys.remove(businessObject);
+        removalOwners.remove(businessObject);
+        keys.put(businessObject, key);
+        objects.put(key, businessObject);
+      }
+    }
+    return businessObject;
+  }
+
+  /**
+   * Registers the object under the given key, replacing what was registered under that key
+   * before.
+   */
+  public synchronized void put(String key, Object businessObject) {
+    Object previous = objects.put(key, businessObject);
+    if (previous != null) {
+      keys.remove(previous);
+    }
+    String previousKey = keys.put(businessObject, key);
+    if (previousKey != null && previousKey.equals(key) == false) {
+      objects.remove(previousKey);
+    }
+
+    Object removed = removedObjects.remove(key);
+    if (removed != null) {
+      removedKeys.remove(removed);
+      removalOwners.remove(removed);
+    }
+    String removedKey = removedKeys.remove(businessObject);
+    if (removedKey != null) {
+      removedObjects.remove(removedKey);
+      removalOwners.remove(businessObject);
+    }
+  }
+
+  /**
+   * Sets the object and its key aside until the command that removed it is purged, see
+   * {@link #assignRemoved(Object)}.
+   */
+  public synchronized void remove(Object businessObject) {
+    String key = keys.remove(businessObject);
+    if (key != null) {
+      objects.remove(key);
+      removedKeys.put(businessObject, key);
+      removedObjects.put(key, businessObject);
+      unassignedRemovals.add(businessObject);
+    }
+  }
+
+  /**
+   * Assigns the objects that were removed since the last call to the command that removed them,
+   * so they can be released together with that command.
+   *
+   * @param owner
+   *          the command that was executed
+   */
+  public synchronized void assignRemoved(Object owner) {
+    for (Object businessObject : unassignedRemovals) {
+      // objects that were registered again in the meantime are not removed anymore
+      if (removedKeys.containsKey(businessObject)) {
+        removalOwners.put(businessObject, owner);
+      }
+    }
+    unassignedRemovals.clear();
+  }
+
+  /**
+   * Releases the objects that the command removed, when the command can no longer be undone.
+   *
+   * @param owner
+   *          the command, as passed to {@link #assignRemoved(Object)}
+   */
+  public synchronized void purgeRemoved(Object owner) {
+    for (Iterator<Map.Entry<Object, Object>> iterator = removalOwners.entrySet().iterator(); iterator.hasNext();) {
+      Map.Entry<Object, Object> removalOwner = iterator.next();
+      if (removalOwner.getValue() == owner) {
+        removedObjects.remove(removedKeys.remove(removalOwner.getKey()));
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Releases all objects that were removed, when no command can be undone anymore.
+   */
+  public synchronized void purgeRemoved() {
+    removedKeys.clear();
+    removedObjects.clear();
+    removalOwners.clear();
+    unassignedRemovals.clear();
+  }
+
+  public synchronized void clear() {
+    keys.clear();
+    objects.clear();
+    purgeRemoved();
+  }
+
+  /**
+   * @return the number of registered objects, not counting the ones that were removed
+   */
+  public synchronized int size() {
+    return objects.size();
+  }
+
+  /**
+   * @return a copy of the registered objects by key
+   */
+  public synchronized Map<String, Object> getObjects() {
+    return Collections.unmodifiableMap(new HashMap<String, Object>(objects));
+  }
+}
@@ -0,0 +1,65 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.util.editor;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.activiti.bpmn.model.BaseElement;
+
+/**
+ * Keeps track of the elements of a {@link BpmnMemoryModel} whose shape or connection changed on the
+ * diagram since the diagram interchange information of the model was last brought up to date, so
+ * only their graphic info has to be computed again. When it is not known what changed, for
+ * instance after a new BPMN model was set or after pictogram elements were removed, everything is
+ * marked dirty.
+ */
+public class DirtyElementTracker {
+
+  protected boolean allDirty = true;
+  protected Set<BaseElement> dirtyElements = newElementSet();
+
+  public synchronized void markDirty(BaseElement element) {
+    if (allDirty == false && element != null) {
+      dirtyElements.add(element);
+    }
+  }
+
+  public synchronized void markAllDirty() {
+    allDirty = true;
+    dirtyElements.clear();
+  }
+
+  public synchronized boolean isAllDirty() {
+    return allDirty;
+  }
+
+  /**
+   * Takes the dirty elements and marks everything clean. If the caller fails to bring the elements
+   * up to date it should call {@link #markAllDirty()}.
+   *
+   * @return the elements that changed, or null if everything must be brought up to date
+   */
+  public synchronized Set<BaseElement> takeDirtyElements() {
+    Set<BaseElement> result = allDirty ? null : dirtyElements;
+    allDirty = false;
+    dirtyElements = newElementSet();
+    return result;
+  }
+
+  protected static Set<BaseElement> newElementSet() {
+    return Collections.newSetFromMap(new IdentityHashMap<BaseElement, Boolean>());
+  }
+}
@@ -0,0 +1,290 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.util.editor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.activiti.bpmn.model.Artifact;
+import org.activiti.bpmn.model.Association;
+import org.activiti.bpmn.model.BaseElement;
+import org.activiti.bpmn.model.BpmnModel;
+import org.activiti.bpmn.model.FlowElement;
+import org.activiti.bpmn.model.FlowElementsContainer;
+import org.activiti.bpmn.model.Process;
+
+/**
+ * Index of the flow elements and artifacts of a {@link BpmnMemoryModel} by id, including the ones
+ * in subprocesses, together with the process or subprocess that contains them. The index is built
+ * in one pass on the first lookup. The features that create and delete elements keep it up to
+ * date through {@link #add(BaseElement, FlowElementsContainer)} and {@link #remove(BaseElement)}.
+ * <p>
+ * Changes made to the model in another way are detected: an element whose id changed is not
+ * returned, an element that is missing from the index is looked up in the model and the index is
+ * built again, and a parent that no longer contains the element is looked up again as well. An id
+ * that is not in the model either is remembered, and not looked up again until the
+ * {@link ValidationChangeTracker} of the model records a change.
+ */
+public class ElementIdIndex {
+
+  protected BpmnMemoryModel model;
+  protected BpmnModel indexedModel;
+  protected Map<String, FlowElement> flowElements = new HashMap<String, FlowElement>();
+  protected Map<String, Artifact> artifacts = new HashMap<String, Artifact>();
+  protected Map<String, FlowElementsContainer> parents = new HashMap<String, FlowElementsContainer>();
+  protected Set<String> missingIds = new HashSet<String>();
+  protected long missingIdsChangeCount;
+
+  public ElementIdIndex(BpmnMemoryModel model) {
+    this.model = model;
+  }
+
+  /**
+   * @return the flow element with the id in any process or subprocess, or null if there is none
+   */
+  public synchronized FlowElement getFlowElement(String id) {
+    if (ensureIndexed() == false) {
+      return null;
+    }
+
+    FlowElement flowElement = flowElements.get(id);
+    if (flowElement != null && id.equals(flowElement.getId())) {
+      return flowElement;
+    }
+    if (flowElement == null && (isValid(id, artifacts.get(id)) || isMissing(id))) {
+      // the id belongs to an artifact or was not found before
+      return null;
+    }
+
+    flowElement = indexedModel.getFlowElement(id);
+    if (flowElement != null) {
+      rebuild();
+    } else {
+      addMissing(id);
+    }
+    return flowElement;
+  }
+
+  /**
+   * @return the artifact with the id in any process or subprocess, or null if there is none
+   */
+  public synchronized Artifact getArtifact(String id) {
+    if (ensureIndexed() == false) {
+      return null;
+    }
+
+    Artifact artifact = artifacts.get(id);
+    if (artifact != null && id.equals(artifact.getId())) {
+      return artifact;
+    }
+    if (artifact == null && (isValid(id, flowElements.get(id)) || isMissing(id))) {
+      // the id belongs to a flow element or was not found before
+      return null;
+    }
+
+    artifact = indexedModel.getArtifact(id);
+    if (artifact != null) {
+      rebuild();
+    } else {
+      addMissing(id);
+    }
+    return artifact;
+  }
+
+  /**
+   * @return the process or subprocess that contains the flow element or artifact with the id, or
+   *         null if there is no such element
+   */
+  public synchronized FlowElementsContainer getParentContainer(String id) {
+    BaseElement element = getFlowElement(id);
+    if (element == null) {
+      element = getArtifact(id);
+    }
+    if (element == null) {
+      return null;
+    }
+
+    FlowElementsContainer parent = parents.get(id);
+    if (parent == null || contains(parent, element) == false) {
+      rebuild();
+      parent = parents.get(id);
+    }
+    return parent;
+  }
+
+  /**
+   * @return the associations in any process or subprocess that start or end at the element with
+   *         the id
+   */
+  public synchronized List<Association> getAssociations(String id) {
+    List<Association> associations = new ArrayList<Association>();
+    if (ensureIndexed() == false) {
+      return associations;
+    }
+
+    for (Artifact artifact : artifacts.values()) {
+      if (artifact instanceof Association) {
+        Association association = (Association) artifact;
+        if (id.equals(association.getSourceRef()) || id.equals(association.getTargetRef())) {
+          associations.add(association);
+        }
+      }
+    }
+    return associations;
+  }
+
+  /**
+   * Adds a flow element or artifact that was added to the container, including the content of a
+   * subprocess.
+   */
+  public synchronized void add(BaseElement element, FlowElementsContainer parent) {
+    if (indexedModel == null || element == null || element.getId() == null) {
+      return;
+    }
+    missingIds.remove(element.getId());
+
+    if (element instanceof FlowElement) {
+      flowElements.put(element.getId(), (FlowElement) element);
+    } else if (element instanceof Artifact) {
+      artifacts.put(element.getId(), (Artifact) element);
+    } else {
+      return;
+    }
+    parents.put(element.getId(), parent);
+
+    if (element instanceof FlowElementsContainer) {
+      addContent((FlowElementsContainer) element);
+    }
+  }
+
+  /**
+   * Removes a flow element or artifact that was removed from the model. For a process or
+   * subprocess its content is removed as well.
+   */
+  public synchronized void remove(BaseElement element) {
+    if (indexedModel == null || element == null) {
+      return;
+    }
+
+    if (element instanceof FlowElement || element instanceof Artifact) {
+      removeId(element.getId(), element);
+    }
+    if (element instanceof FlowElementsContainer) {
+      FlowElementsContainer container = (FlowElementsContainer) element;
+      for (FlowElement flowElement : container.getFlowElements()) {
+        remove(flowElement);
+      }
+      for (Artifact artifact : container.getArtifacts()) {
+        remove(artifact);
+      }
+    }
+  }
+
+  /**
+   * Drops the index, it is built again on the next lookup.
+   */
+  public synchronized void invalidate() {
+    indexedModel = null;
+    flowElements.clear();
+    artifacts.clear();
+    parents.clear();
+    missingIds.clear();
+  }
+
+  protected boolean ensureIndexed() {
+    if (model.getBpmnModel() == null) {
+      return false;
+    }
+    if (indexedModel != model.getBpmnModel()) {
+      rebuild();
+    }
+    return true;
+  }
+
+  protected void rebuild() {
+    invalidate();
+    indexedModel = model.getBpmnModel();
+    if (indexedModel == null) {
+      return;
+    }
+
+    for (Process process : indexedModel.getProcesses()) {
+      addContent(process);
+    }
+  }
+
+  protected void addContent(FlowElementsContainer container) {
+    for (FlowElement flowElement : container.getFlowElements()) {
+      add(flowElement, container);
+    }
+    for (Artifact artifact : container.getArtifacts()) {
+      add(artifact, container);
+    }
+  }
+
+  protected void removeId(String id, BaseElement element) {
+    if (id == null) {
+      return;
+    }
+    if (flowElements.get(id) == element) {
+      flowElements.remove(id);
+      parents.remove(id);
+    } else if (artifacts.get(id) == element) {
+      artifacts.remove(id);
+      parents.remove(id);
+    }
+  }
+
+  /**
+   * @return true if the id was looked up in the model without success since the model last
+   *         changed
+   */
+  protected boolean isMissing(String id) {
+    if (missingIdsChangeCount != getChangeCount()) {
+      missingIds.clear();
+      return false;
+    }
+    return missingIds.contains(id);
+  }
+
+  protected void addMissing(String id) {
+    if (missingIdsChangeCount != getChangeCount()) {
+      missingIds.clear();
+      missingIdsChangeCount = getChangeCount();
+    }
+    missingIds.add(id);
+  }
+
+  protected long getChangeCount() {
+    return model.getValidationChangeTracker().getChangeCount();
+  }
+
+  protected boolean isValid(String id, BaseElement element) {
+    return element != null && id.equals(element.getId());
+  }
+
+  /**
+   * Looks the element up in the container only, which costs no more than removing it from there.
+   */
+  protected boolean contains(FlowElementsContainer container, BaseElement element) {
+    if (element instanceof FlowElement) {
+      return container.getFlowElement(element.getId()) == element;
+    }
+    return container.getArtifact(element.getId()) == element;
+  }
+}
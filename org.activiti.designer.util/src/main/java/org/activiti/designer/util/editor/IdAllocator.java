@@ -0,0 +1,175 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.util.editor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.activiti.bpmn.model.Artifact;
+import org.activiti.bpmn.model.BpmnModel;
+import org.activiti.bpmn.model.FlowElement;
+import org.activiti.bpmn.model.FlowElementsContainer;
+import org.activiti.bpmn.model.Lane;
+import org.activiti.bpmn.model.MessageFlow;
+import org.activiti.bpmn.model.Pool;
+import org.activiti.bpmn.model.Process;
+
+/**
+ * Hands out ids of the form prefix + number for the elements of a {@link BpmnMemoryModel}. The
+ * highest number in use for every prefix is collected in one pass over the model when the editor
+ * loads it, see {@link #seed()}, or else the first time an id is requested. After that ids are
+ * handed out without looking at the model again. Ids that are set on elements in another way, for
+ * instance in the properties view, should be passed to {@link #register(String)}.
+ */
+public class IdAllocator {
+
+  protected BpmnMemoryModel model;
+  protected BpmnModel seededModel;
+  protected Map<String, Integer> highWaterMarks = new HashMap<String, Integer>();
+
+  public IdAllocator(BpmnMemoryModel model) {
+    this.model = model;
+  }
+
+  /**
+   * @return the next free id for the prefix, for instance usertask5 for the prefix usertask
+   */
+  public synchronized String nextId(String prefix) {
+    return reserve(prefix, 1).get(0);
+  }
+
+  /**
+   * Reserves a consecutive range of ids for the prefix at once.
+   *
+   * @return the reserved ids in ascending order
+   */
+  public synchronized List<String> reserve(String prefix, int count) {
+    ensureSeeded();
+
+    int highWaterMark = getHighWaterMark(prefix);
+    List<String> ids = new ArrayList<String>(count);
+    for (int i = 1; i <= count; i++) {
+      ids.add(prefix + (highWaterMark + i));
+    }
+    highWaterMarks.put(prefix, highWaterMark + count);
+    return ids;
+  }
+
+  /**
+   * Collects the highest number in use for every prefix of the current model, unless that was
+   * already done.
+   */
+  public synchronized void seed() {
+    ensureSeeded();
+  }
+
+  /**
+   * Records an id that was not handed out by this allocator, so it is never handed out later on.
+   */
+  public synchronized void register(String id) {
+    if (seededModel != null) {
+      addId(id);
+    }
+  }
+
+  /**
+   * Forgets all high-water marks, they are collected again on the next request.
+   */
+  public synchronized void reset() {
+    seededModel = null;
+    highWaterMarks.clear();
+  }
+
+  protected int getHighWaterMark(String prefix) {
+    Integer highWaterMark = highWaterMarks.get(prefix);
+    return highWaterMark != null ? highWaterMark : 0;
+  }
+
+  protected void ensureSeeded() {
+    BpmnModel bpmnModel = model.getBpmnModel();
+    if (seededModel == bpmnModel && seededModel != null) {
+      return;
+    }
+
+    highWaterMarks.clear();
+    seededModel = bpmnModel;
+    if (bpmnModel == null) {
+      return;
+    }
+
+    for (Pool pool : bpmnModel.getPools()) {
+      addId(pool.getId());
+    }
+    for (MessageFlow messageFlow : bpmnModel.getMessageFlows().values()) {
+      addId(messageFlow.getId());
+    }
+    for (Process process : bpmnModel.getProcesses()) {
+      addId(process.getId());
+      for (Lane lane : process.getLanes()) {
+        addId(lane.getId());
+      }
+      addIds(process);
+    }
+  }
+
+  protected void addIds(FlowElementsContainer container) {
+    for (Artifact artifact : container.getArtifacts()) {
+      addId(artifact.getId());
+    }
+    addIds(container.getFlowElements());
+  }
+
+  protected void addIds(Collection<FlowElement> flowElements) {
+    for (FlowElement flowElement : flowElements) {
+      addId(flowElement.getId());
+      if (flowElement instanceof FlowElementsContainer) {
+        addIds((FlowElementsContainer) flowElement);
+      }
+    }
+  }
+
+  /**
+   * Splits the id in a prefix and the number at its end and raises the high-water mark of the
+   * prefix if needed.
+   */
+  protected void addId(String id) {
+    if (id == null) {
+      return;
+    }
+
+    int numberStart = id.length();
+    while (numberStart > 0 && Character.isDigit(id.charAt(numberStart - 1))) {
+      numberStart--;
+    }
+    if (numberStart == id.length()) {
+      return;
+    }
+
+    int number;
+    try {
+      number = Integer.parseInt(id.substring(numberStart));
+    } catch (NumberFormatException e) {
+      // too large to be handed out anyway
+      return;
+    }
+
+    String prefix = id.substring(0, numberStart);
+    if (number > getHighWaterMark(prefix)) {
+      highWaterMarks.put(prefix, number);
+    }
+  }
+}
@@ -0,0 +1,113 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.util.editor;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.activiti.bpmn.model.BpmnModel;
+import org.activiti.bpmn.model.FlowElement;
+import org.activiti.bpmn.model.FlowElementsContainer;
+import org.activiti.bpmn.model.Process;
+
+/**
+ * Rough estimate of the heap retained by a {@link BpmnMemoryModel}, computed from the number of
+ * elements, diagram interchange entries, business object keys and clipboard entries times an
+ * average size per entry. It is meant to compare diagrams and to spot growth, not to be exact.
+ */
+public class ModelFootprint {
+
+  /** Average size of a flow element or artifact including its attributes and extension elements. */
+  protected static final long ELEMENT_BYTES = 640L;
+  /** Average size of a graphic info with its map entry. */
+  protected static final long GRAPHIC_INFO_BYTES = 96L;
+  /** Size of a business object key in both maps of the registry. */
+  protected static final long KEY_BYTES = 128L;
+  /** Size of an entry in the pictogram element index. */
+  protected static final long PICTOGRAM_INDEX_BYTES = 80L;
+
+  protected int elementCount;
+  protected int graphicInfoCount;
+  protected int keyCount;
+  protected int pictogramIndexCount;
+  protected int clipboardCount;
+
+  public ModelFootprint(BpmnMemoryModel model) {
+    BpmnModel bpmnModel = model.getBpmnModel();
+    if (bpmnModel != null) {
+      elementCount = bpmnModel.getPools().size() + bpmnModel.getMessageFlows().size();
+      for (Process process : bpmnModel.getProcesses()) {
+        elementCount += 1 + process.getLanes().size();
+        countElements(process);
+      }
+
+      graphicInfoCount = bpmnModel.getLocationMap().size() + bpmnModel.getLabelLocationMap().size();
+      for (List<?> waypoints : bpmnModel.getFlowLocationMap().values()) {
+        graphicInfoCount += waypoints.size();
+      }
+    }
+
+    keyCount = model.getKeyRegistry().size();
+    pictogramIndexCount = model.getPictogramElementIndex().size();
+    if (model.getClipboard() != null) {
+      clipboardCount = model.getClipboard().size();
+    }
+  }
+
+  protected void countElements(FlowElementsContainer container) {
+    elementCount += container.getArtifacts().size();
+    countElements(container.getFlowElements());
+  }
+
+  protected void countElements(Collection<FlowElement> flowElements) {
+    for (FlowElement flowElement : flowElements) {
+      elementCount++;
+      if (flowElement instanceof FlowElementsContainer) {
+        countElements((FlowElementsContainer) flowElement);
+      }
+    }
+  }
+
+  /**
+   * @return the number of pools, processes, lanes, flow elements and artifacts, including the ones
+   *         in subprocesses
+   */
+  public int getElementCount() {
+    return elementCount;
+  }
+
+  public int getGraphicInfoCount() {
+    return graphicInfoCount;
+  }
+
+  public int getKeyCount() {
+    return keyCount;
+  }
+
+  public int getPictogramIndexCount() {
+    return pictogramIndexCount;
+  }
+
+  public int getClipboardCount() {
+    return clipboardCount;
+  }
+
+  /**
+   * @return the estimated retained size in bytes
+   */
+  public long getEstimatedBytes() {
+    return (elementCount + clipboardCount) * ELEMENT_BYTES + graphicInfoCount * GRAPHIC_INFO_BYTES
+        + keyCount * KEY_BYTES + pictogramIndexCount * PICTOGRAM_INDEX_BYTES;
+  }
+}
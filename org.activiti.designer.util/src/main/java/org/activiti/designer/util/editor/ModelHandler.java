@@ -13,48 +13,78 @@
  */
 package org.activiti.designer.util.editor;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 
+import org.activiti.designer.util.editor.ModelRegistry.Registration;
 import org.eclipse.emf.common.util.URI;
 
+/**
+ * Gives access to the memory models of the open diagrams by diagram URI. Editors register their
+ * model with themselves as owner, so a model is released once its editor is gone even if the
+ * editor did not remove it. All methods may be called from any thread.
+ */
 public class ModelHandler {
 
-	private static Map<URI, BpmnMemoryModel> modelMap = new HashMap<URI, BpmnMemoryModel>();
-	private static Map<URI, KickstartProcessMemoryModel> kickstartProcessModelMap = new HashMap<URI, KickstartProcessMemoryModel>();
-	private static Map<URI, KickstartFormMemoryModel> kickstartFormModelMap = new HashMap<URI, KickstartFormMemoryModel>();
+	private static ModelRegistry<BpmnMemoryModel> modelRegistry = new ModelRegistry<BpmnMemoryModel>();
+	private static ModelRegistry<KickstartProcessMemoryModel> kickstartProcessModelRegistry = new ModelRegistry<KickstartProcessMemoryModel>();
+	private static ModelRegistry<KickstartFormMemoryModel> kickstartFormModelRegistry = new ModelRegistry<KickstartFormMemoryModel>();
 
+	/**
+	 * Registers a model that is kept until it is removed again.
+	 */
 	public static void addModel(URI uri, Object model) {
+	  addModel(uri, model, null);
+	}
+
+	/**
+	 * Registers a model that is kept for as long as the owner references it.
+	 */
+	public static void addModel(URI uri, Object model, Object owner) {
 	  if (model instanceof BpmnMemoryModel) {
-	    modelMap.put(uri, (BpmnMemoryModel) model);
+	    modelRegistry.put(uri, (BpmnMemoryModel) model, owner);
 	  } else if (model instanceof KickstartProcessMemoryModel) {
-	    kickstartProcessModelMap.put(uri, (KickstartProcessMemoryModel) model);
+	    kickstartProcessModelRegistry.put(uri, (KickstartProcessMemoryModel) model, owner);
 	  } else if(model instanceof KickstartFormMemoryModel) {
-	    kickstartFormModelMap.put(uri, (KickstartFormMemoryModel) model);
+	    kickstartFormModelRegistry.put(uri, (KickstartFormMemoryModel) model, owner);
 	  }
 	}
 
 	public static BpmnMemoryModel getModel(URI uri) {
-		return modelMap.get(uri);
+		return modelRegistry.get(uri);
 	}
 	
 	public static KickstartProcessMemoryModel getKickstartProcessModel(URI uri) {
-	  return kickstartProcessModelMap.get(uri);
-    }
+	  return kickstartProcessModelRegistry.get(uri);
+	}
 	
 	public static KickstartFormMemoryModel getKickstartFormMemoryModel(URI uri) {
-	  return kickstartFormModelMap.get(uri);
+	  return kickstartFormModelRegistry.get(uri);
 	}
 
 	public static void removeModel(URI uri) {
-		modelMap.remove(uri);
+		modelRegistry.remove(uri);
 	}
 	
 	public static void removeKickstartProcessModel(URI uri) {
-	  kickstartProcessModelMap.remove(uri);
-    }
+	  kickstartProcessModelRegistry.remove(uri);
+	}
 	
 	public static void removeKickstartFormModel(URI uri) {
-      kickstartFormModelMap.remove(uri);
-    }
+	  kickstartFormModelRegistry.remove(uri);
+	}
+
+	/**
+	 * @return the registered BPMN models that are still alive
+	 */
+	public static List<Registration<BpmnMemoryModel>> getModelRegistrations() {
+	  return modelRegistry.getRegistrations();
+	}
+
+	public static List<Registration<KickstartProcessMemoryModel>> getKickstartProcessModelRegistrations() {
+	  return kickstartProcessModelRegistry.getRegistrations();
+	}
+
+	public static List<Registration<KickstartFormMemoryModel>> getKickstartFormModelRegistrations() {
+	  return kickstartFormModelRegistry.getRegistrations();
+	}
 }
@@ -0,0 +1,158 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.util.editor;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.ui.IWorkbenchPart;
+
+/**
+ * Thread-safe registry of the memory models of open diagrams by diagram URI.
+ * <p>
+ * A model that is registered with an owner, normally the editor that created it, is only weakly
+ * referenced: the owner keeps it alive, and once the owner is garbage collected the entry
+ * disappears even if nobody removed it. A model registered without an owner is kept until it is
+ * removed.
+ */
+public class ModelRegistry<T> {
+
+  protected ConcurrentMap<URI, Registration<T>> registrations = new ConcurrentHashMap<URI, Registration<T>>();
+  protected ReferenceQueue<T> collectedModels = new ReferenceQueue<T>();
+
+  /**
+   * Registers the model of the diagram, replacing the model registered for it before.
+   *
+   * @param owner the object that keeps the model alive, or null to keep it until it is removed
+   */
+  public void put(URI uri, T model, Object owner) {
+    purge();
+    registrations.put(uri, new Registration<T>(uri, model, owner, collectedModels));
+  }
+
+  /**
+   * @return the model of the diagram, or null if none is registered or it was garbage collected
+   */
+  public T get(URI uri) {
+    Registration<T> registration = registrations.get(uri);
+    return registration != null ? registration.get() : null;
+  }
+
+  public void remove(URI uri) {
+    Registration<T> registration = registrations.remove(uri);
+    if (registration != null) {
+      registration.clear();
+    }
+    purge();
+  }
+
+  /**
+   * @return the registrations whose model is still alive
+   */
+  public List<Registration<T>> getRegistrations() {
+    purge();
+    List<Registration<T>> result = new ArrayList<Registration<T>>();
+    for (Registration<T> registration : registrations.values()) {
+      if (registration.get() != null) {
+        result.add(registration);
+      }
+    }
+    return result;
+  }
+
+  public int size() {
+    purge();
+    return registrations.size();
+  }
+
+  /**
+   * Drops the entries of models that were garbage collected.
+   */
+  protected void purge() {
+    Reference<? extends T> reference;
+    while ((reference = collectedModels.poll()) != null) {
+      Registration<?> registration = (Registration<?>) reference;
+      registrations.remove(registration.getUri(), registration);
+    }
+  }
+
+  /**
+   * A registered model together with what is known about its owner.
+   */
+  public static class Registration<T> extends WeakReference<T> {
+
+    protected URI uri;
+    protected T pinnedModel;
+    protected WeakReference<Object> owner;
+    protected String ownerName;
+    protected long registrationTime = System.currentTimeMillis();
+
+    public Registration(URI uri, T model, Object owner, ReferenceQueue<T> queue) {
+      super(model, queue);
+      this.uri = uri;
+      if (owner == null) {
+        pinnedModel = model;
+        ownerName = "-";
+      } else {
+        this.owner = new WeakReference<Object>(owner);
+        ownerName = getName(owner);
+      }
+    }
+
+    public URI getUri() {
+      return uri;
+    }
+
+    public String getOwnerName() {
+      return ownerName;
+    }
+
+    /**
+     * @return true if the model was registered with an owner that has been garbage collected since
+     */
+    public boolean isOwnerCollected() {
+      return owner != null && owner.get() == null;
+    }
+
+    /**
+     * @return true if the model is kept until it is removed rather than by an owner
+     */
+    public boolean isPinned() {
+      return pinnedModel != null;
+    }
+
+    public long getRegistrationTime() {
+      return registrationTime;
+    }
+
+    @Override
+    public void clear() {
+      pinnedModel = null;
+      super.clear();
+    }
+
+    protected static String getName(Object owner) {
+      if (owner instanceof IWorkbenchPart) {
+        return ((IWorkbenchPart) owner).getTitle();
+      }
+      return owner.getClass().getSimpleName();
+    }
+  }
+}
@@ -0,0 +1,142 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.util.editor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.activiti.bpmn.model.BaseElement;
+import org.eclipse.graphiti.features.IFeatureProvider;
+import org.eclipse.graphiti.mm.pictograms.Anchor;
+import org.eclipse.graphiti.mm.pictograms.AnchorContainer;
+import org.eclipse.graphiti.mm.pictograms.ChopboxAnchor;
+import org.eclipse.graphiti.mm.pictograms.PictogramElement;
+
+/**
+ * Index of the pictogram elements of a diagram by the id of their business object, together with
+ * the chopbox anchor that connections are attached to. Entries are added when a pictogram element
+ * is linked and removed by the delete features. An entry that was removed from the diagram in
+ * another way, for instance by an undo, is not returned; the element is then looked up through the
+ * feature provider and indexed again.
+ */
+public class PictogramElementIndex {
+
+  protected BpmnMemoryModel model;
+  protected Map<String, Entry> entries = new HashMap<String, Entry>();
+
+  public PictogramElementIndex(BpmnMemoryModel model) {
+    this.model = model;
+  }
+
+  /**
+   * Adds the pictogram element of the business object. The first pictogram element linked to an
+   * element is its primary one, so an entry that is still valid is kept.
+   */
+  public void put(BaseElement element, PictogramElement pictogramElement) {
+    if (element == null || element.getId() == null || pictogramElement == null) {
+      return;
+    }
+    if (getValidEntry(element) == null) {
+      entries.put(element.getId(), new Entry(element, pictogramElement));
+    }
+  }
+
+  /**
+   * @return the pictogram element of the business object, or null if it is not on the diagram
+   */
+  public PictogramElement getPictogramElement(BaseElement element) {
+    Entry entry = getEntry(element);
+    return entry != null ? entry.pictogramElement : null;
+  }
+
+  /**
+   * @return the chopbox anchor of the pictogram element of the business object, or null if it has
+   *         none
+   */
+  public Anchor getPrimaryAnchor(BaseElement element) {
+    Entry entry = getEntry(element);
+    if (entry == null || entry.pictogramElement instanceof AnchorContainer == false) {
+      return null;
+    }
+
+    // add features create the anchor after linking, so it is resolved on first use
+    if (entry.anchor == null || entry.anchor.getParent() != entry.pictogramElement) {
+      entry.anchor = null;
+      for (Anchor anchor : ((AnchorContainer) entry.pictogramElement).getAnchors()) {
+        if (anchor instanceof ChopboxAnchor) {
+          entry.anchor = anchor;
+          break;
+        }
+      }
+    }
+    return entry.anchor;
+  }
+
+  public void remove(String id) {
+    if (id != null) {
+      entries.remove(id);
+    }
+  }
+
+  public void clear() {
+    entries.clear();
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  protected Entry getEntry(BaseElement element) {
+    if (element == null || element.getId() == null) {
+      return null;
+    }
+
+    Entry entry = getValidEntry(element);
+    if (entry == null) {
+      IFeatureProvider featureProvider = model.getFeatureProvider();
+      if (featureProvider != null) {
+        PictogramElement pictogramElement = featureProvider.getPictogramElementForBusinessObject(element);
+        if (pictogramElement != null) {
+          entry = new Entry(element, pictogramElement);
+          entries.put(element.getId(), entry);
+        }
+      }
+    }
+    return entry;
+  }
+
+  protected Entry getValidEntry(BaseElement element) {
+    Entry entry = entries.get(element.getId());
+    if (entry == null) {
+      return null;
+    }
+    if (entry.element != element || entry.pictogramElement.eContainer() == null) {
+      entries.remove(element.getId());
+      return null;
+    }
+    return entry;
+  }
+
+  protected static class Entry {
+
+    protected BaseElement element;
+    protected PictogramElement pictogramElement;
+    protected Anchor anchor;
+
+    public Entry(BaseElement element, PictogramElement pictogramElement) {
+      this.element = element;
+      this.pictogramElement = pictogramElement;
+    }
+  }
+}
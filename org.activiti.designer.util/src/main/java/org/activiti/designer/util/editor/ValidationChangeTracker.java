@@ -0,0 +1,70 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.util.editor;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.activiti.bpmn.model.BaseElement;
+
+/**
+ * Keeps track of the ids of the elements of a {@link BpmnMemoryModel} that were changed, added or
+ * removed since the model was last validated, so validation only has to check those elements
+ * again. When it is not known what changed, for instance after a new BPMN model was set or after
+ * pictogram elements were removed, everything is marked changed.
+ */
+public class ValidationChangeTracker {
+
+  protected boolean allChanged = true;
+  protected Set<String> changedIds = new HashSet<String>();
+  protected long changeCount;
+
+  public synchronized void markChanged(BaseElement element) {
+    changeCount++;
+    if (allChanged == false && element != null && element.getId() != null) {
+      changedIds.add(element.getId());
+    }
+  }
+
+  public synchronized void markAllChanged() {
+    changeCount++;
+    allChanged = true;
+    changedIds.clear();
+  }
+
+  /**
+   * @return how often anything was marked changed, so a caller can tell whether an operation on
+   *         the model marked the elements it changed
+   */
+  public synchronized long getChangeCount() {
+    return changeCount;
+  }
+
+  public synchronized boolean isAllChanged() {
+    return allChanged;
+  }
+
+  /**
+   * Takes the ids of the changed elements and marks everything validated. If the caller fails to
+   * validate the elements it should call {@link #markAllChanged()}.
+   *
+   * @return the ids of the elements that changed, or null if everything must be validated
+   */
+  public synchronized Set<String> takeChangedIds() {
+    Set<String> result = allChanged ? null : changedIds;
+    allChanged = false;
+    changedIds = new HashSet<String>();
+    return result;
+  }
+}
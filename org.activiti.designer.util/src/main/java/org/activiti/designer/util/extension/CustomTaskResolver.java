@@ -0,0 +1,182 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.util.extension;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.activiti.designer.integration.annotation.Property;
+import org.activiti.designer.integration.servicetask.CustomServiceTask;
+import org.activiti.designer.integration.usertask.CustomUserTask;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+
+/**
+ * Resolves the extension ids of service and user tasks in a project to the {@link CustomServiceTask}
+ * and {@link CustomUserTask} they stand for. The custom tasks of a project are loaded from the
+ * extension jars once, when the first id is resolved, together with the names of the
+ * {@link Property} fields of every custom user task.
+ * <p>
+ * The resolver of a project is dropped when the classpath of the project or one of its jars
+ * changes, and when custom tasks are provided through the palette extension point.
+ */
+public class CustomTaskResolver {
+
+  private static final Map<IProject, CustomTaskResolver> RESOLVERS = new HashMap<IProject, CustomTaskResolver>();
+
+  private static IElementChangedListener classpathListener;
+
+  protected IProject project;
+  protected int registrationCount;
+  protected Map<String, CustomServiceTask> serviceTasks;
+  protected Map<String, CustomUserTask> userTasks;
+  protected Map<Class<?>, List<String>> propertyFieldNames = new HashMap<Class<?>, List<String>>();
+
+  protected CustomTaskResolver(IProject project) {
+    this.project = project;
+    this.registrationCount = ExtensionUtil.getCustomTaskRegistrationCount();
+  }
+
+  /**
+   * @return the resolver of the project, a new one if the extensions of the project changed
+   */
+  public static synchronized CustomTaskResolver forProject(IProject project) {
+    if (classpathListener == null) {
+      classpathListener = new ClasspathListener();
+      JavaCore.addElementChangedListener(classpathListener, ElementChangedEvent.POST_CHANGE);
+    }
+
+    CustomTaskResolver resolver = RESOLVERS.get(project);
+    if (resolver == null || resolver.registrationCount != ExtensionUtil.getCustomTaskRegistrationCount()) {
+      resolver = new CustomTaskResolver(project);
+      RESOLVERS.put(project, resolver);
+    }
+    return resolver;
+  }
+
+  /**
+   * Drops the resolver of the project, the extensions are loaded again on the next lookup.
+   */
+  public static synchronized void invalidate(IProject project) {
+    RESOLVERS.remove(project);
+  }
+
+  public static synchronized void invalidateAll() {
+    RESOLVERS.clear();
+  }
+
+  /**
+   * @return the custom service task with the id, or null if the project has none
+   */
+  public synchronized CustomServiceTask getCustomServiceTask(String extensionId) {
+    if (serviceTasks == null) {
+      serviceTasks = new HashMap<String, CustomServiceTask>();
+      for (final CustomServiceTask customServiceTask : ExtensionUtil.getCustomServiceTasks(project)) {
+        if (serviceTasks.containsKey(customServiceTask.getId()) == false) {
+          serviceTasks.put(customServiceTask.getId(), customServiceTask);
+        }
+      }
+    }
+    return serviceTasks.get(extensionId);
+  }
+
+  /**
+   * @return the custom user task with the id, or null if the project has none
+   */
+  public synchronized CustomUserTask getCustomUserTask(String extensionId) {
+    if (userTasks == null) {
+      userTasks = new HashMap<String, CustomUserTask>();
+      for (final CustomUserTask customUserTask : ExtensionUtil.getCustomUserTasks(project)) {
+        if (userTasks.containsKey(customUserTask.getId()) == false) {
+          userTasks.put(customUserTask.getId(), customUserTask);
+        }
+      }
+    }
+    return userTasks.get(extensionId);
+  }
+
+  /**
+   * @return the names of the fields annotated with {@link Property} in the class of the user task
+   *         and its superclasses that are custom user tasks as well
+   */
+  public synchronized List<String> getPropertyFieldNames(CustomUserTask customUserTask) {
+    List<String> fieldNames = propertyFieldNames.get(customUserTask.getClass());
+    if (fieldNames == null) {
+      fieldNames = new ArrayList<String>();
+      Class<?> clazz = customUserTask.getClass();
+      while (clazz != null && CustomUserTask.class.isAssignableFrom(clazz)) {
+        for (final Field field : clazz.getDeclaredFields()) {
+          if (field.isAnnotationPresent(Property.class)) {
+            fieldNames.add(field.getName());
+          }
+        }
+        clazz = clazz.getSuperclass();
+      }
+      fieldNames = Collections.unmodifiableList(fieldNames);
+      propertyFieldNames.put(customUserTask.getClass(), fieldNames);
+    }
+    return fieldNames;
+  }
+
+  /**
+   * Drops the resolver of a project when its classpath or one of its jars changes.
+   */
+  private static class ClasspathListener implements IElementChangedListener {
+
+    private static final int CLASSPATH_FLAGS = IJavaElementDelta.F_CLASSPATH_CHANGED
+        | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED | IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED
+        | IJavaElementDelta.F_ADDED_TO_CLASSPATH | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH;
+
+    @Override
+    public void elementChanged(ElementChangedEvent event) {
+      visit(event.getDelta());
+    }
+
+    private void visit(IJavaElementDelta delta) {
+      final IJavaElement element = delta.getElement();
+      if (element.getElementType() == IJavaElement.JAVA_MODEL) {
+        for (final IJavaElementDelta child : delta.getAffectedChildren()) {
+          visit(child);
+        }
+        return;
+      }
+
+      final IJavaProject javaProject = element.getJavaProject();
+      if (javaProject == null) {
+        return;
+      }
+      if (delta.getKind() != IJavaElementDelta.CHANGED || (delta.getFlags() & CLASSPATH_FLAGS) != 0) {
+        invalidate(javaProject.getProject());
+        return;
+      }
+      if (element.getElementType() == IJavaElement.JAVA_PROJECT) {
+        // jars are package fragment roots, their changes are reported one level down
+        for (final IJavaElementDelta child : delta.getAffectedChildren()) {
+          if (child.getElement().getElementType() == IJavaElement.PACKAGE_FRAGMENT_ROOT) {
+            visit(child);
+          }
+        }
+      }
+    }
+  }
+}
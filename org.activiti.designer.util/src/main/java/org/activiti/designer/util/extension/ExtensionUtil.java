@@ -80,6 +80,8 @@ public final class ExtensionUtil {
   public static List<CustomServiceTaskDescriptor> providedCustomServiceTaskDescriptors;
   
   public static List<CustomUserTaskDescriptor> providedCustomUserTaskDescriptors;
+
+  private static volatile int customTaskRegistrationCount;
   
   private ExtensionUtil() {
 
@@ -90,6 +92,7 @@ public final class ExtensionUtil {
       providedCustomServiceTaskDescriptors = new ArrayList<CustomServiceTaskDescriptor>();
     }
     providedCustomServiceTaskDescriptors.addAll(descriptors);
+    customTaskRegistrationCount++;
   }
   
   public static void addProvidedCustomUserTaskDescriptors(List<CustomUserTaskDescriptor> descriptors) {
@@ -97,6 +100,15 @@ public final class ExtensionUtil {
       providedCustomUserTaskDescriptors = new ArrayList<CustomUserTaskDescriptor>();
     }
     providedCustomUserTaskDescriptors.addAll(descriptors);
+    customTaskRegistrationCount++;
+  }
+
+  /**
+   * @return a number that changes every time custom task descriptors are registered, so callers
+   *         can tell whether what they derived from the registered tasks is still current
+   */
+  public static int getCustomTaskRegistrationCount() {
+    return customTaskRegistrationCount;
   }
 
   public static final Set<PaletteEntry> getDisabledPaletteEntries(IProject project) {
@@ -33,8 +33,13 @@ public enum Preferences {
   ALFRESCO_FORMTYPES_USERTASK("com.alfresco.designer.preferences.formtypes.usertask"),
   EDITOR_ADD_LABELS_TO_NEW_SEQUENCEFLOWS("org.activiti.designer.preferences.editor.addLabelsToNewSequenceFlows"), 
   EDITOR_ADD_DEFAULT_CONTENT_TO_DIAGRAMS("org.activiti.designer.preferences.editor.addDefaultContentToDiagrams"), 
+  EDITOR_LOAD_DIAGRAMS_IN_BACKGROUND("org.activiti.designer.preferences.editor.loadDiagramsInBackground"),
   SAVE_TO_FORMAT("org.activiti.designer.preferences.save.saveToFormat"), 
+  SAVE_EXPORT_MARSHALLERS_CONCURRENTLY("org.activiti.designer.preferences.save.exportMarshallersConcurrently"),
+  VALIDATE_WORKERS_IN_PARALLEL("org.activiti.designer.preferences.save.validateWorkersInParallel"),
+  VALIDATE_INCREMENTALLY("org.activiti.designer.preferences.save.validateIncrementally"),
   SAVE_IMAGE("org.activiti.designer.preferences.save.imageFormat"),
+  SAVE_IN_BACKGROUND("org.activiti.designer.preferences.save.inBackground"),
   SAVE_IMAGE_ADD_OVERLAY("org.activiti.designer.preferences.save.imageAddOverlay"),
   SAVE_IMAGE_ADD_OVERLAY_POSITION("org.activiti.designer.preferences.save.imageAddOverlayPosition"),
   SAVE_IMAGE_ADD_OVERLAY_FILENAME("org.activiti.designer.preferences.save.imageAddOverlayFilename"),
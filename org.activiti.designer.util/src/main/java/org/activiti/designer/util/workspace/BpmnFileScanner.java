@@ -0,0 +1,221 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.util.workspace;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.activiti.designer.util.Activator;
+import org.activiti.designer.util.SharedExecutor;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+
+/**
+ * Reads the {@link BpmnFileSummary} of BPMN files by looking at the attributes of their start
+ * elements only. The diagram interchange section, usually most of a file, is never read: the scan
+ * stops at the first BPMNDiagram element once a process was found, and skips its subtree if the
+ * processes come after it.
+ *
+ * <p>
+ * Every thread uses an XML input factory of its own, so files can be scanned in parallel, see
+ * {@link #scanAll(Collection)}.
+ */
+public final class BpmnFileScanner {
+
+  private static final String DIAGRAM_ELEMENT = "BPMNDiagram";
+
+  private static final ThreadLocal<XMLInputFactory> FACTORY = new ThreadLocal<XMLInputFactory>() {
+
+    @Override
+    protected XMLInputFactory initialValue() {
+      final XMLInputFactory factory = XMLInputFactory.newInstance();
+      factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+      factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+      return factory;
+    }
+  };
+
+  private BpmnFileScanner() {
+  }
+
+  /**
+   * Scans a file. Problems reading the file are logged, the summary then holds whatever was read
+   * before the problem.
+   *
+   * @param bpmnFile
+   *          the file to scan
+   * @return the summary of the file
+   */
+  public static BpmnFileSummary scan(final IFile bpmnFile) {
+    final BpmnFileSummary result = new BpmnFileSummary();
+
+    InputStream in = null;
+    XMLStreamReader xtr = null;
+    try {
+      in = bpmnFile.getContents();
+      xtr = FACTORY.get().createXMLStreamReader(in);
+      scan(xtr, result);
+    } catch (CoreException e) {
+      log("Unable to read " + bpmnFile.getFullPath(), e);
+    } catch (XMLStreamException e) {
+      log("Unable to parse " + bpmnFile.getFullPath(), e);
+    } finally {
+      if (xtr != null) {
+        try {
+          xtr.close();
+        } catch (XMLStreamException e) {
+          // intentionally ignored
+        }
+      }
+      if (in != null) {
+        try {
+          in.close();
+        } catch (IOException e) {
+          // intentionally ignored
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Scans files in parallel on the {@link SharedExecutor}.
+   *
+   * @param bpmnFiles
+   *          the files to scan
+   * @return the summaries by file. If the caller is interrupted the files that were not scanned by
+   *         then are missing.
+   */
+  public static Map<IFile, BpmnFileSummary> scanAll(final Collection<IFile> bpmnFiles) {
+    final Map<IFile, BpmnFileSummary> result = new HashMap<IFile, BpmnFileSummary>();
+    if (bpmnFiles.size() < 2) {
+      for (final IFile bpmnFile : bpmnFiles) {
+        result.put(bpmnFile, scan(bpmnFile));
+      }
+      return result;
+    }
+
+    final List<IFile> files = new ArrayList<IFile>(bpmnFiles);
+    final List<Callable<BpmnFileSummary>> tasks = new ArrayList<Callable<BpmnFileSummary>>();
+    for (final IFile bpmnFile : files) {
+      tasks.add(new Callable<BpmnFileSummary>() {
+
+        @Override
+        public BpmnFileSummary call() throws Exception {
+          return scan(bpmnFile);
+        }
+      });
+    }
+
+    try {
+      final List<Future<BpmnFileSummary>> summaries = SharedExecutor.invokeAll(tasks);
+      for (int i = 0; i < files.size(); i++) {
+        try {
+          result.put(files.get(i), summaries.get(i).get());
+        } catch (ExecutionException e) {
+          log("Unable to scan " + files.get(i).getFullPath(), e.getCause());
+          result.put(files.get(i), new BpmnFileSummary());
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return result;
+  }
+
+  private static void scan(final XMLStreamReader xtr, final BpmnFileSummary result) throws XMLStreamException {
+    boolean processFound = false;
+    String processId = null;
+
+    while (xtr.hasNext()) {
+      final int event = xtr.next();
+      if (event == XMLStreamConstants.END_ELEMENT && isProcessElement(xtr.getLocalName())) {
+        processId = null;
+        continue;
+      } else if (event != XMLStreamConstants.START_ELEMENT) {
+        continue;
+      }
+
+      final String localName = xtr.getLocalName();
+      if (DIAGRAM_ELEMENT.equals(localName)) {
+        if (processFound) {
+          return;
+        }
+        skipSubtree(xtr);
+        continue;
+      }
+
+      if (isProcessElement(localName)) {
+        processId = xtr.getAttributeValue(null, "id");
+        result.addProcess(processId, xtr.getAttributeValue(null, "name"));
+        processFound = true;
+      } else if ("callActivity".equals(localName)) {
+        result.addCallActivity(processId, xtr.getAttributeValue(null, "id"), xtr.getAttributeValue(null, "calledElement"));
+      } else if ("message".equals(localName)) {
+        result.addMessageName(xtr.getAttributeValue(null, "name"));
+      } else if ("signal".equals(localName)) {
+        result.addSignalName(xtr.getAttributeValue(null, "name"));
+      }
+
+      // the form key is an extension attribute of start events and user tasks
+      for (int i = 0; i < xtr.getAttributeCount(); i++) {
+        if ("formKey".equals(xtr.getAttributeLocalName(i))) {
+          result.addFormKey(xtr.getAttributeValue(i));
+        }
+      }
+    }
+  }
+
+  private static boolean isProcessElement(final String localName) {
+    return "process".equalsIgnoreCase(localName);
+  }
+
+  /**
+   * Skips the element the reader is at with everything in it.
+   */
+  private static void skipSubtree(final XMLStreamReader xtr) throws XMLStreamException {
+    int depth = 1;
+    while (depth > 0 && xtr.hasNext()) {
+      final int event = xtr.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        depth++;
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        depth--;
+      }
+    }
+  }
+
+  private static void log(final String message, final Throwable t) {
+    final Activator activator = Activator.getDefault();
+    if (activator != null) {
+      activator.getLog().log(new Status(IStatus.WARNING, Activator.PLUGIN_ID, message, t));
+    }
+  }
+
+}
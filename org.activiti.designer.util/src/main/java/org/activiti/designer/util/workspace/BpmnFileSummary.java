@@ -0,0 +1,110 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.util.workspace;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The symbols of a BPMN file other files may refer to or look for: the IDs and names of its
+ * processes, the processes its call activities call, the names of its messages and signals and
+ * its form keys. Read by the {@link BpmnFileScanner}.
+ */
+public class BpmnFileSummary {
+
+  private final Map<String, String> processNames = new LinkedHashMap<String, String>();
+  private final Set<String> calledElements = new LinkedHashSet<String>();
+  private final List<CallActivityReference> callActivities = new ArrayList<CallActivityReference>();
+  private final Set<String> messageNames = new LinkedHashSet<String>();
+  private final Set<String> signalNames = new LinkedHashSet<String>();
+  private final Set<String> formKeys = new LinkedHashSet<String>();
+
+  /**
+   * @return the IDs of the processes in the file
+   */
+  public Set<String> getProcessIds() {
+    return Collections.unmodifiableSet(processNames.keySet());
+  }
+
+  /**
+   * @return the names of the processes in the file by their ID, the name is null for processes
+   *         without a name
+   */
+  public Map<String, String> getProcessNames() {
+    return Collections.unmodifiableMap(processNames);
+  }
+
+  /**
+   * @return the called elements of the call activities in the file
+   */
+  public Set<String> getCalledElements() {
+    return Collections.unmodifiableSet(calledElements);
+  }
+
+  /**
+   * @return the call activities in the file that call a process, in the order of the file
+   */
+  public List<CallActivityReference> getCallActivities() {
+    return Collections.unmodifiableList(callActivities);
+  }
+
+  public Set<String> getMessageNames() {
+    return Collections.unmodifiableSet(messageNames);
+  }
+
+  public Set<String> getSignalNames() {
+    return Collections.unmodifiableSet(signalNames);
+  }
+
+  public Set<String> getFormKeys() {
+    return Collections.unmodifiableSet(formKeys);
+  }
+
+  void addProcess(final String id, final String name) {
+    if (id != null) {
+      processNames.put(id, name);
+    }
+  }
+
+  void addCallActivity(final String processId, final String callActivityId, final String calledElement) {
+    if (calledElement != null && calledElement.length() > 0) {
+      calledElements.add(calledElement);
+      callActivities.add(new CallActivityReference(processId, callActivityId, calledElement));
+    }
+  }
+
+  void addMessageName(final String messageName) {
+    add(messageNames, messageName);
+  }
+
+  void addSignalName(final String signalName) {
+    add(signalNames, signalName);
+  }
+
+  void addFormKey(final String formKey) {
+    add(formKeys, formKey);
+  }
+
+  private static void add(final Set<String> values, final String value) {
+    if (value != null && value.length() > 0) {
+      values.add(value);
+    }
+  }
+
+}
@@ -26,13 +26,10 @@
 
 package org.activiti.designer.util.workspace;
 
-import java.io.InputStreamReader;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
-import javax.xml.stream.XMLInputFactory;
-import javax.xml.stream.XMLStreamReader;
-
 import org.activiti.bpmn.model.Process;
 import org.eclipse.core.resources.IFile;
 
@@ -54,42 +51,24 @@ public class BpmnProcessParser {
 
     final Set<Process> result = new HashSet<Process>();
 
-    try {
-      XMLInputFactory xif = XMLInputFactory.newInstance();
-      InputStreamReader in = new InputStreamReader(bpmnFile.getContents(), "UTF-8");
-      XMLStreamReader xtr = xif.createXMLStreamReader(in);
-
-      Process currentProcess = null;
-
-      while (xtr.hasNext()) {
-        xtr.next();
-
-        if (isProcessStartElement(xtr)) {
-          currentProcess = new Process();
-          currentProcess.setId(xtr.getAttributeValue(null, "id"));
-        } else if (isProcessEndElement(xtr)) {
-          result.add(currentProcess);
-          currentProcess = null;
-        } else {
-          continue;
-        }
-      }
-
-    } catch (Exception e) {
-      // Don't handle, parsing failed.
-      // TODO: log and show message.
+    for (final Map.Entry<String, String> processName : getSummary().getProcessNames().entrySet()) {
+      final Process process = new Process();
+      process.setId(processName.getKey());
+      process.setName(processName.getValue());
+      result.add(process);
     }
 
     return result;
 
   }
 
-  private static final boolean isProcessStartElement(final XMLStreamReader xtr) {
-    return xtr.isStartElement() && "process".equalsIgnoreCase(xtr.getLocalName());
-  }
-
-  private static final boolean isProcessEndElement(final XMLStreamReader xtr) {
-    return xtr.isEndElement() && "process".equalsIgnoreCase(xtr.getLocalName());
+  /**
+   * Reads the symbols of the file with a {@link BpmnFileScanner}.
+   * 
+   * @return the summary of the file, which is empty if the file could not be parsed
+   */
+  public BpmnFileSummary getSummary() {
+    return BpmnFileScanner.scan(bpmnFile);
   }
 
 }
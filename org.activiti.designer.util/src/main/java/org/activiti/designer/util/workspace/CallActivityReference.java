@@ -0,0 +1,57 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.util.workspace;
+
+/**
+ * A call activity of a BPMN file, the process it is part of and the process it calls.
+ */
+public class CallActivityReference {
+
+  private final String processId;
+  private final String callActivityId;
+  private final String calledElement;
+
+  public CallActivityReference(final String processId, final String callActivityId, final String calledElement) {
+    this.processId = processId;
+    this.callActivityId = callActivityId;
+    this.calledElement = calledElement;
+  }
+
+  /**
+   * @return the ID of the process the call activity is part of, null if it is not in a process
+   */
+  public String getProcessId() {
+    return processId;
+  }
+
+  /**
+   * @return the ID of the call activity, null if it has none
+   */
+  public String getCallActivityId() {
+    return callActivityId;
+  }
+
+  /**
+   * @return the ID of the process the call activity calls
+   */
+  public String getCalledElement() {
+    return calledElement;
+  }
+
+  @Override
+  public String toString() {
+    return processId + "/" + callActivityId + " -> " + calledElement;
+  }
+
+}
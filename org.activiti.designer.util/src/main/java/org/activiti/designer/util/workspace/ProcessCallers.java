@@ -0,0 +1,133 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.util.workspace;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IFile;
+
+/**
+ * The processes that call a process, as found by the {@link WorkspaceProcessIndex} in one walk of
+ * the call activities of the workspace.
+ */
+public class ProcessCallers {
+
+  private final Map<IFile, List<CallActivityReference>> callActivities;
+  private final Set<String> transitiveCallers;
+  private final List<String> callCycle;
+
+  private ProcessCallers(final Map<IFile, List<CallActivityReference>> callActivities, final Set<String> transitiveCallers,
+          final List<String> callCycle) {
+    this.callActivities = Collections.unmodifiableMap(callActivities);
+    this.transitiveCallers = Collections.unmodifiableSet(transitiveCallers);
+    this.callCycle = Collections.unmodifiableList(callCycle);
+  }
+
+  /**
+   * @return the call activities that call the process by the diagram data file that contains them,
+   *         an empty map if there are none
+   */
+  public Map<IFile, List<CallActivityReference>> getCallActivities() {
+    return callActivities;
+  }
+
+  /**
+   * @return the IDs of the processes that call the process directly or through other processes,
+   *         which includes the process itself if it is part of a cycle
+   */
+  public Set<String> getTransitiveCallers() {
+    return transitiveCallers;
+  }
+
+  /**
+   * @return one of the shortest cycles of processes that call each other the process is part of,
+   *         in the order they call each other, starting and ending with the process, or an empty
+   *         list if the process is not part of a cycle
+   */
+  public List<String> getCallCycle() {
+    return callCycle;
+  }
+
+  /**
+   * Walks the callers of a process breadth first, so the first time the process is found as its own
+   * caller the cycle is one of the shortest. The caller must hold the lock that guards the maps.
+   *
+   * @param processId
+   *          the ID of the called process
+   * @param callerFilesByCalledElement
+   *          the files that contain call activities by the process they call
+   * @param entriesByFile
+   *          the indexed files
+   * @return the callers of the process
+   */
+  static ProcessCallers find(final String processId, final Map<String, Set<IFile>> callerFilesByCalledElement,
+          final Map<IFile, ProcessIndexStore.Entry> entriesByFile) {
+
+    final Map<IFile, List<CallActivityReference>> callActivities = new LinkedHashMap<IFile, List<CallActivityReference>>();
+    final Set<String> callers = new LinkedHashSet<String>();
+    // the process each caller was found for, so the way back to the process can be followed
+    final Map<String, String> calledByCaller = new HashMap<String, String>();
+
+    final LinkedList<String> queue = new LinkedList<String>();
+    queue.add(processId);
+    while (!queue.isEmpty()) {
+      final String called = queue.removeFirst();
+      final Set<IFile> files = callerFilesByCalledElement.get(called);
+      if (files == null) {
+        continue;
+      }
+      for (final IFile file : files) {
+        for (final CallActivityReference callActivity : entriesByFile.get(file).summary.getCallActivities()) {
+          if (!callActivity.getCalledElement().equals(called)) {
+            continue;
+          }
+          if (called.equals(processId)) {
+            List<CallActivityReference> fileCallActivities = callActivities.get(file);
+            if (fileCallActivities == null) {
+              fileCallActivities = new ArrayList<CallActivityReference>();
+              callActivities.put(file, fileCallActivities);
+            }
+            fileCallActivities.add(callActivity);
+          }
+
+          final String caller = callActivity.getProcessId();
+          if (caller != null && callers.add(caller)) {
+            calledByCaller.put(caller, called);
+            queue.add(caller);
+          }
+        }
+      }
+    }
+
+    final List<String> callCycle = new ArrayList<String>();
+    if (callers.contains(processId)) {
+      // every process of the cycle calls the one it was found for, until the process is reached
+      callCycle.add(processId);
+      for (String called = calledByCaller.get(processId); !called.equals(processId); called = calledByCaller.get(called)) {
+        callCycle.add(called);
+      }
+      callCycle.add(processId);
+    }
+    return new ProcessCallers(callActivities, callers, callCycle);
+  }
+
+}
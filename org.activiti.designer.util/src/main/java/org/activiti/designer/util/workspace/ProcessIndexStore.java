@@ -0,0 +1,230 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.util.workspace;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stores the {@link BpmnFileSummary}s of the {@link WorkspaceProcessIndex} in a file, so they
+ * survive restarts of the workbench. Every summary is stored with the full path and the stamps of
+ * its file, a summary is only used again if the stamps of the file are still the same.
+ *
+ * <p>
+ * The file starts with a magic number and a version. A file of another version is ignored, which
+ * makes the index scan the workspace once and write the file in the current version. The file is
+ * written to a temporary file that replaces it, so a crash never leaves half a file behind. Where a
+ * file can not be renamed onto an existing one, the old file is moved aside as a backup first and
+ * only deleted once the new one is in place; the backup is read if the file itself is missing.
+ */
+class ProcessIndexStore {
+
+  private static final int MAGIC = 0x41435049;
+
+  private static final int VERSION = 2;
+
+  /**
+   * A summary and the stamps of the file it was read from.
+   */
+  static class Entry {
+
+    final long modificationStamp;
+    final long localTimeStamp;
+    final BpmnFileSummary summary;
+
+    Entry(final long modificationStamp, final long localTimeStamp, final BpmnFileSummary summary) {
+      this.modificationStamp = modificationStamp;
+      this.localTimeStamp = localTimeStamp;
+      this.summary = summary;
+    }
+  }
+
+  private final File file;
+  private final File tempFile;
+  private final File backupFile;
+
+  ProcessIndexStore(final File file) {
+    this.file = file;
+    this.tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
+    this.backupFile = new File(file.getParentFile(), file.getName() + ".bak");
+  }
+
+  /**
+   * @return the stored entries by the full path of their file, an empty map if the file does not
+   *         exist, is of another version or can not be read
+   */
+  Map<String, Entry> load() {
+    final Map<String, Entry> result = new HashMap<String, Entry>();
+    final File source = file.isFile() ? file : backupFile;
+    if (!source.isFile()) {
+      return result;
+    }
+
+    FileInputStream in = null;
+    try {
+      in = new FileInputStream(source);
+      final DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+
+      if (data.readInt() != MAGIC || data.readInt() != VERSION) {
+        return result;
+      }
+      final int count = data.readInt();
+      for (int i = 0; i < count; i++) {
+        final String path = data.readUTF();
+        final long modificationStamp = data.readLong();
+        final long localTimeStamp = data.readLong();
+        result.put(path, new Entry(modificationStamp, localTimeStamp, readSummary(data)));
+      }
+    } catch (IOException e) {
+      // a damaged index is ignored and written again
+      result.clear();
+    } finally {
+      close(in);
+    }
+    return result;
+  }
+
+  /**
+   * Writes the entries, replacing the stored ones.
+   *
+   * @param entries
+   *          the entries by the full path of their file
+   */
+  void save(final Map<String, Entry> entries) throws IOException {
+    file.getParentFile().mkdirs();
+
+    FileOutputStream fileOut = null;
+    try {
+      fileOut = new FileOutputStream(tempFile);
+      final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut));
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(entries.size());
+      for (final Map.Entry<String, Entry> entry : entries.entrySet()) {
+        out.writeUTF(entry.getKey());
+        out.writeLong(entry.getValue().modificationStamp);
+        out.writeLong(entry.getValue().localTimeStamp);
+        writeSummary(out, entry.getValue().summary);
+      }
+      out.flush();
+    } finally {
+      close(fileOut);
+    }
+
+    if (tempFile.renameTo(file)) {
+      return;
+    }
+
+    // some platforms do not rename onto an existing file, the old one stays readable as a backup
+    backupFile.delete();
+    if (file.exists() && !file.renameTo(backupFile)) {
+      throw new IOException("Unable to replace " + file);
+    }
+    if (!tempFile.renameTo(file)) {
+      backupFile.renameTo(file);
+      throw new IOException("Unable to replace " + file);
+    }
+    backupFile.delete();
+  }
+
+  private static BpmnFileSummary readSummary(final DataInput in) throws IOException {
+    final BpmnFileSummary summary = new BpmnFileSummary();
+    final int processCount = in.readInt();
+    for (int i = 0; i < processCount; i++) {
+      final String id = in.readUTF();
+      summary.addProcess(id, readOptionalString(in));
+    }
+    final int callActivityCount = in.readInt();
+    for (int i = 0; i < callActivityCount; i++) {
+      final String processId = readOptionalString(in);
+      final String callActivityId = readOptionalString(in);
+      summary.addCallActivity(processId, callActivityId, in.readUTF());
+    }
+    for (final String messageName : readStrings(in)) {
+      summary.addMessageName(messageName);
+    }
+    for (final String signalName : readStrings(in)) {
+      summary.addSignalName(signalName);
+    }
+    for (final String formKey : readStrings(in)) {
+      summary.addFormKey(formKey);
+    }
+    return summary;
+  }
+
+  private static void writeSummary(final DataOutputStream out, final BpmnFileSummary summary) throws IOException {
+    out.writeInt(summary.getProcessNames().size());
+    for (final Map.Entry<String, String> process : summary.getProcessNames().entrySet()) {
+      out.writeUTF(process.getKey());
+      writeOptionalString(out, process.getValue());
+    }
+    out.writeInt(summary.getCallActivities().size());
+    for (final CallActivityReference callActivity : summary.getCallActivities()) {
+      writeOptionalString(out, callActivity.getProcessId());
+      writeOptionalString(out, callActivity.getCallActivityId());
+      out.writeUTF(callActivity.getCalledElement());
+    }
+    writeStrings(out, summary.getMessageNames());
+    writeStrings(out, summary.getSignalNames());
+    writeStrings(out, summary.getFormKeys());
+  }
+
+  private static String[] readStrings(final DataInput in) throws IOException {
+    final String[] result = new String[in.readInt()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = in.readUTF();
+    }
+    return result;
+  }
+
+  private static void writeStrings(final DataOutputStream out, final Collection<String> values) throws IOException {
+    out.writeInt(values.size());
+    for (final String value : values) {
+      out.writeUTF(value);
+    }
+  }
+
+  private static String readOptionalString(final DataInput in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  private static void writeOptionalString(final DataOutputStream out, final String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeUTF(value);
+    }
+  }
+
+  private static void close(final Closeable closeable) {
+    if (closeable != null) {
+      try {
+        closeable.close();
+      } catch (IOException e) {
+        // intentionally ignored
+      }
+    }
+  }
+
+}
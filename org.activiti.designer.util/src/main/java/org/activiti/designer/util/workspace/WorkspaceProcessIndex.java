@@ -0,0 +1,549 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.util.workspace;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.activiti.designer.util.ActivitiConstants;
+import org.activiti.designer.util.Activator;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.IResourceVisitor;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.operation.IRunnableWithProgress;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.ui.PlatformUI;
+
+/**
+ * Index of the process IDs in the diagram data files of all open Activiti projects. The workspace
+ * is only scanned once, in the background when the plug-in starts. After that the index follows
+ * the resource deltas of the workspace: the data files that were added, changed or removed and the
+ * projects that were opened, closed or changed their natures are queued and indexed again in the
+ * background, so lookups never walk the workspace.
+ *
+ * <p>
+ * Lookups answer from what is indexed so far, so they are cheap enough for the UI thread. Until the
+ * first scan is complete that may be only part of the workspace: callers that act on the answer
+ * call {@link #waitUntilReady()} first, the others check {@link #isReady()} and must not take a
+ * missing process for granted. Later changes are never waited for. The index is safe for
+ * concurrent use.
+ *
+ * <p>
+ * The index is written to the state location of the plug-in by a {@link ProcessIndexStore} a while
+ * after it changed and when the workbench shuts down. After a restart only the files whose stamps
+ * changed since the index was written are parsed again.
+ *
+ * <p>
+ * The index also knows the call activities of all files, so it can tell which processes call a
+ * process, directly or through other processes, and whether processes call each other in a cycle.
+ */
+public class WorkspaceProcessIndex implements IResourceChangeListener {
+
+  private static final Set<String> IGNORED_ROOT_SEGMENTS = new HashSet<String>();
+
+  static {
+    IGNORED_ROOT_SEGMENTS.add("target");
+    IGNORED_ROOT_SEGMENTS.add("tempbar");
+  }
+
+  private static final String STORE_FILE_NAME = "process-index.bin";
+
+  private static final long SAVE_DELAY_MILLIS = 30000L;
+
+  private static final long WAIT_POLL_MILLIS = 100L;
+
+  private static WorkspaceProcessIndex instance;
+
+  /** Guarded by this. */
+  private final Map<IFile, ProcessIndexStore.Entry> entriesByFile = new HashMap<IFile, ProcessIndexStore.Entry>();
+  private final Map<String, Set<IFile>> filesByProcessId = new HashMap<String, Set<IFile>>();
+  private final Map<String, Set<IFile>> callerFilesByCalledElement = new HashMap<String, Set<IFile>>();
+  private boolean changedSinceSave;
+
+  /** Null if the index is not stored. */
+  private final ProcessIndexStore store;
+
+  /** The stored entries that were not used yet, only used by the update job. */
+  private Map<String, ProcessIndexStore.Entry> storedEntries;
+
+  /** The files and projects to index again, guarded by itself. */
+  private final Set<IResource> pending = new LinkedHashSet<IResource>();
+
+  /** Released when the first scan of the workspace is complete, or when the index is shut down. */
+  private final CountDownLatch initialScan = new CountDownLatch(1);
+  private volatile boolean ready;
+
+  private final Job updateJob = new Job("Indexing Activiti processes") {
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+      update();
+      return Status.OK_STATUS;
+    }
+  };
+
+  private final Job saveJob = new Job("Saving the Activiti process index") {
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+      save();
+      return Status.OK_STATUS;
+    }
+  };
+
+  private WorkspaceProcessIndex() {
+    updateJob.setSystem(true);
+    saveJob.setSystem(true);
+
+    final Activator activator = Activator.getDefault();
+    store = activator == null ? null : new ProcessIndexStore(activator.getStateLocation().append(STORE_FILE_NAME).toFile());
+  }
+
+  /**
+   * Gets the index, which is created and starts indexing the workspace when the plug-in starts or
+   * when it is first used.
+   *
+   * @return the index of the workspace
+   */
+  public static synchronized WorkspaceProcessIndex getDefault() {
+    if (instance == null) {
+      instance = new WorkspaceProcessIndex();
+      instance.start();
+    }
+    return instance;
+  }
+
+  /**
+   * Stops following the changes of the workspace, if the index was used at all.
+   */
+  public static synchronized void shutdown() {
+    if (instance != null) {
+      ResourcesPlugin.getWorkspace().removeResourceChangeListener(instance);
+      instance.updateJob.cancel();
+      instance.saveJob.cancel();
+      instance.save();
+      // nobody waits for a scan that will not complete anymore
+      instance.initialScan.countDown();
+      instance = null;
+    }
+  }
+
+  private void start() {
+    final IWorkspace workspace = ResourcesPlugin.getWorkspace();
+    workspace.addResourceChangeListener(this, IResourceChangeEvent.POST_CHANGE);
+
+    synchronized (pending) {
+      pending.addAll(Arrays.asList(workspace.getRoot().getProjects()));
+    }
+    updateJob.schedule();
+  }
+
+  /**
+   * @return true once the workspace was scanned, so lookups cover all open Activiti projects
+   */
+  public boolean isReady() {
+    return ready;
+  }
+
+  /**
+   * Waits until the first scan of the workspace is complete. On the UI thread a busy cursor is
+   * shown, followed by a progress dialog in which the user can cancel the wait.
+   *
+   * @return true if the workspace was scanned, false if the wait was cancelled or interrupted
+   */
+  public boolean waitUntilReady() {
+    if (ready) {
+      return true;
+    }
+
+    if (Display.getCurrent() == null) {
+      try {
+        initialScan.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return ready;
+    }
+
+    try {
+      PlatformUI.getWorkbench().getProgressService().busyCursorWhile(new IRunnableWithProgress() {
+
+        @Override
+        public void run(IProgressMonitor monitor) throws InterruptedException {
+          monitor.beginTask("Indexing Activiti processes", IProgressMonitor.UNKNOWN);
+          try {
+            while (!initialScan.await(WAIT_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+              if (monitor.isCanceled()) {
+                throw new InterruptedException();
+              }
+            }
+          } finally {
+            monitor.done();
+          }
+        }
+      });
+    } catch (InvocationTargetException e) {
+      // not thrown, the wait does not fail
+    } catch (InterruptedException e) {
+      // cancelled by the user
+    }
+    return ready;
+  }
+
+  /**
+   * @return all diagram data files in all open Activiti projects
+   */
+  public Set<IFile> getDiagramDataFiles() {
+    synchronized (this) {
+      return new HashSet<IFile>(entriesByFile.keySet());
+    }
+  }
+
+  /**
+   * @return the process IDs by the diagram data file that contains them
+   */
+  public Map<IFile, Set<String>> getProcessIdsByDiagramDataFile() {
+    synchronized (this) {
+      final Map<IFile, Set<String>> result = new HashMap<IFile, Set<String>>();
+      for (final Map.Entry<IFile, ProcessIndexStore.Entry> entry : entriesByFile.entrySet()) {
+        result.put(entry.getKey(), entry.getValue().summary.getProcessIds());
+      }
+      return result;
+    }
+  }
+
+  /**
+   * @param dataFile
+   *          a diagram data file
+   * @return the summary of the file or null if it is not a diagram data file of an open Activiti
+   *         project
+   */
+  public BpmnFileSummary getSummary(final IFile dataFile) {
+    synchronized (this) {
+      final ProcessIndexStore.Entry entry = entriesByFile.get(dataFile);
+      return entry == null ? null : entry.summary;
+    }
+  }
+
+  /**
+   * @param processId
+   *          the process ID to look for
+   * @return the diagram data files that contain a process with the ID, an empty set if there are
+   *         none
+   */
+  public Set<IFile> getDiagramDataFilesByProcessId(final String processId) {
+    synchronized (this) {
+      final Set<IFile> files = filesByProcessId.get(processId);
+      return files == null ? new HashSet<IFile>() : new HashSet<IFile>(files);
+    }
+  }
+
+  /**
+   * Finds the callers of a process in one walk of the call activities.
+   *
+   * @param processId
+   *          the ID of the called process
+   * @return the call activities that call the process, the processes that call it directly or
+   *         through other processes and the cycle it is part of, if any
+   */
+  public synchronized ProcessCallers getCallers(final String processId) {
+    return ProcessCallers.find(processId, callerFilesByCalledElement, entriesByFile);
+  }
+
+  @Override
+  public void resourceChanged(IResourceChangeEvent event) {
+    if (event.getDelta() == null) {
+      return;
+    }
+
+    final List<IResource> changed = new ArrayList<IResource>();
+    try {
+      event.getDelta().accept(new IResourceDeltaVisitor() {
+
+        @Override
+        public boolean visit(IResourceDelta delta) throws CoreException {
+          final IResource resource = delta.getResource();
+
+          if (resource instanceof IProject) {
+            if (delta.getKind() != IResourceDelta.CHANGED
+                    || (delta.getFlags() & (IResourceDelta.OPEN | IResourceDelta.DESCRIPTION)) != 0) {
+              // the whole project is indexed again, or removed from the index
+              changed.add(resource);
+              return false;
+            }
+          } else if (isIgnoredResource(resource)) {
+            return false;
+          } else if (isDiagramDataFile(resource)) {
+            if (delta.getKind() != IResourceDelta.CHANGED || (delta.getFlags() & IResourceDelta.CONTENT) != 0
+                    || (delta.getFlags() & IResourceDelta.REPLACED) != 0) {
+              changed.add(resource);
+            }
+          }
+          return true;
+        }
+      });
+    } catch (CoreException e) {
+      // intentionally ignored, the delta is only read
+    }
+
+    if (!changed.isEmpty()) {
+      synchronized (pending) {
+        pending.addAll(changed);
+      }
+      updateJob.schedule();
+    }
+  }
+
+  /**
+   * Indexes the pending files and projects. Only called by the update job.
+   */
+  private void update() {
+    if (storedEntries == null) {
+      storedEntries = store == null ? new HashMap<String, ProcessIndexStore.Entry>() : store.load();
+    }
+
+    boolean changed = false;
+    while (true) {
+      final IResource resource;
+      synchronized (pending) {
+        final Iterator<IResource> iterator = pending.iterator();
+        if (!iterator.hasNext()) {
+          // whatever was not used by now belongs to files that no longer exist
+          storedEntries.clear();
+          if (changed) {
+            saveJob.schedule(SAVE_DELAY_MILLIS);
+          }
+          ready = true;
+          initialScan.countDown();
+          return;
+        }
+        resource = iterator.next();
+        iterator.remove();
+      }
+
+      if (resource instanceof IProject) {
+        indexProject((IProject) resource);
+      } else if (resource instanceof IFile) {
+        indexFile((IFile) resource);
+      }
+      changed = true;
+    }
+  }
+
+  private void indexProject(final IProject project) {
+    synchronized (this) {
+      for (final IFile file : new ArrayList<IFile>(entriesByFile.keySet())) {
+        if (file.getProject().equals(project)) {
+          remove(file);
+        }
+      }
+    }
+    if (!isActivitiProject(project)) {
+      return;
+    }
+
+    final List<IFile> dataFiles = new ArrayList<IFile>();
+    try {
+      project.accept(new IResourceVisitor() {
+
+        @Override
+        public boolean visit(IResource resource) throws CoreException {
+          if (isIgnoredResource(resource)) {
+            return false;
+          }
+          if (isDiagramDataFile(resource)) {
+            dataFiles.add((IFile) resource);
+          }
+          return true;
+        }
+      });
+    } catch (CoreException exception) {
+      // intentionally ignored
+    }
+
+    // the files that changed since the index was stored are scanned in parallel
+    final List<IFile> changedFiles = new ArrayList<IFile>();
+    for (final IFile dataFile : dataFiles) {
+      final ProcessIndexStore.Entry entry = getStoredEntry(dataFile);
+      if (entry == null) {
+        changedFiles.add(dataFile);
+      } else {
+        synchronized (this) {
+          put(dataFile, entry);
+        }
+      }
+    }
+
+    final Map<IFile, BpmnFileSummary> summaries = BpmnFileScanner.scanAll(changedFiles);
+    synchronized (this) {
+      for (final IFile dataFile : changedFiles) {
+        final BpmnFileSummary summary = summaries.get(dataFile);
+        // a file that was not scanned because the scan was interrupted is left out of the index
+        // and its store, so it is scanned again the next time the project is indexed
+        if (summary != null) {
+          put(dataFile, new ProcessIndexStore.Entry(dataFile.getModificationStamp(), dataFile.getLocalTimeStamp(), summary));
+        }
+      }
+    }
+  }
+
+  private void indexFile(final IFile file) {
+    if (file.exists() && isActivitiProject(file.getProject())) {
+      ProcessIndexStore.Entry entry = getStoredEntry(file);
+      if (entry == null) {
+        entry = new ProcessIndexStore.Entry(file.getModificationStamp(), file.getLocalTimeStamp(), BpmnFileScanner.scan(file));
+      }
+      synchronized (this) {
+        remove(file);
+        put(file, entry);
+      }
+    } else {
+      synchronized (this) {
+        remove(file);
+      }
+    }
+  }
+
+  private void put(final IFile file, final ProcessIndexStore.Entry entry) {
+    entriesByFile.put(file, entry);
+    changedSinceSave = true;
+    for (final String processId : entry.summary.getProcessIds()) {
+      Set<IFile> files = filesByProcessId.get(processId);
+      if (files == null) {
+        files = new HashSet<IFile>();
+        filesByProcessId.put(processId, files);
+      }
+      files.add(file);
+    }
+    for (final String calledElement : entry.summary.getCalledElements()) {
+      Set<IFile> files = callerFilesByCalledElement.get(calledElement);
+      if (files == null) {
+        files = new HashSet<IFile>();
+        callerFilesByCalledElement.put(calledElement, files);
+      }
+      files.add(file);
+    }
+  }
+
+  private void remove(final IFile file) {
+    final ProcessIndexStore.Entry entry = entriesByFile.remove(file);
+    if (entry != null) {
+      changedSinceSave = true;
+      for (final String processId : entry.summary.getProcessIds()) {
+        final Set<IFile> files = filesByProcessId.get(processId);
+        if (files != null) {
+          files.remove(file);
+          if (files.isEmpty()) {
+            filesByProcessId.remove(processId);
+          }
+        }
+      }
+      for (final String calledElement : entry.summary.getCalledElements()) {
+        final Set<IFile> files = callerFilesByCalledElement.get(calledElement);
+        if (files != null) {
+          files.remove(file);
+          if (files.isEmpty()) {
+            callerFilesByCalledElement.remove(calledElement);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the entry of a data file from the stored index, or null if the file changed since the
+   *         index was stored or is not in it
+   */
+  private ProcessIndexStore.Entry getStoredEntry(final IFile dataFile) {
+    final ProcessIndexStore.Entry storedEntry = storedEntries.remove(dataFile.getFullPath().toString());
+    if (storedEntry != null && storedEntry.modificationStamp == dataFile.getModificationStamp()
+            && storedEntry.localTimeStamp == dataFile.getLocalTimeStamp()) {
+      return storedEntry;
+    }
+    return null;
+  }
+
+  /**
+   * Writes the index if it changed since it was last written.
+   */
+  private void save() {
+    if (store == null) {
+      return;
+    }
+
+    final Map<String, ProcessIndexStore.Entry> entries = new HashMap<String, ProcessIndexStore.Entry>();
+    synchronized (this) {
+      if (!changedSinceSave) {
+        return;
+      }
+      for (final Map.Entry<IFile, ProcessIndexStore.Entry> entry : entriesByFile.entrySet()) {
+        entries.put(entry.getKey().getFullPath().toString(), entry.getValue());
+      }
+      changedSinceSave = false;
+    }
+
+    try {
+      store.save(entries);
+    } catch (IOException e) {
+      synchronized (this) {
+        changedSinceSave = true;
+      }
+      final Activator activator = Activator.getDefault();
+      if (activator != null) {
+        activator.getLog().log(new Status(IStatus.WARNING, Activator.PLUGIN_ID, "Unable to save the Activiti process index", e));
+      }
+    }
+  }
+
+  private static boolean isActivitiProject(final IProject project) {
+    try {
+      return project.isOpen() && project.hasNature(ActivitiConstants.NATURE_ID);
+    } catch (CoreException exception) {
+      return false;
+    }
+  }
+
+  private static boolean isDiagramDataFile(final IResource resource) {
+    return resource instanceof IFile && resource.getName().endsWith(ActivitiConstants.DATA_FILE_EXTENSION);
+  }
+
+  private static boolean isIgnoredResource(final IResource resource) {
+    return resource instanceof IFolder && IGNORED_ROOT_SEGMENTS.contains(resource.getFullPath().segment(1));
+  }
+
+}
@@ -18,21 +18,27 @@ package org.activiti.designer.validation.bpmn20.validation;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
-import org.activiti.bpmn.model.FlowElement;
+import org.activiti.designer.eclipse.Logger;
+import org.activiti.designer.eclipse.common.ActivitiPlugin;
 import org.activiti.designer.eclipse.extension.validation.AbstractProcessValidator;
 import org.activiti.designer.util.ActivitiConstants;
+import org.activiti.designer.util.SharedExecutor;
+import org.activiti.designer.util.editor.ValidationChangeTracker;
+import org.activiti.designer.util.preferences.Preferences;
+import org.activiti.designer.util.preferences.PreferencesUtil;
 import org.activiti.designer.validation.bpmn20.bundle.PluginConstants;
+import org.activiti.designer.validation.bpmn20.validation.worker.IncrementalProcessValidationWorker;
+import org.activiti.designer.validation.bpmn20.validation.worker.ProcessConstructIndex;
 import org.activiti.designer.validation.bpmn20.validation.worker.ProcessValidationWorkerInfo;
 import org.activiti.designer.validation.bpmn20.validation.worker.ProcessValidationWorkerMarker;
-import org.activiti.designer.validation.bpmn20.validation.worker.impl.ScriptTaskValidationWorker;
-import org.activiti.designer.validation.bpmn20.validation.worker.impl.SequenceFlowValidationWorker;
-import org.activiti.designer.validation.bpmn20.validation.worker.impl.ServiceTaskValidationWorker;
-import org.activiti.designer.validation.bpmn20.validation.worker.impl.SubProcessValidationWorker;
-import org.activiti.designer.validation.bpmn20.validation.worker.impl.UserTaskValidationWorker;
+import org.activiti.designer.validation.bpmn20.validation.worker.ProcessValidationWorkerRegistry;
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.SubProgressMonitor;
@@ -46,8 +52,6 @@ import org.eclipse.graphiti.mm.pictograms.Diagram;
  */
 public class BPMN20ProcessValidator extends AbstractProcessValidator {
 
-  private static final int EXTRACTION_WORK_UNIT = 10;
-
   private boolean overallResult;
 
   /**
@@ -76,80 +80,202 @@ public class BPMN20ProcessValidator extends AbstractProcessValidator {
 
     this.overallResult = true;
 
-    monitor.beginTask("", PluginConstants.WORK_TOTAL);
-
-    // Clear problems for this diagram first
-    clearMarkers(getDiagramResource());
+    final List<ProcessValidationWorkerInfo> workers = ProcessValidationWorkerRegistry.getWorkers();
 
-    final Map<String, List<Object>> processNodes = extractProcessConstructs(new SubProgressMonitor(monitor, PluginConstants.WORK_EXTRACT_CONSTRUCTS));
+    int totalWork = PluginConstants.WORK_CLEAR_MARKERS + PluginConstants.WORK_EXTRACT_CONSTRUCTS;
+    for (final ProcessValidationWorkerInfo worker : workers) {
+      totalWork += worker.getWork();
+    }
+    monitor.beginTask("", totalWork);
+
+    // Gather the problems for this diagram, they replace the existing ones when committed
+    beginMarkerSession();
+    try {
+      final ProcessConstructIndex index = extractProcessConstructs(new SubProgressMonitor(monitor, PluginConstants.WORK_EXTRACT_CONSTRUCTS));
+
+      final ValidationChangeTracker changeTracker = getDiagramWorkerContext().getBpmnModel().getValidationChangeTracker();
+      final Set<String> scope = getIncrementalScope(changeTracker.takeChangedIds(), index, workers);
+
+      final ProcessConstructIndex processNodes = scope == null ? index : index.restrictTo(scope);
+      final List<ProcessValidationWorkerInfo> activeWorkers = new ArrayList<ProcessValidationWorkerInfo>();
+      for (final ProcessValidationWorkerInfo worker : workers) {
+        if (scope == null || isAffected((IncrementalProcessValidationWorker) worker.getProcessValidationWorker(), processNodes)) {
+          activeWorkers.add(worker);
+        } else {
+          monitor.worked(worker.getWork());
+        }
+      }
 
-    final List<ProcessValidationWorkerInfo> workers = getWorkers();
+      final List<Collection<ProcessValidationWorkerMarker>> results;
+      try {
+        if (activeWorkers.size() > 1 && Runtime.getRuntime().availableProcessors() > 1
+                && PreferencesUtil.getBooleanPreference(Preferences.VALIDATE_WORKERS_IN_PARALLEL, ActivitiPlugin.getDefault())) {
+          results = validateInParallel(diagram, processNodes, activeWorkers);
+        } else {
+          results = new ArrayList<Collection<ProcessValidationWorkerMarker>>();
+          for (final ProcessValidationWorkerInfo worker : activeWorkers) {
+            results.add(worker.getProcessValidationWorker().validate(diagram, processNodes));
+          }
+        }
+      } catch (RuntimeException e) {
+        // the changes were taken but not validated
+        changeTracker.markAllChanged();
+        throw e;
+      }
 
-    for (final ProcessValidationWorkerInfo worker : workers) {
+      if (results.contains(null)) {
+        // a worker failed, its markers would be lost if the others' were committed
+        changeTracker.markAllChanged();
+        overallResult = false;
+        monitor.done();
+        return overallResult;
+      }
 
-      Collection<ProcessValidationWorkerMarker> result = worker.getProcessValidationWorker().validate(diagram, processNodes);
-      if (result.size() > 0) {
-        for (final ProcessValidationWorkerMarker marker : result) {
-          final String markerMessage = String.format(PluginConstants.MARKER_MESSAGE_PATTERN, marker.getCode().getDisplayName(), marker.getMessage());
-          switch (marker.getSeverity()) {
-          case IMarker.SEVERITY_ERROR:
-            addProblemToDiagram(markerMessage, marker.getNodeId());
-            break;
-          case IMarker.SEVERITY_WARNING:
-            addWarningToDiagram(markerMessage, marker.getNodeId());
-            break;
-          case IMarker.SEVERITY_INFO:
-            addInfoToDiagram(markerMessage, marker.getNodeId());
-            break;
+      // markers are added in the order of the workers, whichever finished first
+      for (int i = 0; i < activeWorkers.size(); i++) {
+        final ProcessValidationWorkerInfo worker = activeWorkers.get(i);
+
+        Collection<ProcessValidationWorkerMarker> result = results.get(i);
+        if (result.size() > 0) {
+          for (final ProcessValidationWorkerMarker marker : result) {
+            final String markerMessage = String.format(PluginConstants.MARKER_MESSAGE_PATTERN, marker.getCode().getDisplayName(), marker.getMessage());
+            switch (marker.getSeverity()) {
+            case IMarker.SEVERITY_ERROR:
+              addProblemToDiagram(markerMessage, marker.getNodeId());
+              break;
+            case IMarker.SEVERITY_WARNING:
+              addWarningToDiagram(markerMessage, marker.getNodeId());
+              break;
+            case IMarker.SEVERITY_INFO:
+              addInfoToDiagram(markerMessage, marker.getNodeId());
+              break;
+            }
           }
         }
+        monitor.worked(worker.getWork());
       }
-      monitor.worked(worker.getWork());
+
+      commitMarkerSession(scope);
+
+      if (scope != null && overallResult) {
+        // the problems of the constructs that were not validated again still count
+        overallResult = !hasProblemMarkers();
+      }
+    } finally {
+      // a worker that failed leaves the existing markers as they are
+      discardMarkerSession();
     }
 
     monitor.done();
     return overallResult;
   }
 
-  private Map<String, List<Object>> extractProcessConstructs(final IProgressMonitor monitor) {
-
-    Collection<FlowElement> flowElements = getDiagramWorkerContext().getBpmnModel().getBpmnModel().getMainProcess().getFlowElements();
-    monitor.beginTask("Analyzing process constructs", flowElements.size() * EXTRACTION_WORK_UNIT);
-
-    final Map<String, List<Object>> result = new HashMap<String, List<Object>>();
-
-    for (final FlowElement object : flowElements) {
+  /**
+   * Gets the ids of the constructs to validate again if the diagram can be validated incrementally.
+   * That is the case if incremental validation is enabled, it is known what changed since the last
+   * validation and all workers support it. The constructs that are validated again are the changed
+   * ones, their neighbours and the nodes of existing markers whose construct no longer exists.
+   * 
+   * @return the ids of the constructs to validate or null if the whole diagram must be validated
+   */
+  private Set<String> getIncrementalScope(final Set<String> changedIds, final ProcessConstructIndex index,
+          final List<ProcessValidationWorkerInfo> workers) {
+
+    if (changedIds == null || !PreferencesUtil.getBooleanPreference(Preferences.VALIDATE_INCREMENTALLY, ActivitiPlugin.getDefault())) {
+      return null;
+    }
+    for (final ProcessValidationWorkerInfo worker : workers) {
+      if (worker.getProcessValidationWorker() instanceof IncrementalProcessValidationWorker == false) {
+        return null;
+      }
+    }
 
-      String nodeType = null;
+    final Set<String> result = index.getAffectedIds(changedIds);
+    final IMarker[] markers = getMarkers();
+    if (markers != null) {
+      for (final IMarker marker : markers) {
+        final String nodeId = marker.getAttribute(ATTRIBUTE_NODE_ID, null);
+        if (nodeId != null && !index.containsId(nodeId)) {
+          result.add(nodeId);
+        }
+      }
+    }
+    return result;
+  }
 
-      nodeType = object.getClass().getCanonicalName();
+  private boolean isAffected(final IncrementalProcessValidationWorker worker, final ProcessConstructIndex processNodes) {
+    for (final Class<?> elementType : worker.getElementTypes()) {
+      if (!processNodes.getConstructs(elementType).isEmpty()) {
+        return true;
+      }
+    }
+    return false;
+  }
 
-      if (nodeType != null) {
-        if (!result.containsKey(nodeType)) {
-          result.put(nodeType, new ArrayList<Object>());
+  private boolean hasProblemMarkers() {
+    final IMarker[] markers = getMarkers();
+    if (markers != null) {
+      for (final IMarker marker : markers) {
+        if (getClass().getCanonicalName().equals(marker.getAttribute(ATTRIBUTE_WORKER_ID, null))
+                && marker.getAttribute(IMarker.SEVERITY, -1) == IMarker.SEVERITY_ERROR) {
+          return true;
         }
-        result.get(nodeType).add(object);
       }
-
-      monitor.worked(EXTRACTION_WORK_UNIT);
     }
+    return false;
+  }
+
+  private ProcessConstructIndex extractProcessConstructs(final IProgressMonitor monitor) {
+
+    monitor.beginTask("Analyzing process constructs", 1);
 
+    final ProcessConstructIndex result = ProcessConstructIndex.build(getDiagramWorkerContext().getBpmnModel().getBpmnModel());
+
+    monitor.worked(1);
     monitor.done();
 
     return result;
   }
-  private List<ProcessValidationWorkerInfo> getWorkers() {
 
-    List<ProcessValidationWorkerInfo> result = new ArrayList<ProcessValidationWorkerInfo>();
+  /**
+   * Invokes the workers concurrently on the same process nodes, which none of them change. The
+   * errors of workers that fail are logged.
+   * 
+   * @return the markers of every worker, in the order of the workers, null for the workers that
+   *         failed
+   */
+  private List<Collection<ProcessValidationWorkerMarker>> validateInParallel(final Diagram diagram, final Map<String, List<Object>> processNodes,
+          final List<ProcessValidationWorkerInfo> workers) {
+
+    final List<Callable<Collection<ProcessValidationWorkerMarker>>> tasks = new ArrayList<Callable<Collection<ProcessValidationWorkerMarker>>>();
+    for (final ProcessValidationWorkerInfo worker : workers) {
+      tasks.add(new Callable<Collection<ProcessValidationWorkerMarker>>() {
 
-    result.add(new ProcessValidationWorkerInfo(new UserTaskValidationWorker(), PluginConstants.WORK_USER_TASK));
-    result.add(new ProcessValidationWorkerInfo(new ScriptTaskValidationWorker(), PluginConstants.WORK_SCRIPT_TASK));
-    result.add(new ProcessValidationWorkerInfo(new ServiceTaskValidationWorker(), PluginConstants.WORK_SERVICE_TASK));
-    result.add(new ProcessValidationWorkerInfo(new SequenceFlowValidationWorker(), PluginConstants.WORK_SEQUENCE_FLOW));
-    result.add(new ProcessValidationWorkerInfo(new SubProcessValidationWorker(), PluginConstants.WORK_SUB_PROCESS));
+        @Override
+        public Collection<ProcessValidationWorkerMarker> call() throws Exception {
+          return worker.getProcessValidationWorker().validate(diagram, processNodes);
+        }
+      });
+    }
 
-    return result;
+    final List<Collection<ProcessValidationWorkerMarker>> result = new ArrayList<Collection<ProcessValidationWorkerMarker>>();
+    try {
+      for (final Future<Collection<ProcessValidationWorkerMarker>> future : SharedExecutor.invokeAll(tasks)) {
+        try {
+          result.add(future.get());
+        } catch (ExecutionException e) {
+          Logger.logError("Error while validating the diagram", e.getCause());
+          result.add(null);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      while (result.size() < workers.size()) {
+        result.add(null);
+      }
+    }
 
+    return result;
   }
 
   @Override
@@ -0,0 +1,36 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.validation.bpmn20.validation.worker;
+
+import java.util.Collection;
+
+/**
+ * A {@link ProcessValidationWorker} that can validate part of a process. When validating
+ * incrementally, the worker is only invoked if constructs of one of its element types changed, and
+ * it is given only the changed constructs and their neighbours. It must therefore only add markers
+ * for the constructs in the map it is given.
+ *
+ * <p>
+ * Validation is only incremental if all registered workers implement this interface.
+ */
+public interface IncrementalProcessValidationWorker extends ProcessValidationWorker {
+
+  /**
+   * Gets the classes of the constructs the worker validates.
+   *
+   * @return the classes of the constructs, exactly as indexed by the {@link ProcessConstructIndex}
+   */
+  Collection<Class<?>> getElementTypes();
+
+}
@@ -0,0 +1,239 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.validation.bpmn20.validation.worker;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.activiti.bpmn.model.Artifact;
+import org.activiti.bpmn.model.BaseElement;
+import org.activiti.bpmn.model.BpmnModel;
+import org.activiti.bpmn.model.FlowElement;
+import org.activiti.bpmn.model.FlowElementsContainer;
+import org.activiti.bpmn.model.Lane;
+import org.activiti.bpmn.model.MessageFlow;
+import org.activiti.bpmn.model.Pool;
+import org.activiti.bpmn.model.Process;
+import org.activiti.bpmn.model.SequenceFlow;
+
+/**
+ * Index of the constructs of a {@link BpmnModel}, built in a single pass over every process and
+ * all of its sub processes, including event sub processes, with their flow elements, artifacts and
+ * lanes, and over the pools and message flows of the model.
+ *
+ * <p>
+ * The index is the map of constructs {@link ProcessValidationWorker}s are given: the constructs by
+ * the canonical name of their class. Workers that need more than that can cast the map to this
+ * class, to get the constructs by class and the container of every construct. The index can not be
+ * changed, so it can be shared by workers that run concurrently.
+ */
+public final class ProcessConstructIndex extends AbstractMap<String, List<Object>> {
+
+  private final Map<Class<?>, List<Object>> constructsByClass = new IdentityHashMap<Class<?>, List<Object>>();
+  private final Map<String, List<Object>> constructsByName = new HashMap<String, List<Object>>();
+  private final Map<Object, Object> parents;
+  private final Set<String> ids = new HashSet<String>();
+
+  private ProcessConstructIndex(final Map<Object, Object> parents) {
+    this.parents = parents;
+  }
+
+  /**
+   * Builds the index of the model.
+   *
+   * @param bpmnModel
+   *          the model to index
+   * @return the index
+   */
+  public static ProcessConstructIndex build(final BpmnModel bpmnModel) {
+    final ProcessConstructIndex index = new ProcessConstructIndex(new IdentityHashMap<Object, Object>());
+
+    for (final Pool pool : bpmnModel.getPools()) {
+      index.add(pool, null);
+    }
+    for (final MessageFlow messageFlow : bpmnModel.getMessageFlows().values()) {
+      index.add(messageFlow, null);
+    }
+    for (final Process process : bpmnModel.getProcesses()) {
+      index.add(process, null);
+      for (final Lane lane : process.getLanes()) {
+        index.add(lane, process);
+      }
+      index.addContainer(process);
+    }
+
+    index.complete();
+    return index;
+  }
+
+  /**
+   * Gets an index of part of the constructs of this index, for instance of the constructs that
+   * changed since they were last validated. The containers of the constructs are the same as in
+   * this index.
+   *
+   * @param elementIds
+   *          the ids of the constructs to keep
+   * @return the index of the constructs with the provided ids
+   */
+  public ProcessConstructIndex restrictTo(final Collection<String> elementIds) {
+    final ProcessConstructIndex index = new ProcessConstructIndex(parents);
+    for (final List<Object> constructs : constructsByClass.values()) {
+      for (final Object construct : constructs) {
+        if (elementIds.contains(((BaseElement) construct).getId())) {
+          index.add(construct, null);
+        }
+      }
+    }
+    index.complete();
+    return index;
+  }
+
+  /**
+   * Gets the ids of the constructs whose validation may depend on the provided constructs: the
+   * constructs themselves, the sequence flows connected to them with the constructs on their other
+   * end, and the containers of all of those.
+   *
+   * @param elementIds
+   *          the ids of the constructs that changed
+   * @return the ids of the constructs to validate again
+   */
+  public Set<String> getAffectedIds(final Collection<String> elementIds) {
+    final Set<String> result = new HashSet<String>(elementIds);
+    for (final SequenceFlow sequenceFlow : getConstructs(SequenceFlow.class)) {
+      if (elementIds.contains(sequenceFlow.getId()) || elementIds.contains(sequenceFlow.getSourceRef())
+              || elementIds.contains(sequenceFlow.getTargetRef())) {
+        result.add(sequenceFlow.getId());
+        result.add(sequenceFlow.getSourceRef());
+        result.add(sequenceFlow.getTargetRef());
+      }
+    }
+
+    for (final List<Object> constructs : constructsByClass.values()) {
+      for (final Object construct : constructs) {
+        if (result.contains(((BaseElement) construct).getId())) {
+          final Object parent = parents.get(construct);
+          if (parent instanceof BaseElement && parent instanceof Process == false) {
+            result.add(((BaseElement) parent).getId());
+          }
+        }
+      }
+    }
+    result.remove(null);
+    return result;
+  }
+
+  /**
+   * @return true if there is a construct with the provided id
+   */
+  public boolean containsId(final String elementId) {
+    return ids.contains(elementId);
+  }
+
+  private void complete() {
+    for (final Map.Entry<Class<?>, List<Object>> entry : constructsByClass.entrySet()) {
+      entry.setValue(Collections.unmodifiableList(entry.getValue()));
+      constructsByName.put(entry.getKey().getCanonicalName(), entry.getValue());
+    }
+  }
+
+  private void addContainer(final FlowElementsContainer container) {
+    for (final FlowElement flowElement : container.getFlowElements()) {
+      add(flowElement, container);
+      // covers event sub processes and transactions, which are sub processes as well
+      if (flowElement instanceof FlowElementsContainer) {
+        addContainer((FlowElementsContainer) flowElement);
+      }
+    }
+    for (final Artifact artifact : container.getArtifacts()) {
+      add(artifact, container);
+    }
+  }
+
+  private void add(final Object construct, final Object parent) {
+    List<Object> constructs = constructsByClass.get(construct.getClass());
+    if (constructs == null) {
+      constructs = new ArrayList<Object>();
+      constructsByClass.put(construct.getClass(), constructs);
+    }
+    constructs.add(construct);
+    ids.add(((BaseElement) construct).getId());
+    if (parent != null) {
+      parents.put(construct, parent);
+    }
+  }
+
+  /**
+   * Gets the constructs of exactly the provided class, subclasses are indexed by their own class.
+   *
+   * @param constructClass
+   *          the class of the constructs
+   * @return the constructs, an empty list if there are none
+   */
+  @SuppressWarnings("unchecked")
+  public <T> List<T> getConstructs(final Class<T> constructClass) {
+    final List<Object> constructs = constructsByClass.get(constructClass);
+    return constructs == null ? Collections.<T> emptyList() : (List<T>) constructs;
+  }
+
+  /**
+   * Gets the container of a construct: the process or sub process of flow elements and artifacts,
+   * and the process of lanes.
+   *
+   * @param construct
+   *          the construct
+   * @return the container or null for processes, pools and message flows
+   */
+  public Object getParent(final Object construct) {
+    return parents.get(construct);
+  }
+
+  /**
+   * Gets the process a construct is part of, however deeply it is nested in sub processes.
+   *
+   * @param construct
+   *          the construct
+   * @return the process or null if the construct is not part of a process
+   */
+  public Process getProcess(final Object construct) {
+    Object current = construct;
+    while (current != null && !(current instanceof Process)) {
+      current = parents.get(current);
+    }
+    return (Process) current;
+  }
+
+  @Override
+  public List<Object> get(final Object key) {
+    return constructsByName.get(key);
+  }
+
+  @Override
+  public boolean containsKey(final Object key) {
+    return constructsByName.containsKey(key);
+  }
+
+  @Override
+  public Set<Map.Entry<String, List<Object>>> entrySet() {
+    return Collections.unmodifiableMap(constructsByName).entrySet();
+  }
+
+}
@@ -29,6 +29,16 @@ import org.eclipse.graphiti.mm.pictograms.Diagram;
  */
 public interface ProcessValidationWorker {
 
+  /**
+   * Validates the constructs of the process.
+   * 
+   * @param diagram
+   *          the diagram of the process
+   * @param processNodes
+   *          the constructs of all processes and sub processes by the canonical name of their
+   *          class, a {@link ProcessConstructIndex} that must not be changed
+   * @return the markers for the problems found
+   */
   Collection<ProcessValidationWorkerMarker> validate(Diagram diagram, Map<String, List<Object>> processNodes);
 
 }
@@ -0,0 +1,84 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.designer.validation.bpmn20.validation.worker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.activiti.designer.validation.bpmn20.bundle.PluginConstants;
+import org.activiti.designer.validation.bpmn20.validation.worker.impl.ScriptTaskValidationWorker;
+import org.activiti.designer.validation.bpmn20.validation.worker.impl.SequenceFlowValidationWorker;
+import org.activiti.designer.validation.bpmn20.validation.worker.impl.ServiceTaskValidationWorker;
+import org.activiti.designer.validation.bpmn20.validation.worker.impl.SubProcessValidationWorker;
+import org.activiti.designer.validation.bpmn20.validation.worker.impl.UserTaskValidationWorker;
+
+/**
+ * Registry of the {@link ProcessValidationWorker}s the BPMN 2.0 validator invokes. The workers of
+ * this bundle are registered by default, other bundles can add their own, for instance from their
+ * activator.
+ *
+ * <p>
+ * Workers may be invoked concurrently with each other, so they must not change the process nodes
+ * they are given or share state between invocations.
+ */
+public final class ProcessValidationWorkerRegistry {
+
+  private static final List<ProcessValidationWorkerInfo> WORKERS = new CopyOnWriteArrayList<ProcessValidationWorkerInfo>();
+
+  static {
+    WORKERS.add(new ProcessValidationWorkerInfo(new UserTaskValidationWorker(), PluginConstants.WORK_USER_TASK));
+    WORKERS.add(new ProcessValidationWorkerInfo(new ScriptTaskValidationWorker(), PluginConstants.WORK_SCRIPT_TASK));
+    WORKERS.add(new ProcessValidationWorkerInfo(new ServiceTaskValidationWorker(), PluginConstants.WORK_SERVICE_TASK));
+    WORKERS.add(new ProcessValidationWorkerInfo(new SequenceFlowValidationWorker(), PluginConstants.WORK_SEQUENCE_FLOW));
+    WORKERS.add(new ProcessValidationWorkerInfo(new SubProcessValidationWorker(), PluginConstants.WORK_SUB_PROCESS));
+  }
+
+  private ProcessValidationWorkerRegistry() {
+  }
+
+  /**
+   * Registers a worker, it is invoked after the workers that are registered already.
+   *
+   * @param workerInfo
+   *          the worker and its work units
+   */
+  public static void register(final ProcessValidationWorkerInfo workerInfo) {
+    WORKERS.add(workerInfo);
+  }
+
+  /**
+   * Removes a worker from the registry.
+   *
+   * @param worker
+   *          the worker to remove
+   */
+  public static void unregister(final ProcessValidationWorker worker) {
+    for (final ProcessValidationWorkerInfo workerInfo : WORKERS) {
+      if (workerInfo.getProcessValidationWorker() == worker) {
+        WORKERS.remove(workerInfo);
+      }
+    }
+  }
+
+  /**
+   * Gets the registered workers in the order they were registered.
+   *
+   * @return a copy of the registered workers
+   */
+  public static List<ProcessValidationWorkerInfo> getWorkers() {
+    return new ArrayList<ProcessValidationWorkerInfo>(WORKERS);
+  }
+
+}
@@ -15,11 +15,12 @@ package org.activiti.designer.validation.bpmn20.validation.worker.impl;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 import org.activiti.bpmn.model.ScriptTask;
-import org.activiti.designer.validation.bpmn20.validation.worker.ProcessValidationWorker;
+import org.activiti.designer.validation.bpmn20.validation.worker.IncrementalProcessValidationWorker;
 import org.activiti.designer.validation.bpmn20.validation.worker.ProcessValidationWorkerMarker;
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.graphiti.mm.pictograms.Diagram;
@@ -32,11 +33,16 @@ import org.eclipse.graphiti.mm.pictograms.Diagram;
  * @since 5.6
  * @version 1
  */
-public class ScriptTaskValidationWorker implements ProcessValidationWorker {
+public class ScriptTaskValidationWorker implements IncrementalProcessValidationWorker {
 
   private static final String NO_FORMAT_EXCEPTION_MESSAGE_PATTERN = "ScriptTask '%s' has no format specified";
   private static final String NO_SCRIPT_EXCEPTION_MESSAGE_PATTERN = "ScriptTask '%s' has no format specified";
 
+  @Override
+  public Collection<Class<?>> getElementTypes() {
+    return Collections.<Class<?>> singleton(ScriptTask.class);
+  }
+
   @Override
   public Collection<ProcessValidationWorkerMarker> validate(final Diagram diagram, final Map<String, List<Object>> processNodes) {
 
@@ -15,11 +15,12 @@ package org.activiti.designer.validation.bpmn20.validation.worker.impl;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 import org.activiti.bpmn.model.SequenceFlow;
-import org.activiti.designer.validation.bpmn20.validation.worker.ProcessValidationWorker;
+import org.activiti.designer.validation.bpmn20.validation.worker.IncrementalProcessValidationWorker;
 import org.activiti.designer.validation.bpmn20.validation.worker.ProcessValidationWorkerMarker;
 import org.apache.commons.lang.StringUtils;
 import org.eclipse.core.resources.IMarker;
@@ -33,11 +34,16 @@ import org.eclipse.graphiti.mm.pictograms.Diagram;
  * @since 5.6
  * @version 1
  */
-public class SequenceFlowValidationWorker implements ProcessValidationWorker {
+public class SequenceFlowValidationWorker implements IncrementalProcessValidationWorker {
 
   private static final String NO_SOURCE_ACTIVITY_EXCEPTION_MESSAGE_PATTERN = "SequenceFlow '%s' has no source activity";
   private static final String NO_TARGET_ACTIVITY_EXCEPTION_MESSAGE_PATTERN = "SequenceFlow '%s' has no target activity";
 
+  @Override
+  public Collection<Class<?>> getElementTypes() {
+    return Collections.<Class<?>> singleton(SequenceFlow.class);
+  }
+
   @Override
   public Collection<ProcessValidationWorkerMarker> validate(final Diagram diagram, final Map<String, List<Object>> processNodes) {
 
@@ -15,11 +15,12 @@ package org.activiti.designer.validation.bpmn20.validation.worker.impl;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 import org.activiti.bpmn.model.SubProcess;
-import org.activiti.designer.validation.bpmn20.validation.worker.ProcessValidationWorker;
+import org.activiti.designer.validation.bpmn20.validation.worker.IncrementalProcessValidationWorker;
 import org.activiti.designer.validation.bpmn20.validation.worker.ProcessValidationWorkerMarker;
 import org.eclipse.graphiti.mm.pictograms.Diagram;
 
@@ -30,7 +31,12 @@ import org.eclipse.graphiti.mm.pictograms.Diagram;
  * @since 5.6
  * @version 1
  */
-public class SubProcessValidationWorker implements ProcessValidationWorker {
+public class SubProcessValidationWorker implements IncrementalProcessValidationWorker {
+
+  @Override
+  public Collection<Class<?>> getElementTypes() {
+    return Collections.<Class<?>> singleton(SubProcess.class);
+  }
 
   @Override
   public Collection<ProcessValidationWorkerMarker> validate(final Diagram diagram, final Map<String, List<Object>> processNodes) {